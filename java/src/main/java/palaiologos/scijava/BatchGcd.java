@@ -0,0 +1,68 @@
+/*
+    scijava
+    Copyright (C) 2022 Kamila Szewczyk
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package palaiologos.scijava;
+
+import java.io.IOException;
+
+import static palaiologos.scijava.NativeLibrary.load;
+import static palaiologos.scijava.NativeLibrary.resourceName;
+
+/**
+ * Bernstein's batch GCD algorithm.
+ *
+ * <p>Given a collection of positive integers, batch GCD computes the GCD of every element with the product of all
+ * the other elements. A result other than one means that the element shares a factor with some other element of
+ * the collection, which is the standard way of auditing a large set of RSA moduli for shared primes. Instead of
+ * computing all the pairwise GCDs, the product of the inputs is computed with a product tree and reduced modulo
+ * the squares of the inputs with a remainder tree, which takes quasi-linear rather than quadratic time.
+ * The levels of both trees are processed on multiple threads.
+ *
+ * @author Kamila Szewczyk
+ */
+public final class BatchGcd {
+    static {
+        try {
+            load(resourceName());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private BatchGcd() {
+    }
+
+    private static native void compute(long[] dest, long[] inputs);
+
+    /**
+     * Compute the GCD of every input with the product of all the other inputs. Does not modify the operands.
+     * @param inputs the operands, all positive
+     * @return an array of new SciInteger instances, the i-th of which is the GCD of inputs[i] and the product of
+     * the remaining inputs
+     * @throws ArithmeticException if any of the inputs is not positive
+     */
+    public static SciInteger[] compute(SciInteger[] inputs) {
+        SciInteger[] result = new SciInteger[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            result[i] = SciInteger.fromInteger(0);
+        }
+        compute(ProductTree.pointers(result), ProductTree.pointers(inputs));
+        return result;
+    }
+}
@@ -0,0 +1,214 @@
+/*
+    scijava
+    Copyright (C) 2022 Kamila Szewczyk
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package palaiologos.scijava;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static palaiologos.scijava.NativeLibrary.load;
+import static palaiologos.scijava.NativeLibrary.resourceName;
+
+/**
+ * Summation of hypergeometric-type series by binary splitting.
+ *
+ * <p> A series is given by three polynomials p, q and a with integer coefficients, and its value is
+ * <pre>
+ *     S = sum_{n >= 0} a(n) * (p(1) p(2) ... p(n)) / (q(1) q(2) ... q(n))
+ * </pre>
+ * The first N terms are evaluated natively, without any rounding, by splitting the range of terms in halves and
+ * combining the products of p and q and the partial sums of both halves. The top levels of the splitting run in
+ * parallel, and the result is obtained with a single division at the target precision. The cost is quasi-linear in
+ * the size of the result, compared with the quadratic cost of adding the terms one by one.
+ *
+ * <p> For example, e = sum 1/n! is given by p = 1, q = n and a = 1, and the Chudnovsky series for 1/pi by
+ * <pre>
+ *     BinarySplitting.of(new long[] { 5, -46, 108, -72 },
+ *                        new long[] { 0, 0, 0, 10939058860032000L },
+ *                        new long[] { 13591409, 545140134 })
+ * </pre>
+ * where the sum has to be multiplied by 12 / 640320^(3/2).
+ *
+ * <p> Polynomial coefficients are given lowest degree first. They are evaluated exactly, so large arguments do not
+ * overflow.
+ *
+ * @author Kamila Szewczyk
+ * @see SciFloat
+ * @see SciRational
+ */
+public final class BinarySplitting {
+    static {
+        try {
+            load(resourceName());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Bits by which the first omitted term must be smaller than the largest term.
+    private static final int GUARD_BITS = 16;
+
+    // Range searched for a root of p when the series does not converge geometrically.
+    private static final long TERMINATION_SCAN = 1 << 20;
+
+    private final long[] p;
+    private final long[] q;
+    private final long[] a;
+
+    private BinarySplitting(long[] p, long[] q, long[] a) {
+        this.p = p;
+        this.q = q;
+        this.a = a;
+    }
+
+    private static native void sum(int precision, int roundingMode, long dest, long[] p, long[] q, long[] a,
+                                   long terms);
+    private static native void sumExact(long dest, long[] p, long[] q, long[] a, long terms);
+
+    /**
+     * Create a series from its term polynomials.
+     * @param p the coefficients of the numerator polynomial, lowest degree first
+     * @param q the coefficients of the denominator polynomial, lowest degree first
+     * @param a the coefficients of the term weights, lowest degree first
+     * @return a new BinarySplitting instance
+     * @throws IllegalArgumentException if q is the zero polynomial
+     */
+    public static BinarySplitting of(long[] p, long[] q, long[] a) {
+        long[] pc = trim(p);
+        long[] qc = trim(q);
+        if (qc.length == 0) {
+            throw new IllegalArgumentException("The denominator polynomial must not be zero");
+        }
+        return new BinarySplitting(pc, qc, trim(a));
+    }
+
+    // A copy without the zero coefficients of the highest degrees.
+    private static long[] trim(long[] c) {
+        int n = c.length;
+        while (n > 0 && c[n - 1] == 0) {
+            n--;
+        }
+        return Arrays.copyOf(c, n);
+    }
+
+    private static double eval(long[] c, long n) {
+        double r = 0;
+        for (int i = c.length - 1; i >= 0; i--) {
+            r = r * n + c[i];
+        }
+        return r;
+    }
+
+    private static double log2(double x) {
+        return Math.log(Math.abs(x)) / Math.log(2);
+    }
+
+    /**
+     * Estimate the number of terms needed to sum the series to a given precision. The estimate stops once the
+     * terms, together with a geometric bound on the tail, drop below 2^-precision times the largest term, so it
+     * does not account for cancellation between the terms.
+     * @param precision the precision in bits
+     * @return the number of terms
+     * @throws ArithmeticException if the series neither terminates nor converges geometrically (the degree of p
+     * exceeds the degree of q, or the degrees are equal and the leading coefficient of p is not smaller in
+     * magnitude), or if q vanishes at a positive integer
+     */
+    public long terms(int precision) {
+        if (a.length == 0) {
+            return 0;
+        }
+        int dp = p.length - 1;
+        int dq = q.length - 1;
+        if (dp > dq || (dp == dq && Math.abs((double) p[dp]) >= Math.abs((double) q[dq]))) {
+            // Only a terminating series can be summed.
+            for (long k = 1; k <= TERMINATION_SCAN; k++) {
+                if (eval(p, k) == 0) {
+                    return k;
+                }
+            }
+            throw new ArithmeticException("Series does not converge geometrically; give the number of terms");
+        }
+        double term = 0;
+        double largest = log2(eval(a, 0));
+        for (long k = 1; k < Long.MAX_VALUE; k++) {
+            double pk = eval(p, k);
+            double qk = eval(q, k);
+            if (qk == 0) {
+                throw new ArithmeticException("Series has a zero denominator q(" + k + ")");
+            }
+            if (pk == 0) {
+                return k;
+            }
+            term += log2(pk) - log2(qk);
+            double ak = eval(a, k);
+            if (ak == 0) {
+                continue;
+            }
+            double current = term + log2(ak);
+            largest = Math.max(largest, current);
+            double ratio = Math.abs(eval(p, k + 1) / eval(q, k + 1));
+            if (ratio < 1 && current - log2(1 - ratio) < largest - precision - GUARD_BITS) {
+                return k + 1;
+            }
+        }
+        throw new ArithmeticException("Series does not converge");
+    }
+
+    /**
+     * Sum the first terms of the series exactly.
+     * @param terms the number of terms, non-negative
+     * @return a new SciRational instance, the sum of the terms 0, ..., terms - 1
+     * @throws IllegalArgumentException if terms is negative
+     * @throws ArithmeticException if q vanishes at one of 1, ..., terms - 1
+     */
+    public SciRational sum(long terms) {
+        if (terms < 0) {
+            throw new IllegalArgumentException("The number of terms must be non-negative");
+        }
+        SciRational result = SciRational.valueOf(0);
+        sumExact(result.ptr, p, q, a, terms);
+        return result;
+    }
+
+    /**
+     * Sum the first terms of the series and round the exact result once.
+     * @param mc the MathContext to use for the result
+     * @param terms the number of terms, non-negative
+     * @return a new SciFloat instance, the rounded sum of the terms 0, ..., terms - 1
+     * @throws IllegalArgumentException if terms is negative
+     * @throws ArithmeticException if q vanishes at one of 1, ..., terms - 1
+     */
+    public SciFloat sum(MathContext mc, long terms) {
+        if (terms < 0) {
+            throw new IllegalArgumentException("The number of terms must be non-negative");
+        }
+        SciFloat result = SciFloat.valueOf(mc, 0);
+        sum(mc.precision(), mc.roundingMode().ordinal(), result.ptr, p, q, a, terms);
+        return result;
+    }
+
+    /**
+     * Sum the series to the precision of a math context, with the number of terms given by {@link #terms(int)}.
+     * @param mc the MathContext to use for the result
+     * @return a new SciFloat instance, the value of the series
+     * @throws ArithmeticException if the series does not converge geometrically
+     */
+    public SciFloat sum(MathContext mc) {
+        return sum(mc, terms(mc.precision()));
+    }
+}
@@ -0,0 +1,88 @@
+/*
+    scijava
+    Copyright (C) 2022 Kamila Szewczyk
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package palaiologos.scijava;
+
+import java.time.Duration;
+import java.util.function.Predicate;
+
+/**
+ * A policy deciding when the MPFR caches of a worker thread should be freed.
+ *
+ * <p>Policies are consulted by executors wrapped with {@link MpfrCaches#managed(java.util.concurrent.Executor, CachePolicy)}
+ * on the worker thread itself, before and after every task it runs, because MPFR caches can only be freed by the
+ * thread that owns them.
+ *
+ * @author Kamila Szewczyk
+ * @see MpfrCaches
+ */
+@FunctionalInterface
+public interface CachePolicy {
+    /**
+     * Decide whether to free the caches of a thread. MPFR does not report the size of its caches, so policies
+     * decide from the thread and its idle time alone; freeing caches that are already empty is cheap.
+     * @param thread the current thread
+     * @param idle the time the thread spent without running a task, zero after a task has just finished
+     * @return true if the caches of the thread should be freed
+     */
+    boolean shouldFree(Thread thread, Duration idle);
+
+    /**
+     * A policy that never frees the caches.
+     * @return the policy
+     */
+    static CachePolicy never() {
+        return (thread, idle) -> false;
+    }
+
+    /**
+     * A policy that frees the caches after every task.
+     * @return the policy
+     */
+    static CachePolicy afterEachTask() {
+        return (thread, idle) -> true;
+    }
+
+    /**
+     * A policy that frees the caches of a thread when it picks up a task after being idle for longer than a timeout.
+     * @param timeout the idle time after which the caches are freed
+     * @return the policy
+     */
+    static CachePolicy afterIdle(Duration timeout) {
+        return (thread, idle) -> idle.compareTo(timeout) > 0;
+    }
+
+    /**
+     * Combine two policies, freeing the caches when either of them decides to.
+     * @param other the other policy
+     * @return the combined policy
+     */
+    default CachePolicy or(CachePolicy other) {
+        return (thread, idle) -> shouldFree(thread, idle) || other.shouldFree(thread, idle);
+    }
+
+    /**
+     * Keep the caches of designated threads (e.g. high-precision workers) pinned, applying this policy elsewhere.
+     * @param pinned the predicate selecting the threads whose caches are never freed
+     * @return the combined policy
+     */
+    default CachePolicy pinning(Predicate<Thread> pinned) {
+        return (thread, idle) -> !pinned.test(thread) && shouldFree(thread, idle);
+    }
+}
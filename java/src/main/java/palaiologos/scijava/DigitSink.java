@@ -0,0 +1,73 @@
+/*
+    scijava
+    Copyright (C) 2022 Kamila Szewczyk
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package palaiologos.scijava;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+/**
+ * The destination of a streaming radix conversion. The native side fills a byte array with ASCII digits and calls
+ * {@link #write(byte[], int)} once per chunk, so that the digits of a value never exist as a single Java string.
+ */
+abstract class DigitSink {
+    abstract void write(byte[] b, int length) throws IOException;
+
+    static DigitSink of(OutputStream out) {
+        return new DigitSink() {
+            @Override
+            void write(byte[] b, int length) throws IOException {
+                out.write(b, 0, length);
+            }
+        };
+    }
+
+    static DigitSink of(Appendable out) {
+        return new DigitSink() {
+            private char[] chars = new char[0];
+
+            @Override
+            void write(byte[] b, int length) throws IOException {
+                if (chars.length < length) {
+                    chars = new char[b.length];
+                }
+                for (int i = 0; i < length; i++) {
+                    chars[i] = (char) b[i];
+                }
+                if (out instanceof Writer) {
+                    ((Writer) out).write(chars, 0, length);
+                } else {
+                    out.append(CharBuffer.wrap(chars, 0, length));
+                }
+            }
+        };
+    }
+
+    // ASCII bytes of a character sequence, for parsing without building a String. Characters outside ASCII cannot
+    // occur in a valid number and are replaced by a byte that fails to parse.
+    static byte[] ascii(CharSequence s) {
+        byte[] b = new byte[s.length()];
+        for (int i = 0; i < b.length; i++) {
+            char c = s.charAt(i);
+            b[i] = c < 128 ? (byte) c : (byte) '?';
+        }
+        return b;
+    }
+}
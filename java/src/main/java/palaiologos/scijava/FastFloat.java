@@ -0,0 +1,129 @@
+/*
+    scijava
+    Copyright (C) 2022 Kamila Szewczyk
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package palaiologos.scijava;
+
+/**
+ * Pure-Java arithmetic for SciFloat at precisions of at most 53 bits.
+ *
+ * <p> Every operation computes the double nearest to the exact result together with the exact error (add, mul) or
+ * its sign (div, sqrt) using error-free transformations, and then rounds the exact result to the target precision
+ * in the requested rounding mode. The result is therefore the same as MPFR's correctly rounded result. SciFloat only
+ * uses it when rounding to nearest with a first operand that needs no rounding to the target precision, since its
+ * native operations round that operand in the requested mode first and then round the result to nearest; it does
+ * not extend past 53 bits with double-double arithmetic. Operations whose operands or result are zero, non-finite
+ * or outside [2^-400, 2^400] in magnitude are not handled here, since the error terms could underflow, and return
+ * NaN to let the caller fall back to MPFR.
+ *
+ * @author Kamila Szewczyk
+ */
+final class FastFloat {
+    static final int MAX_PRECISION = 53;
+
+    private static final double MIN = 0x1p-400;
+    private static final double MAX = 0x1p400;
+
+    private FastFloat() {
+    }
+
+    private static boolean inRange(double x) {
+        double m = Math.abs(x);
+        return m >= MIN && m <= MAX;
+    }
+
+    private static boolean operand(double x) {
+        return x == 0 || inRange(x);
+    }
+
+    // Round hi + lo to the given precision, where hi is the double nearest to hi + lo. lo is either exact or, if
+    // hi + lo is known not to be a midpoint of doubles, a stand-in of the right sign much smaller than ulp(hi).
+    private static double round(double hi, double lo, int precision, MathContext.RoundingMode mode) {
+        if (!inRange(hi)) {
+            return Double.NaN;
+        }
+        double sign = Math.signum(hi);
+        double a = Math.abs(hi);
+        double b = lo * sign;
+        boolean away = mode == MathContext.RoundingMode.UP ? sign > 0 : mode == MathContext.RoundingMode.DOWN && sign < 0;
+        // A power of two minus a little lies in the binade below, where the quantum is half as large.
+        int e = Math.getExponent(a);
+        if (b < 0 && a == Math.scalb(1.0, e)) {
+            e--;
+        }
+        double quantum = Math.scalb(1.0, e - precision + 1);
+        // In units of the quantum, the value is f + d + l with f an integer, 0 <= d < 1 and |l| < 1/2.
+        double t = a / quantum;
+        double f = Math.floor(t);
+        double d = t - f;
+        double l = b / quantum;
+        if (d == 0 && l == 0) {
+            return hi;
+        }
+        // The value lies strictly between n and n + 1.
+        double n = f;
+        double half = 0.5 - d;
+        if (d == 0 && l < 0) {
+            n = f - 1;
+            half = -0.5;
+        }
+        boolean up;
+        if (mode == MathContext.RoundingMode.NEAREST) {
+            up = l > half || (l == half && n % 2 != 0);
+        } else {
+            up = away;
+        }
+        return sign * ((up ? n + 1 : n) * quantum);
+    }
+
+    static double add(double a, double b, int precision, MathContext.RoundingMode mode) {
+        if (!operand(a) || !operand(b)) {
+            return Double.NaN;
+        }
+        double s = a + b;
+        double bb = s - a;
+        double err = (a - (s - bb)) + (b - bb);
+        return round(s, err, precision, mode);
+    }
+
+    static double mul(double a, double b, int precision, MathContext.RoundingMode mode) {
+        if (!operand(a) || !operand(b)) {
+            return Double.NaN;
+        }
+        double p = a * b;
+        return round(p, Math.fma(a, b, -p), precision, mode);
+    }
+
+    static double div(double a, double b, int precision, MathContext.RoundingMode mode) {
+        if (!operand(a) || !inRange(b)) {
+            return Double.NaN;
+        }
+        double q = a / b;
+        // The remainder a - q b is exact, and a quotient is never a midpoint of doubles unless it is exact.
+        double r = Math.fma(-q, b, a);
+        return round(q, Math.signum(r) * Math.signum(b) * Math.ulp(q) / 8, precision, mode);
+    }
+
+    static double sqrt(double a, int precision, MathContext.RoundingMode mode) {
+        if (!inRange(a) || a < 0) {
+            return Double.NaN;
+        }
+        double s = Math.sqrt(a);
+        double r = Math.fma(-s, s, a);
+        return round(s, Math.signum(r) * Math.ulp(s) / 8, precision, mode);
+    }
+}
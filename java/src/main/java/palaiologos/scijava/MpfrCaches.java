@@ -0,0 +1,145 @@
+/*
+    scijava
+    Copyright (C) 2022 Kamila Szewczyk
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package palaiologos.scijava;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static palaiologos.scijava.NativeLibrary.load;
+import static palaiologos.scijava.NativeLibrary.resourceName;
+
+/**
+ * Control over the caches of the MPFR library.
+ *
+ * <p>MPFR caches the values of the constants it needs (pi, log 2, Euler's and Catalan's constants) at the highest
+ * precision requested so far. These caches are thread-local, so on a large thread pool every worker may hold its own
+ * copy of a multi-megabyte constant. This class frees them on the current thread, on the threads of a pool, or
+ * according to a {@link CachePolicy}.
+ *
+ * <p>The size of the caches cannot be reported: MPFR fills them internally from logarithms, exponentials,
+ * trigonometric and special functions at their own working precision, and exposes neither their contents nor their
+ * precision. Policies therefore decide when to free by thread and idle time, not by size.
+ *
+ * @author Kamila Szewczyk
+ */
+public final class MpfrCaches {
+    static {
+        try {
+            load(resourceName());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private MpfrCaches() {
+    }
+
+    private static native void freeLocal();
+    private static native void freeShared();
+
+    /**
+     * Free the caches of the current thread.
+     */
+    public static void freeCurrentThread() {
+        freeLocal();
+    }
+
+    /**
+     * Free the caches shared between all threads.
+     */
+    public static void freeGlobal() {
+        freeShared();
+    }
+
+    /**
+     * Free the caches of whichever thread of an executor runs the request. This is precise for single-threaded
+     * executors; use {@link #freeOnAll(ExecutorService, int, Duration)} for pools.
+     * @param executor the executor
+     * @return a future completed once the caches have been freed
+     */
+    public static CompletableFuture<Void> freeOn(Executor executor) {
+        return CompletableFuture.runAsync(MpfrCaches::freeCurrentThread, executor);
+    }
+
+    /**
+     * Free the caches on every thread of a pool. One task per thread is submitted, and each task waits for the
+     * others to start, so that no thread runs two of them.
+     * @param pool the thread pool
+     * @param threads the number of threads in the pool
+     * @param timeout how long to wait for all the threads to pick up a task
+     * @return the number of distinct threads whose caches were freed
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public static int freeOnAll(ExecutorService pool, int threads, Duration timeout) throws InterruptedException {
+        Set<Thread> freed = ConcurrentHashMap.newKeySet();
+        CountDownLatch started = new CountDownLatch(threads);
+        CountDownLatch finished = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            pool.execute(() -> {
+                try {
+                    freeCurrentThread();
+                    freed.add(Thread.currentThread());
+                    started.countDown();
+                    started.await(timeout.toNanos(), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    finished.countDown();
+                }
+            });
+        }
+        finished.await(timeout.toNanos() * 2, TimeUnit.NANOSECONDS);
+        return freed.size();
+    }
+
+    /**
+     * Wrap an executor so that the caches of its worker threads are managed by a policy. The policy is consulted
+     * on the worker thread before every task, with the time the thread spent idle, and after every task.
+     * @param executor the executor to wrap
+     * @param policy the policy
+     * @return the wrapped executor
+     */
+    public static Executor managed(Executor executor, CachePolicy policy) {
+        ThreadLocal<Long> lastTask = new ThreadLocal<>();
+        return task -> executor.execute(() -> {
+            Thread thread = Thread.currentThread();
+            Long last = lastTask.get();
+            Duration idle = last == null ? Duration.ZERO : Duration.ofNanos(System.nanoTime() - last);
+            if (policy.shouldFree(thread, idle)) {
+                freeCurrentThread();
+            }
+            try {
+                task.run();
+            } finally {
+                if (policy.shouldFree(thread, Duration.ZERO)) {
+                    freeCurrentThread();
+                }
+                lastTask.set(System.nanoTime());
+            }
+        });
+    }
+}
@@ -0,0 +1,100 @@
+/*
+    scijava
+    Copyright (C) 2022 Kamila Szewczyk
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package palaiologos.scijava;
+
+import java.util.Iterator;
+
+/**
+ * An unbounded iterator over the (probable) primes strictly greater than a starting point.
+ *
+ * <p>Instead of calling {@link SciInteger#nextPrime(SciInteger)} repeatedly, the iterator sieves a window
+ * of candidates above the current position with a table of small primes and runs a probabilistic primality
+ * test only on the candidates that survive the sieve. Once a window is exhausted, the next one is sieved.
+ *
+ * @author Kamila Szewczyk
+ * @see SciInteger#primesAfter(SciInteger)
+ */
+public final class PrimeIterator implements Iterator<SciInteger> {
+    /**
+     * The default width of a sieving window.
+     */
+    public static final int DEFAULT_WINDOW = 1 << 16;
+
+    /**
+     * The default number of primality-checking rounds performed on the sieve survivors.
+     */
+    public static final int DEFAULT_CERTAINTY = 25;
+
+    private final int window;
+    private final int certainty;
+    private SciInteger windowStart;
+    private SciInteger[] buffer = new SciInteger[0];
+    private int index = 0;
+
+    /**
+     * Create an iterator over the primes strictly greater than start.
+     * @param start the starting point
+     * @param window the width of a single sieving window
+     * @param certainty the number of primality-checking rounds to perform on the sieve survivors
+     * @throws IllegalArgumentException if window is not positive
+     * @throws ArithmeticException if certainty is negative
+     */
+    public PrimeIterator(SciInteger start, int window, int certainty) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("Non-positive sieving window");
+        }
+        if (certainty < 0) {
+            throw new ArithmeticException("Negative certainty");
+        }
+        this.window = window;
+        this.certainty = certainty;
+        this.windowStart = SciInteger.max(SciInteger.add(start, SciInteger.ONE), SciInteger.ZERO);
+    }
+
+    /**
+     * Create an iterator over the primes strictly greater than start, using the default window and certainty.
+     * @param start the starting point
+     */
+    public PrimeIterator(SciInteger start) {
+        this(start, DEFAULT_WINDOW, DEFAULT_CERTAINTY);
+    }
+
+    /**
+     * There is always another prime.
+     * @return true
+     */
+    @Override
+    public boolean hasNext() {
+        return true;
+    }
+
+    /**
+     * Return the next prime, sieving another window if the current one is exhausted.
+     * @return a SciInteger instance, the next prime
+     */
+    @Override
+    public SciInteger next() {
+        while (index == buffer.length) {
+            buffer = SciInteger.sieveWindow(windowStart, window, certainty);
+            windowStart = SciInteger.add(windowStart, SciInteger.valueOf(window));
+            index = 0;
+        }
+        return buffer[index++];
+    }
+}
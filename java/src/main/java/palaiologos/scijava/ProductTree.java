@@ -0,0 +1,145 @@
+/*
+    scijava
+    Copyright (C) 2022 Kamila Szewczyk
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package palaiologos.scijava;
+
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+
+import static palaiologos.scijava.NativeLibrary.load;
+import static palaiologos.scijava.NativeLibrary.resourceName;
+
+/**
+ * A subproduct tree over a fixed set of positive moduli.
+ *
+ * <p>The tree stores the moduli at its leaves and the product of its children at every inner node. It is used to
+ * reduce an integer modulo all the moduli at once ({@link #multiMod(SciInteger)}) and to reconstruct an integer
+ * from its residues using the Chinese remainder theorem ({@link #crt(SciInteger[])}) in quasi-linear rather than
+ * quadratic time. Building the tree is the expensive part, so a single instance should be reused across calls
+ * that share the same moduli. The coefficients needed by {@link #crt(SciInteger[])} are computed on first use.
+ *
+ * @author Kamila Szewczyk
+ */
+public final class ProductTree {
+    static {
+        try {
+            load(resourceName());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    final long ptr;
+
+    private final int size;
+
+    private volatile boolean crtReady = false;
+
+    private final Cleaner.Cleanable cleanable;
+
+    private ProductTree(long ptr, int size) {
+        this.ptr = ptr;
+        this.size = size;
+        cleanable = CleanerSingleton.CLEANER.register(this, () -> {
+            ProductTree.free(ptr);
+        });
+    }
+
+    private static native void free(long ptr);
+    private static native long build(long[] moduli);
+    private static native void product(long dest, long ptr);
+    private static native void prepareCrt(long ptr);
+    private static native void crt(long dest, long ptr, long[] residues);
+    private static native void multiMod(long[] dest, long ptr, long n);
+
+    static long[] pointers(SciInteger[] a) {
+        long[] ptrs = new long[a.length];
+        for (int i = 0; i < a.length; i++) {
+            ptrs[i] = a[i].ptr;
+        }
+        return ptrs;
+    }
+
+    /**
+     * Build a subproduct tree over the given moduli.
+     * @param moduli the moduli, all positive
+     * @return a new ProductTree instance
+     * @throws IllegalArgumentException if no moduli are given
+     * @throws ArithmeticException if any of the moduli is not positive
+     */
+    public static ProductTree of(SciInteger... moduli) {
+        long ptr = build(pointers(moduli));
+        return new ProductTree(ptr, moduli.length);
+    }
+
+    /**
+     * Return the number of moduli in the tree.
+     * @return the number of moduli
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return the product of all the moduli, i.e. the value at the root of the tree.
+     * @return a new SciInteger instance, the product of the moduli
+     */
+    public SciInteger product() {
+        SciInteger result = SciInteger.fromInteger(0);
+        product(result.ptr, ptr);
+        return result;
+    }
+
+    /**
+     * Reduce a SciInteger modulo every modulus of the tree. Does not modify the operand.
+     * @param n the operand
+     * @return an array of new SciInteger instances, the i-th of which is n mod the i-th modulus, in the range
+     * [0, modulus)
+     */
+    public SciInteger[] multiMod(SciInteger n) {
+        SciInteger[] result = new SciInteger[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = SciInteger.fromInteger(0);
+        }
+        multiMod(pointers(result), ptr, n.ptr);
+        return result;
+    }
+
+    /**
+     * Find the unique x in the range [0, M), where M is the product of the moduli, such that x is congruent to
+     * the i-th residue modulo the i-th modulus for all i. Does not modify the operands.
+     * @param residues the residues, one per modulus
+     * @return a new SciInteger instance, the reconstructed value
+     * @throws IllegalArgumentException if the number of residues does not match the number of moduli
+     * @throws ArithmeticException if the moduli are not pairwise coprime
+     */
+    public SciInteger crt(SciInteger[] residues) {
+        if (!crtReady) {
+            synchronized (this) {
+                if (!crtReady) {
+                    prepareCrt(ptr);
+                    crtReady = true;
+                }
+            }
+        }
+        SciInteger result = SciInteger.fromInteger(0);
+        crt(result.ptr, ptr, pointers(residues));
+        return result;
+    }
+}
@@ -0,0 +1,913 @@
+/*
+    scijava
+    Copyright (C) 2022 Kamila Szewczyk
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package palaiologos.scijava;
+
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.util.function.Function;
+
+import static palaiologos.scijava.NativeLibrary.load;
+import static palaiologos.scijava.NativeLibrary.resourceName;
+
+/**
+ * Arbitrary precision real balls provided by SciJava.
+ *
+ * <p> A SciBall is a midpoint together with a radius, and stands for every real number in the closed interval
+ * [mid - rad, mid + rad]. SciBall is backed by the Arb library. Every operation propagates the error of its inputs
+ * together with its own rounding error into the radius of the result, so that the result is guaranteed to contain
+ * the exact value. Consequently, a single evaluation yields both an approximation and a rigorous bound on its
+ * error, and there is no need to verify a result by repeating the computation at a higher precision.
+ *
+ * <p> Operations take a {@link MathContext} whose precision is used as the working precision for the midpoint. The
+ * rounding mode is ignored, since the radius already accounts for rounding. Note that the radius of a result may
+ * be much larger than 2^-precision if the operation is ill-conditioned; {@link #relativeAccuracy()} reports how
+ * many bits of the result are actually known. {@link #evaluate(int, int, Function)} automates the search for the
+ * lowest precision that attains a given accuracy.
+ *
+ * <p> Predicates such as {@link #lt(SciBall)} return true only when the relation holds for every pair of points
+ * in the two balls. Hence, both {@code a.lt(b)} and {@code a.gte(b)} may be false for overlapping balls.
+ *
+ * @author Kamila Szewczyk
+ * @see SciFloat
+ */
+public final class SciBall {
+    static {
+        try {
+            load(resourceName());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    final long ptr;
+
+    private final Cleaner.Cleanable cleanable;
+
+    private SciBall(long ptr) {
+        this.ptr = ptr;
+        cleanable = CleanerSingleton.CLEANER.register(this, () -> {
+            SciBall.free(ptr);
+        });
+    }
+
+    private static native void free(long ptr);
+    private static native SciBall fromLong(long n);
+    private static native SciBall fromString(int precision, String s);
+    private static native SciBall fromSciFloat(long f);
+    private static native SciBall fromSciInteger(long n);
+    private static native SciBall fromMidRad(long mid, long rad);
+    private static native String toString(long ptr, int digits);
+    private static native void midpoint(int precision, long dest, long a);
+    private static native void radius(long dest, long a);
+    private static native long relativeAccuracy(long a);
+    private static native boolean isExact(long a);
+    private static native boolean isFinite(long a);
+    private static native boolean containsZero(long a);
+    private static native boolean contains(long a, long b);
+    private static native boolean containsSciFloat(long a, long f);
+    private static native boolean overlaps(long a, long b);
+    private static native boolean identical(long a, long b);
+    private static native boolean eq(long a, long b);
+    private static native boolean neq(long a, long b);
+    private static native boolean lt(long a, long b);
+    private static native boolean lte(long a, long b);
+    private static native boolean gt(long a, long b);
+    private static native boolean gte(long a, long b);
+    private static native void pi(int precision, long dest);
+    private static native void neg(long dest, long a);
+    private static native void abs(long dest, long a);
+    private static native void round(int precision, long dest, long a);
+    private static native void root(int precision, long dest, long a, int k);
+    private static native void besselJ(int precision, long dest, long nu, long z);
+    private static native void add(int precision, long dest, long a, long b);
+    private static native void sub(int precision, long dest, long a, long b);
+    private static native void mul(int precision, long dest, long a, long b);
+    private static native void div(int precision, long dest, long a, long b);
+    private static native void pow(int precision, long dest, long a, long b);
+    private static native void atan2(int precision, long dest, long a, long b);
+    private static native void sqr(int precision, long dest, long a);
+    private static native void inv(int precision, long dest, long a);
+    private static native void sqrt(int precision, long dest, long a);
+    private static native void rsqrt(int precision, long dest, long a);
+    private static native void exp(int precision, long dest, long a);
+    private static native void expm1(int precision, long dest, long a);
+    private static native void log(int precision, long dest, long a);
+    private static native void log1p(int precision, long dest, long a);
+    private static native void sin(int precision, long dest, long a);
+    private static native void cos(int precision, long dest, long a);
+    private static native void tan(int precision, long dest, long a);
+    private static native void asin(int precision, long dest, long a);
+    private static native void acos(int precision, long dest, long a);
+    private static native void atan(int precision, long dest, long a);
+    private static native void sinh(int precision, long dest, long a);
+    private static native void cosh(int precision, long dest, long a);
+    private static native void tanh(int precision, long dest, long a);
+    private static native void gamma(int precision, long dest, long a);
+    private static native void rgamma(int precision, long dest, long a);
+    private static native void lgamma(int precision, long dest, long a);
+    private static native void digamma(int precision, long dest, long a);
+    private static native void zeta(int precision, long dest, long a);
+    private static native void erf(int precision, long dest, long a);
+    private static native void erfc(int precision, long dest, long a);
+    private static native void ei(int precision, long dest, long a);
+    private static native void li2(int precision, long dest, long a);
+
+    /**
+     * Convert a long value to an exact SciBall.
+     *
+     * @param n The long value to convert.
+     * @return A SciBall with midpoint n and radius zero.
+     */
+    public static SciBall valueOf(long n) {
+        return fromLong(n);
+    }
+
+    /**
+     * Convert a SciFloat value to an exact SciBall.
+     *
+     * @param f The SciFloat value to convert.
+     * @return A SciBall with midpoint f and radius zero.
+     */
+    public static SciBall valueOf(SciFloat f) {
+        return fromSciFloat(f.ptr);
+    }
+
+    /**
+     * Convert a SciInteger value to an exact SciBall.
+     *
+     * @param n The SciInteger value to convert.
+     * @return A SciBall with midpoint n and radius zero.
+     */
+    public static SciBall valueOf(SciInteger n) {
+        return fromSciInteger(n.ptr);
+    }
+
+    /**
+     * Construct a SciBall from a midpoint and a radius.
+     *
+     * @param mid The midpoint.
+     * @param rad The radius. The sign is ignored.
+     * @return A SciBall containing every number in [mid - |rad|, mid + |rad|].
+     */
+    public static SciBall valueOf(SciFloat mid, SciFloat rad) {
+        return fromMidRad(mid.ptr, rad.ptr);
+    }
+
+    /**
+     * Parse a string value to a SciBall. Besides plain decimal numbers, the string may take the form
+     * {@code "[mid +/- rad]"}. Decimal numbers that are not exactly representable in binary are enclosed
+     * in a ball whose radius accounts for the conversion error.
+     *
+     * @param mc The math context to use for the resulting SciBall.
+     * @param s The string value to parse.
+     * @return A SciBall containing the number described by s.
+     * @throws NumberFormatException If the string is not a valid representation of a SciBall.
+     */
+    public static SciBall valueOf(MathContext mc, String s) {
+        return fromString(mc.precision(), s);
+    }
+
+    /**
+     * Compute an enclosure of the number pi.
+     *
+     * @param mc The math context to use while performing computations.
+     * @return A SciBall containing pi.
+     */
+    public static SciBall pi(MathContext mc) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.pi(mc.precision(), result.ptr);
+        return result;
+    }
+
+    /**
+     * Evaluate a function at increasing precision until the result is accurate to the given number of bits.
+     *
+     * <p> The first attempt uses a precision slightly above the requested accuracy, and the precision is doubled
+     * after every attempt that falls short. This is the cheapest way to obtain a result with a known error when
+     * the loss of precision in the function is not known in advance.
+     *
+     * @param bits The required relative accuracy in bits.
+     * @param maxPrecision The highest precision to try.
+     * @param f The function to evaluate. It is given the math context to compute with.
+     * @return The first result whose relative accuracy is at least bits.
+     * @throws ArithmeticException If the accuracy is not attained at maxPrecision.
+     * @throws IllegalArgumentException If bits or maxPrecision is less than 1.
+     */
+    public static SciBall evaluate(int bits, int maxPrecision, Function<MathContext, SciBall> f) {
+        if (bits < 1) {
+            throw new IllegalArgumentException("bits < 1");
+        }
+        if (maxPrecision < 1) {
+            throw new IllegalArgumentException("maxPrecision < 1");
+        }
+        int precision = (int) Math.min((long) bits + 16, maxPrecision);
+        while (true) {
+            precision = Math.min(precision, maxPrecision);
+            SciBall result = f.apply(new MathContext(precision, MathContext.RoundingMode.NEAREST));
+            if (result.relativeAccuracy() >= bits) {
+                return result;
+            }
+            if (precision >= maxPrecision) {
+                throw new ArithmeticException("Accuracy of " + bits + " bits not attained at precision " + maxPrecision);
+            }
+            precision = precision > maxPrecision / 2 ? maxPrecision : precision * 2;
+        }
+    }
+
+    /**
+     * Negate a SciBall value. This operation is exact.
+     *
+     * @param a The argument.
+     * @return -a.
+     */
+    public static SciBall neg(SciBall a) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.neg(result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the absolute value of a SciBall value. This operation is exact.
+     *
+     * @param a The argument.
+     * @return |a|.
+     */
+    public static SciBall abs(SciBall a) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.abs(result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Round the midpoint of a SciBall value to the given precision, adding the rounding error to the radius.
+     *
+     * @param mc The math context to round to.
+     * @param a The argument.
+     * @return A SciBall containing a with a midpoint of at most mc.precision() bits.
+     */
+    public static SciBall round(MathContext mc, SciBall a) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.round(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the sum of two SciBall values.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The first argument.
+     * @param b The second argument.
+     * @return a + b.
+     */
+    public static SciBall add(MathContext mc, SciBall a, SciBall b) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.add(mc.precision(), result.ptr, a.ptr, b.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the difference of two SciBall values.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The first argument.
+     * @param b The second argument.
+     * @return a - b.
+     */
+    public static SciBall sub(MathContext mc, SciBall a, SciBall b) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.sub(mc.precision(), result.ptr, a.ptr, b.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the product of two SciBall values.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The first argument.
+     * @param b The second argument.
+     * @return a * b.
+     */
+    public static SciBall mul(MathContext mc, SciBall a, SciBall b) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.mul(mc.precision(), result.ptr, a.ptr, b.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the quotient of two SciBall values.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The first argument.
+     * @param b The second argument.
+     * @return a / b.
+     */
+    public static SciBall div(MathContext mc, SciBall a, SciBall b) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.div(mc.precision(), result.ptr, a.ptr, b.ptr);
+        return result;
+    }
+
+    /**
+     * Raise a SciBall value to the power of another SciBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The first argument.
+     * @param b The second argument.
+     * @return a^b.
+     */
+    public static SciBall pow(MathContext mc, SciBall a, SciBall b) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.pow(mc.precision(), result.ptr, a.ptr, b.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the two-argument inverse tangent of two SciBall values.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The first argument.
+     * @param b The second argument.
+     * @return atan2(a, b).
+     */
+    public static SciBall atan2(MathContext mc, SciBall a, SciBall b) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.atan2(mc.precision(), result.ptr, a.ptr, b.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the k-th root of a SciBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @param k The degree of the root.
+     * @return a^(1/k).
+     */
+    public static SciBall root(MathContext mc, SciBall a, int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k < 1");
+        }
+        SciBall result = SciBall.valueOf(0);
+        SciBall.root(mc.precision(), result.ptr, a.ptr, k);
+        return result;
+    }
+
+    /**
+     * Compute the value of the Bessel function of the first kind.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param nu The order.
+     * @param z The argument.
+     * @return J_nu(z).
+     */
+    public static SciBall besselJ(MathContext mc, SciBall nu, SciBall z) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.besselJ(mc.precision(), result.ptr, nu.ptr, z.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the square of a SciBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return a^2.
+     */
+    public static SciBall sqr(MathContext mc, SciBall a) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.sqr(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the reciprocal of a SciBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return 1 / a.
+     */
+    public static SciBall reciprocal(MathContext mc, SciBall a) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.inv(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the square root of a SciBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return sqrt(a).
+     */
+    public static SciBall sqrt(MathContext mc, SciBall a) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.sqrt(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the reciprocal square root of a SciBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return 1 / sqrt(a).
+     */
+    public static SciBall rsqrt(MathContext mc, SciBall a) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.rsqrt(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the exponential of a SciBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return e^a.
+     */
+    public static SciBall exp(MathContext mc, SciBall a) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.exp(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the exponential of a SciBall value minus one, accurately for small arguments.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return e^a - 1.
+     */
+    public static SciBall expm1(MathContext mc, SciBall a) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.expm1(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the natural logarithm of a SciBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return ln(a).
+     */
+    public static SciBall log(MathContext mc, SciBall a) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.log(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the natural logarithm of one plus a SciBall value, accurately for small arguments.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return ln(1 + a).
+     */
+    public static SciBall log1p(MathContext mc, SciBall a) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.log1p(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the sine of a SciBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return sin(a).
+     */
+    public static SciBall sin(MathContext mc, SciBall a) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.sin(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the cosine of a SciBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return cos(a).
+     */
+    public static SciBall cos(MathContext mc, SciBall a) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.cos(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the tangent of a SciBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return tan(a).
+     */
+    public static SciBall tan(MathContext mc, SciBall a) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.tan(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the inverse sine of a SciBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return asin(a).
+     */
+    public static SciBall asin(MathContext mc, SciBall a) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.asin(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the inverse cosine of a SciBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return acos(a).
+     */
+    public static SciBall acos(MathContext mc, SciBall a) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.acos(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the inverse tangent of a SciBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return atan(a).
+     */
+    public static SciBall atan(MathContext mc, SciBall a) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.atan(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the hyperbolic sine of a SciBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return sinh(a).
+     */
+    public static SciBall sinh(MathContext mc, SciBall a) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.sinh(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the hyperbolic cosine of a SciBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return cosh(a).
+     */
+    public static SciBall cosh(MathContext mc, SciBall a) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.cosh(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the hyperbolic tangent of a SciBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return tanh(a).
+     */
+    public static SciBall tanh(MathContext mc, SciBall a) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.tanh(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the value of the gamma function of a SciBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return gamma(a).
+     */
+    public static SciBall gamma(MathContext mc, SciBall a) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.gamma(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the reciprocal of the gamma function of a SciBall value. Unlike {@link #gamma(MathContext, SciBall)}, this is finite at the poles.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return 1 / gamma(a).
+     */
+    public static SciBall rgamma(MathContext mc, SciBall a) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.rgamma(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the logarithm of the gamma function of a SciBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return ln(gamma(a)).
+     */
+    public static SciBall lgamma(MathContext mc, SciBall a) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.lgamma(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the value of the digamma function of a SciBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return digamma(a).
+     */
+    public static SciBall digamma(MathContext mc, SciBall a) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.digamma(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the value of the Riemann Zeta function of a SciBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return zeta(a).
+     */
+    public static SciBall zeta(MathContext mc, SciBall a) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.zeta(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the value of the error function of a SciBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return erf(a).
+     */
+    public static SciBall erf(MathContext mc, SciBall a) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.erf(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the value of the complementary error function of a SciBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return erfc(a).
+     */
+    public static SciBall erfc(MathContext mc, SciBall a) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.erfc(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the value of the exponential integral of a SciBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return Ei(a).
+     */
+    public static SciBall ei(MathContext mc, SciBall a) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.ei(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the value of the dilogarithm of a SciBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return Li2(a).
+     */
+    public static SciBall li2(MathContext mc, SciBall a) {
+        SciBall result = SciBall.valueOf(0);
+        SciBall.li2(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Return the midpoint of this SciBall value.
+     *
+     * @param mc The math context to round the midpoint to.
+     * @return The midpoint, rounded to nearest.
+     */
+    public SciFloat midpoint(MathContext mc) {
+        SciFloat result = SciFloat.valueOf(mc, 0);
+        midpoint(mc.precision(), result.ptr, ptr);
+        return result;
+    }
+
+    /**
+     * Return an upper bound for the radius of this SciBall value.
+     *
+     * @return The radius, rounded up to 53 bits.
+     */
+    public SciFloat radius() {
+        SciFloat result = SciFloat.valueOf(MathContext.MC53, 0);
+        radius(result.ptr, ptr);
+        return result;
+    }
+
+    /**
+     * Return the number of bits of this SciBall value that are known to be correct, that is, roughly
+     * -log2(radius / |midpoint|). Exact values report a very large accuracy, and balls containing zero
+     * report a negative one.
+     *
+     * @return The relative accuracy in bits.
+     */
+    public long relativeAccuracy() {
+        return relativeAccuracy(ptr);
+    }
+
+    /**
+     * Check whether this SciBall value is exact, that is, whether its radius is zero.
+     * @return true if the radius is zero, false otherwise.
+     */
+    public boolean isExact() {
+        return isExact(ptr);
+    }
+
+    /**
+     * Check whether this SciBall value is finite, that is, both its midpoint and radius are finite.
+     * @return true if the value is finite, false otherwise.
+     */
+    public boolean isFinite() {
+        return isFinite(ptr);
+    }
+
+    /**
+     * Check whether this SciBall value contains zero.
+     * @return true if zero lies in the ball, false otherwise.
+     */
+    public boolean containsZero() {
+        return containsZero(ptr);
+    }
+
+    /**
+     * Check whether this SciBall value contains another SciBall value.
+     * @param other The other SciBall value.
+     * @return true if every point of the other ball lies in this ball, false otherwise.
+     */
+    public boolean contains(SciBall other) {
+        return contains(ptr, other.ptr);
+    }
+
+    /**
+     * Check whether this SciBall value contains a SciFloat value.
+     * @param other The SciFloat value.
+     * @return true if the other value lies in this ball, false otherwise.
+     */
+    public boolean contains(SciFloat other) {
+        return containsSciFloat(ptr, other.ptr);
+    }
+
+    /**
+     * Check whether this SciBall value overlaps another SciBall value.
+     * @param other The other SciBall value.
+     * @return true if the balls have a point in common, false otherwise.
+     */
+    public boolean overlaps(SciBall other) {
+        return overlaps(ptr, other.ptr);
+    }
+
+    /**
+     * Compare this SciBall value to another SciBall value.
+     * @param other The other SciBall value.
+     * @return true when both values are exact and equal, false otherwise.
+     */
+    public boolean eq(SciBall other) {
+        return eq(ptr, other.ptr);
+    }
+
+    /**
+     * Compare this SciBall value to another SciBall value.
+     * @param other The other SciBall value.
+     * @return true when the balls do not overlap, false otherwise.
+     */
+    public boolean neq(SciBall other) {
+        return neq(ptr, other.ptr);
+    }
+
+    /**
+     * Compare this SciBall value to another SciBall value.
+     * @param other The other SciBall value.
+     * @return true when every point of this ball is less than every point of the other ball, false otherwise.
+     */
+    public boolean lt(SciBall other) {
+        return lt(ptr, other.ptr);
+    }
+
+    /**
+     * Compare this SciBall value to another SciBall value.
+     * @param other The other SciBall value.
+     * @return true when every point of this ball is less than or equal to every point of the other ball,
+     * false otherwise.
+     */
+    public boolean lte(SciBall other) {
+        return lte(ptr, other.ptr);
+    }
+
+    /**
+     * Compare this SciBall value to another SciBall value.
+     * @param other The other SciBall value.
+     * @return true when every point of this ball is greater than every point of the other ball, false otherwise.
+     */
+    public boolean gt(SciBall other) {
+        return gt(ptr, other.ptr);
+    }
+
+    /**
+     * Compare this SciBall value to another SciBall value.
+     * @param other The other SciBall value.
+     * @return true when every point of this ball is greater than or equal to every point of the other ball,
+     * false otherwise.
+     */
+    public boolean gte(SciBall other) {
+        return gte(ptr, other.ptr);
+    }
+
+    /**
+     * Determine whether this SciBall value has the same midpoint and radius as another SciBall value.
+     *
+     * @param other The other object.
+     * @return true when the balls are identical, false otherwise.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (other == this) {
+            return true;
+        }
+
+        if (other instanceof SciBall) {
+            return identical(ptr, ((SciBall) other).ptr);
+        }
+
+        return false;
+    }
+
+    /**
+     * Return a hash code consistent with {@link #equals(Object)}.
+     * @return The hash code of the midpoint and the radius.
+     */
+    @Override
+    public int hashCode() {
+        return 31 * midpoint(MathContext.MC53).hashCode() + radius().hashCode();
+    }
+
+    /**
+     * Return the string representation of this SciBall value in the form {@code "[mid +/- rad]"}, printing only
+     * the digits of the midpoint that are known to be correct.
+     * @return The string representation.
+     */
+    @Override
+    public String toString() {
+        return toString(ptr, 0);
+    }
+
+    /**
+     * Return the string representation of this SciBall value in the form {@code "[mid +/- rad]"}.
+     * @param digits The number of significant digits of the midpoint to print.
+     * @return The string representation.
+     */
+    public String toString(int digits) {
+        if (digits < 1) {
+            throw new IllegalArgumentException("digits < 1");
+        }
+        return toString(ptr, digits);
+    }
+}
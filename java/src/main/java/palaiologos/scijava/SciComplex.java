@@ -0,0 +1,851 @@
+/*
+    scijava
+    Copyright (C) 2022 Kamila Szewczyk
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package palaiologos.scijava;
+
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+
+import static palaiologos.scijava.NativeLibrary.load;
+import static palaiologos.scijava.NativeLibrary.resourceName;
+
+/**
+ * Arbitrary precision complex numbers provided by SciJava.
+ *
+ * <p> SciComplex is backed by the MPC library and stores the real and the imaginary part as two binary floating
+ * point numbers of the same precision. As with {@link SciFloat}, the {@link MathContext} precision field represents
+ * the precision in <b>binary digits</b>, and the rounding mode is applied to both parts. Every operation is a
+ * single native call, as opposed to an equivalent computation on pairs of SciFloat values.
+ *
+ * <p> Multivalued functions such as {@link #ln(MathContext, SciComplex)} and
+ * {@link #pow(MathContext, SciComplex, SciComplex)} return the principal branch. {@link SciComplexVector} offers
+ * the same operations applied elementwise to many values at once.
+ *
+ * @author Kamila Szewczyk
+ * @see SciFloat
+ * @see SciComplexVector
+ */
+public final class SciComplex implements Comparable<SciComplex>, Cloneable {
+    static {
+        try {
+            load(resourceName());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    final long ptr;
+
+    private final Cleaner.Cleanable cleanable;
+
+    // Computed on first use: the value is only final once the native operation that produced it has returned.
+    private int hash;
+    private volatile boolean hashed;
+
+    private SciComplex(long ptr) {
+        this.ptr = ptr;
+        cleanable = CleanerSingleton.CLEANER.register(this, () -> {
+            SciComplex.free(ptr);
+        });
+    }
+
+    private static native void free(long ptr);
+    private static native String toString(long ptr);
+    private static native SciComplex fromInteger(int precision, int roundingMode, int n);
+    private static native SciComplex fromString(int precision, int roundingMode, String s);
+    private static native SciComplex fromSciInteger(int precision, int roundingMode, long n);
+    private static native SciComplex fromSciRational(int precision, int roundingMode, long n);
+    private static native SciComplex fromSciFloat(int precision, int roundingMode, long n);
+    private static native SciComplex fromParts(int precision, int roundingMode, long re, long im);
+    private static native boolean eq(long a, long b);
+    private static native boolean neq(long a, long b);
+    private static native int compare(long a, long b);
+    private static native long hash(long a);
+    private static native int precision(long a);
+    private static native boolean isFinite(long a);
+    private static native boolean isInf(long a);
+    private static native boolean isNaN(long a);
+    private static native void copy(long dest, long src);
+    private static native void log(int precision, int roundingMode, long dest, long a, long k);
+    private static native void root(int precision, int roundingMode, long dest, long a, int n);
+    private static native void mulI(int precision, int roundingMode, long dest, long a, boolean negative);
+    private static native void add(int precision, int roundingMode, long dest, long a, long b);
+    private static native void sub(int precision, int roundingMode, long dest, long a, long b);
+    private static native void mul(int precision, int roundingMode, long dest, long a, long b);
+    private static native void div(int precision, int roundingMode, long dest, long a, long b);
+    private static native void pow(int precision, int roundingMode, long dest, long a, long b);
+    private static native void agm(int precision, int roundingMode, long dest, long a, long b);
+    private static native void hypot(int precision, int roundingMode, long dest, long a, long b);
+    private static native void sqrt(int precision, int roundingMode, long dest, long a);
+    private static native void exp(int precision, int roundingMode, long dest, long a);
+    private static native void exp2(int precision, int roundingMode, long dest, long a);
+    private static native void exp10(int precision, int roundingMode, long dest, long a);
+    private static native void ln(int precision, int roundingMode, long dest, long a);
+    private static native void log2(int precision, int roundingMode, long dest, long a);
+    private static native void log10(int precision, int roundingMode, long dest, long a);
+    private static native void sin(int precision, int roundingMode, long dest, long a);
+    private static native void cos(int precision, int roundingMode, long dest, long a);
+    private static native void tan(int precision, int roundingMode, long dest, long a);
+    private static native void sinh(int precision, int roundingMode, long dest, long a);
+    private static native void cosh(int precision, int roundingMode, long dest, long a);
+    private static native void tanh(int precision, int roundingMode, long dest, long a);
+    private static native void asin(int precision, int roundingMode, long dest, long a);
+    private static native void acos(int precision, int roundingMode, long dest, long a);
+    private static native void atan(int precision, int roundingMode, long dest, long a);
+    private static native void asinh(int precision, int roundingMode, long dest, long a);
+    private static native void acosh(int precision, int roundingMode, long dest, long a);
+    private static native void atanh(int precision, int roundingMode, long dest, long a);
+    private static native void conj(int precision, int roundingMode, long dest, long a);
+    private static native void proj(int precision, int roundingMode, long dest, long a);
+    private static native void recip(int precision, int roundingMode, long dest, long a);
+    private static native void neg(int precision, int roundingMode, long dest, long a);
+    private static native void abs(int precision, int roundingMode, long dest, long a);
+    private static native void arg(int precision, int roundingMode, long dest, long a);
+    private static native void norm(int precision, int roundingMode, long dest, long a);
+    private static native void real(int precision, int roundingMode, long dest, long a);
+    private static native void imag(int precision, int roundingMode, long dest, long a);
+
+    /**
+     * The imaginary unit.
+     */
+    public static final SciComplex I = SciComplex.valueOf(MathContext.MC24, SciFloat.ZERO, SciFloat.ONE);
+
+    /**
+     * Convert an integer value to a SciComplex.
+     *
+     * @param mc The math context to use for the resulting SciComplex.
+     * @param n The integer value to convert.
+     * @return The SciComplex representation of n.
+     */
+    public static SciComplex valueOf(MathContext mc, int n) {
+        return fromInteger(mc.precision(), mc.roundingMode().ordinal(), n);
+    }
+
+    /**
+     * Parse a string value to a SciComplex. The string is either a real number, or a pair of real numbers
+     * in parentheses separated by whitespace, such as {@code "(1.5 -2)"}.
+     *
+     * @param mc The math context to use for the resulting SciComplex.
+     * @param s The string value to parse.
+     * @return The SciComplex representation of s.
+     * @throws NumberFormatException If the string is not a valid representation of a SciComplex.
+     */
+    public static SciComplex valueOf(MathContext mc, String s) {
+        return fromString(mc.precision(), mc.roundingMode().ordinal(), s);
+    }
+
+    /**
+     * Convert a SciInteger value to a SciComplex.
+     *
+     * @param mc The math context to use for the resulting SciComplex.
+     * @param n The SciInteger value to convert.
+     * @return The SciComplex representation of n.
+     */
+    public static SciComplex valueOf(MathContext mc, SciInteger n) {
+        return fromSciInteger(mc.precision(), mc.roundingMode().ordinal(), n.ptr);
+    }
+
+    /**
+     * Convert a SciRational value to a SciComplex.
+     *
+     * @param mc The math context to use for the resulting SciComplex.
+     * @param n The SciRational value to convert.
+     * @return The SciComplex representation of n.
+     */
+    public static SciComplex valueOf(MathContext mc, SciRational n) {
+        return fromSciRational(mc.precision(), mc.roundingMode().ordinal(), n.ptr);
+    }
+
+    /**
+     * Convert a SciFloat value to a SciComplex with a zero imaginary part.
+     *
+     * @param mc The math context to use for the resulting SciComplex.
+     * @param n The SciFloat value to convert.
+     * @return The SciComplex representation of n.
+     */
+    public static SciComplex valueOf(MathContext mc, SciFloat n) {
+        return fromSciFloat(mc.precision(), mc.roundingMode().ordinal(), n.ptr);
+    }
+
+    /**
+     * Construct a SciComplex value from its real and imaginary parts.
+     *
+     * @param mc The math context to use for the resulting SciComplex.
+     * @param re The real part.
+     * @param im The imaginary part.
+     * @return re + i * im.
+     */
+    public static SciComplex valueOf(MathContext mc, SciFloat re, SciFloat im) {
+        return fromParts(mc.precision(), mc.roundingMode().ordinal(), re.ptr, im.ptr);
+    }
+
+    /**
+     * Compute the sum of two SciComplex values.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The first argument.
+     * @param b The second argument.
+     * @return a + b.
+     */
+    public static SciComplex add(MathContext mc, SciComplex a, SciComplex b) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.add(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr, b.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the difference of two SciComplex values.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The first argument.
+     * @param b The second argument.
+     * @return a - b.
+     */
+    public static SciComplex sub(MathContext mc, SciComplex a, SciComplex b) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.sub(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr, b.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the product of two SciComplex values.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The first argument.
+     * @param b The second argument.
+     * @return a * b.
+     */
+    public static SciComplex mul(MathContext mc, SciComplex a, SciComplex b) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.mul(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr, b.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the quotient of two SciComplex values.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The first argument.
+     * @param b The second argument.
+     * @return a / b.
+     */
+    public static SciComplex div(MathContext mc, SciComplex a, SciComplex b) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.div(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr, b.ptr);
+        return result;
+    }
+
+    /**
+     * Raise a SciComplex value to the power of another SciComplex value, using the principal branch.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The first argument.
+     * @param b The second argument.
+     * @return a^b.
+     */
+    public static SciComplex pow(MathContext mc, SciComplex a, SciComplex b) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.pow(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr, b.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the value of the arithmetic-geometric mean, choosing at every step the square root closer to the arithmetic mean.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The first argument.
+     * @param b The second argument.
+     * @return agm(a, b).
+     */
+    public static SciComplex agm(MathContext mc, SciComplex a, SciComplex b) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.agm(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr, b.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the square root of the sum of squares of two SciComplex values.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The first argument.
+     * @param b The second argument.
+     * @return sqrt(a^2 + b^2).
+     */
+    public static SciComplex hypot(MathContext mc, SciComplex a, SciComplex b) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.hypot(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr, b.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the principal logarithm of a SciComplex value in an arbitrary base.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @param base The base.
+     * @return ln(a) / ln(base).
+     */
+    public static SciComplex log(MathContext mc, SciComplex a, SciComplex base) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.log(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr, base.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the principal n-th root of a SciComplex value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @param n The degree of the root.
+     * @return a^(1/n).
+     * @throws IllegalArgumentException If n is not positive.
+     */
+    public static SciComplex root(MathContext mc, SciComplex a, int n) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.root(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr, n);
+        return result;
+    }
+
+    /**
+     * Multiply a SciComplex value by the imaginary unit. This is exact and cheaper than a multiplication by
+     * {@link #I}.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return i * a.
+     */
+    public static SciComplex mulI(MathContext mc, SciComplex a) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.mulI(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr, false);
+        return result;
+    }
+
+    /**
+     * Divide a SciComplex value by the imaginary unit. This is exact and cheaper than a division by {@link #I}.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return -i * a.
+     */
+    public static SciComplex divI(MathContext mc, SciComplex a) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.mulI(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr, true);
+        return result;
+    }
+
+    /**
+     * Compute the principal square root of a SciComplex value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return sqrt(a).
+     */
+    public static SciComplex sqrt(MathContext mc, SciComplex a) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.sqrt(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the exponential of a SciComplex value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return e^a.
+     */
+    public static SciComplex exp(MathContext mc, SciComplex a) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.exp(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute two raised to the power of a SciComplex value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return 2^a.
+     */
+    public static SciComplex exp2(MathContext mc, SciComplex a) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.exp2(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute ten raised to the power of a SciComplex value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return 10^a.
+     */
+    public static SciComplex exp10(MathContext mc, SciComplex a) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.exp10(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the principal natural logarithm of a SciComplex value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return ln(a).
+     */
+    public static SciComplex ln(MathContext mc, SciComplex a) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.ln(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the principal base-2 logarithm of a SciComplex value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return log2(a).
+     */
+    public static SciComplex log2(MathContext mc, SciComplex a) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.log2(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the principal base-10 logarithm of a SciComplex value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return log10(a).
+     */
+    public static SciComplex log10(MathContext mc, SciComplex a) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.log10(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the sine of a SciComplex value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return sin(a).
+     */
+    public static SciComplex sin(MathContext mc, SciComplex a) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.sin(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the cosine of a SciComplex value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return cos(a).
+     */
+    public static SciComplex cos(MathContext mc, SciComplex a) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.cos(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the tangent of a SciComplex value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return tan(a).
+     */
+    public static SciComplex tan(MathContext mc, SciComplex a) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.tan(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the hyperbolic sine of a SciComplex value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return sinh(a).
+     */
+    public static SciComplex sinh(MathContext mc, SciComplex a) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.sinh(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the hyperbolic cosine of a SciComplex value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return cosh(a).
+     */
+    public static SciComplex cosh(MathContext mc, SciComplex a) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.cosh(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the hyperbolic tangent of a SciComplex value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return tanh(a).
+     */
+    public static SciComplex tanh(MathContext mc, SciComplex a) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.tanh(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the inverse sine of a SciComplex value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return asin(a).
+     */
+    public static SciComplex asin(MathContext mc, SciComplex a) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.asin(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the inverse cosine of a SciComplex value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return acos(a).
+     */
+    public static SciComplex acos(MathContext mc, SciComplex a) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.acos(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the inverse tangent of a SciComplex value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return atan(a).
+     */
+    public static SciComplex atan(MathContext mc, SciComplex a) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.atan(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the inverse hyperbolic sine of a SciComplex value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return asinh(a).
+     */
+    public static SciComplex asinh(MathContext mc, SciComplex a) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.asinh(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the inverse hyperbolic cosine of a SciComplex value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return acosh(a).
+     */
+    public static SciComplex acosh(MathContext mc, SciComplex a) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.acosh(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the inverse hyperbolic tangent of a SciComplex value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return atanh(a).
+     */
+    public static SciComplex atanh(MathContext mc, SciComplex a) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.atanh(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the complex conjugate of a SciComplex value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return the conjugate of a.
+     */
+    public static SciComplex conj(MathContext mc, SciComplex a) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.conj(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the projection of a SciComplex value onto the Riemann sphere. Infinite values are mapped to positive real infinity, and finite values are left unchanged.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return proj(a).
+     */
+    public static SciComplex proj(MathContext mc, SciComplex a) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.proj(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the reciprocal of a SciComplex value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return 1 / a.
+     */
+    public static SciComplex reciprocal(MathContext mc, SciComplex a) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.recip(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Negate a SciComplex value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return -a.
+     */
+    public static SciComplex neg(MathContext mc, SciComplex a) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        SciComplex.neg(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the absolute value of a SciComplex value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return |a|.
+     */
+    public static SciFloat abs(MathContext mc, SciComplex a) {
+        SciFloat result = SciFloat.valueOf(mc, 0);
+        SciComplex.abs(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the argument of a SciComplex value, in the interval [-pi, pi].
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return arg(a).
+     */
+    public static SciFloat arg(MathContext mc, SciComplex a) {
+        SciFloat result = SciFloat.valueOf(mc, 0);
+        SciComplex.arg(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the squared absolute value of a SciComplex value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return |a|^2.
+     */
+    public static SciFloat norm(MathContext mc, SciComplex a) {
+        SciFloat result = SciFloat.valueOf(mc, 0);
+        SciComplex.norm(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Return the real part of a SciComplex value, rounded to the given math context.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return re(a).
+     */
+    public static SciFloat real(MathContext mc, SciComplex a) {
+        SciFloat result = SciFloat.valueOf(mc, 0);
+        SciComplex.real(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Return the imaginary part of a SciComplex value, rounded to the given math context.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return im(a).
+     */
+    public static SciFloat imag(MathContext mc, SciComplex a) {
+        SciFloat result = SciFloat.valueOf(mc, 0);
+        SciComplex.imag(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Return the math context describing the precision of this SciComplex value.
+     * @return A math context with the precision of this value and the rounding mode set to nearest.
+     */
+    public MathContext getMathContext() {
+        return new MathContext(precision(ptr), MathContext.RoundingMode.NEAREST);
+    }
+
+    /**
+     * Return the real part of this SciComplex value.
+     * @return The real part, at the precision of this value.
+     */
+    public SciFloat real() {
+        return real(getMathContext(), this);
+    }
+
+    /**
+     * Return the imaginary part of this SciComplex value.
+     * @return The imaginary part, at the precision of this value.
+     */
+    public SciFloat imag() {
+        return imag(getMathContext(), this);
+    }
+
+    /**
+     * Check whether a SciComplex value is finite, that is, both of its parts are neither NaN nor infinity.
+     * @return true if the value is finite, false otherwise.
+     */
+    public boolean isFinite() {
+        return isFinite(ptr);
+    }
+
+    /**
+     * Check whether a SciComplex value is infinite, that is, either of its parts is infinity.
+     * @return true if the value is infinite, false otherwise.
+     */
+    public boolean isInf() {
+        return isInf(ptr);
+    }
+
+    /**
+     * Check whether a SciComplex value is NaN, that is, either of its parts is NaN.
+     * @return true if the value is NaN, false otherwise.
+     */
+    public boolean isNaN() {
+        return isNaN(ptr);
+    }
+
+    /**
+     * Compare this SciComplex value to another SciComplex value.
+     * @param other The other SciComplex value.
+     * @return true when the values are equal, false otherwise.
+     */
+    public boolean eq(SciComplex other) {
+        return eq(ptr, other.ptr);
+    }
+
+    /**
+     * Compare this SciComplex value to another SciComplex value.
+     * @param other The other SciComplex value.
+     * @return true when the values are not equal, false otherwise.
+     */
+    public boolean neq(SciComplex other) {
+        return neq(ptr, other.ptr);
+    }
+
+    /**
+     * Determine the equality of this SciComplex value to another SciComplex value, consistently with
+     * {@link #compareTo(SciComplex)}. Unlike {@link #eq(SciComplex)}, which compares the parts numerically, this
+     * tells +0 and -0 apart and considers a NaN part equal to a NaN part of the same sign, in the same way as
+     * {@link Double#equals(Object)} differs from {@code ==}.
+     *
+     * @param other The other SciComplex value.
+     * @return true when the values are equal, false otherwise.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (other == this) {
+            return true;
+        }
+
+        if (other instanceof SciComplex) {
+            return compare(ptr, ((SciComplex) other).ptr) == 0;
+        }
+
+        return false;
+    }
+
+    /**
+     * Get the hash code of this SciComplex value. The hash combines the hashes of the two parts as computed by
+     * {@link SciFloat#hashCode()}, so values that compare equal hash equally regardless of their precision.
+     * @return The hash code of this SciComplex value.
+     */
+    @Override
+    public int hashCode() {
+        if (!hashed) {
+            long h = hash(ptr);
+            hash = (int) (h ^ (h >>> 32));
+            hashed = true;
+        }
+        return hash;
+    }
+
+    /**
+     * Return the string representation of this SciComplex value.
+     * @return The string representation of this SciComplex value.
+     */
+    @Override
+    public String toString() {
+        return toString(ptr);
+    }
+
+    /**
+     * Compare this SciComplex value to another SciComplex value lexicographically, first by the real part
+     * and then by the imaginary part, each in the IEEE 754 total order, where -0 is below +0 and NaNs are ordered by
+     * sign beyond the infinities. This is a total order consistent with {@link #equals(Object)}, but it is not
+     * compatible with the field operations.
+     * @param o the object to be compared.
+     * @return a negative integer, zero, or a positive integer as this value is less than, equal to, or greater than
+     * the other value.
+     */
+    @Override
+    public int compareTo(SciComplex o) {
+        return compare(ptr, o.ptr);
+    }
+
+    /**
+     * Clone this SciComplex value.
+     * @return A deep copy of this SciComplex value.
+     */
+    @Override
+    public SciComplex clone() {
+        SciComplex result = SciComplex.valueOf(getMathContext(), 0);
+        copy(result.ptr, ptr);
+        return result;
+    }
+}
@@ -0,0 +1,470 @@
+/*
+    scijava
+    Copyright (C) 2022 Kamila Szewczyk
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package palaiologos.scijava;
+
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+
+import static palaiologos.scijava.NativeLibrary.load;
+import static palaiologos.scijava.NativeLibrary.resourceName;
+
+/**
+ * Arbitrary precision complex balls provided by SciJava.
+ *
+ * <p> A SciComplexBall is a complex number whose real and imaginary parts are {@link SciBall} values, so it stands
+ * for every complex number in a rectangle. It is backed by the complex ball type of the Arb library and, like
+ * SciBall, every operation widens the result so that it is guaranteed to contain the exact value. Operations take
+ * a {@link MathContext} whose precision is used as the working precision; the rounding mode is ignored.
+ *
+ * <p> SciComplexBall is primarily the argument and result type of the integrands of
+ * {@link SciIntegrate#rigorous(MathContext, java.util.function.Function, SciBall, SciBall)}. When the integrator
+ * requires the integrand to be holomorphic on a ball, the functions with a branch cut on the negative real axis
+ * ({@link #sqrt}, {@link #rsqrt}, {@link #log} and {@link #pow}) produce an indeterminate result for balls that
+ * touch the cut, rather than an enclosure of the principal branch that would not be holomorphic there.
+ *
+ * @author Kamila Szewczyk
+ * @see SciBall
+ * @see SciIntegrate
+ */
+public final class SciComplexBall {
+    static {
+        try {
+            load(resourceName());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    final long ptr;
+
+    private final Cleaner.Cleanable cleanable;
+
+    private SciComplexBall(long ptr) {
+        this.ptr = ptr;
+        cleanable = CleanerSingleton.CLEANER.register(this, () -> {
+            SciComplexBall.free(ptr);
+        });
+    }
+
+    private static native void free(long ptr);
+    private static native SciComplexBall fromLong(long n);
+    private static native void fromParts(long dest, long re, long im);
+    private static native void copy(long dest, long src);
+    private static native void real(long dest, long a);
+    private static native void imag(long dest, long a);
+    private static native String toString(long ptr, int digits);
+    private static native long relativeAccuracy(long a);
+    private static native boolean isFinite(long a);
+    private static native boolean isReal(long a);
+    private static native void neg(long dest, long a);
+    private static native void add(int precision, long dest, long a, long b);
+    private static native void sub(int precision, long dest, long a, long b);
+    private static native void mul(int precision, long dest, long a, long b);
+    private static native void div(int precision, long dest, long a, long b);
+    private static native void pow(int precision, long dest, long a, long b);
+    private static native void sqr(int precision, long dest, long a);
+    private static native void inv(int precision, long dest, long a);
+    private static native void sqrt(int precision, long dest, long a);
+    private static native void rsqrt(int precision, long dest, long a);
+    private static native void exp(int precision, long dest, long a);
+    private static native void log(int precision, long dest, long a);
+    private static native void sin(int precision, long dest, long a);
+    private static native void cos(int precision, long dest, long a);
+    private static native void tan(int precision, long dest, long a);
+    private static native void sinh(int precision, long dest, long a);
+    private static native void cosh(int precision, long dest, long a);
+    private static native void tanh(int precision, long dest, long a);
+    private static native void gamma(int precision, long dest, long a);
+    private static native void erf(int precision, long dest, long a);
+
+    /**
+     * Convert a long value to an exact SciComplexBall.
+     *
+     * @param n The long value to convert.
+     * @return A SciComplexBall with real part n and imaginary part zero.
+     */
+    public static SciComplexBall valueOf(long n) {
+        return fromLong(n);
+    }
+
+    /**
+     * Construct a real SciComplexBall.
+     *
+     * @param re The real part.
+     * @return A SciComplexBall with real part re and imaginary part zero.
+     */
+    public static SciComplexBall valueOf(SciBall re) {
+        return valueOf(re, SciBall.valueOf(0));
+    }
+
+    /**
+     * Construct a SciComplexBall from its real and imaginary parts.
+     *
+     * @param re The real part.
+     * @param im The imaginary part.
+     * @return A SciComplexBall containing every re + im*i with re and im in the given balls.
+     */
+    public static SciComplexBall valueOf(SciBall re, SciBall im) {
+        SciComplexBall result = SciComplexBall.valueOf(0);
+        fromParts(result.ptr, re.ptr, im.ptr);
+        return result;
+    }
+
+    // A copy of the complex ball at the given native address.
+    static SciComplexBall copyOf(long src) {
+        SciComplexBall result = SciComplexBall.valueOf(0);
+        copy(result.ptr, src);
+        return result;
+    }
+
+    // Copy this value to the complex ball at the given native address.
+    void copyTo(long dest) {
+        copy(dest, ptr);
+    }
+
+    /**
+     * Negate a SciComplexBall value. This operation is exact.
+     *
+     * @param a The argument.
+     * @return -a.
+     */
+    public static SciComplexBall neg(SciComplexBall a) {
+        SciComplexBall result = SciComplexBall.valueOf(0);
+        SciComplexBall.neg(result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the sum of two SciComplexBall values.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The first argument.
+     * @param b The second argument.
+     * @return a + b.
+     */
+    public static SciComplexBall add(MathContext mc, SciComplexBall a, SciComplexBall b) {
+        SciComplexBall result = SciComplexBall.valueOf(0);
+        SciComplexBall.add(mc.precision(), result.ptr, a.ptr, b.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the difference of two SciComplexBall values.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The first argument.
+     * @param b The second argument.
+     * @return a - b.
+     */
+    public static SciComplexBall sub(MathContext mc, SciComplexBall a, SciComplexBall b) {
+        SciComplexBall result = SciComplexBall.valueOf(0);
+        SciComplexBall.sub(mc.precision(), result.ptr, a.ptr, b.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the product of two SciComplexBall values.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The first argument.
+     * @param b The second argument.
+     * @return a * b.
+     */
+    public static SciComplexBall mul(MathContext mc, SciComplexBall a, SciComplexBall b) {
+        SciComplexBall result = SciComplexBall.valueOf(0);
+        SciComplexBall.mul(mc.precision(), result.ptr, a.ptr, b.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the quotient of two SciComplexBall values.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The first argument.
+     * @param b The second argument.
+     * @return a / b.
+     */
+    public static SciComplexBall div(MathContext mc, SciComplexBall a, SciComplexBall b) {
+        SciComplexBall result = SciComplexBall.valueOf(0);
+        SciComplexBall.div(mc.precision(), result.ptr, a.ptr, b.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the principal value of a SciComplexBall value raised to the power of another.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The first argument.
+     * @param b The second argument.
+     * @return a^b.
+     */
+    public static SciComplexBall pow(MathContext mc, SciComplexBall a, SciComplexBall b) {
+        SciComplexBall result = SciComplexBall.valueOf(0);
+        SciComplexBall.pow(mc.precision(), result.ptr, a.ptr, b.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the square of a SciComplexBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return a^2.
+     */
+    public static SciComplexBall sqr(MathContext mc, SciComplexBall a) {
+        SciComplexBall result = SciComplexBall.valueOf(0);
+        SciComplexBall.sqr(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the reciprocal of a SciComplexBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return 1 / a.
+     */
+    public static SciComplexBall inv(MathContext mc, SciComplexBall a) {
+        SciComplexBall result = SciComplexBall.valueOf(0);
+        SciComplexBall.inv(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the principal square root of a SciComplexBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return sqrt(a).
+     */
+    public static SciComplexBall sqrt(MathContext mc, SciComplexBall a) {
+        SciComplexBall result = SciComplexBall.valueOf(0);
+        SciComplexBall.sqrt(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the reciprocal of the principal square root of a SciComplexBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return 1 / sqrt(a).
+     */
+    public static SciComplexBall rsqrt(MathContext mc, SciComplexBall a) {
+        SciComplexBall result = SciComplexBall.valueOf(0);
+        SciComplexBall.rsqrt(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the exponential of a SciComplexBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return e^a.
+     */
+    public static SciComplexBall exp(MathContext mc, SciComplexBall a) {
+        SciComplexBall result = SciComplexBall.valueOf(0);
+        SciComplexBall.exp(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the principal natural logarithm of a SciComplexBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return log(a).
+     */
+    public static SciComplexBall log(MathContext mc, SciComplexBall a) {
+        SciComplexBall result = SciComplexBall.valueOf(0);
+        SciComplexBall.log(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the sine of a SciComplexBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return sin(a).
+     */
+    public static SciComplexBall sin(MathContext mc, SciComplexBall a) {
+        SciComplexBall result = SciComplexBall.valueOf(0);
+        SciComplexBall.sin(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the cosine of a SciComplexBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return cos(a).
+     */
+    public static SciComplexBall cos(MathContext mc, SciComplexBall a) {
+        SciComplexBall result = SciComplexBall.valueOf(0);
+        SciComplexBall.cos(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the tangent of a SciComplexBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return tan(a).
+     */
+    public static SciComplexBall tan(MathContext mc, SciComplexBall a) {
+        SciComplexBall result = SciComplexBall.valueOf(0);
+        SciComplexBall.tan(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the hyperbolic sine of a SciComplexBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return sinh(a).
+     */
+    public static SciComplexBall sinh(MathContext mc, SciComplexBall a) {
+        SciComplexBall result = SciComplexBall.valueOf(0);
+        SciComplexBall.sinh(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the hyperbolic cosine of a SciComplexBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return cosh(a).
+     */
+    public static SciComplexBall cosh(MathContext mc, SciComplexBall a) {
+        SciComplexBall result = SciComplexBall.valueOf(0);
+        SciComplexBall.cosh(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the hyperbolic tangent of a SciComplexBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return tanh(a).
+     */
+    public static SciComplexBall tanh(MathContext mc, SciComplexBall a) {
+        SciComplexBall result = SciComplexBall.valueOf(0);
+        SciComplexBall.tanh(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the gamma function of a SciComplexBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return gamma(a).
+     */
+    public static SciComplexBall gamma(MathContext mc, SciComplexBall a) {
+        SciComplexBall result = SciComplexBall.valueOf(0);
+        SciComplexBall.gamma(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the error function of a SciComplexBall value.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return erf(a).
+     */
+    public static SciComplexBall erf(MathContext mc, SciComplexBall a) {
+        SciComplexBall result = SciComplexBall.valueOf(0);
+        SciComplexBall.erf(mc.precision(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Return the real part of this SciComplexBall value.
+     * @return A SciBall containing the real part.
+     */
+    public SciBall real() {
+        SciBall result = SciBall.valueOf(0);
+        real(result.ptr, ptr);
+        return result;
+    }
+
+    /**
+     * Return the imaginary part of this SciComplexBall value.
+     * @return A SciBall containing the imaginary part.
+     */
+    public SciBall imag() {
+        SciBall result = SciBall.valueOf(0);
+        imag(result.ptr, ptr);
+        return result;
+    }
+
+    /**
+     * Return the number of bits of this SciComplexBall value that are known to be correct, relative to its
+     * magnitude.
+     * @return The relative accuracy in bits.
+     */
+    public long relativeAccuracy() {
+        return relativeAccuracy(ptr);
+    }
+
+    /**
+     * Check whether both parts of this SciComplexBall value are finite.
+     * @return true if the value is finite, false otherwise.
+     */
+    public boolean isFinite() {
+        return isFinite(ptr);
+    }
+
+    /**
+     * Check whether this SciComplexBall value is exactly real, that is, its imaginary part is exactly zero.
+     * @return true if the value is real, false otherwise.
+     */
+    public boolean isReal() {
+        return isReal(ptr);
+    }
+
+    /**
+     * Stringify this SciComplexBall value with as many digits as are known to be correct.
+     * @return The string representation of this SciComplexBall value.
+     */
+    @Override
+    public String toString() {
+        return toString(ptr, 0);
+    }
+
+    /**
+     * Stringify this SciComplexBall value with the given number of digits in each part.
+     * @param digits The number of significant digits.
+     * @return The string representation of this SciComplexBall value.
+     */
+    public String toString(int digits) {
+        if (digits < 1) {
+            throw new IllegalArgumentException("digits < 1");
+        }
+        return toString(ptr, digits);
+    }
+}
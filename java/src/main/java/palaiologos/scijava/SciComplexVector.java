@@ -0,0 +1,401 @@
+/*
+    scijava
+    Copyright (C) 2022 Kamila Szewczyk
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package palaiologos.scijava;
+
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+
+import static palaiologos.scijava.NativeLibrary.load;
+import static palaiologos.scijava.NativeLibrary.resourceName;
+
+/**
+ * An immutable vector of {@link SciComplex} values stored in native memory.
+ *
+ * <p> Every elementwise operation on a SciComplexVector is a single native call that produces a new vector, so a
+ * pipeline over n values costs one call per stage instead of n. Long vectors are split across threads. The elements
+ * are copied into the vector when it is created and copied out by {@link #get(int)}, so a vector does not share
+ * state with the SciComplex values it was built from.
+ *
+ * @author Kamila Szewczyk
+ * @see SciComplex
+ */
+public final class SciComplexVector {
+    static {
+        try {
+            load(resourceName());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Operation codes, matching the constants in scicomplex_vector.rs.
+    private static final int EXP = 0;
+    private static final int LN = 1;
+    private static final int SQRT = 2;
+    private static final int SIN = 3;
+    private static final int COS = 4;
+    private static final int TAN = 5;
+    private static final int CONJ = 6;
+    private static final int RECIP = 7;
+    private static final int NEG = 8;
+
+    private static final int ADD = 0;
+    private static final int SUB = 1;
+    private static final int MUL = 2;
+    private static final int DIV = 3;
+    private static final int POW = 4;
+
+    final long ptr;
+
+    private final int size;
+
+    private final Cleaner.Cleanable cleanable;
+
+    private SciComplexVector(long ptr, int size) {
+        this.ptr = ptr;
+        this.size = size;
+        cleanable = CleanerSingleton.CLEANER.register(this, () -> {
+            SciComplexVector.free(ptr);
+        });
+    }
+
+    private static native void free(long ptr);
+    private static native long fromElements(long[] elements);
+    private static native void get(long dest, long ptr, int i);
+    private static native long map(int precision, int roundingMode, long a, int op);
+    private static native long zip(int precision, int roundingMode, long a, long b, int op);
+    private static native long zipScalar(int precision, int roundingMode, long a, long c, int op);
+    private static native void sum(int precision, int roundingMode, long dest, long a);
+    private static native void dot(int precision, int roundingMode, long dest, long a, long b);
+
+    private static void checkSize(SciComplexVector a, SciComplexVector b) {
+        if (a.size != b.size) {
+            throw new IllegalArgumentException("Vector sizes differ: " + a.size + " and " + b.size);
+        }
+    }
+
+    /**
+     * Create a vector holding copies of the given values.
+     *
+     * @param elements The values.
+     * @return A vector of the values in the given order.
+     */
+    public static SciComplexVector of(SciComplex... elements) {
+        long[] ptrs = new long[elements.length];
+        for (int i = 0; i < elements.length; i++) {
+            ptrs[i] = elements[i].ptr;
+        }
+        return new SciComplexVector(fromElements(ptrs), elements.length);
+    }
+
+    /**
+     * @return The number of elements in this vector.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return a copy of an element of this vector.
+     *
+     * @param i The index of the element.
+     * @return The i-th element.
+     * @throws IndexOutOfBoundsException If i is not a valid index.
+     */
+    public SciComplex get(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index " + i + " out of bounds for length " + size);
+        }
+        SciComplex result = SciComplex.valueOf(MathContext.MC24, 0);
+        get(result.ptr, ptr, i);
+        return result;
+    }
+
+    /**
+     * Return copies of all elements of this vector.
+     *
+     * @return An array holding the elements in order.
+     */
+    public SciComplex[] toArray() {
+        SciComplex[] result = new SciComplex[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Compute the exponential of every element of a vector.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return The vector of e^a_i.
+     */
+    public static SciComplexVector exp(MathContext mc, SciComplexVector a) {
+        return new SciComplexVector(map(mc.precision(), mc.roundingMode().ordinal(), a.ptr, EXP), a.size);
+    }
+
+    /**
+     * Compute the principal natural logarithm of every element of a vector.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return The vector of ln(a_i).
+     */
+    public static SciComplexVector ln(MathContext mc, SciComplexVector a) {
+        return new SciComplexVector(map(mc.precision(), mc.roundingMode().ordinal(), a.ptr, LN), a.size);
+    }
+
+    /**
+     * Compute the principal square root of every element of a vector.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return The vector of sqrt(a_i).
+     */
+    public static SciComplexVector sqrt(MathContext mc, SciComplexVector a) {
+        return new SciComplexVector(map(mc.precision(), mc.roundingMode().ordinal(), a.ptr, SQRT), a.size);
+    }
+
+    /**
+     * Compute the sine of every element of a vector.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return The vector of sin(a_i).
+     */
+    public static SciComplexVector sin(MathContext mc, SciComplexVector a) {
+        return new SciComplexVector(map(mc.precision(), mc.roundingMode().ordinal(), a.ptr, SIN), a.size);
+    }
+
+    /**
+     * Compute the cosine of every element of a vector.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return The vector of cos(a_i).
+     */
+    public static SciComplexVector cos(MathContext mc, SciComplexVector a) {
+        return new SciComplexVector(map(mc.precision(), mc.roundingMode().ordinal(), a.ptr, COS), a.size);
+    }
+
+    /**
+     * Compute the tangent of every element of a vector.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return The vector of tan(a_i).
+     */
+    public static SciComplexVector tan(MathContext mc, SciComplexVector a) {
+        return new SciComplexVector(map(mc.precision(), mc.roundingMode().ordinal(), a.ptr, TAN), a.size);
+    }
+
+    /**
+     * Compute the complex conjugate of every element of a vector.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return The vector of conj(a_i).
+     */
+    public static SciComplexVector conj(MathContext mc, SciComplexVector a) {
+        return new SciComplexVector(map(mc.precision(), mc.roundingMode().ordinal(), a.ptr, CONJ), a.size);
+    }
+
+    /**
+     * Compute the reciprocal of every element of a vector.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return The vector of 1 / a_i.
+     */
+    public static SciComplexVector reciprocal(MathContext mc, SciComplexVector a) {
+        return new SciComplexVector(map(mc.precision(), mc.roundingMode().ordinal(), a.ptr, RECIP), a.size);
+    }
+
+    /**
+     * Compute the negation of every element of a vector.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return The vector of -a_i.
+     */
+    public static SciComplexVector neg(MathContext mc, SciComplexVector a) {
+        return new SciComplexVector(map(mc.precision(), mc.roundingMode().ordinal(), a.ptr, NEG), a.size);
+    }
+
+    /**
+     * Compute the elementwise sum of two vectors.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The first argument.
+     * @param b The second argument.
+     * @return The vector of a_i + b_i.
+     * @throws IllegalArgumentException If the vectors differ in size.
+     */
+    public static SciComplexVector add(MathContext mc, SciComplexVector a, SciComplexVector b) {
+        checkSize(a, b);
+        return new SciComplexVector(zip(mc.precision(), mc.roundingMode().ordinal(), a.ptr, b.ptr, ADD), a.size);
+    }
+
+    /**
+     * Compute the sum of every element of a vector and a scalar.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The vector.
+     * @param c The scalar.
+     * @return The vector of a_i + c.
+     */
+    public static SciComplexVector add(MathContext mc, SciComplexVector a, SciComplex c) {
+        return new SciComplexVector(zipScalar(mc.precision(), mc.roundingMode().ordinal(), a.ptr, c.ptr, ADD), a.size);
+    }
+
+    /**
+     * Compute the elementwise difference of two vectors.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The first argument.
+     * @param b The second argument.
+     * @return The vector of a_i - b_i.
+     * @throws IllegalArgumentException If the vectors differ in size.
+     */
+    public static SciComplexVector sub(MathContext mc, SciComplexVector a, SciComplexVector b) {
+        checkSize(a, b);
+        return new SciComplexVector(zip(mc.precision(), mc.roundingMode().ordinal(), a.ptr, b.ptr, SUB), a.size);
+    }
+
+    /**
+     * Compute the difference of every element of a vector and a scalar.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The vector.
+     * @param c The scalar.
+     * @return The vector of a_i - c.
+     */
+    public static SciComplexVector sub(MathContext mc, SciComplexVector a, SciComplex c) {
+        return new SciComplexVector(zipScalar(mc.precision(), mc.roundingMode().ordinal(), a.ptr, c.ptr, SUB), a.size);
+    }
+
+    /**
+     * Compute the elementwise product of two vectors.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The first argument.
+     * @param b The second argument.
+     * @return The vector of a_i * b_i.
+     * @throws IllegalArgumentException If the vectors differ in size.
+     */
+    public static SciComplexVector mul(MathContext mc, SciComplexVector a, SciComplexVector b) {
+        checkSize(a, b);
+        return new SciComplexVector(zip(mc.precision(), mc.roundingMode().ordinal(), a.ptr, b.ptr, MUL), a.size);
+    }
+
+    /**
+     * Compute the product of every element of a vector and a scalar.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The vector.
+     * @param c The scalar.
+     * @return The vector of a_i * c.
+     */
+    public static SciComplexVector mul(MathContext mc, SciComplexVector a, SciComplex c) {
+        return new SciComplexVector(zipScalar(mc.precision(), mc.roundingMode().ordinal(), a.ptr, c.ptr, MUL), a.size);
+    }
+
+    /**
+     * Compute the elementwise quotient of two vectors.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The first argument.
+     * @param b The second argument.
+     * @return The vector of a_i / b_i.
+     * @throws IllegalArgumentException If the vectors differ in size.
+     */
+    public static SciComplexVector div(MathContext mc, SciComplexVector a, SciComplexVector b) {
+        checkSize(a, b);
+        return new SciComplexVector(zip(mc.precision(), mc.roundingMode().ordinal(), a.ptr, b.ptr, DIV), a.size);
+    }
+
+    /**
+     * Compute the quotient of every element of a vector and a scalar.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The vector.
+     * @param c The scalar.
+     * @return The vector of a_i / c.
+     */
+    public static SciComplexVector div(MathContext mc, SciComplexVector a, SciComplex c) {
+        return new SciComplexVector(zipScalar(mc.precision(), mc.roundingMode().ordinal(), a.ptr, c.ptr, DIV), a.size);
+    }
+
+    /**
+     * Compute the elementwise principal power of two vectors.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The first argument.
+     * @param b The second argument.
+     * @return The vector of a_i^b_i.
+     * @throws IllegalArgumentException If the vectors differ in size.
+     */
+    public static SciComplexVector pow(MathContext mc, SciComplexVector a, SciComplexVector b) {
+        checkSize(a, b);
+        return new SciComplexVector(zip(mc.precision(), mc.roundingMode().ordinal(), a.ptr, b.ptr, POW), a.size);
+    }
+
+    /**
+     * Compute the principal power of every element of a vector and a scalar.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The vector.
+     * @param c The scalar.
+     * @return The vector of a_i^c.
+     */
+    public static SciComplexVector pow(MathContext mc, SciComplexVector a, SciComplex c) {
+        return new SciComplexVector(zipScalar(mc.precision(), mc.roundingMode().ordinal(), a.ptr, c.ptr, POW), a.size);
+    }
+
+    /**
+     * Compute the sum of the elements of a vector. The sum is accumulated at a higher precision and rounded once.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The argument.
+     * @return The sum of a_i.
+     */
+    public static SciComplex sum(MathContext mc, SciComplexVector a) {
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        sum(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the bilinear dot product of two vectors, without conjugating either argument. The sum is accumulated
+     * at a higher precision and rounded once.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The first argument.
+     * @param b The second argument.
+     * @return The sum of a_i * b_i.
+     * @throws IllegalArgumentException If the vectors differ in size.
+     */
+    public static SciComplex dot(MathContext mc, SciComplexVector a, SciComplexVector b) {
+        checkSize(a, b);
+        SciComplex result = SciComplex.valueOf(mc, 0);
+        dot(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr, b.ptr);
+        return result;
+    }
+}
@@ -19,7 +19,11 @@
 package palaiologos.scijava;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.ref.Cleaner;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
 
 import static palaiologos.scijava.NativeLibrary.load;
 import static palaiologos.scijava.NativeLibrary.resourceName;
@@ -63,19 +67,109 @@ public final class SciFloat implements Comparable<SciFloat>, Cloneable {
         }
     }
 
+    /**
+     * The evaluation scheme used by {@link #polyEval(MathContext, SciFloat[], SciFloat, PolynomialScheme)}.
+     */
+    public enum PolynomialScheme {
+        /**
+         * Horner's rule with a separate multiplication and addition per coefficient.
+         */
+        HORNER,
+        /**
+         * Horner's rule with a fused multiply-add per coefficient.
+         */
+        FUSED_HORNER,
+        /**
+         * Estrin's scheme: neighbouring terms are combined pairwise using successive squares of x, which shortens
+         * the dependency chain.
+         */
+        ESTRIN
+    }
+
+    /**
+     * The special functions that are evaluated with the Arb library instead of MPFR at high precision, where Arb's
+     * algorithms are considerably faster. Above the threshold set by {@link #setArbThreshold(SpecialFunction, int)},
+     * the function is evaluated in ball arithmetic at increasing working precision until the enclosure determines
+     * the correctly rounded result. As on the MPFR path, the argument is first rounded to the target precision in the
+     * rounding mode of the MathContext and the result is rounded to nearest, so the result is the same as MPFR's.
+     * Arguments for which Arb cannot produce an enclosure, such as poles, are handed to MPFR.
+     */
+    public enum SpecialFunction {
+        /**
+         * {@link #gamma(MathContext, SciFloat)}.
+         */
+        GAMMA,
+        /**
+         * {@link #zeta(MathContext, SciFloat)}.
+         */
+        ZETA,
+        /**
+         * {@link #j0(MathContext, SciFloat)}, {@link #j1(MathContext, SciFloat)} and
+         * {@link #jn(MathContext, int, SciFloat)}.
+         */
+        BESSEL_J,
+        /**
+         * {@link #Ei(MathContext, SciFloat)}.
+         */
+        EI,
+        /**
+         * {@link #li2(MathContext, SciFloat)}, for arguments not greater than one.
+         */
+        LI2,
+        /**
+         * {@link #erf(MathContext, SciFloat)}.
+         */
+        ERF
+    }
+
     final long ptr;
 
     private final Cleaner.Cleanable cleanable;
 
+    // Computed on first use: the value is only final once the native operation that produced it has returned.
+    private int hash;
+    private volatile boolean hashed;
+
+    // The value as a double if it is one exactly, NaN otherwise, and its precision in bits. Computed on first use
+    // by the operations with a pure-Java fast path, and known from the start for their results.
+    private double exact;
+    private int bits;
+    private volatile boolean exactKnown;
+
     private SciFloat(long ptr) {
         this.ptr = ptr;
         cleanable = CleanerSingleton.CLEANER.register(this, new CleanerRunnable(ptr));
     }
 
+    private SciFloat(long ptr, double exact, int bits) {
+        this(ptr);
+        this.exact = exact;
+        this.bits = bits;
+        this.exactKnown = true;
+    }
+
     private static native void free(long ptr);
+    private static native double exactDouble(long ptr);
+    private static native int precision(long ptr);
+    private static native long fromDouble(int precision, int roundingMode, double d);
+    private static native long[] fromDoubles(int precision, int roundingMode, double[] ds);
+    private static native double toDouble(long ptr);
+    private static native double[] toDoubles(long[] ptrs);
+    private static native long toLong(long ptr);
+    private static native int toIntegerExp(long dest, long ptr);
+    private static native long fromScaled(int precision, int roundingMode, long m, int scale);
     private static native String toString(long i);
+    private static native void writeDigits(long i, int radix, int digits, DigitSink sink) throws IOException;
+    private static native long parseBytes(int precision, int roundingMode, byte[] bytes, int offset, int length, int radix);
+    private static native long parseDirect(int precision, int roundingMode, ByteBuffer buffer, int position, int length, int radix);
     private static native void agm(int precision, int roundingMode, long dest, long a, long b);
     private static native void add(int precision, int roundingMode, long dest, long a, long b);
+    private static native void fma(int precision, int roundingMode, long dest, long a, long b, long c);
+    private static native void fms(int precision, int roundingMode, long dest, long a, long b, long c);
+    private static native void fmma(int precision, int roundingMode, long dest, long a, long b, long c, long d);
+    private static native void fmms(int precision, int roundingMode, long dest, long a, long b, long c, long d);
+    private static native void polyEval(int precision, int roundingMode, long dest, long[] coeffs, long x, int scheme);
+    private static native void polyEvalMulti(int precision, int roundingMode, long[] dest, long[] coeffs, long[] xs, int scheme);
     private static native void sub(int precision, int roundingMode, long dest, long a, long b);
     private static native void mul(int precision, int roundingMode, long dest, long a, long b);
     private static native void div(int precision, int roundingMode, long dest, long a, long b);
@@ -115,8 +209,11 @@ public final class SciFloat implements Comparable<SciFloat>, Cloneable {
     private static native boolean gt(long a, long b);
     private static native boolean gte(long a, long b);
     private static native boolean eq(long a, long b);
+    private static native long hash(long a);
     private static native boolean neq(long a, long b);
     private static native int compare(long a, long b);
+    private static native void fromSciFloat(int precision, int roundingMode, long dest, long a);
+    private static native long exponent(long a);
     private static native void copy(long dest, long src);
     private static native SciFloat fromString(int precision, int roundingMode, String s);
     private static native SciFloat fromInteger(int precision, int roundingMode, int n);
@@ -161,13 +258,18 @@ public final class SciFloat implements Comparable<SciFloat>, Cloneable {
     private static native void csch(int precision, int roundingMode, long dest, long a);
     private static native void coth(int precision, int roundingMode, long dest, long a);
     private static native void harmonic(int precision, int roundingMode, long dest, long a);
+    private static native void harmonicLong(int precision, int roundingMode, long dest, long n);
+    private static native void harmonicMulti(int precision, int roundingMode, long[] dest, long[] ns);
     private static native void rf(int precision, int roundingMode, long dest, long x, long n);
     private static native void ff(int precision, int roundingMode, long dest, long x, long n);
+    private static native void rfLong(int precision, int roundingMode, long dest, long x, long n);
+    private static native void ffLong(int precision, int roundingMode, long dest, long x, long n);
     private static native void asinhInplace(int precision, int roundingMode, long a);
     private static native void acoshInplace(int precision, int roundingMode, long a);
     private static native void atanhInplace(int precision, int roundingMode, long a);
     private static native void chop(int precision, int roundingMode, long dest, long a, long eps);
-    private static native SciFloat lambertw(int precision, long x, int k);
+    private static native void lambertw(int precision, int roundingMode, long dest, long x, int k);
+    private static native void lambertwMulti(int precision, int roundingMode, long[] dest, long[] xs, int k);
     private static native boolean isNaN(long ptr);
     private static native boolean isInf(long ptr);
     private static native SciFloat random(int precision, int roundingMode, long randptr);
@@ -180,6 +282,10 @@ public final class SciFloat implements Comparable<SciFloat>, Cloneable {
     private static native SciFloat phi(int precision);
     private static native SciFloat catalan(int precision);
     private static native SciFloat apery(int precision);
+    private static native void clearConstantCache0();
+    private static native void setConstantCacheLimit0(int precision);
+    private static native void setArbThreshold0(int function, int precision);
+    private static native int getArbThreshold0(int function);
     private static native void root(int precision, int roundingMode, long dest, long a, int n);
     private static native void log(int precision, int roundingMode, long dest, long a, long base);
 
@@ -232,6 +338,48 @@ public final class SciFloat implements Comparable<SciFloat>, Cloneable {
         return intValue(mc.precision(), mc.roundingMode().ordinal(), ptr);
     }
 
+    /**
+     * Return the value of this SciFloat as the nearest double. Values beyond the range of double become infinite.
+     * @return the nearest double to this SciFloat
+     */
+    public double doubleValue() {
+        if (exactKnown && !Double.isNaN(exact)) {
+            return exact;
+        }
+        return toDouble(ptr);
+    }
+
+    /**
+     * Return the value of this SciFloat as a long, truncated towards zero. Like a Java cast, values beyond the range
+     * of long saturate and NaN becomes zero.
+     * @return the truncated long value of this SciFloat
+     */
+    public long longValue() {
+        return toLong(ptr);
+    }
+
+    /**
+     * Return the exact value of this SciFloat as a BigDecimal. The binary significand is transferred without going
+     * through a decimal string, and m * 2^-k is represented exactly as (m * 5^k) * 10^-k.
+     * @return the value of this SciFloat
+     * @throws ArithmeticException if this SciFloat is not finite
+     */
+    public BigDecimal toBigDecimal() {
+        SciInteger significand = SciInteger.fromInteger(0);
+        int exponent = toIntegerExp(significand.ptr, ptr);
+        BigInteger m = significand.toBigInteger();
+        if (m.signum() == 0) {
+            return BigDecimal.ZERO;
+        }
+        int zeros = m.getLowestSetBit();
+        m = m.shiftRight(zeros);
+        long e = (long) exponent + zeros;
+        if (e >= 0) {
+            return new BigDecimal(m.shiftLeft((int) e));
+        }
+        return new BigDecimal(m.multiply(BigInteger.valueOf(5).pow((int) -e)), (int) -e);
+    }
+
     /**
      * Scale a SciFloat value, that is, multiply it times a machine integral value.
      * @param mc The math context to use.
@@ -275,6 +423,7 @@ public final class SciFloat implements Comparable<SciFloat>, Cloneable {
 
     /**
      * Return the n-th harmonic number. Domain extended for fractional n, defined as euler_gamma + digamma(n + 1).
+     * Non-negative integer arguments are computed as by {@link #harmonic(MathContext, long)}.
      * @param mc The MathContext to use.
      * @param n The argument.
      * @return The n-th harmonic number.
@@ -285,6 +434,43 @@ public final class SciFloat implements Comparable<SciFloat>, Cloneable {
         return result;
     }
 
+    /**
+     * Return the n-th harmonic number for a non-negative integer n. For n up to about eight times the precision in
+     * bits, the exact sum is computed by binary splitting and rounded once. Larger n use the asymptotic expansion
+     * in terms of the cached Euler-Mascheroni constant and at most 32 memoized Bernoulli numbers (see
+     * {@link SciRational#bernoulliTable(int)}) when that many terms suffice, and euler_gamma + digamma(n + 1)
+     * otherwise.
+     * @param mc The MathContext to use.
+     * @param n The argument, non-negative.
+     * @return The n-th harmonic number.
+     */
+    public static SciFloat harmonic(MathContext mc, long n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Harmonic number index must be non-negative");
+        }
+        SciFloat result = SciFloat.valueOf(mc, 0);
+        harmonicLong(mc.precision(), mc.roundingMode().ordinal(), result.ptr, n);
+        return result;
+    }
+
+    /**
+     * Return the harmonic numbers of several non-negative integers. Large batches are evaluated in parallel.
+     * @param mc The MathContext to use for the results.
+     * @param ns The arguments, non-negative.
+     * @return The harmonic numbers, in the order of the arguments.
+     */
+    public static SciFloat[] harmonic(MathContext mc, long[] ns) {
+        SciFloat[] results = new SciFloat[ns.length];
+        for (int i = 0; i < ns.length; i++) {
+            if (ns[i] < 0) {
+                throw new IllegalArgumentException("Harmonic number index must be non-negative");
+            }
+            results[i] = SciFloat.valueOf(mc, 0);
+        }
+        harmonicMulti(mc.precision(), mc.roundingMode().ordinal(), pointers(results), ns);
+        return results;
+    }
+
     /**
      * Return the n-th Bernoulli number.
      * @param mc The MathContext to use.
@@ -381,6 +567,7 @@ public final class SciFloat implements Comparable<SciFloat>, Cloneable {
     /**
      * Compute the value of the rising factorial (Pochhammer symbol) of x and n.
      * Defined as gamma(x+n)/gamma(x).
+     * Integer n are computed as by {@link #risingFactorial(MathContext, SciFloat, long)}.
      * @param mc The MathContext to use for the result.
      * @param x The argument.
      * @return The value of the rising factorial of x and n.
@@ -391,6 +578,21 @@ public final class SciFloat implements Comparable<SciFloat>, Cloneable {
         return result;
     }
 
+    /**
+     * Compute the value of the rising factorial x (x+1) ... (x+n-1) for an integer n, by binary or rectangular
+     * splitting rather than through the gamma function. The result is correctly rounded to nearest, also near the
+     * poles of gamma and where gamma itself would overflow. For negative n, the value is 1/((x-1) (x-2) ... (x+n)).
+     * @param mc The MathContext to use for the result.
+     * @param x The argument.
+     * @param n The order.
+     * @return The value of the rising factorial of x and n.
+     */
+    public static SciFloat risingFactorial(MathContext mc, SciFloat x, long n) {
+        SciFloat result = SciFloat.valueOf(mc, 0);
+        rfLong(mc.precision(), mc.roundingMode().ordinal(), result.ptr, x.ptr, n);
+        return result;
+    }
+
     /**
      * Return the minimum (the smaller) of the two arguments.
      * @param a The first argument.
@@ -428,6 +630,7 @@ public final class SciFloat implements Comparable<SciFloat>, Cloneable {
     /**
      * Compute the value of the falling factorial of x and n.
      * Defined as gamma(x+1)/gamma(x-n+1).
+     * Integer n are computed as by {@link #fallingFactorial(MathContext, SciFloat, long)}.
      * @param mc The MathContext to use for the result.
      * @param x The argument.
      * @return The value of the falling factorial of x and n.
@@ -438,15 +641,53 @@ public final class SciFloat implements Comparable<SciFloat>, Cloneable {
         return result;
     }
 
+    /**
+     * Compute the value of the falling factorial x (x-1) ... (x-n+1) for an integer n, by binary or rectangular
+     * splitting rather than through the gamma function. The result is correctly rounded to nearest, also near the
+     * poles of gamma and where gamma itself would overflow. For negative n, the value is 1/((x+1) (x+2) ... (x-n)).
+     * @param mc The MathContext to use for the result.
+     * @param x The argument.
+     * @param n The order.
+     * @return The value of the falling factorial of x and n.
+     */
+    public static SciFloat fallingFactorial(MathContext mc, SciFloat x, long n) {
+        SciFloat result = SciFloat.valueOf(mc, 0);
+        ffLong(mc.precision(), mc.roundingMode().ordinal(), result.ptr, x.ptr, n);
+        return result;
+    }
+
     /**
      * Return the value of the Lambert W function (branch k) of x.
+     * Only the real branches 0 and -1 are supported; other branches and
+     * arguments outside of the domain of the branch yield NaN.
      * @param mc The MathContext to use for the result.
      * @param x The argument of the Lambert W function.
      * @param k The branch of the Lambert W function.
      * @return The value of the Lambert W function of x.
+     * @throws ArithmeticException if the iteration fails to converge.
      */
     public static SciFloat lambertw(MathContext mc, SciFloat x, int k) {
-        return lambertw(mc.precision(), x.ptr, k);
+        SciFloat result = SciFloat.valueOf(mc, 0);
+        lambertw(mc.precision(), mc.roundingMode().ordinal(), result.ptr, x.ptr, k);
+        return result;
+    }
+
+    /**
+     * Return the values of the Lambert W function (branch k) of several
+     * arguments. Large batches are evaluated in parallel.
+     * @param mc The MathContext to use for the results.
+     * @param xs The arguments of the Lambert W function.
+     * @param k The branch of the Lambert W function.
+     * @return The values of the Lambert W function, in the order of the arguments.
+     * @throws ArithmeticException if the iteration fails to converge for any argument.
+     */
+    public static SciFloat[] lambertw(MathContext mc, SciFloat[] xs, int k) {
+        SciFloat[] results = new SciFloat[xs.length];
+        for (int i = 0; i < xs.length; i++) {
+            results[i] = SciFloat.valueOf(mc, 0);
+        }
+        lambertwMulti(mc.precision(), mc.roundingMode().ordinal(), pointers(results), pointers(xs), k);
+        return results;
     }
 
     /**
@@ -477,6 +718,56 @@ public final class SciFloat implements Comparable<SciFloat>, Cloneable {
         return result;
     }
 
+    /**
+     * Drop all the cached mathematical constants.
+     *
+     * <p>The constants {@link #pi(MathContext)}, {@link #e(MathContext)}, {@link #phi(MathContext)},
+     * {@link #catalan(MathContext)}, {@link #apery(MathContext)}, {@link #eulerGamma(MathContext)} and
+     * {@link #degree(MathContext)} are cached process-wide at the highest precision requested so far, and requests
+     * for lower precisions are served by rounding the cached value. This method releases the memory held by the cache.
+     */
+    public static void clearConstantCache() {
+        clearConstantCache0();
+    }
+
+    /**
+     * Set the highest precision at which mathematical constants are cached. Constants requested at a higher
+     * precision are computed on every call. Cached values above the new limit are dropped. The default limit
+     * is 2^20 bits.
+     *
+     * @param precision The precision limit, in bits.
+     * @throws IllegalArgumentException if the precision is negative.
+     */
+    public static void setConstantCacheLimit(int precision) {
+        setConstantCacheLimit0(precision);
+    }
+
+    /**
+     * Set the precision from which a special function is evaluated with Arb. By default every function uses MPFR
+     * at all precisions, since no crossover has been measured; the crossovers depend on the machine and can be
+     * measured with SpecialFunctionBenchmark in the test sources. Passing {@link Integer#MAX_VALUE} always uses
+     * MPFR, and passing 1 always uses Arb.
+     *
+     * @param function The special function.
+     * @param precision The lowest precision in bits at which Arb is used.
+     */
+    public static void setArbThreshold(SpecialFunction function, int precision) {
+        if (precision < 1) {
+            throw new IllegalArgumentException("precision < 1");
+        }
+        setArbThreshold0(function.ordinal(), precision);
+    }
+
+    /**
+     * Get the precision from which a special function is evaluated with Arb.
+     *
+     * @param function The special function.
+     * @return The lowest precision in bits at which Arb is used.
+     */
+    public static int getArbThreshold(SpecialFunction function) {
+        return getArbThreshold0(function.ordinal());
+    }
+
     /**
      * Return the value of the constant pi with the given precision.
      *
@@ -566,6 +857,15 @@ public final class SciFloat implements Comparable<SciFloat>, Cloneable {
         return isNaN(ptr);
     }
 
+    /**
+     * Return the binary exponent of this SciFloat value, that is, the integer e such that
+     * 2^(e-1) &lt;= |this| &lt; 2^e.
+     * @return The exponent, {@link Long#MIN_VALUE} for zero or {@link Long#MAX_VALUE} for NaN and infinities.
+     */
+    public long exponent() {
+        return exponent(ptr);
+    }
+
     /**
      * Determine if the SciFloat is infinite.
      * @return true if the SciFloat is infinite, false otherwise.
@@ -717,6 +1017,47 @@ public final class SciFloat implements Comparable<SciFloat>, Cloneable {
         return fromString(mc.precision(), mc.roundingMode().ordinal(), s);
     }
 
+    /**
+     * Parse characters written in the given radix to a SciFloat, rounded in the direction of mc. Unlike
+     * {@link #valueOf(MathContext, String)}, the characters are not collected into a String first.
+     *
+     * @param mc The math context to use for the resulting SciFloat.
+     * @param s The characters to parse.
+     * @param radix The base the value is written in, between 2 and 36.
+     * @return The SciFloat representation of s.
+     * @throws NumberFormatException If the characters are not a valid representation of a SciFloat.
+     */
+    public static SciFloat valueOf(MathContext mc, CharSequence s, int radix) {
+        byte[] bytes = DigitSink.ascii(s);
+        return new SciFloat(parseBytes(mc.precision(), mc.roundingMode().ordinal(), bytes, 0, bytes.length, radix));
+    }
+
+    /**
+     * Parse the remaining ASCII bytes of a buffer, written in the given radix, to a SciFloat rounded in the direction
+     * of mc. Direct buffers are parsed in place. On success the position of the buffer is advanced to its limit.
+     *
+     * @param mc The math context to use for the resulting SciFloat.
+     * @param b The bytes to parse.
+     * @param radix The base the value is written in, between 2 and 36.
+     * @return The SciFloat representation of the bytes.
+     * @throws NumberFormatException If the bytes are not a valid representation of a SciFloat.
+     */
+    public static SciFloat valueOf(MathContext mc, ByteBuffer b, int radix) {
+        int precision = mc.precision(), rounding = mc.roundingMode().ordinal();
+        long result;
+        if (b.isDirect()) {
+            result = parseDirect(precision, rounding, b, b.position(), b.remaining(), radix);
+        } else if (b.hasArray()) {
+            result = parseBytes(precision, rounding, b.array(), b.arrayOffset() + b.position(), b.remaining(), radix);
+        } else {
+            byte[] bytes = new byte[b.remaining()];
+            b.duplicate().get(bytes);
+            result = parseBytes(precision, rounding, bytes, 0, bytes.length, radix);
+        }
+        b.position(b.limit());
+        return new SciFloat(result);
+    }
+
     /**
      * Convert a SciInteger value to a SciFloat.
      *
@@ -739,6 +1080,80 @@ public final class SciFloat implements Comparable<SciFloat>, Cloneable {
         return fromSciRational(mc.precision(), mc.roundingMode().ordinal(), i.ptr);
     }
 
+    /**
+     * Convert a double value to a SciFloat of 53 bits of precision. The conversion is exact.
+     *
+     * @param d The double value to convert.
+     * @return The SciFloat representation of d.
+     */
+    public static SciFloat valueOf(double d) {
+        return new SciFloat(fromDouble(53, MathContext.RoundingMode.NEAREST.ordinal(), d),
+                Double.isFinite(d) ? d : Double.NaN, 53);
+    }
+
+    /**
+     * Convert a double value to a SciFloat, rounded according to a math context.
+     *
+     * @param mc The math context to use for the resulting SciFloat.
+     * @param d The double value to convert.
+     * @return The SciFloat representation of d.
+     */
+    public static SciFloat valueOf(MathContext mc, double d) {
+        return new SciFloat(fromDouble(mc.precision(), mc.roundingMode().ordinal(), d));
+    }
+
+    /**
+     * Convert an array of double values to SciFloats, rounded according to a math context, in a single native call.
+     *
+     * @param mc The math context to use for the resulting SciFloats.
+     * @param ds The double values to convert.
+     * @return The SciFloat representations of ds, in order.
+     */
+    public static SciFloat[] valueOf(MathContext mc, double[] ds) {
+        long[] ptrs = fromDoubles(mc.precision(), mc.roundingMode().ordinal(), ds);
+        SciFloat[] result = new SciFloat[ptrs.length];
+        for (int i = 0; i < ptrs.length; i++) {
+            result[i] = new SciFloat(ptrs[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Convert a BigDecimal value to a SciFloat, rounded once according to a math context. The unscaled value is
+     * transferred in binary rather than through its decimal string.
+     *
+     * @param mc The math context to use for the resulting SciFloat.
+     * @param d The BigDecimal value to convert.
+     * @return The SciFloat representation of d.
+     */
+    public static SciFloat valueOf(MathContext mc, BigDecimal d) {
+        SciInteger m = SciInteger.valueOf(d.unscaledValue());
+        return new SciFloat(fromScaled(mc.precision(), mc.roundingMode().ordinal(), m.ptr, d.scale()));
+    }
+
+    /**
+     * Convert SciFloat values to doubles, rounded to nearest, in a single native call.
+     *
+     * @param xs The values to convert.
+     * @return The nearest doubles to xs, in order.
+     */
+    public static double[] toDoubleArray(SciFloat[] xs) {
+        return toDoubles(pointers(xs));
+    }
+
+    /**
+     * Round a SciFloat value to the precision of a math context.
+     *
+     * @param mc The math context to use for the resulting SciFloat.
+     * @param a The SciFloat value to convert.
+     * @return a rounded according to mc.
+     */
+    public static SciFloat valueOf(MathContext mc, SciFloat a) {
+        SciFloat result = SciFloat.valueOf(mc, 0);
+        fromSciFloat(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr);
+        return result;
+    }
+
     /**
      * Compute the value of the arithmetic-geometric mean.
      *
@@ -753,8 +1168,38 @@ public final class SciFloat implements Comparable<SciFloat>, Cloneable {
         return result;
     }
 
+    // The value as a double, or NaN if it is not exactly representable as one.
+    private double exact() {
+        if (!exactKnown) {
+            exact = exactDouble(ptr);
+            bits = precision(ptr);
+            exactKnown = true;
+        }
+        return exact;
+    }
+
+    // Whether an operation with first operand a may take the pure-Java path. MPFR rounds a to the target precision
+    // in the requested mode before an operation that itself rounds to nearest, so the two agree only when rounding
+    // to nearest and when a needs no rounding first. The other operand is always used exactly.
+    private static boolean fast(MathContext mc, SciFloat a) {
+        if (mc.roundingMode() != MathContext.RoundingMode.NEAREST || mc.precision() > FastFloat.MAX_PRECISION) {
+            return false;
+        }
+        a.exact();
+        return a.bits <= mc.precision();
+    }
+
+    // A SciFloat of the precision of mc holding a value of at most that many bits.
+    private static SciFloat fromExact(MathContext mc, double d) {
+        return new SciFloat(fromDouble(mc.precision(), MathContext.RoundingMode.NEAREST.ordinal(), d), d, mc.precision());
+    }
+
     /**
      * Compute the sum of two SciFloat values.
+     * When rounding to nearest at a precision of at most 53 bits, with a first operand of at most that precision,
+     * operands that are exactly doubles are added in pure Java; this applies to {@link #sub}, {@link #mul},
+     * {@link #div} and {@link #sqrt} too. The result is the same as MPFR's. Other precisions and rounding modes
+     * always use MPFR.
      *
      * @param mc The math context to use while performing computations.
      * @param a The first argument.
@@ -762,6 +1207,12 @@ public final class SciFloat implements Comparable<SciFloat>, Cloneable {
      * @return a + b.
      */
     public static SciFloat add(MathContext mc, SciFloat a, SciFloat b) {
+        if (fast(mc, a)) {
+            double r = FastFloat.add(a.exact(), b.exact(), mc.precision(), mc.roundingMode());
+            if (!Double.isNaN(r)) {
+                return fromExact(mc, r);
+            }
+        }
         SciFloat result = SciFloat.valueOf(mc, 0);
         SciFloat.add(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr, b.ptr);
         return result;
@@ -776,6 +1227,12 @@ public final class SciFloat implements Comparable<SciFloat>, Cloneable {
      * @return a - b.
      */
     public static SciFloat sub(MathContext mc, SciFloat a, SciFloat b) {
+        if (fast(mc, a)) {
+            double r = FastFloat.add(a.exact(), -b.exact(), mc.precision(), mc.roundingMode());
+            if (!Double.isNaN(r)) {
+                return fromExact(mc, r);
+            }
+        }
         SciFloat result = SciFloat.valueOf(mc, 0);
         SciFloat.sub(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr, b.ptr);
         return result;
@@ -790,6 +1247,12 @@ public final class SciFloat implements Comparable<SciFloat>, Cloneable {
      * @return a * b.
      */
     public static SciFloat mul(MathContext mc, SciFloat a, SciFloat b) {
+        if (fast(mc, a)) {
+            double r = FastFloat.mul(a.exact(), b.exact(), mc.precision(), mc.roundingMode());
+            if (!Double.isNaN(r)) {
+                return fromExact(mc, r);
+            }
+        }
         SciFloat result = SciFloat.valueOf(mc, 0);
         SciFloat.mul(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr, b.ptr);
         return result;
@@ -804,11 +1267,146 @@ public final class SciFloat implements Comparable<SciFloat>, Cloneable {
      * @return a / b.
      */
     public static SciFloat div(MathContext mc, SciFloat a, SciFloat b) {
+        if (fast(mc, a)) {
+            double r = FastFloat.div(a.exact(), b.exact(), mc.precision(), mc.roundingMode());
+            if (!Double.isNaN(r)) {
+                return fromExact(mc, r);
+            }
+        }
         SciFloat result = SciFloat.valueOf(mc, 0);
         SciFloat.div(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr, b.ptr);
         return result;
     }
 
+    /**
+     * Compute the fused multiply-add of three SciFloat values. The result is rounded only once.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The first factor.
+     * @param b The second factor.
+     * @param c The addend.
+     * @return a * b + c.
+     */
+    public static SciFloat fma(MathContext mc, SciFloat a, SciFloat b, SciFloat c) {
+        SciFloat result = SciFloat.valueOf(mc, 0);
+        SciFloat.fma(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr, b.ptr, c.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the fused multiply-subtract of three SciFloat values. The result is rounded only once.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The first factor.
+     * @param b The second factor.
+     * @param c The subtrahend.
+     * @return a * b - c.
+     */
+    public static SciFloat fms(MathContext mc, SciFloat a, SciFloat b, SciFloat c) {
+        SciFloat result = SciFloat.valueOf(mc, 0);
+        SciFloat.fms(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr, b.ptr, c.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the sum of two products of SciFloat values. The result is rounded only once.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The first factor of the first product.
+     * @param b The second factor of the first product.
+     * @param c The first factor of the second product.
+     * @param d The second factor of the second product.
+     * @return a * b + c * d.
+     */
+    public static SciFloat fmma(MathContext mc, SciFloat a, SciFloat b, SciFloat c, SciFloat d) {
+        SciFloat result = SciFloat.valueOf(mc, 0);
+        SciFloat.fmma(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr, b.ptr, c.ptr, d.ptr);
+        return result;
+    }
+
+    /**
+     * Compute the difference of two products of SciFloat values. The result is rounded only once.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param a The first factor of the first product.
+     * @param b The second factor of the first product.
+     * @param c The first factor of the second product.
+     * @param d The second factor of the second product.
+     * @return a * b - c * d.
+     */
+    public static SciFloat fmms(MathContext mc, SciFloat a, SciFloat b, SciFloat c, SciFloat d) {
+        SciFloat result = SciFloat.valueOf(mc, 0);
+        SciFloat.fmms(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr, b.ptr, c.ptr, d.ptr);
+        return result;
+    }
+
+    static long[] pointers(SciFloat[] a) {
+        long[] ptrs = new long[a.length];
+        for (int i = 0; i < a.length; i++) {
+            ptrs[i] = a[i].ptr;
+        }
+        return ptrs;
+    }
+
+    /**
+     * Evaluate a polynomial at a point in a single native call. Intermediate results carry a few guard bits above
+     * the requested precision, and the result is rounded once at the end.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param coeffs The coefficients of the polynomial, coeffs[i] being the coefficient of x^i.
+     * @param x The point.
+     * @param scheme The evaluation scheme.
+     * @return The value of the polynomial at x.
+     */
+    public static SciFloat polyEval(MathContext mc, SciFloat[] coeffs, SciFloat x, PolynomialScheme scheme) {
+        SciFloat result = SciFloat.valueOf(mc, 0);
+        SciFloat.polyEval(mc.precision(), mc.roundingMode().ordinal(), result.ptr, pointers(coeffs), x.ptr, scheme.ordinal());
+        return result;
+    }
+
+    /**
+     * Evaluate a polynomial at a point in a single native call using Horner's rule with fused multiply-adds.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param coeffs The coefficients of the polynomial, coeffs[i] being the coefficient of x^i.
+     * @param x The point.
+     * @return The value of the polynomial at x.
+     */
+    public static SciFloat polyEval(MathContext mc, SciFloat[] coeffs, SciFloat x) {
+        return polyEval(mc, coeffs, x, PolynomialScheme.FUSED_HORNER);
+    }
+
+    /**
+     * Evaluate a polynomial at many points in a single native call. The points are split across threads.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param coeffs The coefficients of the polynomial, coeffs[i] being the coefficient of x^i.
+     * @param xs The points.
+     * @param scheme The evaluation scheme.
+     * @return The values of the polynomial at the points, in the same order.
+     */
+    public static SciFloat[] polyEval(MathContext mc, SciFloat[] coeffs, SciFloat[] xs, PolynomialScheme scheme) {
+        SciFloat[] result = new SciFloat[xs.length];
+        for (int i = 0; i < xs.length; i++) {
+            result[i] = SciFloat.valueOf(mc, 0);
+        }
+        SciFloat.polyEvalMulti(mc.precision(), mc.roundingMode().ordinal(), pointers(result), pointers(coeffs), pointers(xs), scheme.ordinal());
+        return result;
+    }
+
+    /**
+     * Evaluate a polynomial at many points in a single native call using Horner's rule with fused multiply-adds.
+     * The points are split across threads.
+     *
+     * @param mc The math context to use while performing computations.
+     * @param coeffs The coefficients of the polynomial, coeffs[i] being the coefficient of x^i.
+     * @param xs The points.
+     * @return The values of the polynomial at the points, in the same order.
+     */
+    public static SciFloat[] polyEval(MathContext mc, SciFloat[] coeffs, SciFloat[] xs) {
+        return polyEval(mc, coeffs, xs, PolynomialScheme.FUSED_HORNER);
+    }
+
     /**
      * Compute the modulus of two SciFloat values.
      *
@@ -831,6 +1429,12 @@ public final class SciFloat implements Comparable<SciFloat>, Cloneable {
      * @return sqrt(a).
      */
     public static SciFloat sqrt(MathContext mc, SciFloat a) {
+        if (fast(mc, a)) {
+            double r = FastFloat.sqrt(a.exact(), mc.precision(), mc.roundingMode());
+            if (!Double.isNaN(r)) {
+                return fromExact(mc, r);
+            }
+        }
         SciFloat result = SciFloat.valueOf(mc, 0);
         SciFloat.sqrt(mc.precision(), mc.roundingMode().ordinal(), result.ptr, a.ptr);
         return result;
@@ -1396,6 +2000,67 @@ public final class SciFloat implements Comparable<SciFloat>, Cloneable {
         return toString(ptr);
     }
 
+    /**
+     * Write this SciFloat value in the given radix to a character stream, such as a {@link java.io.Writer} or a
+     * {@link StringBuilder}, with as many digits as needed to read it back at the same precision. See
+     * {@link #writeTo(Appendable, int, int)}.
+     *
+     * @param out The destination of the digits.
+     * @param radix The base to format the value in, between 2 and 36.
+     * @throws IOException If out throws.
+     */
+    public void writeTo(Appendable out, int radix) throws IOException {
+        writeTo(out, radix, 0);
+    }
+
+    /**
+     * Write this SciFloat value in the given radix to a character stream, rounded to nearest with the given number
+     * of significant digits. The value is written as {@code d.ddd...e<exponent>}, with {@code @} in place of
+     * {@code e} above radix 10 and the exponent in decimal. The significand is converted divide and conquer and
+     * passed on in chunks as it is produced, so no String holding the whole result is built.
+     *
+     * @param out The destination of the digits.
+     * @param radix The base to format the value in, between 2 and 36.
+     * @param digits The number of significant digits, or 0 for as many as needed to read the value back.
+     * @throws IOException If out throws.
+     * @throws IllegalArgumentException If radix is not between 2 and 36, or digits is negative.
+     */
+    public void writeTo(Appendable out, int radix, int digits) throws IOException {
+        if (digits < 0) {
+            throw new IllegalArgumentException("Negative digit count.");
+        }
+        writeDigits(ptr, radix, digits, DigitSink.of(out));
+    }
+
+    /**
+     * Write this SciFloat value in the given radix to a byte stream, as ASCII, with as many digits as needed to read
+     * it back at the same precision. See {@link #writeTo(Appendable, int, int)}.
+     *
+     * @param out The destination of the digits.
+     * @param radix The base to format the value in, between 2 and 36.
+     * @throws IOException If out throws.
+     */
+    public void writeTo(OutputStream out, int radix) throws IOException {
+        writeTo(out, radix, 0);
+    }
+
+    /**
+     * Write this SciFloat value in the given radix to a byte stream, as ASCII, rounded to nearest with the given
+     * number of significant digits. See {@link #writeTo(Appendable, int, int)}.
+     *
+     * @param out The destination of the digits.
+     * @param radix The base to format the value in, between 2 and 36.
+     * @param digits The number of significant digits, or 0 for as many as needed to read the value back.
+     * @throws IOException If out throws.
+     * @throws IllegalArgumentException If radix is not between 2 and 36, or digits is negative.
+     */
+    public void writeTo(OutputStream out, int radix, int digits) throws IOException {
+        if (digits < 0) {
+            throw new IllegalArgumentException("Negative digit count.");
+        }
+        writeDigits(ptr, radix, digits, DigitSink.of(out));
+    }
+
     /**
      * Return the value of performing three-way comparison between this SciFloat value and another SciFloat value.
      * @param o the object to be compared.
@@ -1419,12 +2084,19 @@ public final class SciFloat implements Comparable<SciFloat>, Cloneable {
 
     /**
      * Get the hash code of this SciFloat value.
-     * Relatively slow: yields the hash code of the string representation of this SciFloat value.
+     * The hash is computed natively over the sign, the exponent and the significand with its trailing zero bits
+     * removed, so values that compare equal hash equally regardless of their precision. It is computed once and
+     * cached afterwards.
      * @return The hash code of this SciFloat value.
      */
     @Override
     public int hashCode() {
-        return toString().hashCode();
+        if (!hashed) {
+            long h = hash(ptr);
+            hash = (int) (h ^ (h >>> 32));
+            hashed = true;
+        }
+        return hash;
     }
 
     /**
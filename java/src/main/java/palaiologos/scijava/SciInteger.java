@@ -19,10 +19,19 @@
 package palaiologos.scijava;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.ref.Cleaner;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static palaiologos.scijava.NativeLibrary.load;
 import static palaiologos.scijava.NativeLibrary.resourceName;
@@ -64,15 +73,45 @@ public final class SciInteger implements Comparable<SciInteger>, Cloneable {
 
     private final Cleaner.Cleanable cleanable;
 
+    // Computed on first use: the value is only final once the native operation that produced it has returned.
+    private int hash;
+    private long signedBitLength;
+    private long lowLimb;
+    private volatile boolean fingerprinted;
+
+    // Keeps the object owning the storage of a view alive for as long as the view is reachable.
+    private final Object owner;
+
     private SciInteger(long ptr) {
         this.ptr = ptr;
+        this.owner = null;
         cleanable = CleanerSingleton.CLEANER.register(this, new CleanerRunnable(ptr));
     }
 
+    // Create a read-only view of an integer owned by another native object. The view is never freed on its own.
+    private SciInteger(long ptr, Object owner) {
+        this.ptr = ptr;
+        this.owner = owner;
+        cleanable = null;
+    }
+
+    /**
+     * Wrap a pointer into the native storage of another object as a SciInteger without copying it.
+     * @param ptr the pointer to the integer
+     * @param owner the object owning the integer
+     * @return a SciInteger view, valid for as long as it is reachable
+     */
+    static SciInteger view(long ptr, Object owner) {
+        return new SciInteger(ptr, owner);
+    }
+
     private static native void free(long ptr);
     
     private static native String toString(long i);
     private static native String toStringRadix(long i, int radix);
+    private static native void writeDigits(long i, int radix, DigitSink sink) throws IOException;
+    private static native long parseBytes(byte[] bytes, int offset, int length, int radix);
+    private static native long parseDirect(ByteBuffer buffer, int position, int length, int radix);
 
     private static native void add(long dest, long a, long b);
     private static native void sub(long dest, long a, long b);
@@ -83,6 +122,7 @@ public final class SciInteger implements Comparable<SciInteger>, Cloneable {
     private static native void negate(long dest, long a);
     private static native void abs(long dest, long a);
     private static native void gcd(long dest, long a, long b);
+    private static native void gcdext(long destg, long dests, long destt, long a, long b);
     private static native void lcm(long dest, long a, long b);
     private static native void factorial(long dest, int a);
     private static native void signum(long dest, long a);
@@ -107,22 +147,37 @@ public final class SciInteger implements Comparable<SciInteger>, Cloneable {
     private static native int bitLength(long a);
     private static native boolean isPrime(long a, int certainty);
     private static native void nextPrime(long dest, long a);
+    private static native SciInteger[] sieveWindow(long start, int width, int certainty);
     private static native void clamp(long dest, long a, long min, long max);
     private static native void divmod(long destdiv, long destmod, long a, long b);
     private static native void fibonacci(long dest, int a);
     private static native void lucas(long dest, int a);
     private static native int hamming(long a, long b);
     private static native void sqrt(long dest, long a);
+    private static native void sqrtrem(long destroot, long destrem, long a);
+    private static native void rootrem(long destroot, long destrem, long a, int k);
+    private static native boolean isPerfectSquare(long a);
+    private static native boolean isPerfectPower(long a);
+    private static native int log2(long a, boolean ceil);
+    private static native int log10(long a, boolean ceil);
     private static native void binomial(long dest, long a, int k);
+    private static native void risingFactorial(long dest, long a, long n);
+    private static native void fallingFactorial(long dest, long a, long n);
     private static native void square(long dest, long a);
     private static native int jacobi(long a, long b);
     private static native int legendre(long a, long b);
     static native SciInteger fromInteger(int i);
-    private static native long hash(long a);
+    private static native void fingerprint(long a, long[] out);
     private static native SciInteger fromSciFloat(long i);
     private static native SciInteger fromString(String s);
     private static native SciInteger fromStringRadix(String s, int radix);
     private static native int toInteger(long i);
+    private static native long fromLong(long n);
+    private static native long[] fromLongs(long[] ns);
+    private static native long toLong(long i);
+    private static native long[] toLongs(long[] ptrs);
+    private static native long fromMagnitude(int signum, byte[] magnitude);
+    private static native byte[] toMagnitude(long i);
     private static native void copy(long dest, long src);
     private static native void factor(Map<SciInteger, SciInteger> destFactors, long a);
     private static native SciInteger randomBits(long rptr, int bits);
@@ -186,6 +241,39 @@ public final class SciInteger implements Comparable<SciInteger>, Cloneable {
         return fromInteger(i);
     }
 
+    /**
+     * Return a new SciInteger with the value of the specified long.
+     * @param n the long to convert
+     * @return a new SciInteger instance
+     */
+    public static SciInteger valueOf(long n) {
+        return new SciInteger(fromLong(n));
+    }
+
+    /**
+     * Return new SciIntegers with the values of the specified longs, converted in a single native call.
+     * @param ns the longs to convert
+     * @return an array of new SciInteger instances, in order
+     */
+    public static SciInteger[] valueOf(long[] ns) {
+        long[] ptrs = fromLongs(ns);
+        SciInteger[] result = new SciInteger[ptrs.length];
+        for (int i = 0; i < ptrs.length; i++) {
+            result[i] = new SciInteger(ptrs[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Return a new SciInteger with the value of the specified BigInteger. The magnitude is transferred in binary
+     * rather than through a decimal string.
+     * @param n the BigInteger to convert
+     * @return a new SciInteger instance
+     */
+    public static SciInteger valueOf(BigInteger n) {
+        return new SciInteger(fromMagnitude(n.signum(), n.abs().toByteArray()));
+    }
+
     /**
      * Return a new SciInteger with the value of the specified string.
      * @param s the integer to convert
@@ -207,6 +295,42 @@ public final class SciInteger implements Comparable<SciInteger>, Cloneable {
         return fromStringRadix(s, radix);
     }
 
+    /**
+     * Return a new SciInteger with the value represented by the given characters in a specified radix. Unlike
+     * {@link #valueOf(String, int)}, the characters are not collected into a String first.
+     * @param s the characters to parse
+     * @param radix the base the value is written in
+     * @return a new SciInteger instance
+     * @throws IllegalArgumentException if radix is not between 2 and 36
+     */
+    public static SciInteger valueOf(CharSequence s, int radix) {
+        byte[] bytes = DigitSink.ascii(s);
+        return new SciInteger(parseBytes(bytes, 0, bytes.length, radix));
+    }
+
+    /**
+     * Return a new SciInteger with the value represented by the remaining ASCII bytes of a buffer in a specified radix.
+     * Direct buffers are parsed in place. On success the position of the buffer is advanced to its limit.
+     * @param b the bytes to parse
+     * @param radix the base the value is written in
+     * @return a new SciInteger instance
+     * @throws IllegalArgumentException if radix is not between 2 and 36
+     */
+    public static SciInteger valueOf(ByteBuffer b, int radix) {
+        long result;
+        if (b.isDirect()) {
+            result = parseDirect(b, b.position(), b.remaining(), radix);
+        } else if (b.hasArray()) {
+            result = parseBytes(b.array(), b.arrayOffset() + b.position(), b.remaining(), radix);
+        } else {
+            byte[] bytes = new byte[b.remaining()];
+            b.duplicate().get(bytes);
+            result = parseBytes(bytes, 0, bytes.length, radix);
+        }
+        b.position(b.limit());
+        return new SciInteger(result);
+    }
+
     /**
      * Return a new SciInteger with the value of the specified SciFloat.
      * @param f the SciFloat to convert
@@ -335,6 +459,38 @@ public final class SciInteger implements Comparable<SciInteger>, Cloneable {
         return result;
     }
 
+    /**
+     * Compute the greatest common divisor of two SciIntegers together with the Bezout coefficients.
+     * Arguments may be negative or zero. Does not modify the operands.
+     * @param a the first operand
+     * @param b the second operand
+     * @return an array of SciInteger[] instances, respectively g = gcd(a, b), s and t such that g = s * a + t * b
+     */
+    public static SciInteger[] gcdExt(SciInteger a, SciInteger b) {
+        SciInteger[] tab = new SciInteger[3];
+        tab[0] = SciInteger.fromInteger(0);
+        tab[1] = SciInteger.fromInteger(0);
+        tab[2] = SciInteger.fromInteger(0);
+        gcdext(tab[0].ptr, tab[1].ptr, tab[2].ptr, a.ptr, b.ptr);
+        return tab;
+    }
+
+    /**
+     * Compute the greatest common divisor of two SciIntegers together with the Bezout coefficient of the first
+     * operand only, which is cheaper than {@link #gcdExt(SciInteger, SciInteger)}. This is sufficient to compute
+     * modular inverses. Arguments may be negative or zero. Does not modify the operands.
+     * @param a the first operand
+     * @param b the second operand
+     * @return an array of SciInteger[] instances, respectively g = gcd(a, b) and s such that g = s * a (mod b)
+     */
+    public static SciInteger[] gcdCofactor(SciInteger a, SciInteger b) {
+        SciInteger[] tab = new SciInteger[2];
+        tab[0] = SciInteger.fromInteger(0);
+        tab[1] = SciInteger.fromInteger(0);
+        gcdext(tab[0].ptr, tab[1].ptr, 0, a.ptr, b.ptr);
+        return tab;
+    }
+
     /**
      * Compute the least common multiple of two SciIntegers to produce a new SciInteger instance.
      * Arguments may be negative or zero. Does not modify the operands.
@@ -603,6 +759,65 @@ public final class SciInteger implements Comparable<SciInteger>, Cloneable {
         return result;
     }
 
+    /**
+     * Find all the primes in the window [start, start + width) using a sieve of small primes, followed by a
+     * probabilistic primality test on the survivors.
+     * @param start the first candidate
+     * @param width the width of the window
+     * @param certainty the number of primality-checking rounds to perform on the sieve survivors
+     * @return the primes in the window, in ascending order
+     */
+    static SciInteger[] sieveWindow(SciInteger start, int width, int certainty) {
+        return sieveWindow(start.ptr, width, certainty);
+    }
+
+    /**
+     * Return an iterator over the primes strictly greater than a SciInteger. Does not modify the operand.
+     * Enumerating many consecutive primes this way is considerably faster than calling
+     * {@link #nextPrime(SciInteger)} repeatedly, as composites are discarded by a sieve before any primality test.
+     * @param a the operand
+     * @return an unbounded iterator over the primes after a
+     */
+    public static PrimeIterator primesAfter(SciInteger a) {
+        return new PrimeIterator(a);
+    }
+
+    /**
+     * Return an infinite, sequential stream of the primes strictly greater than a SciInteger.
+     * Does not modify the operand.
+     * @param a the operand
+     * @return an ordered stream of the primes after a
+     * @see #primesAfter(SciInteger)
+     */
+    public static Stream<SciInteger> primeStream(SciInteger a) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new PrimeIterator(a),
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Return a stream of the primes in the range [lo, hi). Does not modify the operands.
+     * The range is split into sieving windows that are independent of each other, so calling
+     * {@link Stream#parallel()} on the result sieves the windows on parallel workers. The encounter
+     * order of the stream is always ascending.
+     * @param lo the lower bound (inclusive)
+     * @param hi the upper bound (exclusive)
+     * @return an ordered stream of the primes between lo and hi
+     * @throws ArithmeticException if the range spans more than {@link Integer#MAX_VALUE} windows
+     */
+    public static Stream<SciInteger> primesBetween(SciInteger lo, SciInteger hi) {
+        SciInteger from = max(lo, ZERO);
+        if (from.gte(hi)) {
+            return Stream.empty();
+        }
+        SciInteger width = SciInteger.valueOf(PrimeIterator.DEFAULT_WINDOW);
+        int windows = add(divide(subtract(subtract(hi, from), ONE), width), ONE).intValue();
+        return IntStream.range(0, windows).mapToObj(i -> {
+            SciInteger start = add(from, multiply(width, SciInteger.valueOf(i)));
+            int w = min(width, subtract(hi, start)).intValue();
+            return sieveWindow(start.ptr, w, PrimeIterator.DEFAULT_CERTAINTY);
+        }).flatMap(Arrays::stream);
+    }
+
     /**
      * Divide two SciIntegers and yield both the quotient and the remainder. Does not modify the operands.
      * @param a the first operand
@@ -617,6 +832,34 @@ public final class SciInteger implements Comparable<SciInteger>, Cloneable {
         return tab;
     }
 
+    /**
+     * Find the unique x in the range [0, M), where M is the product of the moduli, such that x is congruent to
+     * the i-th residue modulo the i-th modulus for all i. Does not modify the operands.
+     * When many reconstructions share the same moduli, build a {@link ProductTree} once and reuse it instead.
+     * @param residues the residues
+     * @param moduli the moduli, positive and pairwise coprime
+     * @return a new SciInteger instance, the reconstructed value
+     * @throws IllegalArgumentException if the arrays differ in length or are empty
+     * @throws ArithmeticException if the moduli are not positive and pairwise coprime
+     */
+    public static SciInteger crt(SciInteger[] residues, SciInteger[] moduli) {
+        return ProductTree.of(moduli).crt(residues);
+    }
+
+    /**
+     * Reduce a SciInteger modulo each of the given moduli. Does not modify the operands.
+     * When many reductions share the same moduli, build a {@link ProductTree} once and reuse it instead.
+     * @param n the operand
+     * @param moduli the moduli, all positive
+     * @return an array of new SciInteger instances, the i-th of which is n mod moduli[i], in the range
+     * [0, moduli[i])
+     * @throws IllegalArgumentException if no moduli are given
+     * @throws ArithmeticException if any of the moduli is not positive
+     */
+    public static SciInteger[] multiMod(SciInteger n, SciInteger[] moduli) {
+        return ProductTree.of(moduli).multiMod(n);
+    }
+
     /**
      * Compute the value of the Binomial coefficient of a SciInteger and integer to produce a new SciInteger instance.
      * Does not modify the operand.
@@ -630,6 +873,40 @@ public final class SciInteger implements Comparable<SciInteger>, Cloneable {
         return result;
     }
 
+    /**
+     * Compute the rising factorial a (a+1) ... (a+n-1) by binary splitting to produce a new SciInteger instance.
+     * Does not modify the operand.
+     * @param a the operand
+     * @param n the number of factors
+     * @return a new SciInteger instance, the rising factorial of a and n
+     * @throws ArithmeticException if {@code n < 0}
+     */
+    public static SciInteger risingFactorial(SciInteger a, long n) {
+        if (n < 0) {
+            throw new ArithmeticException("Rising factorial with a negative number of factors");
+        }
+        SciInteger result = SciInteger.fromInteger(0);
+        risingFactorial(result.ptr, a.ptr, n);
+        return result;
+    }
+
+    /**
+     * Compute the falling factorial a (a-1) ... (a-n+1) by binary splitting to produce a new SciInteger instance.
+     * Does not modify the operand.
+     * @param a the operand
+     * @param n the number of factors
+     * @return a new SciInteger instance, the falling factorial of a and n
+     * @throws ArithmeticException if {@code n < 0}
+     */
+    public static SciInteger fallingFactorial(SciInteger a, long n) {
+        if (n < 0) {
+            throw new ArithmeticException("Falling factorial with a negative number of factors");
+        }
+        SciInteger result = SciInteger.fromInteger(0);
+        fallingFactorial(result.ptr, a.ptr, n);
+        return result;
+    }
+
     /**
      * Compute the n-th Fibonacci number to produce a new SciInteger instance.
      * @param n the index of the Fibonacci number to compute
@@ -719,6 +996,96 @@ public final class SciInteger implements Comparable<SciInteger>, Cloneable {
         return result;
     }
 
+    /**
+     * Compute the integer square root of a SciInteger together with the remainder. Does not modify the operand.
+     * @param a the operand
+     * @return an array of SciInteger[] instances, respectively the floor of the square root of a and
+     * a - floor(sqrt(a))^2
+     * @throws ArithmeticException if a is negative
+     */
+    public static SciInteger[] sqrtRem(SciInteger a) {
+        SciInteger[] tab = new SciInteger[2];
+        tab[0] = SciInteger.fromInteger(0);
+        tab[1] = SciInteger.fromInteger(0);
+        sqrtrem(tab[0].ptr, tab[1].ptr, a.ptr);
+        return tab;
+    }
+
+    /**
+     * Compute the integer k-th root of a SciInteger together with the remainder. Does not modify the operand.
+     * The root is truncated towards zero, so the remainder has the same sign as a.
+     * @param a the operand
+     * @param k the index of the root
+     * @return an array of SciInteger[] instances, respectively the truncated k-th root r of a and a - r^k
+     * @throws ArithmeticException if k is not positive, or if k is even and a is negative
+     */
+    public static SciInteger[] rootRem(SciInteger a, int k) {
+        SciInteger[] tab = new SciInteger[2];
+        tab[0] = SciInteger.fromInteger(0);
+        tab[1] = SciInteger.fromInteger(0);
+        rootrem(tab[0].ptr, tab[1].ptr, a.ptr, k);
+        return tab;
+    }
+
+    /**
+     * Determine whether a SciInteger is a perfect square. Does not modify the operand.
+     * @param a the operand
+     * @return true if a = b^2 for some integer b, false otherwise
+     */
+    public static boolean isPerfectSquare(SciInteger a) {
+        return isPerfectSquare(a.ptr);
+    }
+
+    /**
+     * Determine whether a SciInteger is a perfect power. Does not modify the operand.
+     * Zero and one are considered perfect powers.
+     * @param a the operand
+     * @return true if a = b^k for some integers b and k &gt; 1, false otherwise
+     */
+    public static boolean isPerfectPower(SciInteger a) {
+        return isPerfectPower(a.ptr);
+    }
+
+    /**
+     * Compute the floor of the binary logarithm of a SciInteger. Does not modify the operand.
+     * @param a the operand
+     * @return the largest n such that 2^n &lt;= a
+     * @throws ArithmeticException if a is not positive
+     */
+    public static int log2Floor(SciInteger a) {
+        return log2(a.ptr, false);
+    }
+
+    /**
+     * Compute the ceiling of the binary logarithm of a SciInteger. Does not modify the operand.
+     * @param a the operand
+     * @return the smallest n such that 2^n &gt;= a
+     * @throws ArithmeticException if a is not positive
+     */
+    public static int log2Ceil(SciInteger a) {
+        return log2(a.ptr, true);
+    }
+
+    /**
+     * Compute the floor of the decimal logarithm of a SciInteger. Does not modify the operand.
+     * @param a the operand
+     * @return the largest n such that 10^n &lt;= a
+     * @throws ArithmeticException if a is not positive
+     */
+    public static int log10Floor(SciInteger a) {
+        return log10(a.ptr, false);
+    }
+
+    /**
+     * Compute the ceiling of the decimal logarithm of a SciInteger. Does not modify the operand.
+     * @param a the operand
+     * @return the smallest n such that 10^n &gt;= a
+     * @throws ArithmeticException if a is not positive
+     */
+    public static int log10Ceil(SciInteger a) {
+        return log10(a.ptr, true);
+    }
+
     /**
      * Compute the square of a SciInteger to produce a new SciInteger instance.
      * @param a the operand
@@ -759,6 +1126,38 @@ public final class SciInteger implements Comparable<SciInteger>, Cloneable {
         return toInteger(ptr);
     }
 
+    /**
+     * Try to turn the SciInteger into a Java long.
+     * @return the value of the SciInteger as a Java long
+     * @throws ArithmeticException if the value of the SciInteger is too large to fit in a Java long
+     */
+    public long longValue() {
+        return toLong(ptr);
+    }
+
+    /**
+     * Turn SciIntegers into Java longs in a single native call.
+     * @param a the SciIntegers to convert
+     * @return the values of the SciIntegers as Java longs, in order
+     * @throws ArithmeticException if any of the values is too large to fit in a Java long
+     */
+    public static long[] toLongArray(SciInteger[] a) {
+        long[] ptrs = new long[a.length];
+        for (int i = 0; i < a.length; i++) {
+            ptrs[i] = a[i].ptr;
+        }
+        return toLongs(ptrs);
+    }
+
+    /**
+     * Turn the SciInteger into a BigInteger. The magnitude is transferred in binary rather than through a decimal
+     * string.
+     * @return the value of the SciInteger as a BigInteger
+     */
+    public BigInteger toBigInteger() {
+        return new BigInteger(signum(this).intValue(), toMagnitude(ptr));
+    }
+
     /**
      * Turn a SciInteger into a string. The string is formatted in base 10.
      * @return the value of the SciInteger as a string
@@ -778,6 +1177,31 @@ public final class SciInteger implements Comparable<SciInteger>, Cloneable {
         return toStringRadix(ptr, radix);
     }
 
+    /**
+     * Write the digits of the SciInteger in the given base to a character stream, such as a {@link java.io.Writer} or a
+     * {@link StringBuilder}. The conversion is divide and conquer and the digits are passed on in chunks as they
+     * are produced, so no String holding the whole result is built.
+     * @param out the destination of the digits
+     * @param radix the base to format the value in
+     * @throws IOException if out throws
+     * @throws IllegalArgumentException if radix is not between 2 and 36
+     */
+    public void writeTo(Appendable out, int radix) throws IOException {
+        writeDigits(ptr, radix, DigitSink.of(out));
+    }
+
+    /**
+     * Write the digits of the SciInteger in the given base to a byte stream, as ASCII. The conversion is divide and
+     * conquer and the digits are passed on in chunks as they are produced.
+     * @param out the destination of the digits
+     * @param radix the base to format the value in
+     * @throws IOException if out throws
+     * @throws IllegalArgumentException if radix is not between 2 and 36
+     */
+    public void writeTo(OutputStream out, int radix) throws IOException {
+        writeDigits(ptr, radix, DigitSink.of(out));
+    }
+
     /**
      * Return the value of applying the three-way comparison operator between two SciIntegers.
      * @param o the other SciInteger.
@@ -813,22 +1237,33 @@ public final class SciInteger implements Comparable<SciInteger>, Cloneable {
         return result;
     }
 
+    private void computeFingerprint() {
+        if (!fingerprinted) {
+            long[] out = new long[3];
+            fingerprint(ptr, out);
+            hash = (int) out[0];
+            signedBitLength = out[1];
+            lowLimb = out[2];
+            fingerprinted = true;
+        }
+    }
+
     /**
      * Compute the hash code of this object.
-     * The value returned depends on the population count of this object. The primary design decision
-     * that lead to this choice is to allow SciIntegers as keys for a HashMap, where we can easily bucket
-     * them by the population count yielding a somewhat uniform distribution. This is not a great hashing solution,
-     * but it's pretty darn fast.
+     * The hash is a fast non-cryptographic hash over the sign and the limbs of the value. It is computed once,
+     * together with the fingerprint used by {@link #equals(Object)}, and cached afterwards.
      * @return the hash code of this object
      */
     @Override
     public int hashCode() {
-        return (int) hash(ptr);
+        computeFingerprint();
+        return hash;
     }
 
     /**
      * Check for equality with another object. Takes care of funny cases like comparing a SciInteger to an object
-     * of different type and two SciIntegers being physically equal before using the eq method.
+     * of different type and two SciIntegers being physically equal before using the eq method. SciIntegers
+     * with different cached fingerprints (sign, bit length, lowest limb and hash) are rejected without a native call.
      * @param obj the other object
      * @return true if the two objects are equal, false otherwise
      */
@@ -847,6 +1282,12 @@ public final class SciInteger implements Comparable<SciInteger>, Cloneable {
         if (this.ptr == other.ptr) {
             return true;
         }
+        // Most unequal values differ in sign, bit length or the lowest limb.
+        computeFingerprint();
+        other.computeFingerprint();
+        if (hash != other.hash || signedBitLength != other.signedBitLength || lowLimb != other.lowLimb) {
+            return false;
+        }
         return this.eq(other);
     }
 }
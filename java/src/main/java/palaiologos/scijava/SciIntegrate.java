@@ -0,0 +1,368 @@
+/*
+    scijava
+    Copyright (C) 2022 Kamila Szewczyk
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package palaiologos.scijava;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.stream.IntStream;
+
+import static palaiologos.scijava.NativeLibrary.load;
+import static palaiologos.scijava.NativeLibrary.resourceName;
+
+/**
+ * Numerical integration of real functions evaluated with SciFloat.
+ *
+ * <p> Two quadrature rules are provided. Gauss-Legendre quadrature converges the fastest for integrands that are
+ * analytic on a neighbourhood of the interval. Tanh-sinh (double exponential) quadrature clusters its nodes
+ * doubly exponentially towards the endpoints, which makes it robust against endpoint singularities such as
+ * 1/sqrt(x) at zero. Both rules refine the approximation until successive results agree to the precision of the
+ * result. The integrand is given as a lambda that takes a {@link MathContext} along with the argument, and it is
+ * evaluated at all the nodes of a rule in parallel, so it must be safe to call from multiple threads.
+ *
+ * <p> The nodes and weights of both rules are computed natively, once per rule, precision and degree or level,
+ * and kept in a bounded least-recently-used cache shared by all threads. Integrating many functions at the same
+ * precision costs one computation of the nodes.
+ *
+ * <p> The error estimates of the two rules are heuristic. When a guaranteed bound is required,
+ * {@link #rigorous(MathContext, BiFunction, SciBall, SciBall)} integrates a function of complex balls with the
+ * adaptive Gauss-Legendre integrator of the Arb library, which returns a ball that is certain to contain the
+ * value of the integral.
+ *
+ * @author Kamila Szewczyk
+ * @see SciFloat
+ * @see SciComplexBall
+ */
+public final class SciIntegrate {
+    static {
+        try {
+            load(resourceName());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private SciIntegrate() {
+    }
+
+    private static native void legendreNodes(int precision, int degree, long[] nodes, long[] weights);
+    private static native void tanhSinhNodes(int precision, int level, long[] complements, long[] weights);
+    private static native void rigorous(int precision, int goal, long dest, long a, long b,
+                                        BiFunction<MathContext, SciComplexBall, SciComplexBall> f);
+
+    // Bits of the working precision above the precision of the result.
+    private static final int GUARD_BITS = 16;
+
+    // Degree of the first Gauss-Legendre rule tried.
+    private static final int INITIAL_DEGREE = 16;
+
+    // Rules with fewer nodes evaluate the integrand on the calling thread.
+    private static final int PARALLEL_THRESHOLD = 32;
+
+    private static final int GAUSS_LEGENDRE = 0;
+    private static final int TANH_SINH = 1;
+
+    // A rule is identified by its kind, precision and either its degree (Gauss-Legendre) or level (tanh-sinh).
+    private record Key(int rule, int precision, int size) {
+    }
+
+    private record Rule(SciFloat[] nodes, SciFloat[] weights) {
+    }
+
+    private static int cacheLimit = 32;
+
+    private static final LinkedHashMap<Key, Rule> CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Rule> eldest) {
+            return size() > cacheLimit;
+        }
+    };
+
+    /**
+     * Set the number of quadrature rules kept in the cache. The least recently used rules above the new limit are
+     * dropped. A rule is the set of nodes and weights of one precision and degree (or level). The default limit
+     * is 32.
+     *
+     * @param limit The number of rules to keep.
+     * @throws IllegalArgumentException if the limit is negative.
+     */
+    public static void setNodeCacheLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit < 0");
+        }
+        synchronized (CACHE) {
+            cacheLimit = limit;
+            Iterator<Key> it = CACHE.keySet().iterator();
+            while (CACHE.size() > limit) {
+                it.next();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Drop all the cached quadrature rules.
+     */
+    public static void clearNodeCache() {
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+    }
+
+    private static MathContext context(int precision) {
+        return new MathContext(precision, MathContext.RoundingMode.NEAREST);
+    }
+
+    private static SciFloat[] zeros(int precision, int n) {
+        SciFloat[] result = new SciFloat[n];
+        for (int i = 0; i < n; i++) {
+            result[i] = SciFloat.valueOf(context(precision), 0);
+        }
+        return result;
+    }
+
+    // The number of tanh-sinh nodes of a level. The nodes are truncated at t = asinh(2 precision ln 2 / pi), where
+    // 1 - x drops to about 2^(-2 precision). Up to there, the truncation error stays below 2^-precision even for
+    // integrands that grow like 1 / sqrt(1 - x) at the endpoints.
+    private static int tanhSinhCount(int precision, int level) {
+        double y = 2 * precision * Math.log(2) / Math.PI;
+        double tMax = Math.log(y + Math.sqrt(y * y + 1));
+        if (level == 0) {
+            return (int) Math.floor(tMax) + 1;
+        }
+        return (int) Math.floor((Math.scalb(tMax, level) - 1) / 2) + 1;
+    }
+
+    private static Rule rule(int kind, int precision, int size) {
+        Key key = new Key(kind, precision, size);
+        synchronized (CACHE) {
+            Rule rule = CACHE.get(key);
+            if (rule != null) {
+                return rule;
+            }
+        }
+        int n = kind == GAUSS_LEGENDRE ? size : tanhSinhCount(precision, size);
+        Rule rule = new Rule(zeros(precision, n), zeros(precision, n));
+        if (kind == GAUSS_LEGENDRE) {
+            legendreNodes(precision, size, SciFloat.pointers(rule.nodes), SciFloat.pointers(rule.weights));
+        } else {
+            tanhSinhNodes(precision, size, SciFloat.pointers(rule.nodes), SciFloat.pointers(rule.weights));
+        }
+        synchronized (CACHE) {
+            CACHE.put(key, rule);
+        }
+        return rule;
+    }
+
+    private static SciFloat[] evaluateAll(MathContext wc, BiFunction<MathContext, SciFloat, SciFloat> f,
+                                          SciFloat[] xs) {
+        SciFloat[] ys = new SciFloat[xs.length];
+        IntStream indices = IntStream.range(0, xs.length);
+        if (xs.length >= PARALLEL_THRESHOLD) {
+            indices = indices.parallel();
+        }
+        indices.forEach(i -> ys[i] = f.apply(wc, xs[i]));
+        return ys;
+    }
+
+    // Whether the last of a sequence of approximations is accurate to the given number of bits. The error of an
+    // approximation is estimated by its difference from the next one, and when three approximations are
+    // available, by extrapolating the differences on the assumption that the number of correct bits grows
+    // geometrically, as it does for both rules on analytic integrands.
+    private static boolean converged(MathContext wc, List<SciFloat> results, int bits) {
+        int n = results.size();
+        SciFloat last = results.get(n - 1);
+        if (!last.isFinite()) {
+            throw new ArithmeticException("Integrand evaluated to a non-finite value");
+        }
+        if (n < 2) {
+            return false;
+        }
+        long scale = last.exponent() == Long.MIN_VALUE ? 0 : last.exponent();
+        long d1 = SciFloat.sub(wc, last, results.get(n - 2)).exponent();
+        if (d1 == Long.MIN_VALUE) {
+            return true;
+        }
+        long estimate = d1 - scale;
+        if (n >= 3) {
+            long d2 = SciFloat.sub(wc, results.get(n - 2), results.get(n - 3)).exponent();
+            if (d2 != Long.MIN_VALUE && d2 - scale < 0 && d1 < d2) {
+                estimate = (d1 - scale) * (d1 - scale) / (d2 - scale);
+            }
+        }
+        return estimate <= -bits;
+    }
+
+    private static SciFloat gaussLegendreSum(MathContext wc, BiFunction<MathContext, SciFloat, SciFloat> f,
+                                          SciFloat half, SciFloat mid, int degree) {
+        Rule rule = rule(GAUSS_LEGENDRE, wc.precision(), degree);
+        SciFloat[] xs = new SciFloat[degree];
+        for (int i = 0; i < degree; i++) {
+            xs[i] = SciFloat.fma(wc, half, rule.nodes[i], mid);
+        }
+        SciFloat[] ys = evaluateAll(wc, f, xs);
+        SciFloat sum = SciFloat.valueOf(wc, 0);
+        for (int i = 0; i < degree; i++) {
+            sum = SciFloat.fma(wc, rule.weights[i], ys[i], sum);
+        }
+        return SciFloat.mul(wc, half, sum);
+    }
+
+    /**
+     * Integrate a function over an interval with a Gauss-Legendre rule of the given degree.
+     *
+     * @param mc The math context of the result.
+     * @param f The integrand, evaluated at the precision of the given context.
+     * @param a The lower limit of integration.
+     * @param b The upper limit of integration.
+     * @param degree The number of nodes of the rule.
+     * @return The approximation of the integral of f from a to b by the rule, rounded according to mc.
+     * @throws IllegalArgumentException if the degree is not positive.
+     */
+    public static SciFloat gaussLegendre(MathContext mc, BiFunction<MathContext, SciFloat, SciFloat> f,
+                                         SciFloat a, SciFloat b, int degree) {
+        if (degree < 1) {
+            throw new IllegalArgumentException("degree < 1");
+        }
+        MathContext wc = context(mc.precision() + GUARD_BITS);
+        SciFloat half = SciFloat.mul(wc, SciFloat.sub(wc, b, a), SciFloat.HALF);
+        SciFloat mid = SciFloat.mul(wc, SciFloat.add(wc, a, b), SciFloat.HALF);
+        return SciFloat.valueOf(mc, gaussLegendreSum(wc, f, half, mid, degree));
+    }
+
+    /**
+     * Integrate a function over an interval with Gauss-Legendre quadrature.
+     *
+     * <p> The degree of the rule starts at 16 and is doubled until the approximations agree to the precision of
+     * the result, up to a degree of twice the working precision.
+     *
+     * @param mc The math context of the result.
+     * @param f The integrand, evaluated at the precision of the given context.
+     * @param a The lower limit of integration.
+     * @param b The upper limit of integration.
+     * @return The integral of f from a to b, rounded according to mc.
+     * @throws ArithmeticException if the quadrature does not converge or the integrand is not finite at a node.
+     */
+    public static SciFloat gaussLegendre(MathContext mc, BiFunction<MathContext, SciFloat, SciFloat> f,
+                                         SciFloat a, SciFloat b) {
+        MathContext wc = context(mc.precision() + GUARD_BITS);
+        SciFloat half = SciFloat.mul(wc, SciFloat.sub(wc, b, a), SciFloat.HALF);
+        SciFloat mid = SciFloat.mul(wc, SciFloat.add(wc, a, b), SciFloat.HALF);
+        int maxDegree = Math.max(256, 2 * wc.precision());
+        List<SciFloat> results = new ArrayList<>();
+        for (int degree = INITIAL_DEGREE; degree <= maxDegree; degree *= 2) {
+            results.add(gaussLegendreSum(wc, f, half, mid, degree));
+            if (converged(wc, results, mc.precision() + 4)) {
+                return SciFloat.valueOf(mc, results.get(results.size() - 1));
+            }
+        }
+        throw new ArithmeticException("Gauss-Legendre quadrature did not converge");
+    }
+
+    /**
+     * Integrate a function over an interval with tanh-sinh quadrature.
+     *
+     * <p> The step of the rule is halved until the approximations agree to the precision of the result. Every
+     * halving only evaluates the integrand at the new nodes. The integrand may be singular at the endpoints, but
+     * it is never evaluated at them: the nodes closest to the endpoints are computed at three times the working
+     * precision, so that they remain distinct from the endpoints.
+     *
+     * @param mc The math context of the result.
+     * @param f The integrand, evaluated at the precision of the given context.
+     * @param a The lower limit of integration.
+     * @param b The upper limit of integration.
+     * @return The integral of f from a to b, rounded according to mc.
+     * @throws ArithmeticException if the quadrature does not converge or the integrand is not finite at a node.
+     */
+    public static SciFloat tanhSinh(MathContext mc, BiFunction<MathContext, SciFloat, SciFloat> f,
+                                    SciFloat a, SciFloat b) {
+        MathContext wc = context(mc.precision() + GUARD_BITS);
+        MathContext xc = context(3 * wc.precision());
+        SciFloat half = SciFloat.mul(wc, SciFloat.sub(wc, b, a), SciFloat.HALF);
+        SciFloat negHalf = SciFloat.neg(wc, half);
+        int maxLevel = 35 - Integer.numberOfLeadingZeros(wc.precision());
+        List<SciFloat> results = new ArrayList<>();
+        SciFloat total = SciFloat.valueOf(wc, 0);
+        for (int level = 0; level <= maxLevel; level++) {
+            Rule rule = rule(TANH_SINH, wc.precision(), level);
+            int n = rule.nodes.length;
+            // The node t = 0 of level zero is the midpoint and is only evaluated once.
+            int first = level == 0 ? 1 : 0;
+            SciFloat[] xs = new SciFloat[2 * n - first];
+            if (first == 1) {
+                xs[2 * n - 2] = SciFloat.mul(wc, SciFloat.add(wc, a, b), SciFloat.HALF);
+            }
+            for (int j = first; j < n; j++) {
+                xs[2 * (j - first)] = SciFloat.fma(xc, half, rule.nodes[j], a);
+                xs[2 * (j - first) + 1] = SciFloat.fma(xc, negHalf, rule.nodes[j], b);
+            }
+            SciFloat[] ys = evaluateAll(wc, f, xs);
+            if (first == 1) {
+                total = SciFloat.fma(wc, rule.weights[0], ys[2 * n - 2], total);
+            }
+            for (int j = first; j < n; j++) {
+                SciFloat pair = SciFloat.add(wc, ys[2 * (j - first)], ys[2 * (j - first) + 1]);
+                total = SciFloat.fma(wc, rule.weights[j], pair, total);
+            }
+            // I = (b - a) / 2 * h * sum of the terms of all levels so far, with h = 2^-level.
+            results.add(SciFloat.mul(wc, half, SciFloat.mul(wc, total, SciFloat.ldexp(wc, 1, -level))));
+            if (converged(wc, results, mc.precision() + 4)) {
+                return SciFloat.valueOf(mc, results.get(results.size() - 1));
+            }
+        }
+        throw new ArithmeticException("Tanh-sinh quadrature did not converge");
+    }
+
+    /**
+     * Compute a rigorous enclosure of the integral of a function over an interval.
+     *
+     * <p> The integral is computed by the adaptive integrator of the Arb library, which bisects the interval and
+     * applies Gauss-Legendre rules whose error is bounded using the values of the integrand on complex balls
+     * around the interval. The integrand therefore has to be given as a function of complex balls, and it has to
+     * be holomorphic wherever the integrator asks for it: its result must enclose the values of a function that
+     * is holomorphic on the input ball, or be non-finite. The branch-cut-sensitive functions of
+     * {@link SciComplexBall} take care of that automatically. The integrand is evaluated on the calling thread.
+     *
+     * <p> The result is always a valid enclosure; if the integrator reaches its evaluation limits before the
+     * requested accuracy, the enclosure is merely wider. Check {@link SciComplexBall#relativeAccuracy()} to see
+     * how many bits were attained.
+     *
+     * @param mc The math context to use. The integrator aims for a relative accuracy of mc.precision() bits.
+     * @param f The integrand. It is given the math context of the working precision and the argument.
+     * @param a The lower limit of integration.
+     * @param b The upper limit of integration.
+     * @return A SciComplexBall containing the integral of f from a to b.
+     */
+    public static SciComplexBall rigorous(MathContext mc, BiFunction<MathContext, SciComplexBall, SciComplexBall> f,
+                                          SciBall a, SciBall b) {
+        SciComplexBall result = SciComplexBall.valueOf(0);
+        rigorous(mc.precision(), mc.precision(), result.ptr, a.ptr, b.ptr, f);
+        return result;
+    }
+
+    // Called by the native code of rigorous to evaluate the integrand on a ball.
+    private static void evaluate(BiFunction<MathContext, SciComplexBall, SciComplexBall> f, long out, long in,
+                                 int precision) {
+        f.apply(context(precision), SciComplexBall.copyOf(in)).copyTo(out);
+    }
+}
@@ -19,7 +19,9 @@
 package palaiologos.scijava;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -58,6 +60,10 @@ public final class SciRational implements Comparable<SciRational>, Cloneable {
 
     private final Cleaner.Cleanable cleanable;
 
+    // Computed on first use: the value is only final once the native operation that produced it has returned.
+    private int hash;
+    private volatile boolean hashed;
+
     private SciRational(long ptr) {
         this.ptr = ptr;
         cleanable = CleanerSingleton.CLEANER.register(this, new CleanerRunnable(ptr));
@@ -67,11 +73,14 @@ public final class SciRational implements Comparable<SciRational>, Cloneable {
     
     private static native String toString(long i);
     private static native String toStringRadix(long i, int radix);
+    private static native void writeDigits(long i, int radix, DigitSink sink) throws IOException;
+    private static native long parseBytes(byte[] bytes, int offset, int length, int radix);
+    private static native long parseDirect(ByteBuffer buffer, int position, int length, int radix);
     private static native SciRational fromInteger(int i);
     private static native SciRational fromSciFloat(long f);
     private static native SciRational fromSciInteger(long f);
-    private static native SciInteger num(long a);
-    private static native SciInteger den(long a);
+    private static native long num(long a);
+    private static native long den(long a);
     private static native long hash(long a);
     private static native SciRational fromString(String s);
     private static native SciRational fromStringRadix(String s, int radix);
@@ -104,6 +113,12 @@ public final class SciRational implements Comparable<SciRational>, Cloneable {
     private static native int signum(long a);
     private static native void square(long dest, long a);
     private static native void neg(long dest, long a);
+    private static native void bernoulli(long dest, int n);
+    private static native void bernoulliTable(long[] dest, int upTo);
+    private static native void freeBernoulliTable();
+    private static native void harmonic(long dest, long n);
+    private static native void risingFactorial(long dest, long a, long n);
+    private static native void fallingFactorial(long dest, long a, long n);
 
     /**
      * Return a new SciRational with the value of the specified integer.
@@ -144,6 +159,42 @@ public final class SciRational implements Comparable<SciRational>, Cloneable {
         return fromStringRadix(s, radix);
     }
 
+    /**
+     * Return a new SciRational with the value represented by the given characters in a specified radix. Unlike
+     * {@link #valueOf(String, int)}, the characters are not collected into a String first.
+     * @param s the characters to parse
+     * @param radix the base the value is written in
+     * @return a new SciRational instance
+     * @throws IllegalArgumentException if radix is not between 2 and 36
+     */
+    public static SciRational valueOf(CharSequence s, int radix) {
+        byte[] bytes = DigitSink.ascii(s);
+        return new SciRational(parseBytes(bytes, 0, bytes.length, radix));
+    }
+
+    /**
+     * Return a new SciRational with the value represented by the remaining ASCII bytes of a buffer in a specified radix.
+     * Direct buffers are parsed in place. On success the position of the buffer is advanced to its limit.
+     * @param b the bytes to parse
+     * @param radix the base the value is written in
+     * @return a new SciRational instance
+     * @throws IllegalArgumentException if radix is not between 2 and 36
+     */
+    public static SciRational valueOf(ByteBuffer b, int radix) {
+        long result;
+        if (b.isDirect()) {
+            result = parseDirect(b, b.position(), b.remaining(), radix);
+        } else if (b.hasArray()) {
+            result = parseBytes(b.array(), b.arrayOffset() + b.position(), b.remaining(), radix);
+        } else {
+            byte[] bytes = new byte[b.remaining()];
+            b.duplicate().get(bytes);
+            result = parseBytes(bytes, 0, bytes.length, radix);
+        }
+        b.position(b.limit());
+        return new SciRational(result);
+    }
+
     /**
      * Return a new SciInteger with the value of the specified integer.
      * @param i the integer to convert
@@ -155,18 +206,22 @@ public final class SciRational implements Comparable<SciRational>, Cloneable {
 
     /**
      * Obtain the numerator of this SciRational value.
+     * The result is a read-only view of the numerator stored in this SciRational rather than a copy. The view
+     * keeps this SciRational alive for as long as the view itself is reachable.
      * @return the numerator
      */
     public SciInteger numerator() {
-        return num(ptr);
+        return SciInteger.view(num(ptr), this);
     }
 
     /**
-     * Obtain the denominator of this SciRational value.
+     * Obtain the denominator of this SciRational value. The denominator is always positive.
+     * The result is a read-only view of the denominator stored in this SciRational rather than a copy. The view
+     * keeps this SciRational alive for as long as the view itself is reachable.
      * @return the denominator
      */
     public SciInteger denominator() {
-        return den(ptr);
+        return SciInteger.view(den(ptr), this);
     }
 
     /**
@@ -485,6 +540,107 @@ public final class SciRational implements Comparable<SciRational>, Cloneable {
         return new Pair<>(result, intPart);
     }
 
+    /**
+     * Compute the n-th Bernoulli number exactly, with the convention B_1 = -1/2.
+     * Values covered by a table previously built by {@link #bernoulliTable(int)} are copied from it; other
+     * values are computed individually without extending the table.
+     * @param n the index, non-negative
+     * @return a new SciRational instance, the value of B_n
+     */
+    public static SciRational bernoulli(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Bernoulli number index must be non-negative");
+        }
+        SciRational result = SciRational.fromInteger(0);
+        bernoulli(result.ptr, n);
+        return result;
+    }
+
+    /**
+     * Compute the Bernoulli numbers B_0, ..., B_upTo exactly, with the convention B_1 = -1/2.
+     * The numbers are computed all at once by FLINT and memoized natively, so calls that fit in the table only copy
+     * entries out of it. FLINT cannot extend a computed vector, so a request beyond the table recomputes it whole, at
+     * least half again as long as before; over a sequence of increasing requests (e.g. from Euler-Maclaurin
+     * summations of increasing order) the total cost stays within a constant factor of the largest request.
+     * The table is rebuilt without blocking lookups on other threads.
+     * @param upTo the largest index, non-negative
+     * @return an array of upTo + 1 new SciRational instances
+     */
+    public static SciRational[] bernoulliTable(int upTo) {
+        if (upTo < 0) {
+            throw new IllegalArgumentException("Bernoulli number index must be non-negative");
+        }
+        SciRational[] result = new SciRational[upTo + 1];
+        long[] pointers = new long[upTo + 1];
+        for (int i = 0; i <= upTo; i++) {
+            result[i] = SciRational.fromInteger(0);
+            pointers[i] = result[i].ptr;
+        }
+        bernoulliTable(pointers, upTo);
+        return result;
+    }
+
+    /**
+     * Release the memoized table of Bernoulli numbers built by {@link #bernoulliTable(int)}.
+     */
+    public static void clearBernoulliCache() {
+        freeBernoulliTable();
+    }
+
+    /**
+     * Compute the n-th harmonic number 1 + 1/2 + ... + 1/n exactly, by binary splitting.
+     * The top levels of the splitting are evaluated in parallel for large n.
+     * @param n the index, non-negative
+     * @return a new SciRational instance, the value of H_n
+     */
+    public static SciRational harmonic(long n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Harmonic number index must be non-negative");
+        }
+        SciRational result = SciRational.fromInteger(0);
+        harmonic(result.ptr, n);
+        return result;
+    }
+
+    // The denominator q^|n| is computed with a 32-bit exponent.
+    private static void checkFactorialOrder(long n) {
+        if (n >= 1L << 32 || n <= -(1L << 32)) {
+            throw new IllegalArgumentException("Factorial power order must be below 2^32 in magnitude");
+        }
+    }
+
+    /**
+     * Compute the rising factorial a (a+1) ... (a+n-1) exactly, by binary splitting.
+     * For negative n, the value is 1/((a-1) (a-2) ... (a+n)).
+     * @param a the operand
+     * @param n the order
+     * @return a new SciRational instance, the rising factorial of a and n
+     * @throws ArithmeticException if n is negative and a is a pole
+     * @throws IllegalArgumentException if |n| is at least 2^32
+     */
+    public static SciRational risingFactorial(SciRational a, long n) {
+        checkFactorialOrder(n);
+        SciRational result = SciRational.fromInteger(0);
+        risingFactorial(result.ptr, a.ptr, n);
+        return result;
+    }
+
+    /**
+     * Compute the falling factorial a (a-1) ... (a-n+1) exactly, by binary splitting.
+     * For negative n, the value is 1/((a+1) (a+2) ... (a-n)).
+     * @param a the operand
+     * @param n the order
+     * @return a new SciRational instance, the falling factorial of a and n
+     * @throws ArithmeticException if n is negative and a is a pole
+     * @throws IllegalArgumentException if |n| is at least 2^32
+     */
+    public static SciRational fallingFactorial(SciRational a, long n) {
+        checkFactorialOrder(n);
+        SciRational result = SciRational.fromInteger(0);
+        fallingFactorial(result.ptr, a.ptr, n);
+        return result;
+    }
+
     /**
      * Make a copy of this SciRational.
      * @return
@@ -498,11 +654,17 @@ public final class SciRational implements Comparable<SciRational>, Cloneable {
 
     /**
      * Compute the hash code of this SciRational.
-     * @return
+     * The hash is computed natively over the limbs of the numerator and the denominator once and cached afterwards.
+     * @return the hash code of this SciRational
      */
     @Override
     public int hashCode() {
-        return (int) hash(ptr);
+        if (!hashed) {
+            long h = hash(ptr);
+            hash = (int) (h ^ (h >>> 32));
+            hashed = true;
+        }
+        return hash;
     }
 
     /**
@@ -534,6 +696,31 @@ public final class SciRational implements Comparable<SciRational>, Cloneable {
         return toStringRadix(ptr, radix);
     }
 
+    /**
+     * Write the digits of the SciRational, as the numerator followed by a slash and the denominator unless it is one, in the given base to a character stream, such as a {@link java.io.Writer} or a
+     * {@link StringBuilder}. The conversion is divide and conquer and the digits are passed on in chunks as they
+     * are produced, so no String holding the whole result is built.
+     * @param out the destination of the digits
+     * @param radix the base to format the value in
+     * @throws IOException if out throws
+     * @throws IllegalArgumentException if radix is not between 2 and 36
+     */
+    public void writeTo(Appendable out, int radix) throws IOException {
+        writeDigits(ptr, radix, DigitSink.of(out));
+    }
+
+    /**
+     * Write the digits of the SciRational, as the numerator followed by a slash and the denominator unless it is one, in the given base to a byte stream, as ASCII. The conversion is divide and
+     * conquer and the digits are passed on in chunks as they are produced.
+     * @param out the destination of the digits
+     * @param radix the base to format the value in
+     * @throws IOException if out throws
+     * @throws IllegalArgumentException if radix is not between 2 and 36
+     */
+    public void writeTo(OutputStream out, int radix) throws IOException {
+        writeDigits(ptr, radix, DigitSink.of(out));
+    }
+
     /**
      * Check for equality with another object. Takes care of funny cases like comparing a SciInteger to an object
      * of different type and two SciIntegers being physically equal before using the eq method.
@@ -0,0 +1,236 @@
+/*
+    scijava
+    Copyright (C) 2022 Kamila Szewczyk
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package palaiologos.scijava;
+
+import java.util.function.BiFunction;
+
+/**
+ * Root finding for real functions evaluated with SciFloat.
+ *
+ * <p> The functions are given as lambdas that take a {@link MathContext} along with the argument and evaluate the
+ * function at the precision of the context. This lets the solvers run the early iterations, which only need a few
+ * correct bits, at a low precision, and double the working precision as the iterates converge. Only the last
+ * iterations are performed at the full precision, so a solve costs little more than a few evaluations of the
+ * function at the precision of the result.
+ *
+ * <p> The working precision is a few bits above the precision of the result, and the root is returned rounded
+ * according to the math context passed to the solver. Roots smaller than 2^-precision in magnitude are located to
+ * an absolute rather than relative accuracy, so that a root at zero is found in a finite number of steps.
+ *
+ * @author Kamila Szewczyk
+ * @see SciFloat
+ */
+public final class SciRoots {
+    // Bits of the working precision above the precision of the result.
+    private static final int GUARD_BITS = 16;
+
+    // Precision of the first iterations.
+    private static final int INITIAL_PRECISION = 53;
+
+    // Iterations allowed on top of two per bit of the working precision.
+    private static final int MAX_ITERATIONS = 100;
+
+    private SciRoots() {
+    }
+
+    private static MathContext context(int precision) {
+        return new MathContext(precision, MathContext.RoundingMode.NEAREST);
+    }
+
+    private static int signum(SciFloat x) {
+        if (x.isNaN()) {
+            throw new ArithmeticException("Function evaluated to NaN");
+        }
+        return Integer.signum(x.compareTo(SciFloat.ZERO));
+    }
+
+    // The number of leading bits of x left unchanged by a correction of size delta.
+    private static long settledBits(SciFloat x, SciFloat delta, int target) {
+        long ed = delta.exponent();
+        long ex = x.exponent();
+        if (ed == Long.MIN_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        if (ed == Long.MAX_VALUE || ex == Long.MAX_VALUE) {
+            throw new ArithmeticException("Iteration diverged");
+        }
+        return Math.max(ex, -target) - ed;
+    }
+
+    /**
+     * Find a root of a function with Newton's method.
+     *
+     * <p> The iteration starts at double precision. Every step at least doubles the number of correct bits once the
+     * iterates are close to a simple root, and the working precision is doubled along with it, so that the step
+     * at the full precision is only ever taken from an iterate that is already correct to half of it.
+     *
+     * @param mc The math context of the result.
+     * @param f The function, evaluated at the precision of the given context.
+     * @param df The derivative of the function, evaluated at the precision of the given context.
+     * @param x0 The starting point.
+     * @return The root that the iteration converges to, rounded according to mc.
+     * @throws ArithmeticException If the iteration diverges or does not converge.
+     */
+    public static SciFloat newton(MathContext mc, BiFunction<MathContext, SciFloat, SciFloat> f,
+                                  BiFunction<MathContext, SciFloat, SciFloat> df, SciFloat x0) {
+        int target = mc.precision() + GUARD_BITS;
+        int precision = Math.min(INITIAL_PRECISION, target);
+        int limit = MAX_ITERATIONS + 2 * target;
+        SciFloat x = x0;
+        for (int i = 0; i < limit; i++) {
+            MathContext wc = context(precision);
+            SciFloat delta = SciFloat.div(wc, f.apply(wc, x), df.apply(wc, x));
+            x = SciFloat.sub(wc, x, delta);
+            long settled = settledBits(x, delta, target);
+            // The new iterate is correct to about twice the bits that the correction left unchanged.
+            long accuracy = Math.min(2 * Math.min(settled, target), precision);
+            if (precision == target) {
+                if (accuracy >= target) {
+                    return SciFloat.valueOf(mc, x);
+                }
+            } else {
+                precision = (int) Math.min(target, Math.max(precision, 2 * accuracy));
+            }
+        }
+        throw new ArithmeticException("Newton iteration failed to converge");
+    }
+
+    /**
+     * Find a root of a function in a bracketing interval with Brent's method.
+     *
+     * <p> Brent's method combines inverse quadratic interpolation and the secant method with bisection, so it
+     * converges superlinearly on smooth functions while the root always stays bracketed. The bracket is narrowed
+     * to the resolution of the working precision, which starts at double precision and is then doubled, with the
+     * function re-evaluated at the endpoints of the bracket. Should the signs of the function at the endpoints
+     * no longer differ at the higher precision, the search is restarted from the initial interval.
+     *
+     * @param mc The math context of the result.
+     * @param f The function, evaluated at the precision of the given context.
+     * @param lo One end of the interval.
+     * @param hi The other end of the interval.
+     * @return A root of f between lo and hi, rounded according to mc.
+     * @throws IllegalArgumentException If f has the same sign at lo and hi.
+     * @throws ArithmeticException If f evaluates to NaN or the iteration does not converge.
+     */
+    public static SciFloat brent(MathContext mc, BiFunction<MathContext, SciFloat, SciFloat> f,
+                                 SciFloat lo, SciFloat hi) {
+        int target = mc.precision() + GUARD_BITS;
+        int precision = Math.min(INITIAL_PRECISION, target);
+        int limit = MAX_ITERATIONS + 2 * target;
+        MathContext wc = context(precision);
+
+        SciFloat a = lo, b = hi;
+        SciFloat fa = f.apply(wc, a), fb = f.apply(wc, b);
+        if (signum(fa) * signum(fb) > 0) {
+            throw new IllegalArgumentException("The root is not bracketed by lo and hi");
+        }
+        SciFloat c = b, fc = fb;
+        SciFloat d = SciFloat.sub(wc, b, a), e = d;
+        SciFloat floor = SciFloat.ldexp(wc, 1, -2 * target);
+
+        for (int i = 0; i < limit; i++) {
+            if (signum(fb) * signum(fc) > 0) {
+                c = a;
+                fc = fa;
+                d = SciFloat.sub(wc, b, a);
+                e = d;
+            }
+            if (SciFloat.abs(wc, fc).lt(SciFloat.abs(wc, fb))) {
+                a = b;
+                b = c;
+                c = a;
+                fa = fb;
+                fb = fc;
+                fc = fa;
+            }
+
+            SciFloat tol = SciFloat.mul(wc, SciFloat.abs(wc, b), SciFloat.ldexp(wc, 1, 4 - precision));
+            tol = SciFloat.max(tol, floor);
+            SciFloat xm = SciFloat.mul(wc, SciFloat.sub(wc, c, b), SciFloat.HALF);
+            if (signum(fb) == 0 || SciFloat.abs(wc, xm).lte(tol)) {
+                if (precision == target) {
+                    return SciFloat.valueOf(mc, b);
+                }
+                precision = Math.min(2 * precision, target);
+                wc = context(precision);
+                fb = f.apply(wc, b);
+                fc = f.apply(wc, c);
+                if (signum(fb) * signum(fc) > 0) {
+                    b = hi;
+                    c = lo;
+                    fb = f.apply(wc, b);
+                    fc = f.apply(wc, c);
+                }
+                a = c;
+                fa = fc;
+                d = SciFloat.sub(wc, b, a);
+                e = d;
+                continue;
+            }
+
+            if (SciFloat.abs(wc, e).gte(tol) && SciFloat.abs(wc, fa).gt(SciFloat.abs(wc, fb))) {
+                // Inverse quadratic interpolation, or the secant method if only two points are distinct.
+                SciFloat s = SciFloat.div(wc, fb, fa);
+                SciFloat twoXm = SciFloat.mul(wc, SciFloat.TWO, xm);
+                SciFloat p, q;
+                if (a.eq(c)) {
+                    p = SciFloat.mul(wc, twoXm, s);
+                    q = SciFloat.sub(wc, SciFloat.ONE, s);
+                } else {
+                    q = SciFloat.div(wc, fa, fc);
+                    SciFloat r = SciFloat.div(wc, fb, fc);
+                    SciFloat rm1 = SciFloat.sub(wc, r, SciFloat.ONE);
+                    // p = s (2 xm q (q - r) - (b - a) (r - 1)), q = (q - 1) (r - 1) (s - 1)
+                    SciFloat t = SciFloat.mul(wc, twoXm, SciFloat.mul(wc, q, SciFloat.sub(wc, q, r)));
+                    t = SciFloat.sub(wc, t, SciFloat.mul(wc, SciFloat.sub(wc, b, a), rm1));
+                    p = SciFloat.mul(wc, s, t);
+                    q = SciFloat.mul(wc, SciFloat.sub(wc, q, SciFloat.ONE), rm1);
+                    q = SciFloat.mul(wc, q, SciFloat.sub(wc, s, SciFloat.ONE));
+                }
+                if (signum(p) > 0) {
+                    q = SciFloat.neg(wc, q);
+                }
+                p = SciFloat.abs(wc, p);
+                SciFloat min1 = SciFloat.mul(wc, SciFloat.mul(wc, SciFloat.valueOf(wc, 3), xm), q);
+                min1 = SciFloat.sub(wc, min1, SciFloat.abs(wc, SciFloat.mul(wc, tol, q)));
+                SciFloat min2 = SciFloat.abs(wc, SciFloat.mul(wc, e, q));
+                if (SciFloat.mul(wc, SciFloat.TWO, p).lt(SciFloat.min(min1, min2))) {
+                    e = d;
+                    d = SciFloat.div(wc, p, q);
+                } else {
+                    d = xm;
+                    e = d;
+                }
+            } else {
+                d = xm;
+                e = d;
+            }
+
+            a = b;
+            fa = fb;
+            if (SciFloat.abs(wc, d).gt(tol)) {
+                b = SciFloat.add(wc, b, d);
+            } else {
+                b = signum(xm) > 0 ? SciFloat.add(wc, b, tol) : SciFloat.sub(wc, b, tol);
+            }
+            fb = f.apply(wc, b);
+        }
+        throw new ArithmeticException("Brent iteration failed to converge");
+    }
+}
@@ -0,0 +1,83 @@
+/*
+    scijava
+    Copyright (C) 2022 Kamila Szewczyk
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import palaiologos.scijava.MathContext;
+import palaiologos.scijava.SciFloat;
+import palaiologos.scijava.SciFloat.SpecialFunction;
+
+import java.util.function.BiFunction;
+
+/**
+ * Measures MPFR against Arb for the special functions listed in {@link SpecialFunction} over a range of
+ * precisions, and reports the lowest precision from which Arb stays faster. The result can be passed to
+ * {@link SciFloat#setArbThreshold(SpecialFunction, int)}.
+ *
+ * <p>Run with {@code java -cp target/classes:target/test-classes SpecialFunctionBenchmark}.
+ */
+public class SpecialFunctionBenchmark {
+    private static final int[] PRECISIONS = { 64, 128, 256, 384, 512, 768, 1024, 2048, 4096, 8192, 16384 };
+    private static final long BUDGET_NANOS = 200_000_000L;
+
+    private static double time(MathContext mc, BiFunction<MathContext, SciFloat, SciFloat> f, SciFloat x) {
+        // Warm up, including any caches that depend on the precision.
+        f.apply(mc, x);
+        long start = System.nanoTime();
+        long runs = 0;
+        while (System.nanoTime() - start < BUDGET_NANOS) {
+            f.apply(mc, x);
+            runs++;
+        }
+        return (System.nanoTime() - start) / (double) runs;
+    }
+
+    private static void measure(String name, SpecialFunction function, BiFunction<MathContext, SciFloat, SciFloat> f, String arg) {
+        int saved = SciFloat.getArbThreshold(function);
+        int crossover = -1;
+        System.out.printf("%s(%s)%n%8s %14s %14s%n", name, arg, "bits", "mpfr [us]", "arb [us]");
+        for (int precision : PRECISIONS) {
+            MathContext mc = new MathContext(precision, MathContext.RoundingMode.NEAREST);
+            SciFloat x = SciFloat.valueOf(mc, arg);
+            SciFloat.setArbThreshold(function, Integer.MAX_VALUE);
+            SciFloat expected = f.apply(mc, x);
+            double mpfr = time(mc, f, x);
+            SciFloat.setArbThreshold(function, 1);
+            SciFloat actual = f.apply(mc, x);
+            double arb = time(mc, f, x);
+            System.out.printf("%8d %14.2f %14.2f%s%n", precision, mpfr / 1000, arb / 1000,
+                    expected.equals(actual) ? "" : "  results differ");
+            if (arb < mpfr && crossover < 0) {
+                crossover = precision;
+            } else if (arb >= mpfr) {
+                crossover = -1;
+            }
+        }
+        SciFloat.setArbThreshold(function, saved);
+        System.out.printf("crossover: %s (current threshold %d)%n%n",
+                crossover < 0 ? "none" : Integer.toString(crossover), saved);
+    }
+
+    public static void main(String[] args) {
+        measure("gamma", SpecialFunction.GAMMA, SciFloat::gamma, "7.3");
+        measure("zeta", SpecialFunction.ZETA, SciFloat::zeta, "3.7");
+        measure("j0", SpecialFunction.BESSEL_J, SciFloat::j0, "2.5");
+        measure("j5", SpecialFunction.BESSEL_J, (mc, x) -> SciFloat.jn(mc, 5, x), "2.5");
+        measure("Ei", SpecialFunction.EI, SciFloat::Ei, "1.9");
+        measure("li2", SpecialFunction.LI2, SciFloat::li2, "0.3");
+        measure("erf", SpecialFunction.ERF, SciFloat::erf, "0.8");
+    }
+}
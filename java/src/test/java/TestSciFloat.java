@@ -18,9 +18,24 @@
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import palaiologos.scijava.BinarySplitting;
+import palaiologos.scijava.CachePolicy;
+import palaiologos.scijava.MpfrCaches;
+import palaiologos.scijava.SciBall;
+import palaiologos.scijava.SciComplex;
+import palaiologos.scijava.SciComplexBall;
+import palaiologos.scijava.SciComplexVector;
 import palaiologos.scijava.SciFloat;
+import palaiologos.scijava.SciInteger;
+import palaiologos.scijava.SciIntegrate;
+import palaiologos.scijava.SciRational;
+import palaiologos.scijava.SciRoots;
 import palaiologos.scijava.MathContext;
 
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 public class TestSciFloat {
     public static final MathContext mc1 = new MathContext(100, MathContext.RoundingMode.NEAREST);
     public static final MathContext mc10 = new MathContext(1000, MathContext.RoundingMode.NEAREST);
@@ -67,6 +82,90 @@ public class TestSciFloat {
         Assertions.assertEquals(SciFloat.lambertw(mc10, a, 0), b);
     }
 
+    @Test
+    public void testLambertBranches() {
+        SciFloat omega = SciFloat.valueOf(mc1, "0.56714329040978387299996866221035554975381578718651250813513107922304579308668456669321944696364679");
+        Assertions.assertEquals(SciFloat.lambertw(mc1, SciFloat.valueOf(mc1, 1), 0), omega);
+        Assertions.assertEquals(SciFloat.lambertw(mc1, SciFloat.e(mc1), 0), SciFloat.valueOf(mc1, 1));
+        Assertions.assertEquals(SciFloat.lambertw(mc1, SciFloat.valueOf(mc1, 0), 0), SciFloat.valueOf(mc1, 0));
+        // W_{-1}(-2 e^-2) = -2
+        SciFloat x = SciFloat.mul(mc10, SciFloat.valueOf(mc10, -2), SciFloat.exp(mc10, SciFloat.valueOf(mc10, -2)));
+        Assertions.assertEquals(SciFloat.lambertw(mc1, x, -1), SciFloat.valueOf(mc1, -2));
+        Assertions.assertTrue(SciFloat.lambertw(mc1, SciFloat.valueOf(mc1, -1), 0).isNaN());
+        Assertions.assertTrue(SciFloat.lambertw(mc1, SciFloat.valueOf(mc1, 1), -1).isNaN());
+
+        // Next to the branch point, against W = -1 + p - p^2/3 + 11/72 p^3 - 43/540 p^4, p = +-sqrt(2 (e x + 1)),
+        // which is accurate to about p^5 there.
+        MathContext wide = new MathContext(8192, MathContext.RoundingMode.NEAREST);
+        for (int bits : new int[] { 128, 256, 1024 }) {
+            MathContext mc = new MathContext(bits, MathContext.RoundingMode.NEAREST);
+            // -1/e rounded toward zero, so that it lies on the real side of the branch point.
+            MathContext toZero = new MathContext(bits, MathContext.RoundingMode.ZERO);
+            SciFloat near = SciFloat.neg(mc, SciFloat.reciprocal(toZero, SciFloat.e(wide)));
+            SciFloat p = SciFloat.add(wide, SciFloat.mul(wide, SciFloat.e(wide), near), SciFloat.ONE);
+            p = SciFloat.sqrt(wide, SciFloat.mul(wide, p, SciFloat.TWO));
+            for (int k : new int[] { 0, -1 }) {
+                SciFloat q = k == 0 ? p : SciFloat.neg(wide, p);
+                SciFloat w = SciFloat.mul(wide, SciFloat.div(wide, SciFloat.valueOf(wide, -43), SciFloat.valueOf(wide, 540)), q);
+                w = SciFloat.mul(wide, SciFloat.add(wide, w, SciFloat.div(wide, SciFloat.valueOf(wide, 11), SciFloat.valueOf(wide, 72))), q);
+                w = SciFloat.mul(wide, SciFloat.sub(wide, w, SciFloat.div(wide, SciFloat.ONE, SciFloat.valueOf(wide, 3))), q);
+                w = SciFloat.mul(wide, SciFloat.add(wide, w, SciFloat.ONE), q);
+                w = SciFloat.sub(wide, w, SciFloat.ONE);
+                Assertions.assertEquals(SciFloat.valueOf(mc, w), SciFloat.lambertw(mc, near, k));
+            }
+        }
+
+        SciFloat[] xs = { SciFloat.valueOf(mc10, "1.23"), SciFloat.valueOf(mc10, "-0.3"), SciFloat.valueOf(mc10, "1e100") };
+        SciFloat[] ws = SciFloat.lambertw(mc10, xs, 0);
+        for (int i = 0; i < xs.length; i++) {
+            Assertions.assertEquals(SciFloat.lambertw(mc10, xs[i], 0), ws[i]);
+        }
+    }
+
+    @Test
+    public void testSciRoots() {
+        SciFloat two = SciFloat.valueOf(mc10, 2);
+        SciFloat sqrt2 = SciFloat.sqrt(mc10, two);
+        SciFloat x = SciRoots.newton(mc10, (mc, t) -> SciFloat.sub(mc, SciFloat.mul(mc, t, t), two),
+                (mc, t) -> SciFloat.mul(mc, SciFloat.TWO, t), SciFloat.ONE);
+        Assertions.assertEquals(sqrt2, x);
+        x = SciRoots.brent(mc10, (mc, t) -> SciFloat.sub(mc, SciFloat.mul(mc, t, t), two), SciFloat.ONE, SciFloat.TWO);
+        Assertions.assertEquals(sqrt2, x);
+
+        // The root of cos(x) = x.
+        SciFloat dottie = SciFloat.valueOf(mc1, "0.73908513321516064165531208767387340401341175890075746496568063577328465488354759");
+        Assertions.assertEquals(dottie, SciRoots.brent(mc1, (mc, t) -> SciFloat.sub(mc, SciFloat.cos(mc, t), t),
+                SciFloat.ZERO, SciFloat.ONE));
+        Assertions.assertEquals(SciFloat.valueOf(mc1, 0), SciRoots.newton(mc1, SciFloat::sin, SciFloat::cos,
+                SciFloat.HALF));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SciRoots.brent(mc1,
+                (mc, t) -> SciFloat.mul(mc, t, t), SciFloat.ONE, SciFloat.TWO));
+    }
+
+    @Test
+    public void testSciIntegrate() {
+        SciFloat one = SciFloat.ONE;
+        SciFloat expected = SciFloat.sub(mc1, SciFloat.e(mc1), one);
+        Assertions.assertEquals(expected, SciIntegrate.gaussLegendre(mc1, SciFloat::exp, SciFloat.ZERO, one));
+        Assertions.assertEquals(expected, SciIntegrate.tanhSinh(mc1, SciFloat::exp, SciFloat.ZERO, one));
+        // A rule of degree 3 integrates x^4 exactly.
+        Assertions.assertEquals(SciFloat.valueOf(mc1, "0.2"), SciIntegrate.gaussLegendre(mc1,
+                (mc, x) -> SciFloat.mul(mc, SciFloat.mul(mc, x, x), SciFloat.mul(mc, x, x)), SciFloat.ZERO, one, 3));
+        // Endpoint singularities.
+        Assertions.assertEquals(SciFloat.valueOf(mc1, 2), SciIntegrate.tanhSinh(mc1,
+                (mc, x) -> SciFloat.reciprocal(mc, SciFloat.sqrt(mc, x)), SciFloat.ZERO, one));
+        Assertions.assertEquals(SciFloat.div(mc1, SciFloat.pi(mc1), SciFloat.valueOf(mc1, 4)), SciIntegrate.tanhSinh(mc1,
+                (mc, x) -> SciFloat.sqrt(mc, SciFloat.sub(mc, one, SciFloat.mul(mc, x, x))), SciFloat.ZERO, one));
+
+        SciIntegrate.setNodeCacheLimit(0);
+        Assertions.assertEquals(expected, SciIntegrate.gaussLegendre(mc1, SciFloat::exp, SciFloat.ZERO, one));
+        SciIntegrate.setNodeCacheLimit(32);
+
+        SciComplexBall integral = SciIntegrate.rigorous(mc1, SciComplexBall::sin, SciBall.valueOf(0), SciBall.pi(mc1));
+        Assertions.assertTrue(integral.real().contains(SciFloat.valueOf(mc1, 2)));
+        Assertions.assertTrue(integral.relativeAccuracy() >= 90);
+    }
+
     @Test
     public void testBernoulli() {
         Assertions.assertEquals(SciFloat.bernoulli(mc1, 6), SciFloat.valueOf(mc1, "2.3809523809523809523809523809519e-2"));
@@ -75,4 +174,394 @@ public class TestSciFloat {
         Assertions.assertEquals(SciFloat.bernoulli(mc1, 50), SciFloat.valueOf(mc1, "7500866746076964366855720.0757599"));
         Assertions.assertEquals(SciFloat.bernoulli(mc10, 22), SciFloat.valueOf(mc10, "6192.12318840579710144927536231884057971014492753623188405797101449275362318840579710144927536231884057971014492753623188405797101449275362318840579710144927536231884057971014492753623188405797101449275362318840579710144927536231884057971014492753623188405797101449275362318840579710144927536231884057956"));
     }
+
+    @Test
+    public void testBernoulliExact() {
+        Assertions.assertEquals(SciRational.valueOf(1), SciRational.bernoulli(0));
+        Assertions.assertEquals(SciRational.valueOf("-1/2"), SciRational.bernoulli(1));
+        Assertions.assertEquals(SciRational.valueOf("1/6"), SciRational.bernoulli(2));
+        Assertions.assertEquals(SciRational.valueOf("-691/2730"), SciRational.bernoulli(12));
+        Assertions.assertEquals(SciRational.valueOf(0), SciRational.bernoulli(13));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SciRational.bernoulli(-1));
+        SciRational.clearBernoulliCache();
+        SciRational[] table = SciRational.bernoulliTable(60);
+        Assertions.assertEquals(61, table.length);
+        // Served from the table, then computed individually past its end.
+        for (int i = 0; i < 80; i++) {
+            SciRational b = SciRational.bernoulli(i);
+            if (i < table.length) {
+                Assertions.assertEquals(table[i], b);
+            }
+            if (i > 1 && i % 2 == 1) {
+                Assertions.assertEquals(SciRational.valueOf(0), b);
+            }
+        }
+        Assertions.assertEquals(table[50], SciRational.bernoulliTable(70)[50]);
+        SciRational.clearBernoulliCache();
+    }
+
+    @Test
+    public void testHarmonic() {
+        Assertions.assertEquals(SciRational.valueOf(0), SciRational.harmonic(0));
+        Assertions.assertEquals(SciRational.valueOf(1), SciRational.harmonic(1));
+        Assertions.assertEquals(SciRational.valueOf("25/12"), SciRational.harmonic(4));
+        Assertions.assertEquals(SciRational.valueOf("7381/2520"), SciRational.harmonic(10));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SciRational.harmonic(-1));
+        Assertions.assertEquals(SciFloat.valueOf(mc1, SciRational.harmonic(10)), SciFloat.harmonic(mc1, 10));
+        // Exact sums, the asymptotic expansion and digamma against the exact sum.
+        Assertions.assertEquals(SciFloat.valueOf(mc1, SciRational.harmonic(1000)), SciFloat.harmonic(mc1, 1000));
+        Assertions.assertEquals(SciFloat.valueOf(mc1, SciRational.harmonic(3000)), SciFloat.harmonic(mc1, 3000));
+        Assertions.assertEquals(SciFloat.valueOf(mc10, SciRational.harmonic(5000)), SciFloat.harmonic(mc10, 5000));
+        Assertions.assertEquals(SciFloat.valueOf(mc10, SciRational.harmonic(1000000)), SciFloat.harmonic(mc10, 1000000));
+        SciFloat error = SciFloat.abs(mc10, SciFloat.sub(mc10, SciFloat.valueOf(mc10, SciRational.harmonic(10000)), SciFloat.harmonic(mc10, 10000)));
+        Assertions.assertTrue(error.compareTo(SciFloat.ldexp(mc10, 1, -990)) < 0);
+        Assertions.assertEquals(SciFloat.harmonic(mc1, 3000), SciFloat.harmonic(mc1, SciFloat.valueOf(mc1, 3000)));
+        long[] ns = new long[40];
+        for (int i = 0; i < ns.length; i++) {
+            ns[i] = 37L * i * i;
+        }
+        SciFloat[] batch = SciFloat.harmonic(mc1, ns);
+        for (int i = 0; i < ns.length; i++) {
+            Assertions.assertEquals(SciFloat.harmonic(mc1, ns[i]), batch[i]);
+        }
+    }
+
+    @Test
+    public void testFactorialPowers() {
+        SciInteger seven = SciInteger.valueOf(7);
+        Assertions.assertEquals(SciInteger.valueOf(5040), SciInteger.risingFactorial(SciInteger.valueOf(1), 7));
+        Assertions.assertEquals(SciInteger.valueOf(210), SciInteger.fallingFactorial(seven, 3));
+        Assertions.assertEquals(SciInteger.valueOf(1), SciInteger.risingFactorial(seven, 0));
+        Assertions.assertEquals(SciInteger.valueOf(0), SciInteger.risingFactorial(SciInteger.valueOf(-3), 5));
+        Assertions.assertEquals(SciInteger.factorial(2000), SciInteger.risingFactorial(SciInteger.valueOf(1), 2000));
+        Assertions.assertThrows(ArithmeticException.class, () -> SciInteger.fallingFactorial(seven, -1));
+        // (1/2)(3/2)(5/2) = 15/8, (1/2)(-1/2)(-3/2) = 3/8
+        SciRational half = SciRational.valueOf("1/2");
+        Assertions.assertEquals(SciRational.valueOf("15/8"), SciRational.risingFactorial(half, 3));
+        Assertions.assertEquals(SciRational.valueOf("3/8"), SciRational.fallingFactorial(half, 3));
+        // rising(x, -2) = 1/((x-1)(x-2)), falling(x, -2) = 1/((x+1)(x+2))
+        Assertions.assertEquals(SciRational.valueOf("4/3"), SciRational.risingFactorial(half, -2));
+        Assertions.assertEquals(SciRational.valueOf("4/15"), SciRational.fallingFactorial(half, -2));
+        Assertions.assertThrows(ArithmeticException.class, () -> SciRational.risingFactorial(SciRational.valueOf(2), -2));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SciRational.risingFactorial(half, 1L << 32));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SciRational.fallingFactorial(half, -(1L << 32)));
+        SciFloat x = SciFloat.valueOf(mc1, "2.5");
+        Assertions.assertEquals(SciFloat.valueOf(mc1, SciRational.risingFactorial(SciRational.valueOf("5/2"), 40)),
+                SciFloat.risingFactorial(mc1, x, 40));
+        Assertions.assertEquals(SciFloat.valueOf(mc1, SciRational.fallingFactorial(SciRational.valueOf("5/2"), 40)),
+                SciFloat.fallingFactorial(mc1, x, 40));
+        Assertions.assertEquals(SciFloat.risingFactorial(mc1, x, 40), SciFloat.risingFactorial(mc1, x, SciFloat.valueOf(mc1, 40)));
+        Assertions.assertEquals(SciFloat.fallingFactorial(mc1, x, 3), SciFloat.fallingFactorial(mc1, x, SciFloat.valueOf(mc1, 3)));
+        // At a pole of gamma.
+        Assertions.assertEquals(SciFloat.valueOf(mc1, 0), SciFloat.risingFactorial(mc1, SciFloat.valueOf(mc1, -3), 5));
+    }
+
+    @Test
+    public void testBinarySplitting() {
+        // e = sum 1/n!
+        BinarySplitting e = BinarySplitting.of(new long[] { 1 }, new long[] { 0, 1 }, new long[] { 1 });
+        Assertions.assertEquals(SciRational.valueOf("8/3"), e.sum(4));
+        Assertions.assertEquals(SciRational.valueOf(0), e.sum(0));
+        Assertions.assertEquals(SciFloat.e(mc10), e.sum(mc10));
+        // A terminating series: sum binomial(2, n) = 4.
+        BinarySplitting binomial = BinarySplitting.of(new long[] { 3, -1 }, new long[] { 0, 1 }, new long[] { 1 });
+        Assertions.assertEquals(3, binomial.terms(100));
+        Assertions.assertEquals(SciFloat.valueOf(mc1, 4), binomial.sum(mc1));
+        // Chudnovsky: 1/pi = 12 / 640320^(3/2) * sum.
+        BinarySplitting chudnovsky = BinarySplitting.of(new long[] { 5, -46, 108, -72 },
+                new long[] { 0, 0, 0, 10939058860032000L }, new long[] { 13591409, 545140134 });
+        MathContext wide = new MathContext(mc1.precision() + 64, MathContext.RoundingMode.NEAREST);
+        SciFloat c = SciFloat.sqrt(wide, SciFloat.valueOf(wide, SciInteger.pow(SciInteger.valueOf(640320), 3)));
+        SciFloat pi = SciFloat.div(wide, c, SciFloat.mul(wide, SciFloat.valueOf(wide, 12), chudnovsky.sum(wide)));
+        Assertions.assertEquals(SciFloat.pi(mc1), SciFloat.valueOf(mc1, pi));
+        Assertions.assertThrows(ArithmeticException.class,
+                () -> BinarySplitting.of(new long[] { 0, 2 }, new long[] { 0, 1 }, new long[] { 1 }).terms(100));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> BinarySplitting.of(new long[] { 1 }, new long[] { 0 }, new long[] { 1 }));
+    }
+
+    @Test
+    public void testFastPath() {
+        // Each call against the same call made through MPFR, which is forced by scaling the operands out of the
+        // range handled in Java by a power of two and scaling the result back; both scalings are exact.
+        java.util.Random random = new java.util.Random(42);
+        int[] precisions = { 1, 7, 24, 52, 53 };
+        for (int i = 0; i < 2000; i++) {
+            double x = Math.scalb((double) (random.nextLong() >> random.nextInt(60)), random.nextInt(40) - 80);
+            double y = Math.scalb((double) (random.nextLong() >> random.nextInt(60)), random.nextInt(40) - 80);
+            if (x == 0 || y == 0) {
+                continue;
+            }
+            int p = precisions[i % precisions.length];
+            // The first operand either fits the target precision, or has to be rounded to it first.
+            MathContext mcA = new MathContext(i % 2 == 0 ? p : 53, MathContext.RoundingMode.NEAREST);
+            SciFloat a = SciFloat.valueOf(mcA, new java.math.BigDecimal(x).toPlainString());
+            SciFloat b = SciFloat.valueOf(MathContext.MC53, new java.math.BigDecimal(y).toPlainString());
+            SciFloat abs = SciFloat.abs(mcA, a);
+            for (MathContext.RoundingMode mode : MathContext.RoundingMode.values()) {
+                MathContext mc = new MathContext(p, mode);
+                SciFloat down = SciFloat.ldexp(mc, 1, -600);
+                SciFloat aUp = SciFloat.mul(mcA, a, SciFloat.ldexp(mcA, 1, 600));
+                SciFloat bUp = SciFloat.mul(MathContext.MC53, b, SciFloat.ldexp(MathContext.MC53, 1, 600));
+                SciFloat absUp = SciFloat.mul(mcA, abs, SciFloat.ldexp(mcA, 1, 800));
+                Assertions.assertEquals(SciFloat.mul(mc, SciFloat.add(mc, aUp, bUp), down), SciFloat.add(mc, a, b));
+                Assertions.assertEquals(SciFloat.mul(mc, SciFloat.sub(mc, aUp, bUp), down), SciFloat.sub(mc, a, b));
+                Assertions.assertEquals(SciFloat.mul(mc, SciFloat.mul(mc, aUp, b), down), SciFloat.mul(mc, a, b));
+                Assertions.assertEquals(SciFloat.mul(mc, SciFloat.div(mc, aUp, b), down), SciFloat.div(mc, a, b));
+                Assertions.assertEquals(SciFloat.mul(mc, SciFloat.sqrt(mc, absUp), SciFloat.ldexp(mc, 1, -400)),
+                        SciFloat.sqrt(mc, abs));
+            }
+        }
+        // Ties to even at the target precision, and a result outside the range handled in Java.
+        MathContext mc2 = new MathContext(2, MathContext.RoundingMode.NEAREST);
+        Assertions.assertEquals(SciFloat.valueOf(mc2, 4), SciFloat.add(mc2, SciFloat.valueOf(mc2, 3), SciFloat.TWO));
+        SciFloat tiny = SciFloat.ldexp(MathContext.MC53, 1, -300);
+        Assertions.assertEquals(SciFloat.ldexp(MathContext.MC53, 1, -600), SciFloat.mul(MathContext.MC53, tiny, tiny));
+    }
+
+    @Test
+    public void testConversions() {
+        // doubles cross exactly at 53 bits, and round at lower precisions
+        Assertions.assertEquals(0.1, SciFloat.valueOf(0.1).doubleValue());
+        Assertions.assertEquals(SciFloat.valueOf(MathContext.MC53, new java.math.BigDecimal(0.1).toPlainString()), SciFloat.valueOf(0.1));
+        Assertions.assertEquals(SciFloat.valueOf(0.5), SciFloat.valueOf(new MathContext(1, MathContext.RoundingMode.NEAREST), 0.7));
+        Assertions.assertEquals(-0.75, SciFloat.add(MathContext.MC53, SciFloat.valueOf(-1.0), SciFloat.valueOf(0.25)).doubleValue());
+        Assertions.assertArrayEquals(new double[] { 1.5, -2.0, 1e300 },
+                SciFloat.toDoubleArray(SciFloat.valueOf(MathContext.MC53, new double[] { 1.5, -2.0, 1e300 })));
+        // longValue truncates toward zero and saturates
+        Assertions.assertEquals(-2, SciFloat.valueOf(-2.75).longValue());
+        Assertions.assertEquals(Long.MAX_VALUE, SciFloat.valueOf(1e30).longValue());
+        // BigDecimal in both directions is exact
+        Assertions.assertEquals(new java.math.BigDecimal(0.1), SciFloat.valueOf(0.1).toBigDecimal());
+        Assertions.assertEquals(0, new java.math.BigDecimal("1024").compareTo(SciFloat.valueOf(1024.0).toBigDecimal()));
+        Assertions.assertEquals(SciFloat.valueOf(mc10, "-123.456"), SciFloat.valueOf(mc10, new java.math.BigDecimal("-123.456")));
+        Assertions.assertEquals(SciFloat.valueOf(mc10, "5e20"), SciFloat.valueOf(mc10, new java.math.BigDecimal("5E+20")));
+        // longs and BigIntegers
+        Assertions.assertEquals(Long.MIN_VALUE, SciInteger.valueOf(Long.MIN_VALUE).longValue());
+        Assertions.assertArrayEquals(new long[] { 0, -1, Long.MAX_VALUE },
+                SciInteger.toLongArray(SciInteger.valueOf(new long[] { 0, -1, Long.MAX_VALUE })));
+        Assertions.assertThrows(ArithmeticException.class, () -> SciInteger.pow(SciInteger.valueOf(2), 64).longValue());
+        java.math.BigInteger big = java.math.BigInteger.valueOf(-3).pow(200);
+        Assertions.assertEquals(big, SciInteger.valueOf(big).toBigInteger());
+        Assertions.assertEquals(big.negate(), SciInteger.valueOf(big.negate()).toBigInteger());
+        Assertions.assertEquals(java.math.BigInteger.ZERO, SciInteger.valueOf(java.math.BigInteger.ZERO).toBigInteger());
+        Assertions.assertEquals(SciInteger.valueOf(big.toString()), SciInteger.valueOf(big));
+    }
+
+    @Test
+    public void testStreamingConversion() throws java.io.IOException {
+        // several levels of the divide and conquer, including zero-padded blocks
+        SciInteger big = SciInteger.negate(SciInteger.pow(SciInteger.valueOf(7), 200000));
+        StringBuilder sb = new StringBuilder();
+        big.writeTo(sb, 10);
+        Assertions.assertEquals(big.toString(), sb.toString());
+        java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+        big.writeTo(bytes, 16);
+        Assertions.assertEquals(big.toString(16), bytes.toString(java.nio.charset.StandardCharsets.US_ASCII));
+        sb.setLength(0);
+        SciInteger.pow(SciInteger.TEN, 50000).writeTo(sb, 10);
+        Assertions.assertEquals("1" + "0".repeat(50000), sb.toString());
+        sb.setLength(0);
+        SciInteger.ZERO.writeTo(sb, 2);
+        Assertions.assertEquals("0", sb.toString());
+        // parsing without a String
+        String digits = big.toString();
+        Assertions.assertEquals(big, SciInteger.valueOf(new StringBuilder(digits), 10));
+        java.nio.ByteBuffer direct = java.nio.ByteBuffer.allocateDirect(digits.length());
+        direct.put(digits.getBytes(java.nio.charset.StandardCharsets.US_ASCII)).flip();
+        Assertions.assertEquals(big, SciInteger.valueOf(direct, 10));
+        Assertions.assertFalse(direct.hasRemaining());
+        java.nio.ByteBuffer heap = java.nio.ByteBuffer.wrap("xxff".getBytes(java.nio.charset.StandardCharsets.US_ASCII));
+        heap.position(2);
+        Assertions.assertEquals(SciInteger.valueOf(255), SciInteger.valueOf(heap, 16));
+        Assertions.assertThrows(ArithmeticException.class, () -> SciInteger.valueOf(new StringBuilder("12a"), 10));
+        // rationals
+        sb.setLength(0);
+        SciRational.valueOf("-22/7").writeTo(sb, 10);
+        Assertions.assertEquals("-22/7", sb.toString());
+        sb.setLength(0);
+        SciRational.valueOf("6/3").writeTo(sb, 10);
+        Assertions.assertEquals("2", sb.toString());
+        Assertions.assertEquals(SciRational.valueOf("-22/7"), SciRational.valueOf(new StringBuilder("-16/7"), 16));
+        // floats, with a digit limit and ties away from zero
+        sb.setLength(0);
+        SciFloat.valueOf(mc1, "1.5").writeTo(sb, 10, 5);
+        Assertions.assertEquals("1.5000e0", sb.toString());
+        sb.setLength(0);
+        SciFloat.valueOf(mc1, "-0.0025").writeTo(sb, 10, 3);
+        Assertions.assertEquals("-2.50e-3", sb.toString());
+        sb.setLength(0);
+        SciFloat.valueOf(mc1, "0.125").writeTo(sb, 10, 2);
+        Assertions.assertEquals("1.3e-1", sb.toString());
+        sb.setLength(0);
+        SciFloat.valueOf(mc1, "1.5").writeTo(sb, 16, 2);
+        Assertions.assertEquals("1.8@0", sb.toString());
+        sb.setLength(0);
+        SciFloat.div(mc1, SciFloat.valueOf(mc1, -1), SciFloat.valueOf(mc1, 0)).writeTo(sb, 10);
+        Assertions.assertEquals("-inf", sb.toString());
+        // the default digit count reads back to the same value
+        SciFloat pi = SciFloat.pi(mc10);
+        sb.setLength(0);
+        pi.writeTo(sb, 10);
+        Assertions.assertEquals(pi, SciFloat.valueOf(mc10, sb, 10));
+        bytes.reset();
+        pi.writeTo(bytes, 7);
+        Assertions.assertEquals(pi, SciFloat.valueOf(mc10, java.nio.ByteBuffer.wrap(bytes.toByteArray()), 7));
+    }
+
+    @Test
+    public void testHashCode() {
+        // equal values at different precisions hash equally
+        SciFloat a = SciFloat.valueOf(mc1, "0.375");
+        SciFloat b = SciFloat.valueOf(mc10, "0.375");
+        Assertions.assertEquals(a, b);
+        Assertions.assertEquals(a.hashCode(), b.hashCode());
+        Assertions.assertEquals(SciFloat.valueOf(mc1, 96).hashCode(), SciFloat.valueOf(mc10, 96).hashCode());
+        Assertions.assertNotEquals(SciFloat.valueOf(mc1, 96).hashCode(), SciFloat.valueOf(mc1, 48).hashCode());
+        Assertions.assertNotEquals(a.hashCode(), SciFloat.neg(mc1, a).hashCode());
+    }
+
+    @Test
+    public void testConstantCache() {
+        SciFloat.clearConstantCache();
+        SciFloat pi = SciFloat.pi(mc1);
+        SciFloat gamma = SciFloat.eulerGamma(mc1);
+        // grow the cache, then serve the lower precision from it
+        SciFloat.pi(mc10);
+        SciFloat.eulerGamma(mc10);
+        Assertions.assertEquals(pi, SciFloat.pi(mc1));
+        Assertions.assertEquals(gamma, SciFloat.eulerGamma(mc1));
+        SciFloat.clearConstantCache();
+        Assertions.assertEquals(pi, SciFloat.pi(mc1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SciFloat.setConstantCacheLimit(-1));
+    }
+
+    @Test
+    public void testMpfrCaches() throws InterruptedException {
+        // values computed after the caches are freed are unaffected
+        SciFloat pi = SciFloat.pi(mc10);
+        SciFloat.ln(mc10, SciFloat.valueOf(mc10, 2));
+        MpfrCaches.freeCurrentThread();
+        SciFloat.clearConstantCache();
+        Assertions.assertEquals(pi, SciFloat.pi(mc10));
+        // reach every thread of a pool
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            Assertions.assertEquals(3, MpfrCaches.freeOnAll(pool, 3, Duration.ofSeconds(10)));
+        } finally {
+            pool.shutdown();
+        }
+        // pinned threads keep their caches
+        CachePolicy policy = CachePolicy.afterEachTask().pinning(t -> t == Thread.currentThread());
+        Assertions.assertFalse(policy.shouldFree(Thread.currentThread(), Duration.ZERO));
+        Assertions.assertTrue(CachePolicy.afterIdle(Duration.ofSeconds(1)).shouldFree(Thread.currentThread(), Duration.ofSeconds(2)));
+        Assertions.assertFalse(CachePolicy.afterIdle(Duration.ofSeconds(1)).shouldFree(Thread.currentThread(), Duration.ZERO));
+    }
+
+    @Test
+    public void testFma() {
+        SciFloat a = SciFloat.valueOf(mc1, "182.5172735");
+        SciFloat b = SciFloat.valueOf(mc1, "19.2958127");
+        SciFloat c = SciFloat.valueOf(mc1, "0.5");
+        Assertions.assertEquals(SciFloat.fma(mc1, a, b, c), SciFloat.valueOf(mc1, "3522.31912397067345"));
+        Assertions.assertEquals(SciFloat.fms(mc1, a, b, c), SciFloat.valueOf(mc1, "3521.31912397067345"));
+        Assertions.assertEquals(SciFloat.fmma(mc1, a, b, c, c), SciFloat.valueOf(mc1, "3522.06912397067345"));
+        Assertions.assertEquals(SciFloat.fmms(mc1, a, b, c, c), SciFloat.valueOf(mc1, "3521.56912397067345"));
+        // single rounding: (1 + 2^-60)(1 - 2^-60) - 1 = -2^-120 is lost by separate multiply and subtract at 100 bits
+        SciFloat eps = SciFloat.valueOf(mc1, "8.67361737988403547205962240695953369140625E-19");
+        SciFloat x = SciFloat.add(mc1, SciFloat.ONE, eps);
+        SciFloat y = SciFloat.sub(mc1, SciFloat.ONE, eps);
+        Assertions.assertEquals(SciFloat.ZERO, SciFloat.sub(mc1, SciFloat.mul(mc1, x, y), SciFloat.ONE));
+        Assertions.assertNotEquals(SciFloat.ZERO, SciFloat.fms(mc1, x, y, SciFloat.ONE));
+    }
+
+    @Test
+    public void testPolyEval() {
+        // 1 - 2x + 3x^2 + 0.5x^3 at x = 2 is 13
+        SciFloat[] coeffs = { SciFloat.valueOf(mc1, 1), SciFloat.valueOf(mc1, -2), SciFloat.valueOf(mc1, 3), SciFloat.HALF };
+        SciFloat two = SciFloat.valueOf(mc1, 2);
+        SciFloat expected = SciFloat.valueOf(mc1, 13);
+        for (SciFloat.PolynomialScheme scheme : SciFloat.PolynomialScheme.values()) {
+            Assertions.assertEquals(expected, SciFloat.polyEval(mc1, coeffs, two, scheme));
+        }
+        SciFloat[] values = SciFloat.polyEval(mc1, coeffs, new SciFloat[] { SciFloat.ZERO, SciFloat.ONE, two });
+        Assertions.assertEquals(SciFloat.ONE, values[0]);
+        Assertions.assertEquals(SciFloat.valueOf(mc1, "2.5"), values[1]);
+        Assertions.assertEquals(expected, values[2]);
+        Assertions.assertEquals(SciFloat.ZERO, SciFloat.polyEval(mc1, new SciFloat[0], two));
+    }
+
+    @Test
+    public void testSciBall() {
+        SciBall third = SciBall.div(mc1, SciBall.valueOf(1), SciBall.valueOf(3));
+        Assertions.assertFalse(third.isExact());
+        Assertions.assertTrue(third.relativeAccuracy() >= 95);
+        Assertions.assertTrue(SciBall.mul(mc1, third, SciBall.valueOf(3)).contains(SciFloat.valueOf(mc1, 1)));
+        SciBall pi = SciBall.pi(mc1);
+        Assertions.assertTrue(pi.contains(SciFloat.pi(mc1)));
+        Assertions.assertTrue(SciBall.sin(mc1, pi).containsZero());
+        Assertions.assertTrue(pi.gt(SciBall.valueOf(3)));
+        Assertions.assertFalse(pi.lt(pi));
+        // gamma(1/2) = sqrt(pi)
+        SciBall half = SciBall.valueOf(SciFloat.HALF);
+        Assertions.assertTrue(SciBall.gamma(mc1, half).overlaps(SciBall.sqrt(mc1, pi)));
+        SciBall e = SciBall.evaluate(200, 4096, mc -> SciBall.exp(mc, SciBall.valueOf(1)));
+        Assertions.assertTrue(e.relativeAccuracy() >= 200);
+        Assertions.assertEquals(SciFloat.e(mc1), e.midpoint(mc1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SciBall.evaluate(0, 4096, mc -> SciBall.valueOf(1)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SciBall.evaluate(200, 0, mc -> SciBall.valueOf(1)));
+    }
+
+    @Test
+    public void testSciComplex() {
+        SciComplex a = SciComplex.valueOf(mc1, SciFloat.valueOf(mc1, 3), SciFloat.valueOf(mc1, 4));
+        Assertions.assertEquals(SciFloat.valueOf(mc1, 5), SciComplex.abs(mc1, a));
+        Assertions.assertEquals(SciFloat.valueOf(mc1, 25), SciComplex.norm(mc1, a));
+        Assertions.assertEquals(SciComplex.valueOf(mc1, -1), SciComplex.mul(mc1, SciComplex.I, SciComplex.I));
+        Assertions.assertEquals(SciComplex.mulI(mc1, a), SciComplex.mul(mc1, a, SciComplex.I));
+        Assertions.assertEquals(SciComplex.valueOf(mc1, 25), SciComplex.mul(mc1, a, SciComplex.conj(mc1, a)));
+        Assertions.assertEquals(a.hashCode(), SciComplex.valueOf(mc10, "(3 4)").hashCode());
+        // equals follows the total order of compareTo, not the numeric comparison of eq.
+        SciComplex zero = SciComplex.valueOf(mc1, 0);
+        SciComplex negZero = SciComplex.neg(mc1, zero);
+        Assertions.assertTrue(zero.eq(negZero));
+        Assertions.assertNotEquals(zero, negZero);
+        Assertions.assertTrue(zero.compareTo(negZero) > 0);
+        SciComplex nan = SciComplex.valueOf(mc1, SciFloat.valueOf(Double.NaN));
+        Assertions.assertFalse(nan.eq(nan));
+        Assertions.assertEquals(nan, SciComplex.valueOf(mc1, SciFloat.valueOf(Double.NaN)));
+        Assertions.assertEquals(0, nan.compareTo(SciComplex.valueOf(mc1, SciFloat.valueOf(Double.NaN))));
+        SciComplexVector v = SciComplexVector.of(a, SciComplex.I, SciComplex.valueOf(mc1, 2));
+        SciComplexVector sq = SciComplexVector.mul(mc1, v, v);
+        Assertions.assertEquals(3, sq.size());
+        Assertions.assertEquals(SciComplex.valueOf(mc1, -1), sq.get(1));
+        Assertions.assertEquals(SciComplex.valueOf(mc1, 4), sq.get(2));
+        Assertions.assertEquals(SciComplexVector.sum(mc1, sq), SciComplexVector.dot(mc1, v, v));
+    }
+
+    @Test
+    public void testArbSpecialFunctions() {
+        SciFloat x = SciFloat.valueOf(mc10, "0.8");
+        for (SciFloat.SpecialFunction f : SciFloat.SpecialFunction.values()) {
+            Assertions.assertEquals(Integer.MAX_VALUE, SciFloat.getArbThreshold(f));
+        }
+        int gammaThreshold = SciFloat.getArbThreshold(SciFloat.SpecialFunction.GAMMA);
+        int erfThreshold = SciFloat.getArbThreshold(SciFloat.SpecialFunction.ERF);
+        SciFloat.setArbThreshold(SciFloat.SpecialFunction.GAMMA, Integer.MAX_VALUE);
+        SciFloat.setArbThreshold(SciFloat.SpecialFunction.ERF, Integer.MAX_VALUE);
+        SciFloat gamma = SciFloat.gamma(mc10, x);
+        SciFloat erf = SciFloat.erf(mc10, x);
+        // The argument is rounded to the target precision in the requested mode on both paths.
+        MathContext up = new MathContext(200, MathContext.RoundingMode.UP);
+        SciFloat narrowGamma = SciFloat.gamma(up, x);
+        SciFloat.setArbThreshold(SciFloat.SpecialFunction.GAMMA, 1);
+        SciFloat.setArbThreshold(SciFloat.SpecialFunction.ERF, 1);
+        Assertions.assertEquals(gamma, SciFloat.gamma(mc10, x));
+        Assertions.assertEquals(erf, SciFloat.erf(mc10, x));
+        Assertions.assertEquals(narrowGamma, SciFloat.gamma(up, x));
+        // Poles are handed back to MPFR.
+        Assertions.assertFalse(SciFloat.gamma(mc10, SciFloat.valueOf(mc10, -2)).isFinite());
+        SciFloat.setArbThreshold(SciFloat.SpecialFunction.GAMMA, gammaThreshold);
+        SciFloat.setArbThreshold(SciFloat.SpecialFunction.ERF, erfThreshold);
+    }
 }
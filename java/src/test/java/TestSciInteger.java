@@ -18,7 +18,10 @@
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import palaiologos.scijava.BatchGcd;
+import palaiologos.scijava.ProductTree;
 import palaiologos.scijava.SciInteger;
+import palaiologos.scijava.SciRational;
 
 public class TestSciInteger {
     @Test
@@ -273,4 +276,135 @@ public class TestSciInteger {
         Assertions.assertTrue(SciInteger.clamp(SciInteger.ZERO, SciInteger.valueOf(-20), SciInteger.valueOf(20)).eq(SciInteger.ZERO));
         Assertions.assertThrows(ArithmeticException.class, () -> SciInteger.clamp(SciInteger.ZERO, SciInteger.valueOf(20), SciInteger.valueOf(-20)));
     }
+
+    @Test
+    public void testPrimeIterator() {
+        // the iterator must agree with nextPrime, including across small primes
+        var it = SciInteger.primesAfter(SciInteger.valueOf(-5));
+        SciInteger p = SciInteger.ONE;
+        for (int i = 0; i < 2000; i++) {
+            p = SciInteger.nextPrime(p);
+            Assertions.assertEquals(p, it.next());
+        }
+        // try some big number
+        SciInteger big = SciInteger.shl(SciInteger.ONE, 512);
+        var bigIt = SciInteger.primesAfter(big);
+        p = big;
+        for (int i = 0; i < 20; i++) {
+            p = SciInteger.nextPrime(p);
+            Assertions.assertEquals(p, bigIt.next());
+        }
+        // a parallel range must yield the same primes in the same order
+        Assertions.assertEquals(
+                SciInteger.primeStream(SciInteger.valueOf(999)).limit(50).toList(),
+                SciInteger.primesBetween(SciInteger.valueOf(1000), SciInteger.valueOf(1000000)).parallel().limit(50).toList());
+        Assertions.assertEquals(25, SciInteger.primesBetween(SciInteger.ZERO, SciInteger.valueOf(100)).count());
+    }
+
+    @Test
+    public void testRootsAndLogs() {
+        Assertions.assertTrue(SciInteger.isPerfectSquare(SciInteger.valueOf(144)));
+        Assertions.assertFalse(SciInteger.isPerfectSquare(SciInteger.valueOf(145)));
+        Assertions.assertTrue(SciInteger.isPerfectPower(SciInteger.valueOf(243)));
+        Assertions.assertFalse(SciInteger.isPerfectPower(SciInteger.valueOf(242)));
+        // try sqrtRem
+        SciInteger[] sr = SciInteger.sqrtRem(SciInteger.valueOf(150));
+        Assertions.assertTrue(sr[0].eq(SciInteger.valueOf(12)));
+        Assertions.assertTrue(sr[1].eq(SciInteger.valueOf(6)));
+        Assertions.assertThrows(ArithmeticException.class, () -> SciInteger.sqrtRem(SciInteger.valueOf(-1)));
+        // try rootRem
+        SciInteger[] rr = SciInteger.rootRem(SciInteger.valueOf(-30), 3);
+        Assertions.assertTrue(rr[0].eq(SciInteger.valueOf(-3)));
+        Assertions.assertTrue(rr[1].eq(SciInteger.valueOf(-3)));
+        Assertions.assertThrows(ArithmeticException.class, () -> SciInteger.rootRem(SciInteger.valueOf(-30), 2));
+        Assertions.assertThrows(ArithmeticException.class, () -> SciInteger.rootRem(SciInteger.valueOf(30), 0));
+        // try logarithms
+        Assertions.assertEquals(10, SciInteger.log2Floor(SciInteger.valueOf(1024)));
+        Assertions.assertEquals(10, SciInteger.log2Ceil(SciInteger.valueOf(1024)));
+        Assertions.assertEquals(10, SciInteger.log2Floor(SciInteger.valueOf(1025)));
+        Assertions.assertEquals(11, SciInteger.log2Ceil(SciInteger.valueOf(1025)));
+        Assertions.assertEquals(2, SciInteger.log10Floor(SciInteger.valueOf(999)));
+        Assertions.assertEquals(3, SciInteger.log10Ceil(SciInteger.valueOf(999)));
+        Assertions.assertEquals(3, SciInteger.log10Floor(SciInteger.valueOf(1000)));
+        Assertions.assertEquals(3, SciInteger.log10Ceil(SciInteger.valueOf(1000)));
+        Assertions.assertEquals(0, SciInteger.log10Floor(SciInteger.ONE));
+        Assertions.assertThrows(ArithmeticException.class, () -> SciInteger.log10Floor(SciInteger.ZERO));
+    }
+
+    @Test
+    public void testCrt() {
+        SciInteger[] moduli = { SciInteger.valueOf(3), SciInteger.valueOf(5), SciInteger.valueOf(7), SciInteger.valueOf(11) };
+        SciInteger[] residues = { SciInteger.valueOf(2), SciInteger.valueOf(3), SciInteger.valueOf(-5), SciInteger.valueOf(1) };
+        Assertions.assertTrue(SciInteger.crt(residues, moduli).eq(SciInteger.valueOf(23)));
+        // round trip through a shared tree
+        ProductTree tree = ProductTree.of(moduli);
+        Assertions.assertTrue(tree.product().eq(SciInteger.valueOf(1155)));
+        SciInteger n = SciInteger.valueOf(1000);
+        SciInteger[] rems = tree.multiMod(n);
+        Assertions.assertTrue(rems[0].eq(SciInteger.ONE));
+        Assertions.assertTrue(rems[3].eq(SciInteger.valueOf(10)));
+        Assertions.assertTrue(tree.crt(rems).eq(n));
+        // negative numbers are reduced into [0, m)
+        Assertions.assertTrue(SciInteger.multiMod(SciInteger.valueOf(-1), moduli)[2].eq(SciInteger.valueOf(6)));
+        // errors
+        Assertions.assertThrows(ArithmeticException.class, () -> SciInteger.crt(residues, new SciInteger[] { SciInteger.TWO, SciInteger.valueOf(4), SciInteger.FIVE, SciInteger.TEN }));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> tree.crt(new SciInteger[] { SciInteger.ONE }));
+    }
+
+    @Test
+    public void testBatchGcd() {
+        // 15 = 3 * 5, 77 = 7 * 11, 35 = 5 * 7, 13 is coprime to the rest
+        SciInteger[] inputs = { SciInteger.valueOf(15), SciInteger.valueOf(77), SciInteger.valueOf(35), SciInteger.valueOf(13) };
+        SciInteger[] gcds = BatchGcd.compute(inputs);
+        Assertions.assertTrue(gcds[0].eq(SciInteger.FIVE));
+        Assertions.assertTrue(gcds[1].eq(SciInteger.valueOf(7)));
+        Assertions.assertTrue(gcds[2].eq(SciInteger.valueOf(35)));
+        Assertions.assertTrue(gcds[3].eq(SciInteger.ONE));
+        Assertions.assertEquals(0, BatchGcd.compute(new SciInteger[0]).length);
+        Assertions.assertThrows(ArithmeticException.class, () -> BatchGcd.compute(new SciInteger[] { SciInteger.ZERO }));
+    }
+
+    @Test
+    public void testGcdExt() {
+        SciInteger a = SciInteger.valueOf(240);
+        SciInteger b = SciInteger.valueOf(-46);
+        SciInteger[] r = SciInteger.gcdExt(a, b);
+        Assertions.assertTrue(r[0].eq(SciInteger.TWO));
+        Assertions.assertTrue(SciInteger.add(SciInteger.multiply(r[1], a), SciInteger.multiply(r[2], b)).eq(r[0]));
+        SciInteger[] h = SciInteger.gcdCofactor(a, b);
+        Assertions.assertTrue(h[0].eq(SciInteger.TWO));
+        Assertions.assertTrue(h[1].eq(r[1]));
+        // try zero
+        r = SciInteger.gcdExt(SciInteger.ZERO, SciInteger.ZERO);
+        Assertions.assertTrue(r[0].eq(SciInteger.ZERO));
+    }
+
+    @Test
+    public void testHashEquality() {
+        SciInteger a = SciInteger.valueOf("123456789012345678901234567890");
+        SciInteger b = SciInteger.add(SciInteger.valueOf("123456789012345678901234567889"), SciInteger.ONE);
+        Assertions.assertEquals(a, b);
+        Assertions.assertEquals(a.hashCode(), b.hashCode());
+        Assertions.assertNotEquals(a, SciInteger.negate(a));
+        Assertions.assertNotEquals(a, SciInteger.add(a, SciInteger.shl(SciInteger.ONE, 64)));
+        Assertions.assertNotEquals(SciInteger.ZERO, SciInteger.ONE);
+        Assertions.assertEquals(SciInteger.ZERO, SciInteger.valueOf(0));
+        // the factorisation map is probed through the cached hash
+        var factors = SciInteger.factor(SciInteger.valueOf(360));
+        Assertions.assertEquals(SciInteger.valueOf(3), factors.get(SciInteger.valueOf(2)));
+        Assertions.assertEquals(SciInteger.valueOf(2), factors.get(SciInteger.valueOf(3)));
+    }
+
+    @Test
+    public void testRationalParts() {
+        SciRational r = SciRational.valueOf("-6/8");
+        SciInteger num = r.numerator();
+        SciInteger den = r.denominator();
+        Assertions.assertTrue(num.eq(SciInteger.valueOf(-3)));
+        Assertions.assertTrue(den.eq(SciInteger.valueOf(4)));
+        // views behave as ordinary operands
+        Assertions.assertTrue(SciInteger.add(num, den).eq(SciInteger.ONE));
+        Assertions.assertEquals(SciInteger.valueOf(4), den.clone());
+        Assertions.assertEquals(r.hashCode(), SciRational.valueOf("-3/4").hashCode());
+    }
 }
@@ -0,0 +1,144 @@
+/*
+    scijava
+    Copyright (C) 2022 Kamila Szewczyk
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+// Evaluation of hypergeometric-type series by binary splitting.
+//
+// The series is S = sum_{n=0}^{N-1} a(n) prod_{k=1}^{n} p(k) / q(k) for
+// polynomials p, q and a with integer coefficients. Over a range [l, r) let
+// P = prod p(k), Q = prod q(k) and T = sum_{n} a(n) p(l) ... p(n) q(n+1) ... q(r-1).
+// Two adjacent ranges combine as P = P_l P_r, Q = Q_l Q_r, T = T_l Q_r + P_l T_r,
+// so that S = a(0) + T(1, N) / Q(1, N).
+
+// This is the interface to the JVM that we'll call the majority of our
+// methods on.
+use jni::JNIEnv;
+
+// These objects are what you should use as arguments to your native
+// function. They carry extra lifetime information to prevent them escaping
+// this context and getting used after being GC'd.
+use jni::objects::JClass;
+
+// This is just a pointer. We'll be returning it from our function. We
+// can't return one of the objects with lifetime information because the
+// lifetime checker won't let us.
+use jni::sys::{jint, jlong, jlongArray};
+
+use std::thread;
+
+use rug::{Complete, Float, Integer, Rational};
+
+use crate::product_tree::{read_pointers, split_depth};
+use crate::scifloat_elementary::xlat_rounding;
+
+// Ranges shorter than this are not split across threads.
+const PARALLEL_THRESHOLD: u64 = 1 << 8;
+
+struct Series {
+    p: Vec<jlong>,
+    q: Vec<jlong>,
+    a: Vec<jlong>,
+}
+
+struct Split {
+    p: Integer,
+    q: Integer,
+    t: Integer,
+}
+
+// Coefficients are stored lowest degree first.
+fn poly(c: &[jlong], n: u64) -> Integer {
+    let mut r = Integer::new();
+    for &c in c.iter().rev() {
+        r *= n;
+        r += c;
+    }
+    r
+}
+
+fn split(s: &Series, l: u64, r: u64, depth: u32) -> Split {
+    if r - l == 1 {
+        let p = poly(&s.p, l);
+        let t = poly(&s.a, l) * &p;
+        return Split { p, q: poly(&s.q, l), t };
+    }
+    let m = l + (r - l) / 2;
+    let (left, right) = if depth > 0 && r - l >= PARALLEL_THRESHOLD {
+        thread::scope(|sc| {
+            let left = sc.spawn(|| split(s, l, m, depth - 1));
+            let right = split(s, m, r, depth - 1);
+            (left.join().unwrap(), right)
+        })
+    } else {
+        (split(s, l, m, 0), split(s, m, r, 0))
+    };
+    let t = (&left.t * &right.q).complete() + (&left.p * &right.t).complete();
+    Split { p: left.p * right.p, q: left.q * right.q, t }
+}
+
+// The sum of the first terms as an unreduced fraction, or None if some q(k)
+// in range vanishes.
+fn sum(s: &Series, terms: u64) -> Option<(Integer, Integer)> {
+    if terms <= 1 {
+        let a0 = if terms == 0 { Integer::new() } else { poly(&s.a, 0) };
+        return Some((a0, Integer::from(1)));
+    }
+    let tail = split(s, 1, terms, split_depth());
+    if tail.q == 0 {
+        return None;
+    }
+    let num = poly(&s.a, 0) * &tail.q + tail.t;
+    Some((num, tail.q))
+}
+
+fn read_series(env: &JNIEnv, p: jlongArray, q: jlongArray, a: jlongArray) -> Option<Series> {
+    Some(Series { p: read_pointers(env, p)?, q: read_pointers(env, q)?, a: read_pointers(env, a)? })
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_BinarySplitting_sumExact(
+        env: JNIEnv, _class: JClass, dest: jlong, p: jlongArray, q: jlongArray, a: jlongArray, terms: jlong) {
+    let dest = unsafe { &mut *(dest as *mut Rational) };
+    let series = match read_series(&env, p, q, a) {
+        Some(s) => s,
+        None => return,
+    };
+    match sum(&series, terms as u64) {
+        Some(fraction) => *dest = Rational::from(fraction),
+        None => { let _ = env.throw(("java/lang/ArithmeticException", "Series has a zero denominator q(k).")); }
+    }
+}
+
+// The exact sum is rounded once, with a single division at the target
+// precision.
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_BinarySplitting_sum(
+        env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong,
+        p: jlongArray, q: jlongArray, a: jlongArray, terms: jlong) {
+    let dest = unsafe { &mut *(dest as *mut Float) };
+    let series = match read_series(&env, p, q, a) {
+        Some(s) => s,
+        None => return,
+    };
+    match sum(&series, terms as u64) {
+        Some((num, den)) => {
+            let num = Float::with_val(num.significant_bits().max(1), &num);
+            *dest = Float::with_val_round(precision as u32, &num / &den, xlat_rounding(rounding_mode)).0;
+        }
+        None => { let _ = env.throw(("java/lang/ArithmeticException", "Series has a zero denominator q(k).")); }
+    }
+}
@@ -3,3 +3,11 @@ pub mod scifloat_elementary;
 pub mod random;
 pub mod scifloat_function;
 pub mod scirational;
+pub mod product_tree;
+pub mod sciball;
+pub mod scicomplex_elementary;
+pub mod scicomplex_vector;
+pub mod scicomplexball;
+pub mod sciintegrate;
+pub mod binary_splitting;
+pub mod radix;
@@ -0,0 +1,284 @@
+/*
+    scijava
+    Copyright (C) 2022 Kamila Szewczyk
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+// This is the interface to the JVM that we'll call the majority of our
+// methods on.
+use jni::JNIEnv;
+
+// These objects are what you should use as arguments to your native
+// function. They carry extra lifetime information to prevent them escaping
+// this context and getting used after being GC'd.
+use jni::objects::JClass;
+
+// This is just a pointer. We'll be returning it from our function. We
+// can't return one of the objects with lifetime information because the
+// lifetime checker won't let us.
+use jni::sys::{jlong, jlongArray};
+
+use std::thread;
+
+use rug::{Integer, Complete};
+
+// Number of worker threads used for the levels of a tree.
+pub fn worker_count() -> usize {
+    thread::available_parallelism().map(|n| n.get()).unwrap_or(1)
+}
+
+// Number of levels of a binary splitting that run their halves on separate
+// threads, enough to occupy every worker.
+pub fn split_depth() -> u32 {
+    usize::BITS - (worker_count() - 1).leading_zeros()
+}
+
+// Total size in bits below which a level of a tree is processed on the
+// calling thread; spawning threads costs more than the arithmetic.
+const PARALLEL_BITS: u64 = 1 << 16;
+
+// The number of threads worth using on a level of a tree holding the given
+// values.
+pub fn level_threads(values: &[Integer], threads: usize) -> usize {
+    let bits: u64 = values.iter().map(|v| v.significant_bits() as u64).sum();
+    if bits < PARALLEL_BITS { 1 } else { threads }
+}
+
+// Evaluate f(0), ..., f(n - 1), splitting the range into contiguous chunks
+// over the given number of threads.
+pub fn par_map<T: Send, F: Fn(usize) -> T + Sync>(n: usize, threads: usize, f: F) -> Vec<T> {
+    if threads <= 1 || n < 2 {
+        return (0..n).map(f).collect();
+    }
+    let chunk = (n + threads - 1) / threads;
+    let f = &f;
+    thread::scope(|s| {
+        let handles: Vec<_> = (0..n).step_by(chunk)
+            .map(|start| s.spawn(move || (start..n.min(start + chunk)).map(f).collect::<Vec<T>>()))
+            .collect();
+        handles.into_iter().flat_map(|h| h.join().unwrap()).collect()
+    })
+}
+
+// a mod m, with the result in [0, m) for a positive m.
+pub fn mod_positive(a: &Integer, m: &Integer) -> Integer {
+    let mut r = (a % m).complete();
+    if r < 0 {
+        r += m;
+    }
+    r
+}
+
+// A subproduct tree over a fixed set of moduli. levels[0] holds the moduli,
+// and node j of level l is the product of nodes 2j and 2j + 1 of level l - 1
+// (or a copy of node 2j if it has no sibling). The last level is the product
+// of all the moduli.
+pub struct ProductTree {
+    pub levels: Vec<Vec<Integer>>,
+    // (M / m_i)^-1 mod m_i, filled in lazily by prepareCrt.
+    inverses: Vec<Integer>,
+}
+
+impl ProductTree {
+    pub fn new(leaves: Vec<Integer>, threads: usize) -> ProductTree {
+        let mut levels = vec![leaves];
+        while levels.last().unwrap().len() > 1 {
+            let below = levels.last().unwrap();
+            let above = par_map((below.len() + 1) / 2, level_threads(below, threads), |j| match below.get(2 * j + 1) {
+                Some(b) => (&below[2 * j] * b).complete(),
+                None => below[2 * j].clone(),
+            });
+            levels.push(above);
+        }
+        ProductTree { levels, inverses: Vec::new() }
+    }
+
+    pub fn product(&self) -> &Integer {
+        &self.levels.last().unwrap()[0]
+    }
+
+    // Reduce n modulo every node of the tree top to bottom and return the
+    // residues modulo the leaves. If squared is set, each node is reduced
+    // modulo the square of its value instead.
+    pub fn remainders(&self, n: &Integer, squared: bool, threads: usize) -> Vec<Integer> {
+        let modulus = |m: &Integer| if squared { m.square_ref().complete() } else { m.clone() };
+        // A non-negative n that is already below the root modulus needs no
+        // reduction; in particular the product itself is never squared.
+        let product = self.product();
+        let reduced = *n >= 0 && if squared {
+            n.significant_bits() as u64 <= 2 * (product.significant_bits() as u64 - 1)
+        } else {
+            n < product
+        };
+        let mut current = vec![if reduced { n.clone() } else { mod_positive(n, &modulus(product)) }];
+        for level in self.levels.iter().rev().skip(1) {
+            let above = &current;
+            current = par_map(level.len(), level_threads(level, threads), |j| mod_positive(&above[j / 2], &modulus(&level[j])));
+        }
+        current
+    }
+
+    // Compute the CRT coefficients. Returns false if the moduli are not
+    // pairwise coprime.
+    fn prepare_crt(&mut self) -> bool {
+        if !self.inverses.is_empty() {
+            return true;
+        }
+        // (M mod m_i^2) / m_i = (M / m_i) mod m_i.
+        let rems = self.remainders(&self.product().clone(), true, worker_count());
+        let mut inverses = Vec::with_capacity(rems.len());
+        for (r, m) in rems.into_iter().zip(self.levels[0].iter()) {
+            if *m == 1 {
+                inverses.push(Integer::new());
+                continue;
+            }
+            let cofactor = r / m;
+            match cofactor.invert(m) {
+                Ok(inv) => inverses.push(inv),
+                Err(_) => return false,
+            }
+        }
+        self.inverses = inverses;
+        true
+    }
+
+    // Combine residues into the unique value modulo the product of the moduli,
+    // merging pairs bottom-up: v = v_l * M_r + v_r * M_l.
+    fn crt(&self, residues: &[&Integer]) -> Integer {
+        let mut values: Vec<Integer> = residues.iter().zip(self.levels[0].iter()).zip(self.inverses.iter())
+            .map(|((r, m), c)| mod_positive(&(*r * c).complete(), m))
+            .collect();
+        for l in 0..self.levels.len() - 1 {
+            let products = &self.levels[l];
+            values = values.chunks(2).enumerate().map(|(j, pair)| match pair {
+                [a, b] => (a * &products[2 * j + 1]).complete() + (b * &products[2 * j]).complete(),
+                [a] => a.clone(),
+                _ => unreachable!(),
+            }).collect();
+        }
+        mod_positive(&values[0], self.product())
+    }
+}
+
+// Copy an array of native pointers passed from Java.
+pub fn read_pointers(env: &JNIEnv, ptrs: jlongArray) -> Option<Vec<jlong>> {
+    let length = env.get_array_length(ptrs).ok()? as usize;
+    let mut buf = vec![0 as jlong; length];
+    env.get_long_array_region(ptrs, 0, &mut buf).ok()?;
+    Some(buf)
+}
+
+pub fn read_integers<'a>(env: &JNIEnv, ptrs: jlongArray) -> Option<Vec<&'a Integer>> {
+    Some(read_pointers(env, ptrs)?.into_iter().map(|p| unsafe { &*(p as *mut Integer) }).collect())
+}
+
+pub fn read_destinations<'a>(env: &JNIEnv, ptrs: jlongArray) -> Option<Vec<&'a mut Integer>> {
+    Some(read_pointers(env, ptrs)?.into_iter().map(|p| unsafe { &mut *(p as *mut Integer) }).collect())
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_ProductTree_free(_env: JNIEnv, _class: JClass, ptr: jlong) {
+    let ptr = ptr as *mut ProductTree;
+    unsafe { ptr.drop_in_place(); }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_ProductTree_build(env: JNIEnv, _class: JClass, moduli: jlongArray) -> jlong {
+    let moduli = match read_integers(&env, moduli) {
+        Some(m) => m,
+        None => return 0,
+    };
+    if moduli.is_empty() {
+        let _ = env.throw(("java/lang/IllegalArgumentException", "Call to build with no moduli"));
+        return 0;
+    }
+    if moduli.iter().any(|m| **m <= 0) {
+        let _ = env.throw(("java/lang/ArithmeticException", "Call to build with non-positive modulus"));
+        return 0;
+    }
+    let tree = ProductTree::new(moduli.into_iter().cloned().collect(), worker_count());
+    Box::into_raw(Box::new(tree)) as jlong
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_ProductTree_product(_env: JNIEnv, _class: JClass, dest: jlong, ptr: jlong) {
+    let tree = unsafe { &*(ptr as *mut ProductTree) };
+    let dest = unsafe { &mut *(dest as *mut Integer) };
+    *dest = tree.product().clone();
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_ProductTree_prepareCrt(env: JNIEnv, _class: JClass, ptr: jlong) {
+    let tree = unsafe { &mut *(ptr as *mut ProductTree) };
+    if !tree.prepare_crt() {
+        let _ = env.throw(("java/lang/ArithmeticException", "Moduli are not pairwise coprime"));
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_ProductTree_crt(env: JNIEnv, _class: JClass, dest: jlong, ptr: jlong, residues: jlongArray) {
+    let tree = unsafe { &*(ptr as *mut ProductTree) };
+    let dest = unsafe { &mut *(dest as *mut Integer) };
+    let residues = match read_integers(&env, residues) {
+        Some(r) => r,
+        None => return,
+    };
+    if residues.len() != tree.levels[0].len() {
+        let _ = env.throw(("java/lang/IllegalArgumentException", "Number of residues does not match the number of moduli"));
+        return;
+    }
+    *dest = tree.crt(&residues);
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_ProductTree_multiMod(env: JNIEnv, _class: JClass, dest: jlongArray, ptr: jlong, n: jlong) {
+    let tree = unsafe { &*(ptr as *mut ProductTree) };
+    let n = unsafe { &*(n as *mut Integer) };
+    let dest = match read_destinations(&env, dest) {
+        Some(d) => d,
+        None => return,
+    };
+    for (d, r) in dest.into_iter().zip(tree.remainders(n, false, worker_count())) {
+        *d = r;
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_BatchGcd_compute(env: JNIEnv, _class: JClass, dest: jlongArray, inputs: jlongArray) {
+    let inputs = match read_integers(&env, inputs) {
+        Some(i) => i,
+        None => return,
+    };
+    let dest = match read_destinations(&env, dest) {
+        Some(d) => d,
+        None => return,
+    };
+    if inputs.is_empty() {
+        return;
+    }
+    if inputs.iter().any(|n| **n <= 0) {
+        let _ = env.throw(("java/lang/ArithmeticException", "Call to compute with non-positive input"));
+        return;
+    }
+    // gcd(N_i, P / N_i) = gcd(N_i, (P mod N_i^2) / N_i) where P is the product of all inputs.
+    let threads = worker_count();
+    let tree = ProductTree::new(inputs.into_iter().cloned().collect(), threads);
+    let rems = tree.remainders(tree.product(), true, threads);
+    let leaves = &tree.levels[0];
+    let gcds = par_map(leaves.len(), level_threads(leaves, threads), |i| (&rems[i] / &leaves[i]).complete().gcd(&leaves[i]));
+    for (d, g) in dest.into_iter().zip(gcds) {
+        *d = g;
+    }
+}
@@ -0,0 +1,392 @@
+/*
+    scijava
+    Copyright (C) 2022 Kamila Szewczyk
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+// Streaming radix conversion of SciInteger, SciRational and SciFloat values.
+//
+// A non-negative n is converted by divide and conquer over the powers
+// P_k = radix^(LEAF_DIGITS * 2^k): with n < P_k, n = q P_{k-1} + r where both
+// q and r are below P_{k-1}, the digits of r are padded to LEAF_DIGITS * 2^(k-1),
+// and the leaves are converted directly. The leaves are produced most
+// significant first, so the digits are handed to a palaiologos.scijava.DigitSink
+// as they are produced instead of being collected into a single string.
+
+// This is the interface to the JVM that we'll call the majority of our
+// methods on.
+use jni::JNIEnv;
+
+// These objects are what you should use as arguments to your native
+// function. They carry extra lifetime information to prevent them escaping
+// this context and getting used after being GC'd.
+use jni::objects::{JByteBuffer, JClass, JMethodID, JObject, JValue};
+
+// This is just a pointer. We'll be returning it from our function. We
+// can't return one of the objects with lifetime information because the
+// lifetime checker won't let us.
+use jni::sys::{jbyte, jbyteArray, jint, jlong, jsize};
+
+use jni::signature::{Primitive, ReturnType};
+
+use rug::{Complete, Float, Integer, Rational};
+
+use crate::scifloat_elementary::xlat_rounding;
+
+// Digits converted directly at the leaves of the conversion.
+const LEAF_DIGITS: usize = 1 << 14;
+
+// Digits handed to the sink in one call.
+const CHUNK_SIZE: usize = 1 << 16;
+
+// Buffers digits and passes them to DigitSink.write(byte[], int) in chunks.
+// The method is resolved once, so a chunk costs a single call and creates no
+// local references. Once the sink has thrown, the exception is left pending
+// and nothing more is written.
+struct DigitWriter<'a> {
+    env: JNIEnv<'a>,
+    sink: JObject<'a>,
+    write_id: JMethodID,
+    array: jbyteArray,
+    buf: Vec<u8>,
+    // Set while a radix point is due after the next digit.
+    point: bool,
+    failed: bool,
+}
+
+impl<'a> DigitWriter<'a> {
+    fn new(env: JNIEnv<'a>, sink: JObject<'a>) -> Option<DigitWriter<'a>> {
+        let class = env.get_object_class(sink).ok()?;
+        let write_id = env.get_method_id(class, "write", "([BI)V");
+        let _ = env.delete_local_ref(class.into());
+        let write_id = write_id.ok()?;
+        let array = env.new_byte_array(CHUNK_SIZE as jsize).ok()?;
+        Some(DigitWriter { env, sink, write_id, array, buf: Vec::with_capacity(CHUNK_SIZE), point: false, failed: false })
+    }
+
+    fn write(&mut self, mut bytes: &[u8]) {
+        if self.point && !bytes.is_empty() {
+            self.point = false;
+            self.write(&bytes[..1]);
+            self.write(b".");
+            bytes = &bytes[1..];
+        }
+        while !bytes.is_empty() && !self.failed {
+            let n = bytes.len().min(CHUNK_SIZE - self.buf.len());
+            self.buf.extend_from_slice(&bytes[..n]);
+            bytes = &bytes[n..];
+            if self.buf.len() == CHUNK_SIZE {
+                self.flush();
+            }
+        }
+    }
+
+    fn flush(&mut self) {
+        if self.failed || self.buf.is_empty() {
+            return;
+        }
+        let bytes = unsafe { std::slice::from_raw_parts(self.buf.as_ptr() as *const jbyte, self.buf.len()) };
+        let result = self.env.set_byte_array_region(self.array, 0, bytes)
+            .and_then(|_| self.env.call_method_unchecked(self.sink, self.write_id,
+                ReturnType::Primitive(Primitive::Void),
+                &[JValue::Object(JObject::from(self.array)).to_jni(), JValue::Int(self.buf.len() as jint).to_jni()]));
+        if result.is_err() || self.env.exception_check().unwrap_or(true) {
+            self.failed = true;
+        }
+        self.buf.clear();
+    }
+}
+
+fn check_radix(env: &JNIEnv, radix: jint) -> bool {
+    if !(2..=36).contains(&radix) {
+        let _ = env.throw(("java/lang/IllegalArgumentException", "Radix must be between 2 and 36."));
+        return false;
+    }
+    true
+}
+
+// Write the digits of n < powers[k], padded with zeros to LEAF_DIGITS * 2^k
+// digits if padded is set.
+fn write_node(w: &mut DigitWriter, n: &Integer, radix: i32, powers: &[Integer], k: usize, padded: bool) {
+    if w.failed {
+        return;
+    }
+    if k == 0 {
+        let s = n.to_string_radix(radix);
+        if padded {
+            w.write(&[b'0'; LEAF_DIGITS][..LEAF_DIGITS - s.len()]);
+        }
+        w.write(s.as_bytes());
+        return;
+    }
+    let (q, r) = n.div_rem_ref(&powers[k - 1]).complete();
+    if padded || q != 0 {
+        write_node(w, &q, radix, powers, k - 1, padded);
+        write_node(w, &r, radix, powers, k - 1, true);
+    } else {
+        write_node(w, &r, radix, powers, k - 1, false);
+    }
+}
+
+// Write the digits of |n|, without a sign.
+fn write_magnitude(w: &mut DigitWriter, n: &Integer, radix: i32) {
+    let n = n.as_abs();
+    let mut powers = vec![Integer::from(Integer::u_pow_u(radix as u32, LEAF_DIGITS as u32))];
+    while *powers.last().unwrap() <= *n {
+        let next = powers.last().unwrap().square_ref().complete();
+        powers.push(next);
+    }
+    write_node(w, &n, radix, &powers, powers.len() - 1, false);
+}
+
+// round(|x| radix^k), with ties away from zero. The product is first formed
+// with enough guard bits that its fractional part decides the rounding,
+// unless it lies too close to a half, in which case it is formed exactly.
+fn scaled_significand(x: &Float, radix: u32, k: i64, digits: usize) -> Integer {
+    let wp = x.prec() + (digits as f64 * (radix as f64).log2()).ceil() as u32 + 64;
+    let abs = x.as_abs();
+    let power = Float::with_val(wp, Float::u_pow_u(radix, k.unsigned_abs() as u32));
+    let t = if k >= 0 {
+        Float::with_val(wp, &*abs * &power)
+    } else {
+        Float::with_val(wp, &*abs / &power)
+    };
+    let floor = Float::with_val(wp, t.floor_ref());
+    let frac = Float::with_val(wp, &t - &floor);
+    let distance = Float::with_val(wp, &frac - 0.5f64).abs();
+    if distance > Float::with_val(64, Float::i_exp(1, -40)) {
+        let mut n = floor.to_integer().unwrap();
+        if frac > 0.5f64 {
+            n += 1;
+        }
+        return n;
+    }
+    let (m, e) = abs.to_integer_exp().unwrap();
+    let mut q = Rational::from(m) << e;
+    let power = Integer::from(Integer::u_pow_u(radix, k.unsigned_abs() as u32));
+    if k >= 0 {
+        q *= power;
+    } else {
+        q /= power;
+    }
+    Integer::from(q.round_ref())
+}
+
+// Write a finite non-zero x as d.ddd...e<exp> (or @<exp> above radix 10),
+// rounded to the given number of significant digits.
+fn write_float(w: &mut DigitWriter, x: &Float, radix: i32, digits: usize) {
+    let r = radix as u32;
+    let lo = Integer::from(Integer::u_pow_u(r, digits as u32 - 1));
+    let hi = Integer::from(&lo * r);
+    // 2^(e - 1) <= |x| < 2^e, so the exponent in the radix is close to (e - 1) log_r 2 + 1.
+    let exp = x.get_exp().unwrap() as f64;
+    let mut e = ((exp - 1.0) / (radix as f64).log2()).floor() as i64 + 1;
+    let n = loop {
+        let n = scaled_significand(x, r, digits as i64 - e, digits);
+        if n >= hi {
+            e += 1;
+        } else if n < lo {
+            e -= 1;
+        } else {
+            break n;
+        }
+    };
+    if x.is_sign_negative() {
+        w.write(b"-");
+    }
+    w.point = digits > 1;
+    write_magnitude(w, &n, radix);
+    let marker = if radix <= 10 { "e" } else { "@" };
+    w.write(format!("{}{}", marker, e - 1).as_bytes());
+}
+
+// Default number of digits for a float: enough to round-trip, as in mpfr_get_str.
+fn round_trip_digits(precision: u32, radix: i32) -> usize {
+    1 + (precision as f64 / (radix as f64).log2()).ceil() as usize
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciInteger_writeDigits(
+        env: JNIEnv, _class: JClass, ptr: jlong, radix: jint, sink: JObject) {
+    let n = unsafe { &*(ptr as *const Integer) };
+    if !check_radix(&env, radix) {
+        return;
+    }
+    let mut w = match DigitWriter::new(env, sink) {
+        Some(w) => w,
+        None => return,
+    };
+    if *n < 0 {
+        w.write(b"-");
+    }
+    write_magnitude(&mut w, n, radix);
+    w.flush();
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciRational_writeDigits(
+        env: JNIEnv, _class: JClass, ptr: jlong, radix: jint, sink: JObject) {
+    let q = unsafe { &*(ptr as *const Rational) };
+    if !check_radix(&env, radix) {
+        return;
+    }
+    let mut w = match DigitWriter::new(env, sink) {
+        Some(w) => w,
+        None => return,
+    };
+    if *q < 0 {
+        w.write(b"-");
+    }
+    write_magnitude(&mut w, q.numer(), radix);
+    if *q.denom() != 1 {
+        w.write(b"/");
+        write_magnitude(&mut w, q.denom(), radix);
+    }
+    w.flush();
+}
+
+// digits == 0 selects the round-trip number of digits.
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciFloat_writeDigits(
+        env: JNIEnv, _class: JClass, ptr: jlong, radix: jint, digits: jint, sink: JObject) {
+    let x = unsafe { &*(ptr as *const Float) };
+    if !check_radix(&env, radix) {
+        return;
+    }
+    let mut w = match DigitWriter::new(env, sink) {
+        Some(w) => w,
+        None => return,
+    };
+    let (sign, special) = (if x.is_sign_negative() { "-" } else { "" }, radix > 10);
+    if x.is_nan() {
+        w.write(if special { "@NaN@" } else { "NaN" }.as_bytes());
+    } else if x.is_infinite() {
+        w.write(format!("{}{}", sign, if special { "@inf@" } else { "inf" }).as_bytes());
+    } else if x.is_zero() {
+        w.write(format!("{}0", sign).as_bytes());
+    } else {
+        let digits = if digits > 0 { digits as usize } else { round_trip_digits(x.prec(), radix) };
+        write_float(&mut w, x, radix, digits);
+    }
+    w.flush();
+}
+
+// Copy length bytes starting at offset out of a Java byte array.
+fn read_bytes(env: &JNIEnv, bytes: jbyteArray, offset: jint, length: jint) -> Option<Vec<u8>> {
+    let mut buf = vec![0 as jbyte; length as usize];
+    env.get_byte_array_region(bytes, offset, &mut buf).ok()?;
+    Some(buf.into_iter().map(|b| b as u8).collect())
+}
+
+// The remaining bytes of a direct ByteBuffer, read in place.
+fn direct_bytes<'a>(env: &JNIEnv, buffer: JObject, position: jint, length: jint) -> Option<&'a [u8]> {
+    let address = env.get_direct_buffer_address(JByteBuffer::from(buffer)).ok()?;
+    Some(unsafe { std::slice::from_raw_parts(address.add(position as usize), length as usize) })
+}
+
+fn parse_integer(env: &JNIEnv, bytes: &[u8], radix: jint) -> jlong {
+    if !check_radix(env, radix) {
+        return 0;
+    }
+    match Integer::parse_radix(bytes, radix) {
+        Ok(n) => Box::into_raw(Box::new(Integer::from(n))) as jlong,
+        Err(_) => {
+            let _ = env.throw(("java/lang/ArithmeticException", "Failed to parse the numeric string."));
+            0
+        }
+    }
+}
+
+fn parse_rational(env: &JNIEnv, bytes: &[u8], radix: jint) -> jlong {
+    if !check_radix(env, radix) {
+        return 0;
+    }
+    match Rational::parse_radix(bytes, radix) {
+        Ok(q) => Box::into_raw(Box::new(Rational::from(q))) as jlong,
+        Err(_) => {
+            let _ = env.throw(("java/lang/ArithmeticException", "Failed to parse the numeric string."));
+            0
+        }
+    }
+}
+
+fn parse_float(env: &JNIEnv, precision: jint, rounding_mode: jint, bytes: &[u8], radix: jint) -> jlong {
+    if !check_radix(env, radix) {
+        return 0;
+    }
+    match Float::parse_radix(bytes, radix) {
+        Ok(x) => Box::into_raw(Box::new(Float::with_val_round(precision as u32, x, xlat_rounding(rounding_mode)).0)) as jlong,
+        Err(_) => {
+            let _ = env.throw(("java/lang/NumberFormatException", "Failed to parse string."));
+            0
+        }
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciInteger_parseBytes(
+        env: JNIEnv, _class: JClass, bytes: jbyteArray, offset: jint, length: jint, radix: jint) -> jlong {
+    match read_bytes(&env, bytes, offset, length) {
+        Some(b) => parse_integer(&env, &b, radix),
+        None => 0,
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciInteger_parseDirect(
+        env: JNIEnv, _class: JClass, buffer: JObject, position: jint, length: jint, radix: jint) -> jlong {
+    match direct_bytes(&env, buffer, position, length) {
+        Some(b) => parse_integer(&env, b, radix),
+        None => 0,
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciRational_parseBytes(
+        env: JNIEnv, _class: JClass, bytes: jbyteArray, offset: jint, length: jint, radix: jint) -> jlong {
+    match read_bytes(&env, bytes, offset, length) {
+        Some(b) => parse_rational(&env, &b, radix),
+        None => 0,
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciRational_parseDirect(
+        env: JNIEnv, _class: JClass, buffer: JObject, position: jint, length: jint, radix: jint) -> jlong {
+    match direct_bytes(&env, buffer, position, length) {
+        Some(b) => parse_rational(&env, b, radix),
+        None => 0,
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciFloat_parseBytes(
+        env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint,
+        bytes: jbyteArray, offset: jint, length: jint, radix: jint) -> jlong {
+    match read_bytes(&env, bytes, offset, length) {
+        Some(b) => parse_float(&env, precision, rounding_mode, &b, radix),
+        None => 0,
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciFloat_parseDirect(
+        env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint,
+        buffer: JObject, position: jint, length: jint, radix: jint) -> jlong {
+    match direct_bytes(&env, buffer, position, length) {
+        Some(b) => parse_float(&env, precision, rounding_mode, b, radix),
+        None => 0,
+    }
+}
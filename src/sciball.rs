@@ -0,0 +1,409 @@
+/*
+    scijava
+    Copyright (C) 2022 Kamila Szewczyk
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+use std::ffi::{CStr, CString};
+use std::mem::MaybeUninit;
+
+// This is the interface to the JVM that we'll call the majority of our
+// methods on.
+use jni::JNIEnv;
+
+// These objects are what you should use as arguments to your native
+// function. They carry extra lifetime information to prevent them escaping
+// this context and getting used after being GC'd.
+use jni::objects::{JClass, JObject, JString};
+
+// This is just a pointer. We'll be returning it from our function. We
+// can't return one of the objects with lifetime information because the
+// lifetime checker won't let us.
+use jni::sys::{jboolean, jint, jlong, jobject, jstring};
+
+use arb_sys::arb::*;
+use arb_sys::arb_hypgeom::*;
+use arb_sys::arf::*;
+use arb_sys::mag::*;
+use flint_sys::deps::{__mpfr_struct, mpfr_rnd_t, mpfr_rnd_t_MPFR_RNDN, mpfr_rnd_t_MPFR_RNDU, slong};
+use flint_sys::flint::flint_free;
+use rug::{Float, Integer};
+
+use crate::scifloat_elementary::xlat_rounding;
+
+// An arb_t: a midpoint together with a radius bounding its error. Every
+// operation on balls widens the radius so that the result is guaranteed to
+// contain the exact value.
+pub struct Ball(pub arb_struct);
+
+impl Ball {
+    pub fn new() -> Ball {
+        let mut x = MaybeUninit::<arb_struct>::uninit();
+        unsafe {
+            arb_init(x.as_mut_ptr());
+            Ball(x.assume_init())
+        }
+    }
+
+    // An exact ball holding the value of f.
+    pub fn from_float(f: &Float) -> Ball {
+        let mut b = Ball::new();
+        unsafe {
+            arf_set_mpfr(&mut b.0.mid, f.as_raw() as *const __mpfr_struct);
+            mag_zero(&mut b.0.rad);
+        }
+        b
+    }
+
+    pub fn as_ptr(&self) -> *const arb_struct {
+        &self.0
+    }
+
+    pub fn as_mut_ptr(&mut self) -> *mut arb_struct {
+        &mut self.0
+    }
+
+    // Round the midpoint to a Float of the given precision.
+    pub fn mid_to_float(&self, precision: u32, rnd: mpfr_rnd_t) -> Float {
+        let mut f = Float::new(precision);
+        unsafe { arf_get_mpfr(f.as_raw_mut() as *mut __mpfr_struct, &self.0.mid, rnd); }
+        f
+    }
+
+    // An upper bound for the radius.
+    pub fn rad_to_float(&self) -> Float {
+        let mut f = Float::new(53);
+        let mut t = MaybeUninit::<arf_struct>::uninit();
+        unsafe {
+            arf_init(t.as_mut_ptr());
+            arf_set_mag(t.as_mut_ptr(), &self.0.rad);
+            arf_get_mpfr(f.as_raw_mut() as *mut __mpfr_struct, t.as_ptr(), mpfr_rnd_t_MPFR_RNDU);
+            arf_clear(t.as_mut_ptr());
+        }
+        f
+    }
+
+    pub fn rel_accuracy_bits(&self) -> i64 {
+        unsafe { arb_rel_accuracy_bits(self.as_ptr()) as i64 }
+    }
+}
+
+impl Drop for Ball {
+    fn drop(&mut self) {
+        unsafe { arb_clear(self.as_mut_ptr()); }
+    }
+}
+
+// One endpoint of y, rounded to the target precision.
+fn endpoint(y: &Ball, precision: u32, rnd: mpfr_rnd_t, upper: bool) -> Float {
+    let mut f = Float::new(precision);
+    let mut t = MaybeUninit::<arf_struct>::uninit();
+    unsafe {
+        arf_init(t.as_mut_ptr());
+        let prec = arb_bits(y.as_ptr()) + 64;
+        if upper {
+            arb_get_ubound_arf(t.as_mut_ptr(), y.as_ptr(), prec);
+        } else {
+            arb_get_lbound_arf(t.as_mut_ptr(), y.as_ptr(), prec);
+        }
+        arf_get_mpfr(f.as_raw_mut() as *mut __mpfr_struct, t.as_ptr(), rnd);
+        arf_clear(t.as_mut_ptr());
+    }
+    f
+}
+
+// Evaluate f(x) with Arb and round it correctly to the given precision. As
+// on the MPFR path, x is first rounded to the target precision in the given
+// rounding mode and the result is rounded to nearest, so both paths return
+// the same value. The working precision is doubled until both endpoints of
+// the enclosure round to the same value, which is then the correctly rounded
+// result. Returns None when Arb cannot produce a usable enclosure (at a pole,
+// on a branch cut, at an exact zero, or within the precision limit), in which
+// case the caller is expected to fall back to MPFR.
+pub fn correctly_rounded<F: Fn(*mut arb_struct, *mut arb_struct, slong)>(
+        x: &Float, precision: u32, rounding_mode: jint, f: F) -> Option<Float> {
+    if !x.is_finite() {
+        return None;
+    }
+    let input = if x.prec() == precision {
+        Ball::from_float(x)
+    } else {
+        let mut rounded = x.clone();
+        rounded.set_prec_round(precision, xlat_rounding(rounding_mode));
+        Ball::from_float(&rounded)
+    };
+    let rnd = mpfr_rnd_t_MPFR_RNDN;
+    let limit = precision.saturating_mul(8).saturating_add(1024);
+    let mut work = precision.saturating_add(32);
+    loop {
+        let mut y = Ball::new();
+        f(y.as_mut_ptr(), input.as_ptr() as *mut arb_struct, work as slong);
+        unsafe {
+            if arb_is_finite(y.as_ptr()) == 0 || (arb_contains_zero(y.as_ptr()) != 0 && arb_is_exact(y.as_ptr()) == 0) {
+                return None;
+            }
+        }
+        let lo = endpoint(&y, precision, rnd, false);
+        let hi = endpoint(&y, precision, rnd, true);
+        if lo == hi {
+            return Some(lo);
+        }
+        if work >= limit {
+            return None;
+        }
+        work = work.saturating_mul(2);
+    }
+}
+
+fn ball<'a>(ptr: jlong) -> &'a Ball {
+    unsafe { &*(ptr as *mut Ball) }
+}
+
+fn ball_mut<'a>(ptr: jlong) -> &'a mut Ball {
+    unsafe { &mut *(ptr as *mut Ball) }
+}
+
+fn new_object(env: &JNIEnv, b: Ball) -> jobject {
+    let ptr = Box::into_raw(Box::new(b)) as jlong;
+    match env.new_object("palaiologos/scijava/SciBall", "(J)V", &[ptr.into()]) {
+        Ok(obj) => obj.into_raw(),
+        Err(_) => {
+            unsafe { (ptr as *mut Ball).drop_in_place(); }
+            let _ = env.throw(("java/lang/RuntimeException", "Failed to allocate object."));
+            JObject::null().into_raw()
+        }
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciBall_free(_env: JNIEnv, _class: JClass, ptr: jlong) {
+    let ptr = ptr as *mut Ball;
+    unsafe { ptr.drop_in_place(); }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciBall_fromLong(env: JNIEnv, _class: JClass, n: jlong) -> jobject {
+    let mut b = Ball::new();
+    unsafe { arb_set_si(b.as_mut_ptr(), n as _); }
+    new_object(&env, b)
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciBall_fromString(env: JNIEnv, _class: JClass, precision: jint, s: JString) -> jobject {
+    let s: String = match env.get_string(s) {
+        Ok(s) => s.into(),
+        Err(_) => {
+            let _ = env.throw(("java/lang/RuntimeException", "Failed to allocate object."));
+            return JObject::null().into_raw();
+        }
+    };
+    let s = match CString::new(s) {
+        Ok(s) => s,
+        Err(_) => {
+            let _ = env.throw(("java/lang/NumberFormatException", "Failed to parse string."));
+            return JObject::null().into_raw();
+        }
+    };
+    let mut b = Ball::new();
+    if unsafe { arb_set_str(b.as_mut_ptr(), s.as_ptr(), precision as _) } != 0 {
+        let _ = env.throw(("java/lang/NumberFormatException", "Failed to parse string."));
+        return JObject::null().into_raw();
+    }
+    new_object(&env, b)
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciBall_fromSciFloat(env: JNIEnv, _class: JClass, f: jlong) -> jobject {
+    let f = unsafe { &*(f as *mut Float) };
+    new_object(&env, Ball::from_float(f))
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciBall_fromSciInteger(env: JNIEnv, _class: JClass, n: jlong) -> jobject {
+    let n = unsafe { &*(n as *mut Integer) };
+    let f = Float::with_val(n.significant_bits().max(1), n);
+    new_object(&env, Ball::from_float(&f))
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciBall_fromMidRad(env: JNIEnv, _class: JClass, mid: jlong, rad: jlong) -> jobject {
+    let mid = unsafe { &*(mid as *mut Float) };
+    let rad = unsafe { &*(rad as *mut Float) };
+    let mut b = Ball::from_float(mid);
+    let r = Ball::from_float(&rad.as_abs());
+    unsafe { arb_add_error_arf(b.as_mut_ptr(), &r.0.mid); }
+    new_object(&env, b)
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciBall_toString(env: JNIEnv, _class: JClass, ptr: jlong, digits: jint) -> jstring {
+    let b = ball(ptr);
+    let digits = if digits > 0 {
+        digits as i64
+    } else {
+        // Print as many digits as are known to be correct, but no more than
+        // the midpoint holds.
+        let bits = b.rel_accuracy_bits().min(unsafe { arb_bits(b.as_ptr()) } as i64).max(1);
+        (bits as f64 * std::f64::consts::LOG10_2).ceil() as i64 + 1
+    };
+    let s = unsafe {
+        let raw = arb_get_str(b.as_ptr(), digits as _, 0);
+        let s = CStr::from_ptr(raw).to_string_lossy().into_owned();
+        flint_free(raw as *mut _);
+        s
+    };
+    env.new_string(s).unwrap().into_raw()
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciBall_midpoint(_env: JNIEnv, _class: JClass, precision: jint, dest: jlong, a: jlong) {
+    let dest = unsafe { &mut *(dest as *mut Float) };
+    *dest = ball(a).mid_to_float(precision as u32, mpfr_rnd_t_MPFR_RNDN);
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciBall_radius(_env: JNIEnv, _class: JClass, dest: jlong, a: jlong) {
+    let dest = unsafe { &mut *(dest as *mut Float) };
+    *dest = ball(a).rad_to_float();
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciBall_relativeAccuracy(_env: JNIEnv, _class: JClass, a: jlong) -> jlong {
+    ball(a).rel_accuracy_bits() as jlong
+}
+
+macro_rules! predicate {
+    ($name:ident, $f:ident) => {
+        #[no_mangle]
+        pub extern "system" fn $name(_env: JNIEnv, _class: JClass, a: jlong) -> jboolean {
+            (unsafe { $f(ball(a).as_ptr()) } != 0) as jboolean
+        }
+    };
+}
+
+macro_rules! relation {
+    ($name:ident, $f:ident) => {
+        #[no_mangle]
+        pub extern "system" fn $name(_env: JNIEnv, _class: JClass, a: jlong, b: jlong) -> jboolean {
+            (unsafe { $f(ball(a).as_ptr(), ball(b).as_ptr()) } != 0) as jboolean
+        }
+    };
+}
+
+predicate!(Java_palaiologos_scijava_SciBall_isExact, arb_is_exact);
+predicate!(Java_palaiologos_scijava_SciBall_isFinite, arb_is_finite);
+predicate!(Java_palaiologos_scijava_SciBall_containsZero, arb_contains_zero);
+relation!(Java_palaiologos_scijava_SciBall_contains, arb_contains);
+relation!(Java_palaiologos_scijava_SciBall_overlaps, arb_overlaps);
+relation!(Java_palaiologos_scijava_SciBall_identical, arb_equal);
+relation!(Java_palaiologos_scijava_SciBall_eq, arb_eq);
+relation!(Java_palaiologos_scijava_SciBall_neq, arb_ne);
+relation!(Java_palaiologos_scijava_SciBall_lt, arb_lt);
+relation!(Java_palaiologos_scijava_SciBall_lte, arb_le);
+relation!(Java_palaiologos_scijava_SciBall_gt, arb_gt);
+relation!(Java_palaiologos_scijava_SciBall_gte, arb_ge);
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciBall_containsSciFloat(_env: JNIEnv, _class: JClass, a: jlong, f: jlong) -> jboolean {
+    let f = unsafe { &*(f as *mut Float) };
+    (unsafe { arb_contains_mpfr(ball(a).as_ptr(), f.as_raw() as *const __mpfr_struct) } != 0) as jboolean
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciBall_pi(_env: JNIEnv, _class: JClass, precision: jint, dest: jlong) {
+    unsafe { arb_const_pi(ball_mut(dest).as_mut_ptr(), precision as _); }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciBall_neg(_env: JNIEnv, _class: JClass, dest: jlong, a: jlong) {
+    unsafe { arb_neg(ball_mut(dest).as_mut_ptr(), ball(a).as_ptr()); }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciBall_abs(_env: JNIEnv, _class: JClass, dest: jlong, a: jlong) {
+    unsafe { arb_abs(ball_mut(dest).as_mut_ptr(), ball(a).as_ptr()); }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciBall_round(_env: JNIEnv, _class: JClass, precision: jint, dest: jlong, a: jlong) {
+    unsafe { arb_set_round(ball_mut(dest).as_mut_ptr(), ball(a).as_ptr(), precision as _); }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciBall_root(_env: JNIEnv, _class: JClass, precision: jint, dest: jlong, a: jlong, k: jint) {
+    unsafe { arb_root_ui(ball_mut(dest).as_mut_ptr(), ball(a).as_ptr(), k as _, precision as _); }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciBall_besselJ(_env: JNIEnv, _class: JClass, precision: jint, dest: jlong, nu: jlong, z: jlong) {
+    unsafe {
+        arb_hypgeom_bessel_j(ball_mut(dest).as_mut_ptr(), ball(nu).as_ptr() as *mut arb_struct, ball(z).as_ptr() as *mut arb_struct, precision as _);
+    }
+}
+
+// The arb_hypgeom functions take their arguments through mutable pointers
+// even though they do not modify them, so both kinds of functions are
+// called through a cast.
+macro_rules! unary {
+    ($name:ident, $f:ident) => {
+        #[no_mangle]
+        pub extern "system" fn $name(_env: JNIEnv, _class: JClass, precision: jint, dest: jlong, a: jlong) {
+            unsafe { $f(ball_mut(dest).as_mut_ptr(), ball(a).as_ptr() as *mut arb_struct, precision as _); }
+        }
+    };
+}
+
+macro_rules! binary {
+    ($name:ident, $f:ident) => {
+        #[no_mangle]
+        pub extern "system" fn $name(_env: JNIEnv, _class: JClass, precision: jint, dest: jlong, a: jlong, b: jlong) {
+            unsafe { $f(ball_mut(dest).as_mut_ptr(), ball(a).as_ptr(), ball(b).as_ptr(), precision as _); }
+        }
+    };
+}
+
+binary!(Java_palaiologos_scijava_SciBall_add, arb_add);
+binary!(Java_palaiologos_scijava_SciBall_sub, arb_sub);
+binary!(Java_palaiologos_scijava_SciBall_mul, arb_mul);
+binary!(Java_palaiologos_scijava_SciBall_div, arb_div);
+binary!(Java_palaiologos_scijava_SciBall_pow, arb_pow);
+binary!(Java_palaiologos_scijava_SciBall_atan2, arb_atan2);
+
+unary!(Java_palaiologos_scijava_SciBall_sqr, arb_sqr);
+unary!(Java_palaiologos_scijava_SciBall_inv, arb_inv);
+unary!(Java_palaiologos_scijava_SciBall_sqrt, arb_sqrt);
+unary!(Java_palaiologos_scijava_SciBall_rsqrt, arb_rsqrt);
+unary!(Java_palaiologos_scijava_SciBall_exp, arb_exp);
+unary!(Java_palaiologos_scijava_SciBall_expm1, arb_expm1);
+unary!(Java_palaiologos_scijava_SciBall_log, arb_log);
+unary!(Java_palaiologos_scijava_SciBall_log1p, arb_log1p);
+unary!(Java_palaiologos_scijava_SciBall_sin, arb_sin);
+unary!(Java_palaiologos_scijava_SciBall_cos, arb_cos);
+unary!(Java_palaiologos_scijava_SciBall_tan, arb_tan);
+unary!(Java_palaiologos_scijava_SciBall_asin, arb_asin);
+unary!(Java_palaiologos_scijava_SciBall_acos, arb_acos);
+unary!(Java_palaiologos_scijava_SciBall_atan, arb_atan);
+unary!(Java_palaiologos_scijava_SciBall_sinh, arb_sinh);
+unary!(Java_palaiologos_scijava_SciBall_cosh, arb_cosh);
+unary!(Java_palaiologos_scijava_SciBall_tanh, arb_tanh);
+unary!(Java_palaiologos_scijava_SciBall_gamma, arb_gamma);
+unary!(Java_palaiologos_scijava_SciBall_rgamma, arb_rgamma);
+unary!(Java_palaiologos_scijava_SciBall_lgamma, arb_lgamma);
+unary!(Java_palaiologos_scijava_SciBall_digamma, arb_digamma);
+unary!(Java_palaiologos_scijava_SciBall_zeta, arb_zeta);
+unary!(Java_palaiologos_scijava_SciBall_erf, arb_hypgeom_erf);
+unary!(Java_palaiologos_scijava_SciBall_erfc, arb_hypgeom_erfc);
+unary!(Java_palaiologos_scijava_SciBall_ei, arb_hypgeom_ei);
+unary!(Java_palaiologos_scijava_SciBall_li2, arb_hypgeom_dilog);
@@ -16,8 +16,7 @@
     along with this program.  If not, see <http://www.gnu.org/licenses/>.
 */
 
-use std::hint::unreachable_unchecked;
-use std::ops::DivAssign;
+use std::cmp::Ordering;
 
 // This is the interface to the JVM that we'll call the majority of our
 // methods on.
@@ -26,37 +25,89 @@ use jni::JNIEnv;
 // These objects are what you should use as arguments to your native
 // function. They carry extra lifetime information to prevent them escaping
 // this context and getting used after being GC'd.
-use jni::objects::{JClass, JString, JObject, JValue};
+use jni::objects::{JClass, JString, JObject};
 
 // This is just a pointer. We'll be returning it from our function. We
 // can't return one of the objects with lifetime information because the
 // lifetime checker won't let us.
 use jni::sys::{jstring, jlong, jint, jobject, jboolean};
-use rug::rand::RandState;
 use rug::{Float, Complex, Integer, Rational};
-use rug::float::{Round, FreeCache, Constant};
-use rug::ops::{NegAssign, PowAssign};
-
-pub fn xlat_rounding(mode: jint) -> Round {
-    match mode {
-        0 => Round::Up,
-        1 => Round::Down,
-        2 => Round::Nearest,
-        3 => Round::Zero,
-        _ => unsafe { unreachable_unchecked() } // lol
+use rug::float::{FreeCache, Constant};
+use rug::ops::{AssignRound, NegAssign, PowAssign};
+
+use crate::scifloat_elementary::{xlat_rounding, float_hash};
+
+// Extra bits carried by the functions that are composed out of several
+// MPC operations, so that the final rounding dominates the error.
+pub const GUARD_BITS: u32 = 32;
+
+// A copy of a, rounded to the requested precision in both parts.
+pub fn rounded(a: &Complex, precision: jint, rounding_mode: jint) -> Complex {
+    let mut z = a.clone();
+    if a.prec() != (precision as u32, precision as u32) {
+        let round = xlat_rounding(rounding_mode);
+        z.set_prec_round(precision as u32, (round, round));
     }
+    z
 }
 
-#[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciComplex_free(_env: JNIEnv, _class: JClass, ptr: jlong) {
-    let ptr = ptr as *mut Complex;
-    unsafe { ptr.drop_in_place(); }
+fn finish(dest: &mut Complex, mut z: Complex, precision: jint, rounding_mode: jint) {
+    let round = xlat_rounding(rounding_mode);
+    z.set_prec_round(precision as u32, (round, round));
+    *dest = z;
 }
 
-#[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciComplex_fromInteger(
-        env: JNIEnv, _class: JClass, precision: jint, _rounding_mode: jint, n: jint) -> jobject {
-    let n = Complex::with_val(precision as u32, n);
+fn norm(z: &Complex) -> Float {
+    let prec = z.prec().0.max(z.prec().1);
+    Float::with_val(prec, z.real() * z.real()) + Float::with_val(prec, z.imag() * z.imag())
+}
+
+fn is_zero(z: &Complex) -> bool {
+    z.real().is_zero() && z.imag().is_zero()
+}
+
+// Multiply both parts by a real number.
+fn scale(z: &mut Complex, f: &Float) {
+    let (re, im) = z.as_mut_real_imag();
+    *re *= f;
+    *im *= f;
+}
+
+// The arithmetic-geometric mean with the optimal choice of the square root
+// at every step, that is, the one closer to the arithmetic mean.
+fn agm(a: &Complex, b: &Complex, prec: u32) -> Complex {
+    let mut a = Complex::with_val(prec, a);
+    let mut b = Complex::with_val(prec, b);
+    let limit = 64 + 2 * (32 - prec.leading_zeros());
+    for _ in 0..limit {
+        let diff = Complex::with_val(prec, &a - &b);
+        if is_zero(&diff) {
+            break;
+        }
+        let mut m = Complex::with_val(prec, &a + &b);
+        let (re, im) = m.as_mut_real_imag();
+        *re /= 2;
+        *im /= 2;
+        // Converged once |a - b|^2 is negligible against |a + b|^2.
+        match (norm(&diff).get_exp(), norm(&m).get_exp()) {
+            (Some(d), Some(s)) if d < s - 2 * prec as i32 => {
+                a = m;
+                break;
+            }
+            _ => {}
+        }
+        let mut g = Complex::with_val(prec, &a * &b);
+        g.sqrt_mut();
+        if norm(&Complex::with_val(prec, &m - &g)) > norm(&Complex::with_val(prec, &m + &g)) {
+            g.neg_assign();
+        }
+        a = m;
+        b = g;
+    }
+    a
+}
+
+fn new_object(env: &JNIEnv, n: Complex) -> jobject {
     let ptr = Box::into_raw(Box::new(n));
     let ptr = ptr as jlong;
     let obj = env.new_object("palaiologos/scijava/SciComplex", "(J)V", &[ptr.into()]);
@@ -69,55 +120,48 @@ pub extern "system" fn Java_palaiologos_scijava_SciComplex_fromInteger(
     }
 }
 
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_free(_env: JNIEnv, _class: JClass, ptr: jlong) {
+    let ptr = ptr as *mut Complex;
+    unsafe { ptr.drop_in_place(); }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_fromInteger(
+        env: JNIEnv, _class: JClass, precision: jint, _rounding_mode: jint, n: jint) -> jobject {
+    new_object(&env, Complex::with_val(precision as u32, n))
+}
+
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciComplex_fromSciInteger(
         env: JNIEnv, _class: JClass, precision: jint, _rounding_mode: jint, n: jlong) -> jobject {
     let n: &Integer = unsafe { &*(n as *const Integer) };
-    let n = Complex::with_val(precision as u32, n);
-    let ptr = Box::into_raw(Box::new(n));
-    let ptr = ptr as jlong;
-    let obj = env.new_object("palaiologos/scijava/SciComplex", "(J)V", &[ptr.into()]);
-    match obj {
-        Ok(obj) => obj.into_raw(),
-        Err(_) => {
-            let _ = env.throw(("java/lang/RuntimeException", "Failed to allocate object."));
-            JObject::null().into_raw()
-        }
-    }
+    new_object(&env, Complex::with_val(precision as u32, n))
 }
 
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciComplex_fromSciRational(
         env: JNIEnv, _class: JClass, precision: jint, _rounding_mode: jint, n: jlong) -> jobject {
     let n: &Rational = unsafe { &*(n as *const Rational) };
-    let n = Complex::with_val(precision as u32, n);
-    let ptr = Box::into_raw(Box::new(n));
-    let ptr = ptr as jlong;
-    let obj = env.new_object("palaiologos/scijava/SciComplex", "(J)V", &[ptr.into()]);
-    match obj {
-        Ok(obj) => obj.into_raw(),
-        Err(_) => {
-            let _ = env.throw(("java/lang/RuntimeException", "Failed to allocate object."));
-            JObject::null().into_raw()
-        }
-    }
+    new_object(&env, Complex::with_val(precision as u32, n))
 }
 
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciComplex_fromSciFloat(
         env: JNIEnv, _class: JClass, precision: jint, _rounding_mode: jint, n: jlong) -> jobject {
     let n: &Float = unsafe { &*(n as *const Float) };
-    let n = Complex::with_val(precision as u32, n);
-    let ptr = Box::into_raw(Box::new(n));
-    let ptr = ptr as jlong;
-    let obj = env.new_object("palaiologos/scijava/SciComplex", "(J)V", &[ptr.into()]);
-    match obj {
-        Ok(obj) => obj.into_raw(),
-        Err(_) => {
-            let _ = env.throw(("java/lang/RuntimeException", "Failed to allocate object."));
-            JObject::null().into_raw()
-        }
-    }
+    new_object(&env, Complex::with_val(precision as u32, n))
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_fromParts(
+        env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, re: jlong, im: jlong) -> jobject {
+    let re: &Float = unsafe { &*(re as *const Float) };
+    let im: &Float = unsafe { &*(im as *const Float) };
+    let round = xlat_rounding(rounding_mode);
+    let mut n = Complex::new(precision as u32);
+    n.assign_round((re, im), (round, round));
+    new_object(&env, n)
 }
 
 #[no_mangle]
@@ -149,562 +193,459 @@ pub extern "system" fn Java_palaiologos_scijava_SciComplex_fromString(
             return JObject::null().into_raw();
         }
     };
-    let ptr = Box::into_raw(Box::new(n));
-    let ptr = ptr as jlong;
-    let obj = env.new_object("palaiologos/scijava/SciComplex", "(J)V", &[ptr.into()]);
-    match obj {
-        Ok(obj) => obj.into_raw(),
-        Err(_) => {
-            let _ = env.throw(("java/lang/RuntimeException", "Failed to allocate object."));
-            JObject::null().into_raw()
-        }
-    }
+    new_object(&env, n)
 }
 
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciComplex_agm(
         _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong, b: jlong) {
-    let dest = dest as *mut Complex;
-    let a = a as *mut Complex;
-    let b = b as *mut Complex;
-    let a = unsafe { &*a };
-    let b = unsafe { &*b };
-    let dest = unsafe { &mut *dest };
-    if a.prec() == precision as u32 {
-        *dest = a.clone();
-        dest.agm_mut(b);
-    } else {
-        *dest = a.clone();
-        dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
-        dest.agm_mut(b);
-    }
+    let a = unsafe { &*(a as *const Complex) };
+    let b = unsafe { &*(b as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    finish(dest, agm(a, b, precision as u32 + GUARD_BITS), precision, rounding_mode);
 }
 
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciComplex_add(
         _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong, b: jlong) {
-    let dest = dest as *mut Complex;
-    let a = a as *mut Complex;
-    let b = b as *mut Complex;
-    let a = unsafe { &*a };
-    let b = unsafe { &*b };
-    let dest = unsafe { &mut *dest };
-    if a.prec() == precision as u32 {
-        *dest = a.clone();
-        *dest += b;
-    } else {
-        *dest = a.clone();
-        dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
-        *dest += b;
-    }
+    let a = unsafe { &*(a as *const Complex) };
+    let b = unsafe { &*(b as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    *dest = rounded(a, precision, rounding_mode);
+    *dest += b;
 }
 
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciComplex_sub(
         _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong, b: jlong) {
-    let dest = dest as *mut Complex;
-    let a = a as *mut Complex;
-    let b = b as *mut Complex;
-    let a = unsafe { &*a };
-    let b = unsafe { &*b };
-    let dest = unsafe { &mut *dest };
-    if a.prec() == precision as u32 {
-        *dest = a.clone();
-        *dest -= b;
-    } else {
-        *dest = a.clone();
-        dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
-        *dest -= b;
-    }
+    let a = unsafe { &*(a as *const Complex) };
+    let b = unsafe { &*(b as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    *dest = rounded(a, precision, rounding_mode);
+    *dest -= b;
 }
 
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciComplex_mul(
         _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong, b: jlong) {
-    let dest = dest as *mut Complex;
-    let a = a as *mut Complex;
-    let b = b as *mut Complex;
-    let a = unsafe { &*a };
-    let b = unsafe { &*b };
-    let dest = unsafe { &mut *dest };
-    if a.prec() == precision as u32 {
-        *dest = a.clone();
-        *dest *= b;
-    } else {
-        *dest = a.clone();
-        dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
-        *dest *= b;
-    }
+    let a = unsafe { &*(a as *const Complex) };
+    let b = unsafe { &*(b as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    *dest = rounded(a, precision, rounding_mode);
+    *dest *= b;
 }
 
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciComplex_div(
         _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong, b: jlong) {
-    let dest = dest as *mut Complex;
-    let a = a as *mut Complex;
-    let b = b as *mut Complex;
-    let a = unsafe { &*a };
-    let b = unsafe { &*b };
-    let dest = unsafe { &mut *dest };
-    if a.prec() == precision as u32 {
-        *dest = a.clone();
-        *dest /= b;
-    } else {
-        *dest = a.clone();
-        dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
-        *dest /= b;
-    }
+    let a = unsafe { &*(a as *const Complex) };
+    let b = unsafe { &*(b as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    *dest = rounded(a, precision, rounding_mode);
+    *dest /= b;
 }
 
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciComplex_mod(
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_pow(
         _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong, b: jlong) {
-    let dest = dest as *mut Complex;
-    let a = a as *mut Complex;
-    let b = b as *mut Complex;
-    let a = unsafe { &*a };
-    let b = unsafe { &*b };
-    let dest = unsafe { &mut *dest };
-    if a.prec() == precision as u32 {
-        *dest = a.clone();
-        *dest %= b;
-    } else {
-        *dest = a.clone();
-        dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
-        *dest %= b;
-    }
+    let a = unsafe { &*(a as *const Complex) };
+    let b = unsafe { &*(b as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    *dest = rounded(a, precision, rounding_mode);
+    dest.pow_assign(b);
 }
 
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciComplex_sqrt(
         _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong) {
-    let dest = dest as *mut Complex;
-    let a = a as *mut Complex;
-    let a = unsafe { &*a };
-    let dest = unsafe { &mut *dest };
-    if a.prec() == precision as u32 {
-        *dest = a.clone();
-        dest.sqrt_mut();
-    } else {
-        *dest = a.clone();
-        dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
-        dest.sqrt_mut();
-    }
+    let a = unsafe { &*(a as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    *dest = rounded(a, precision, rounding_mode);
+    dest.sqrt_mut();
 }
 
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciComplex_norm(
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_exp(
         _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong) {
-    let dest = dest as *mut Complex;
-    let a = a as *mut Complex;
-    let a = unsafe { &*a };
-    let dest = unsafe { &mut *dest };
-    if a.prec() == precision as u32 {
-        *dest = a.clone();
-        dest.norm_mut();
-    } else {
-        *dest = a.clone();
-        dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
-        dest.norm_mut();
-    }
+    let a = unsafe { &*(a as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    *dest = rounded(a, precision, rounding_mode);
+    dest.exp_mut();
 }
 
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciComplex_cbrt(
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_ln(
         _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong) {
-    let dest = dest as *mut Complex;
-    let a = a as *mut Complex;
-    let a = unsafe { &*a };
-    let dest = unsafe { &mut *dest };
-    if a.prec() == precision as u32 {
-        *dest = a.clone();
-        dest.cbrt_mut();
-    } else {
-        *dest = a.clone();
-        dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
-        dest.cbrt_mut();
-    }
+    let a = unsafe { &*(a as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    *dest = rounded(a, precision, rounding_mode);
+    dest.ln_mut();
 }
 
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciComplex_imag(
-        env: JNIEnv, _class: JClass, precision: jint, _rounding_mode: jint, a: jlong) -> jobject {
-    let a = a as *mut Complex;
-    let a = unsafe { &*a };
-    let ptr = Box::into_raw(Box::new(a.imag().clone()));
-    let ptr = ptr as jlong;
-    let obj = env.new_object("palaiologos/scijava/SciFloat", "(J)V", &[ptr.into()]);
-    match obj {
-        Ok(obj) => obj.into_raw(),
-        Err(_) => {
-            let _ = env.throw(("java/lang/RuntimeException", "Failed to allocate object."));
-            JObject::null().into_raw()
-        }
-    }
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_log10(
+        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong) {
+    let a = unsafe { &*(a as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    *dest = rounded(a, precision, rounding_mode);
+    dest.log10_mut();
 }
 
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciComplex_real(
-        env: JNIEnv, _class: JClass, precision: jint, _rounding_mode: jint, a: jlong) -> jobject {
-    let a = a as *mut Complex;
-    let a = unsafe { &*a };
-    let ptr = Box::into_raw(Box::new(a.real().clone()));
-    let ptr = ptr as jlong;
-    let obj = env.new_object("palaiologos/scijava/SciFloat", "(J)V", &[ptr.into()]);
-    match obj {
-        Ok(obj) => obj.into_raw(),
-        Err(_) => {
-            let _ = env.throw(("java/lang/RuntimeException", "Failed to allocate object."));
-            JObject::null().into_raw()
-        }
-    }
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_sin(
+        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong) {
+    let a = unsafe { &*(a as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    *dest = rounded(a, precision, rounding_mode);
+    dest.sin_mut();
 }
 
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciComplex_neg(
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_cos(
         _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong) {
-    let dest = dest as *mut Complex;
-    let a = a as *mut Complex;
-    let a = unsafe { &*a };
-    let dest = unsafe { &mut *dest };
-    if a.prec() == precision as u32 {
-        *dest = a.clone();
-        dest.neg_assign();
-    } else {
-        *dest = a.clone();
-        dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
-        dest.neg_assign();
-    }
+    let a = unsafe { &*(a as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    *dest = rounded(a, precision, rounding_mode);
+    dest.cos_mut();
 }
 
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciComplex_abs(
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_tan(
         _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong) {
-    let dest = dest as *mut Complex;
-    let a = a as *mut Complex;
-    let a = unsafe { &*a };
-    let dest = unsafe { &mut *dest };
-    if a.prec() == precision as u32 {
-        *dest = a.clone();
-        dest.abs_mut();
-    } else {
-        *dest = a.clone();
-        dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
-        dest.abs_mut();
-    }
+    let a = unsafe { &*(a as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    *dest = rounded(a, precision, rounding_mode);
+    dest.tan_mut();
 }
 
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciComplex_arg(
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_sinh(
         _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong) {
-    let dest = dest as *mut Complex;
-    let a = a as *mut Complex;
-    let a = unsafe { &*a };
-    let dest = unsafe { &mut *dest };
-    if a.prec() == precision as u32 {
-        *dest = a.clone();
-        dest.arg_mut();
-    } else {
-        *dest = a.clone();
-        dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
-        dest.arg_mut();
-    }
+    let a = unsafe { &*(a as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    *dest = rounded(a, precision, rounding_mode);
+    dest.sinh_mut();
 }
 
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciComplex_conj(
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_cosh(
         _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong) {
-    let dest = dest as *mut Complex;
-    let a = a as *mut Complex;
-    let a = unsafe { &*a };
-    let dest = unsafe { &mut *dest };
-    if a.prec() == precision as u32 {
-        *dest = a.clone();
-        dest.conj_mut();
-    } else {
-        *dest = a.clone();
-        dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
-        dest.conj_mut();
-    }
+    let a = unsafe { &*(a as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    *dest = rounded(a, precision, rounding_mode);
+    dest.cosh_mut();
 }
 
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciComplex_factorial(
-        env: JNIEnv, _class: JClass, precision: jint, _rounding_mode: jint, dest: jlong, a: jint) {
-    let dest = dest as *mut Complex;
-    let dest = unsafe { &mut *dest };
-    if a < 0 {
-        let _ = env.throw(("java/lang/IllegalArgumentException", "Factorial of negative number"));
-        return;
-    }
-    *dest = Complex::with_val(precision as u32, Complex::factorial(a as u32));
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_tanh(
+        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong) {
+    let a = unsafe { &*(a as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    *dest = rounded(a, precision, rounding_mode);
+    dest.tanh_mut();
 }
 
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciComplex_eq(_env: JNIEnv, _class: JClass, a: jlong, b: jlong) -> jboolean {
-    let a = a as *mut Complex;
-    let b = b as *mut Complex;
-    let a = unsafe { &*a };
-    let b = unsafe { &*b };
-    (a == b) as jboolean
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_asin(
+        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong) {
+    let a = unsafe { &*(a as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    *dest = rounded(a, precision, rounding_mode);
+    dest.asin_mut();
 }
 
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciComplex_neq(_env: JNIEnv, _class: JClass, a: jlong, b: jlong) -> jboolean {
-    let a = a as *mut Complex;
-    let b = b as *mut Complex;
-    let a = unsafe { &*a };
-    let b = unsafe { &*b };
-    (a != b) as jboolean
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_acos(
+        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong) {
+    let a = unsafe { &*(a as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    *dest = rounded(a, precision, rounding_mode);
+    dest.acos_mut();
 }
 
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciComplex_compare(_env: JNIEnv, _class: JClass, a: jlong, b: jlong) -> jint {
-    let a = a as *mut Complex;
-    let b = b as *mut Complex;
-    let a = unsafe { &*a };
-    let b = unsafe { &*b };
-    a.total_cmp(b) as jint
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_atan(
+        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong) {
+    let a = unsafe { &*(a as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    *dest = rounded(a, precision, rounding_mode);
+    dest.atan_mut();
 }
 
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciComplex_isFinite(
-        _env: JNIEnv, _class: JClass, ptr: jlong) -> jboolean {
-    let ptr = ptr as *mut Complex;
-    let n = unsafe { &*ptr };
-    n.is_finite() as jboolean
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_asinh(
+        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong) {
+    let a = unsafe { &*(a as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    *dest = rounded(a, precision, rounding_mode);
+    dest.asinh_mut();
 }
 
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciComplex_copy(_env: JNIEnv, _class: JClass, dest: jlong, a: jlong) {
-    let dest = dest as *mut Complex;
-    let a = a as *mut Complex;
-    let a = unsafe { &*a };
-    let dest = unsafe { &mut *dest };
-    *dest = a.clone();
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_acosh(
+        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong) {
+    let a = unsafe { &*(a as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    *dest = rounded(a, precision, rounding_mode);
+    dest.acosh_mut();
 }
 
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciComplex_getMathContext(
-        env: JNIEnv, _class: JClass, ptr: jlong) -> jobject {
-    let ptr = ptr as *mut Complex;
-    let n = unsafe { &*ptr };
-    let precision = n.prec() as jint;
-    let mc = env.new_object("palaiologos/scijava/MathContext", "(II)V", &[JValue::Int(precision), JValue::Int(0)]);
-    match mc {
-        Ok(mc) => mc.into_raw(),
-        Err(e) => {
-            let _ = env.throw_new("java/lang/RuntimeException", format!("Error creating MathContext: {}", e));
-            JObject::null().into_raw()
-        }
-    }
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_atanh(
+        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong) {
+    let a = unsafe { &*(a as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    *dest = rounded(a, precision, rounding_mode);
+    dest.atanh_mut();
 }
 
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciComplex_exp(
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_conj(
         _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong) {
-    let dest = dest as *mut Complex;
-    let a = a as *mut Complex;
-    let a = unsafe { &*a };
-    let dest = unsafe { &mut *dest };
-    if a.prec() == precision as u32 {
-        *dest = a.clone();
-        dest.exp_mut();
-    } else {
-        *dest = a.clone();
-        dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
-        dest.exp_mut();
-    }
+    let a = unsafe { &*(a as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    *dest = rounded(a, precision, rounding_mode);
+    dest.conj_mut();
 }
 
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciComplex_exp2(
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_proj(
         _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong) {
-    let dest = dest as *mut Complex;
-    let a = a as *mut Complex;
-    let a = unsafe { &*a };
-    let dest = unsafe { &mut *dest };
-    if a.prec() == precision as u32 {
-        *dest = a.clone();
-        dest.exp2_mut();
-    } else {
-        *dest = a.clone();
-        dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
-        dest.exp2_mut();
-    }
+    let a = unsafe { &*(a as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    *dest = rounded(a, precision, rounding_mode);
+    dest.proj_mut();
 }
 
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciComplex_exp10(
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_recip(
         _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong) {
-    let dest = dest as *mut Complex;
-    let a = a as *mut Complex;
-    let a = unsafe { &*a };
-    let dest = unsafe { &mut *dest };
-    if a.prec() == precision as u32 {
-        *dest = a.clone();
-        dest.exp10_mut();
-    } else {
-        *dest = a.clone();
-        dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
-        dest.exp10_mut();
-    }
+    let a = unsafe { &*(a as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    *dest = rounded(a, precision, rounding_mode);
+    dest.recip_mut();
 }
 
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciComplex_ln(
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_neg(
         _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong) {
-    let dest = dest as *mut Complex;
-    let a = a as *mut Complex;
-    let a = unsafe { &*a };
-    let dest = unsafe { &mut *dest };
-    if a.prec() == precision as u32 {
-        *dest = a.clone();
-        dest.ln_mut();
-    } else {
-        *dest = a.clone();
-        dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
-        dest.ln_mut();
-    }
+    let a = unsafe { &*(a as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    *dest = rounded(a, precision, rounding_mode);
+    dest.neg_assign();
 }
 
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciComplex_hypot(
-        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong, b: jlong) {
-    let dest = dest as *mut Complex;
-    let a = a as *mut Complex;
-    let b = b as *mut Complex;
-    let a = unsafe { &*a };
-    let b = unsafe { &*b };
-    let dest = unsafe { &mut *dest };
-    if a.prec() == precision as u32 {
-        *dest = a.clone();
-        dest.hypot_mut(b);
-    } else {
-        *dest = a.clone();
-        dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
-        dest.hypot_mut(b);
-    }
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_mulI(
+        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong, negative: jboolean) {
+    let a = unsafe { &*(a as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    *dest = rounded(a, precision, rounding_mode);
+    dest.mul_i_mut(negative != 0);
 }
 
+// exp2, exp10 and log2 are not provided by MPC, so they are computed from
+// exp and ln with a few guard bits.
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciComplex_log2(
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_exp2(
         _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong) {
-    let dest = dest as *mut Complex;
-    let a = a as *mut Complex;
-    let a = unsafe { &*a };
-    let dest = unsafe { &mut *dest };
-    if a.prec() == precision as u32 {
-        *dest = a.clone();
-        dest.log2_mut();
-    } else {
-        *dest = a.clone();
-        dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
-        dest.log2_mut();
-    }
+    let a = unsafe { &*(a as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    let work = precision as u32 + GUARD_BITS;
+    let mut z = Complex::with_val(work, a);
+    scale(&mut z, &Float::with_val(work, Constant::Log2));
+    z.exp_mut();
+    finish(dest, z, precision, rounding_mode);
 }
 
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciComplex_log10(
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_exp10(
         _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong) {
-    let dest = dest as *mut Complex;
-    let a = a as *mut Complex;
-    let a = unsafe { &*a };
-    let dest = unsafe { &mut *dest };
-    if a.prec() == precision as u32 {
-        *dest = a.clone();
-        dest.log10_mut();
-    } else {
-        *dest = a.clone();
-        dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
-        dest.log10_mut();
-    }
-}
-
-#[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciComplex_isInf(
-        _env: JNIEnv, _class: JClass, a: jlong) -> jboolean {
-    let a = a as *mut Complex;
-    let a = unsafe { &*a };
-    a.is_infinite() as jboolean
+    let a = unsafe { &*(a as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    let work = precision as u32 + GUARD_BITS;
+    let mut z = Complex::with_val(work, a);
+    scale(&mut z, &Float::with_val(work, 10).ln());
+    z.exp_mut();
+    finish(dest, z, precision, rounding_mode);
 }
 
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciComplex_isNaN(
-        _env: JNIEnv, _class: JClass, a: jlong) -> jboolean {
-    let a = a as *mut Complex;
-    let a = unsafe { &*a };
-    a.is_nan() as jboolean
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_log2(
+        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong) {
+    let a = unsafe { &*(a as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    let work = precision as u32 + GUARD_BITS;
+    let mut z = Complex::with_val(work, a);
+    z.ln_mut();
+    scale(&mut z, &Float::with_val(work, Constant::Log2).recip());
+    finish(dest, z, precision, rounding_mode);
 }
 
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciComplex_drop_caches(
-        _env: JNIEnv, _class: JClass) {
-    rug::complex::free_cache(FreeCache::All)
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_log(
+        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong, k: jlong) {
+    let a = unsafe { &*(a as *const Complex) };
+    let k = unsafe { &*(k as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    let work = precision as u32 + GUARD_BITS;
+    let mut z = Complex::with_val(work, a);
+    z.ln_mut();
+    let mut lnk = Complex::with_val(work, k);
+    lnk.ln_mut();
+    z /= &lnk;
+    finish(dest, z, precision, rounding_mode);
 }
 
+// The principal n-th root, exp(ln(a) / n).
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciComplex_root(
-        env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong, n: jint)  {
+        env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong, n: jint) {
     let a = unsafe { &*(a as *const Complex) };
     let dest = unsafe { &mut *(dest as *mut Complex) };
     if n <= 0 {
         let _ = env.throw(("java/lang/IllegalArgumentException", "n must be positive"));
         return;
     }
-    if a.prec() == precision as u32 {
-        *dest = a.clone();
-        dest.root_mut(n as u32);
-    } else {
-        *dest = a.clone();
-        dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
-        dest.root_mut(n as u32);
+    if is_zero(a) {
+        *dest = Complex::new(precision as u32);
+        return;
     }
+    let work = precision as u32 + GUARD_BITS;
+    let mut z = Complex::with_val(work, a);
+    z.ln_mut();
+    let (re, im) = z.as_mut_real_imag();
+    *re /= n;
+    *im /= n;
+    z.exp_mut();
+    finish(dest, z, precision, rounding_mode);
 }
 
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciComplex_log(
-        env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong, k: jlong)  {
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_hypot(
+        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong, b: jlong) {
     let a = unsafe { &*(a as *const Complex) };
+    let b = unsafe { &*(b as *const Complex) };
     let dest = unsafe { &mut *(dest as *mut Complex) };
-    let k = unsafe { &*(k as *const Complex) };
-    if a.prec() == precision as u32 {
-        *dest = a.clone();
-    } else {
-        *dest = a.clone();
-        dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
-    }
-    dest.ln_mut();
-    let lnk = k.clone().ln();
-    dest.div_assign(&lnk);
+    let work = precision as u32 + GUARD_BITS;
+    let mut z = Complex::with_val(work, a * a);
+    z += Complex::with_val(work, b * b);
+    z.sqrt_mut();
+    finish(dest, z, precision, rounding_mode);
 }
 
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciComplex_recip(
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_norm(
         _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong) {
-    let dest = dest as *mut Complex;
-    let a = a as *mut Complex;
-    let a = unsafe { &*a };
-    let dest = unsafe { &mut *dest };
-    *dest = a.clone();
-    if a.prec() != precision as u32 {
-        dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
+    let a = unsafe { &*(a as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Float) };
+    dest.set_prec(precision as u32);
+    dest.assign_round(a.norm_ref(), xlat_rounding(rounding_mode));
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_abs(
+        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong) {
+    let a = unsafe { &*(a as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Float) };
+    dest.set_prec(precision as u32);
+    dest.assign_round(a.abs_ref(), xlat_rounding(rounding_mode));
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_arg(
+        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong) {
+    let a = unsafe { &*(a as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Float) };
+    dest.set_prec(precision as u32);
+    dest.assign_round(a.arg_ref(), xlat_rounding(rounding_mode));
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_real(
+        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong) {
+    let a = unsafe { &*(a as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Float) };
+    dest.set_prec(precision as u32);
+    dest.assign_round(a.real(), xlat_rounding(rounding_mode));
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_imag(
+        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong) {
+    let a = unsafe { &*(a as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Float) };
+    dest.set_prec(precision as u32);
+    dest.assign_round(a.imag(), xlat_rounding(rounding_mode));
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_eq(_env: JNIEnv, _class: JClass, a: jlong, b: jlong) -> jboolean {
+    let a = unsafe { &*(a as *const Complex) };
+    let b = unsafe { &*(b as *const Complex) };
+    (a == b) as jboolean
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_neq(_env: JNIEnv, _class: JClass, a: jlong, b: jlong) -> jboolean {
+    let a = unsafe { &*(a as *const Complex) };
+    let b = unsafe { &*(b as *const Complex) };
+    (a != b) as jboolean
+}
+
+// Lexicographic total order on (real, imag).
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_compare(_env: JNIEnv, _class: JClass, a: jlong, b: jlong) -> jint {
+    let a = unsafe { &*(a as *const Complex) };
+    let b = unsafe { &*(b as *const Complex) };
+    match a.real().total_cmp(b.real()) {
+        Ordering::Equal => a.imag().total_cmp(b.imag()) as jint,
+        o => o as jint,
     }
-    dest.recip_mut();
 }
 
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciComplex_pow(
-        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong, b: jlong) {
-    let dest = dest as *mut Complex;
-    let a = a as *mut Complex;
-    let b = b as *mut Complex;
-    let a = unsafe { &*a };
-    let b = unsafe { &*b };
-    let dest = unsafe { &mut *dest };
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_hash(_env: JNIEnv, _class: JClass, a: jlong) -> jlong {
+    let a = unsafe { &*(a as *const Complex) };
+    (float_hash(a.real()) ^ float_hash(a.imag()).rotate_left(32)) as jlong
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_precision(_env: JNIEnv, _class: JClass, a: jlong) -> jint {
+    let a = unsafe { &*(a as *const Complex) };
+    a.prec().0.max(a.prec().1) as jint
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_isFinite(
+        _env: JNIEnv, _class: JClass, a: jlong) -> jboolean {
+    let a = unsafe { &*(a as *const Complex) };
+    (a.real().is_finite() && a.imag().is_finite()) as jboolean
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_isInf(
+        _env: JNIEnv, _class: JClass, a: jlong) -> jboolean {
+    let a = unsafe { &*(a as *const Complex) };
+    (a.real().is_infinite() || a.imag().is_infinite()) as jboolean
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_isNaN(
+        _env: JNIEnv, _class: JClass, a: jlong) -> jboolean {
+    let a = unsafe { &*(a as *const Complex) };
+    (a.real().is_nan() || a.imag().is_nan()) as jboolean
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_copy(_env: JNIEnv, _class: JClass, dest: jlong, a: jlong) {
+    let a = unsafe { &*(a as *const Complex) };
+    let dest = unsafe { &mut *(dest as *mut Complex) };
     *dest = a.clone();
-    if a.prec() != precision as u32 {
-        dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
-    }
-    dest.pow_assign(b);
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplex_drop_caches(
+        _env: JNIEnv, _class: JClass) {
+    rug::float::free_cache(FreeCache::All)
 }
@@ -0,0 +1,173 @@
+/*
+    scijava
+    Copyright (C) 2022 Kamila Szewczyk
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+// This is the interface to the JVM that we'll call the majority of our
+// methods on.
+use jni::JNIEnv;
+
+// These objects are what you should use as arguments to your native
+// function. They carry extra lifetime information to prevent them escaping
+// this context and getting used after being GC'd.
+use jni::objects::JClass;
+
+// This is just a pointer. We'll be returning it from our function. We
+// can't return one of the objects with lifetime information because the
+// lifetime checker won't let us.
+use jni::sys::{jint, jlong, jlongArray};
+
+use rug::Complex;
+use rug::ops::PowAssign;
+
+use crate::product_tree::{par_map, read_pointers, worker_count};
+use crate::scicomplex_elementary::{rounded, GUARD_BITS};
+use crate::scifloat_elementary::xlat_rounding;
+
+// Vectors shorter than this are processed on the calling thread.
+const PARALLEL_THRESHOLD: usize = 64;
+
+// Operation codes of map, matching the constants in SciComplexVector.java.
+const EXP: jint = 0;
+const LN: jint = 1;
+const SQRT: jint = 2;
+const SIN: jint = 3;
+const COS: jint = 4;
+const TAN: jint = 5;
+const CONJ: jint = 6;
+const RECIP: jint = 7;
+const NEG: jint = 8;
+
+// Operation codes of zip and zipScalar, matching SciComplexVector.java.
+const ADD: jint = 0;
+const SUB: jint = 1;
+const MUL: jint = 2;
+const DIV: jint = 3;
+const POW: jint = 4;
+
+fn threads(n: usize) -> usize {
+    if n < PARALLEL_THRESHOLD { 1 } else { worker_count() }
+}
+
+fn vector<'a>(ptr: jlong) -> &'a Vec<Complex> {
+    unsafe { &*(ptr as *const Vec<Complex>) }
+}
+
+fn into_raw(v: Vec<Complex>) -> jlong {
+    Box::into_raw(Box::new(v)) as jlong
+}
+
+fn map(a: &Complex, precision: jint, rounding_mode: jint, op: jint) -> Complex {
+    let mut z = rounded(a, precision, rounding_mode);
+    match op {
+        EXP => z.exp_mut(),
+        LN => z.ln_mut(),
+        SQRT => z.sqrt_mut(),
+        SIN => z.sin_mut(),
+        COS => z.cos_mut(),
+        TAN => z.tan_mut(),
+        CONJ => z.conj_mut(),
+        RECIP => z.recip_mut(),
+        NEG => z = -z,
+        _ => unreachable!(),
+    }
+    z
+}
+
+fn zip(a: &Complex, b: &Complex, precision: jint, rounding_mode: jint, op: jint) -> Complex {
+    let mut z = rounded(a, precision, rounding_mode);
+    match op {
+        ADD => z += b,
+        SUB => z -= b,
+        MUL => z *= b,
+        DIV => z /= b,
+        POW => z.pow_assign(b),
+        _ => unreachable!(),
+    }
+    z
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplexVector_free(_env: JNIEnv, _class: JClass, ptr: jlong) {
+    let ptr = ptr as *mut Vec<Complex>;
+    unsafe { ptr.drop_in_place(); }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplexVector_fromElements(env: JNIEnv, _class: JClass, elements: jlongArray) -> jlong {
+    match read_pointers(&env, elements) {
+        Some(p) => into_raw(p.into_iter().map(|e| unsafe { &*(e as *const Complex) }.clone()).collect()),
+        None => 0,
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplexVector_get(_env: JNIEnv, _class: JClass, dest: jlong, ptr: jlong, i: jint) {
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    *dest = vector(ptr)[i as usize].clone();
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplexVector_map(
+        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, ptr: jlong, op: jint) -> jlong {
+    let a = vector(ptr);
+    into_raw(par_map(a.len(), threads(a.len()), |i| map(&a[i], precision, rounding_mode, op)))
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplexVector_zip(
+        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, a: jlong, b: jlong, op: jint) -> jlong {
+    let a = vector(a);
+    let b = vector(b);
+    into_raw(par_map(a.len(), threads(a.len()), |i| zip(&a[i], &b[i], precision, rounding_mode, op)))
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplexVector_zipScalar(
+        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, a: jlong, c: jlong, op: jint) -> jlong {
+    let a = vector(a);
+    let c = unsafe { &*(c as *const Complex) };
+    into_raw(par_map(a.len(), threads(a.len()), |i| zip(&a[i], c, precision, rounding_mode, op)))
+}
+
+// The sum and the dot product are accumulated with guard bits and rounded
+// once at the end.
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplexVector_sum(
+        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, ptr: jlong) {
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    let mut acc = Complex::new(precision as u32 + GUARD_BITS);
+    for z in vector(ptr) {
+        acc += z;
+    }
+    let round = xlat_rounding(rounding_mode);
+    acc.set_prec_round(precision as u32, (round, round));
+    *dest = acc;
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplexVector_dot(
+        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong, b: jlong) {
+    let dest = unsafe { &mut *(dest as *mut Complex) };
+    let work = precision as u32 + GUARD_BITS;
+    let mut acc = Complex::new(work);
+    for (x, y) in vector(a).iter().zip(vector(b)) {
+        acc += Complex::with_val(work, x * y);
+    }
+    let round = xlat_rounding(rounding_mode);
+    acc.set_prec_round(precision as u32, (round, round));
+    *dest = acc;
+}
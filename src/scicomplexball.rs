@@ -0,0 +1,237 @@
+/*
+    scijava
+    Copyright (C) 2022 Kamila Szewczyk
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+use std::cell::Cell;
+use std::ffi::CStr;
+use std::mem::MaybeUninit;
+
+// This is the interface to the JVM that we'll call the majority of our
+// methods on.
+use jni::JNIEnv;
+
+// These objects are what you should use as arguments to your native
+// function. They carry extra lifetime information to prevent them escaping
+// this context and getting used after being GC'd.
+use jni::objects::{JClass, JObject};
+
+// This is just a pointer. We'll be returning it from our function. We
+// can't return one of the objects with lifetime information because the
+// lifetime checker won't let us.
+use jni::sys::{jboolean, jint, jlong, jobject, jstring};
+
+use arb_sys::acb::*;
+use arb_sys::acb_hypgeom::acb_hypgeom_erf;
+use arb_sys::arb::{arb_get_str, arb_struct};
+use flint_sys::flint::flint_free;
+
+use crate::sciball::Ball;
+
+// An acb_t: a complex number whose real and imaginary parts are balls.
+pub struct ComplexBall(pub acb_struct);
+
+impl ComplexBall {
+    pub fn new() -> ComplexBall {
+        let mut x = MaybeUninit::<acb_struct>::uninit();
+        unsafe {
+            acb_init(x.as_mut_ptr());
+            ComplexBall(x.assume_init())
+        }
+    }
+
+    // Most acb functions take their arguments through mutable pointers even
+    // though they do not modify them.
+    pub fn as_ptr(&self) -> *mut acb_struct {
+        &self.0 as *const acb_struct as *mut acb_struct
+    }
+
+    pub fn as_mut_ptr(&mut self) -> *mut acb_struct {
+        &mut self.0
+    }
+}
+
+impl Drop for ComplexBall {
+    fn drop(&mut self) {
+        unsafe { acb_clear(self.as_mut_ptr()); }
+    }
+}
+
+thread_local! {
+    // Set while a function is evaluated by acb_calc_integrate on a ball on
+    // which it has to be holomorphic. The functions with branch cuts then
+    // return an indeterminate result for balls that touch the cut instead of
+    // an enclosure of the principal branch.
+    static ANALYTIC: Cell<bool> = Cell::new(false);
+}
+
+pub fn set_analytic(analytic: bool) {
+    ANALYTIC.with(|a| a.set(analytic));
+}
+
+fn analytic() -> i32 {
+    ANALYTIC.with(|a| a.get()) as i32
+}
+
+fn cball<'a>(ptr: jlong) -> &'a ComplexBall {
+    unsafe { &*(ptr as *mut ComplexBall) }
+}
+
+fn cball_mut<'a>(ptr: jlong) -> &'a mut ComplexBall {
+    unsafe { &mut *(ptr as *mut ComplexBall) }
+}
+
+fn ball<'a>(ptr: jlong) -> &'a Ball {
+    unsafe { &*(ptr as *mut Ball) }
+}
+
+fn part_to_string(b: *const arb_struct, digits: i64) -> String {
+    unsafe {
+        let raw = arb_get_str(b, digits as _, 0);
+        let s = CStr::from_ptr(raw).to_string_lossy().into_owned();
+        flint_free(raw as *mut _);
+        s
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplexBall_free(_env: JNIEnv, _class: JClass, ptr: jlong) {
+    let ptr = ptr as *mut ComplexBall;
+    unsafe { ptr.drop_in_place(); }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplexBall_fromLong(env: JNIEnv, _class: JClass, n: jlong) -> jobject {
+    let mut z = ComplexBall::new();
+    unsafe { acb_set_si(z.as_mut_ptr(), n as _); }
+    let ptr = Box::into_raw(Box::new(z)) as jlong;
+    match env.new_object("palaiologos/scijava/SciComplexBall", "(J)V", &[ptr.into()]) {
+        Ok(obj) => obj.into_raw(),
+        Err(_) => {
+            unsafe { (ptr as *mut ComplexBall).drop_in_place(); }
+            let _ = env.throw(("java/lang/RuntimeException", "Failed to allocate object."));
+            JObject::null().into_raw()
+        }
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplexBall_fromParts(_env: JNIEnv, _class: JClass, dest: jlong, re: jlong, im: jlong) {
+    unsafe { acb_set_arb_arb(cball_mut(dest).as_mut_ptr(), ball(re).as_ptr(), ball(im).as_ptr()); }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplexBall_copy(_env: JNIEnv, _class: JClass, dest: jlong, src: jlong) {
+    unsafe { acb_set(dest as *mut acb_struct, src as *const acb_struct); }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplexBall_real(_env: JNIEnv, _class: JClass, dest: jlong, a: jlong) {
+    let dest = unsafe { &mut *(dest as *mut Ball) };
+    unsafe { acb_get_real(dest.as_mut_ptr(), cball(a).as_ptr()); }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplexBall_imag(_env: JNIEnv, _class: JClass, dest: jlong, a: jlong) {
+    let dest = unsafe { &mut *(dest as *mut Ball) };
+    unsafe { acb_get_imag(dest.as_mut_ptr(), cball(a).as_ptr()); }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplexBall_toString(env: JNIEnv, _class: JClass, ptr: jlong, digits: jint) -> jstring {
+    let z = cball(ptr);
+    let digits = if digits > 0 {
+        digits as i64
+    } else {
+        let bits = unsafe { acb_rel_accuracy_bits(z.as_ptr()).min(acb_bits(z.as_ptr())) }.max(1) as i64;
+        (bits as f64 * std::f64::consts::LOG10_2).ceil() as i64 + 1
+    };
+    let s = format!("({}) + ({})*I", part_to_string(&z.0.real, digits), part_to_string(&z.0.imag, digits));
+    env.new_string(s).unwrap().into_raw()
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplexBall_relativeAccuracy(_env: JNIEnv, _class: JClass, a: jlong) -> jlong {
+    unsafe { acb_rel_accuracy_bits(cball(a).as_ptr()) as jlong }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplexBall_isFinite(_env: JNIEnv, _class: JClass, a: jlong) -> jboolean {
+    (unsafe { acb_is_finite(cball(a).as_ptr()) } != 0) as jboolean
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplexBall_isReal(_env: JNIEnv, _class: JClass, a: jlong) -> jboolean {
+    (unsafe { acb_is_real(cball(a).as_ptr()) } != 0) as jboolean
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplexBall_neg(_env: JNIEnv, _class: JClass, dest: jlong, a: jlong) {
+    unsafe { acb_neg(cball_mut(dest).as_mut_ptr(), cball(a).as_ptr()); }
+}
+
+macro_rules! unary {
+    ($name:ident, $f:ident) => {
+        #[no_mangle]
+        pub extern "system" fn $name(_env: JNIEnv, _class: JClass, precision: jint, dest: jlong, a: jlong) {
+            unsafe { $f(cball_mut(dest).as_mut_ptr(), cball(a).as_ptr(), precision as _); }
+        }
+    };
+}
+
+// Functions with branch cuts, see ANALYTIC.
+macro_rules! unary_analytic {
+    ($name:ident, $f:ident) => {
+        #[no_mangle]
+        pub extern "system" fn $name(_env: JNIEnv, _class: JClass, precision: jint, dest: jlong, a: jlong) {
+            unsafe { $f(cball_mut(dest).as_mut_ptr(), cball(a).as_ptr(), analytic(), precision as _); }
+        }
+    };
+}
+
+macro_rules! binary {
+    ($name:ident, $f:ident) => {
+        #[no_mangle]
+        pub extern "system" fn $name(_env: JNIEnv, _class: JClass, precision: jint, dest: jlong, a: jlong, b: jlong) {
+            unsafe { $f(cball_mut(dest).as_mut_ptr(), cball(a).as_ptr(), cball(b).as_ptr(), precision as _); }
+        }
+    };
+}
+
+binary!(Java_palaiologos_scijava_SciComplexBall_add, acb_add);
+binary!(Java_palaiologos_scijava_SciComplexBall_sub, acb_sub);
+binary!(Java_palaiologos_scijava_SciComplexBall_mul, acb_mul);
+binary!(Java_palaiologos_scijava_SciComplexBall_div, acb_div);
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciComplexBall_pow(_env: JNIEnv, _class: JClass, precision: jint, dest: jlong, a: jlong, b: jlong) {
+    unsafe { acb_pow_analytic(cball_mut(dest).as_mut_ptr(), cball(a).as_ptr(), cball(b).as_ptr(), analytic(), precision as _); }
+}
+
+unary!(Java_palaiologos_scijava_SciComplexBall_sqr, acb_sqr);
+unary!(Java_palaiologos_scijava_SciComplexBall_inv, acb_inv);
+unary!(Java_palaiologos_scijava_SciComplexBall_exp, acb_exp);
+unary!(Java_palaiologos_scijava_SciComplexBall_sin, acb_sin);
+unary!(Java_palaiologos_scijava_SciComplexBall_cos, acb_cos);
+unary!(Java_palaiologos_scijava_SciComplexBall_tan, acb_tan);
+unary!(Java_palaiologos_scijava_SciComplexBall_sinh, acb_sinh);
+unary!(Java_palaiologos_scijava_SciComplexBall_cosh, acb_cosh);
+unary!(Java_palaiologos_scijava_SciComplexBall_tanh, acb_tanh);
+unary!(Java_palaiologos_scijava_SciComplexBall_gamma, acb_gamma);
+unary!(Java_palaiologos_scijava_SciComplexBall_erf, acb_hypgeom_erf);
+unary_analytic!(Java_palaiologos_scijava_SciComplexBall_sqrt, acb_sqrt_analytic);
+unary_analytic!(Java_palaiologos_scijava_SciComplexBall_rsqrt, acb_rsqrt_analytic);
+unary_analytic!(Java_palaiologos_scijava_SciComplexBall_log, acb_log_analytic);
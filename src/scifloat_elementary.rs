@@ -18,6 +18,8 @@
 
 use std::hint::unreachable_unchecked;
 use std::ops::DivAssign;
+use std::sync::Mutex;
+use std::sync::atomic::{AtomicU32, Ordering};
 
 // This is the interface to the JVM that we'll call the majority of our
 // methods on.
@@ -31,11 +33,14 @@ use jni::objects::{JClass, JString, JObject, JValue};
 // This is just a pointer. We'll be returning it from our function. We
 // can't return one of the objects with lifetime information because the
 // lifetime checker won't let us.
-use jni::sys::{jstring, jlong, jint, jobject, jboolean};
+use jni::sys::{jstring, jlong, jint, jobject, jboolean, jlongArray, jdouble, jdoubleArray, jsize};
 use rug::rand::RandState;
 use rug::{Float, Integer, Rational};
 use rug::float::{Round, FreeCache, Constant};
-use rug::ops::{NegAssign, PowAssign};
+use rug::ops::{AssignRound, NegAssign, PowAssign};
+
+use crate::sciinteger::limb_hash;
+use crate::product_tree::{par_map, read_pointers, worker_count};
 
 pub fn xlat_rounding(mode: jint) -> Round {
     match mode {
@@ -53,6 +58,101 @@ pub extern "system" fn Java_palaiologos_scijava_SciFloat_free(_env: JNIEnv, _cla
     unsafe { ptr.drop_in_place(); }
 }
 
+// The value as a double if it is one exactly, NaN otherwise.
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciFloat_exactDouble(_env: JNIEnv, _class: JClass, ptr: jlong) -> jdouble {
+    let f = unsafe { &*(ptr as *const Float) };
+    let d = f.to_f64();
+    if f.is_finite() && *f == d { d } else { f64::NAN }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciFloat_precision(_env: JNIEnv, _class: JClass, ptr: jlong) -> jint {
+    let f = unsafe { &*(ptr as *const Float) };
+    f.prec() as jint
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciFloat_fromDouble(
+        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, d: jdouble) -> jlong {
+    let f = Float::with_val_round(precision as u32, d, xlat_rounding(rounding_mode)).0;
+    Box::into_raw(Box::new(f)) as jlong
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciFloat_fromDoubles(
+        env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, ds: jdoubleArray) -> jlongArray {
+    let round = xlat_rounding(rounding_mode);
+    let result = (|| {
+        let mut buf = vec![0.0; env.get_array_length(ds).ok()? as usize];
+        env.get_double_array_region(ds, 0, &mut buf).ok()?;
+        let ptrs: Vec<jlong> = buf.into_iter()
+            .map(|d| Box::into_raw(Box::new(Float::with_val_round(precision as u32, d, round).0)) as jlong)
+            .collect();
+        let array = env.new_long_array(ptrs.len() as jsize).ok()?;
+        env.set_long_array_region(array, 0, &ptrs).ok()?;
+        Some(array)
+    })();
+    result.unwrap_or(std::ptr::null_mut())
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciFloat_toDouble(_env: JNIEnv, _class: JClass, ptr: jlong) -> jdouble {
+    unsafe { &*(ptr as *const Float) }.to_f64()
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciFloat_toDoubles(env: JNIEnv, _class: JClass, ptrs: jlongArray) -> jdoubleArray {
+    let result = (|| {
+        let ds: Vec<jdouble> = read_pointers(&env, ptrs)?.into_iter()
+            .map(|p| unsafe { &*(p as *const Float) }.to_f64())
+            .collect();
+        let array = env.new_double_array(ds.len() as jsize).ok()?;
+        env.set_double_array_region(array, 0, &ds).ok()?;
+        Some(array)
+    })();
+    result.unwrap_or(std::ptr::null_mut())
+}
+
+// Truncated towards zero and saturated like a Java cast, with NaN as zero.
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciFloat_toLong(_env: JNIEnv, _class: JClass, ptr: jlong) -> jlong {
+    unsafe { &*(ptr as *const Float) }.to_i64_saturating_round(Round::Zero).unwrap_or(0)
+}
+
+// Split a finite value into an integer significand m (written to dest) and
+// the returned exponent e with value = m * 2^e.
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciFloat_toIntegerExp(env: JNIEnv, _class: JClass, dest: jlong, ptr: jlong) -> jint {
+    let f = unsafe { &*(ptr as *const Float) };
+    let dest = unsafe { &mut *(dest as *mut Integer) };
+    match f.to_integer_exp() {
+        Some((m, e)) => {
+            *dest = m;
+            e
+        }
+        None => {
+            let _ = env.throw(("java/lang/ArithmeticException", "Cannot convert a non-finite value to an exact number."));
+            0
+        }
+    }
+}
+
+// m / 10^scale, or m * 10^-scale for a negative scale, rounded once.
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciFloat_fromScaled(
+        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, m: jlong, scale: jint) -> jlong {
+    let m = unsafe { &*(m as *const Integer) };
+    let round = xlat_rounding(rounding_mode);
+    let power = Integer::from(Integer::u_pow_u(10, scale.unsigned_abs()));
+    let f = if scale <= 0 {
+        Float::with_val_round(precision as u32, m * power, round).0
+    } else {
+        Float::with_val_round(precision as u32, &Rational::from((m.clone(), power)), round).0
+    };
+    Box::into_raw(Box::new(f)) as jlong
+}
+
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciFloat_fromInteger(
         env: JNIEnv, _class: JClass, precision: jint, _rounding_mode: jint, n: jint) -> jobject {
@@ -239,6 +339,154 @@ pub extern "system" fn Java_palaiologos_scijava_SciFloat_div(
     }
 }
 
+// a * b + c with a single rounding.
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciFloat_fma(
+        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong, b: jlong, c: jlong) {
+    let dest = unsafe { &mut *(dest as *mut Float) };
+    let a = unsafe { &*(a as *const Float) };
+    let b = unsafe { &*(b as *const Float) };
+    let c = unsafe { &*(c as *const Float) };
+    dest.set_prec(precision as u32);
+    dest.assign_round(a.mul_add_ref(b, c), xlat_rounding(rounding_mode));
+}
+
+// a * b - c with a single rounding.
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciFloat_fms(
+        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong, b: jlong, c: jlong) {
+    let dest = unsafe { &mut *(dest as *mut Float) };
+    let a = unsafe { &*(a as *const Float) };
+    let b = unsafe { &*(b as *const Float) };
+    let c = unsafe { &*(c as *const Float) };
+    dest.set_prec(precision as u32);
+    dest.assign_round(a.mul_sub_ref(b, c), xlat_rounding(rounding_mode));
+}
+
+// a * b + c * d with a single rounding.
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciFloat_fmma(
+        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong, b: jlong, c: jlong, d: jlong) {
+    let dest = unsafe { &mut *(dest as *mut Float) };
+    let a = unsafe { &*(a as *const Float) };
+    let b = unsafe { &*(b as *const Float) };
+    let c = unsafe { &*(c as *const Float) };
+    let d = unsafe { &*(d as *const Float) };
+    dest.set_prec(precision as u32);
+    dest.assign_round(a.mul_add_mul_ref(b, c, d), xlat_rounding(rounding_mode));
+}
+
+// a * b - c * d with a single rounding.
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciFloat_fmms(
+        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong, b: jlong, c: jlong, d: jlong) {
+    let dest = unsafe { &mut *(dest as *mut Float) };
+    let a = unsafe { &*(a as *const Float) };
+    let b = unsafe { &*(b as *const Float) };
+    let c = unsafe { &*(c as *const Float) };
+    let d = unsafe { &*(d as *const Float) };
+    dest.set_prec(precision as u32);
+    dest.assign_round(a.mul_sub_mul_ref(b, c, d), xlat_rounding(rounding_mode));
+}
+
+// Polynomial evaluation schemes, matching SciFloat.PolynomialScheme.
+const HORNER: jint = 0;
+const FUSED_HORNER: jint = 1;
+const ESTRIN: jint = 2;
+
+// Evaluate sum(coeffs[i] * x^i) at the working precision prec.
+fn poly_eval(coeffs: &[&Float], x: &Float, prec: u32, scheme: jint) -> Float {
+    if coeffs.is_empty() {
+        return Float::new(prec);
+    }
+    match scheme {
+        ESTRIN => {
+            // Pair up the coefficients as c_2i + c_2i+1 x, then combine pairs
+            // of neighbours with successive squarings of x.
+            let mut level: Vec<Float> = coeffs.chunks(2).map(|pair| match pair {
+                [a, b] => Float::with_val(prec, b.mul_add_ref(x, *a)),
+                [a] => Float::with_val(prec, *a),
+                _ => unreachable!(),
+            }).collect();
+            let mut power = Float::with_val(prec, x.square_ref());
+            while level.len() > 1 {
+                level = level.chunks(2).map(|pair| match pair {
+                    [a, b] => Float::with_val(prec, b.mul_add_ref(&power, a)),
+                    [a] => a.clone(),
+                    _ => unreachable!(),
+                }).collect();
+                power.square_mut();
+            }
+            level.pop().unwrap()
+        }
+        _ => {
+            let mut acc = Float::with_val(prec, coeffs[coeffs.len() - 1]);
+            for c in coeffs.iter().rev().skip(1) {
+                if scheme == FUSED_HORNER {
+                    acc.mul_add_mut(x, *c);
+                } else {
+                    acc *= x;
+                    acc += *c;
+                }
+            }
+            acc
+        }
+    }
+}
+
+// Guard bits for the intermediate results: a few bits on top of the
+// logarithm of the number of terms.
+fn poly_working_precision(precision: u32, terms: usize) -> u32 {
+    precision + usize::BITS - terms.leading_zeros() + 8
+}
+
+fn read_floats<'a>(env: &JNIEnv, ptrs: jlongArray) -> Option<Vec<&'a Float>> {
+    Some(read_pointers(env, ptrs)?.into_iter().map(|p| unsafe { &*(p as *const Float) }).collect())
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciFloat_polyEval(
+        env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, coeffs: jlongArray, x: jlong, scheme: jint) {
+    let dest = unsafe { &mut *(dest as *mut Float) };
+    let x = unsafe { &*(x as *const Float) };
+    let coeffs = match read_floats(&env, coeffs) {
+        Some(c) => c,
+        None => return,
+    };
+    let work = poly_working_precision(precision as u32, coeffs.len());
+    let value = poly_eval(&coeffs, x, work, scheme);
+    dest.set_prec(precision as u32);
+    dest.assign_round(&value, xlat_rounding(rounding_mode));
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciFloat_polyEvalMulti(
+        env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlongArray, coeffs: jlongArray, xs: jlongArray, scheme: jint) {
+    let coeffs = match read_floats(&env, coeffs) {
+        Some(c) => c,
+        None => return,
+    };
+    let xs = match read_floats(&env, xs) {
+        Some(x) => x,
+        None => return,
+    };
+    let dest = match read_pointers(&env, dest) {
+        Some(d) => d,
+        None => return,
+    };
+    let work = poly_working_precision(precision as u32, coeffs.len());
+    // Points are independent, so they are split across threads unless the
+    // polynomial is too small for that to pay off.
+    let threads = if coeffs.len() < 16 { 1 } else { worker_count().min(xs.len()) };
+    let values = par_map(xs.len(), threads, |i| poly_eval(&coeffs, xs[i], work, scheme));
+    let round = xlat_rounding(rounding_mode);
+    for (d, v) in dest.into_iter().zip(values) {
+        let d = unsafe { &mut *(d as *mut Float) };
+        d.set_prec(precision as u32);
+        d.assign_round(&v, round);
+    }
+}
+
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciFloat_mod(
         _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong, b: jlong) {
@@ -383,6 +631,32 @@ pub extern "system" fn Java_palaiologos_scijava_SciFloat_eq(_env: JNIEnv, _class
     (a == b) as jboolean
 }
 
+// Hash the exact value of f, so that equal values hash equally regardless of
+// their precision: the significand is stripped of trailing zero bits and the
+// exponent is adjusted to match. +0 and -0 compare equal and share a hash.
+pub fn float_hash(f: &Float) -> u64 {
+    if f.is_zero() {
+        0
+    } else if f.is_nan() {
+        1
+    } else if f.is_infinite() {
+        if f.is_sign_positive() { 2 } else { 3 }
+    } else {
+        let (mut m, mut e) = f.to_integer_exp().unwrap();
+        let tz = m.find_one(0).unwrap();
+        m >>= tz;
+        e += tz as i32;
+        limb_hash(&m) ^ (e as i64 as u64).wrapping_mul(0x9e37_79b9_7f4a_7c15)
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciFloat_hash(_env: JNIEnv, _class: JClass, a: jlong) -> jlong {
+    let a = a as *mut Float;
+    let a = unsafe { &*a };
+    float_hash(a) as jlong
+}
+
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciFloat_neq(_env: JNIEnv, _class: JClass, a: jlong, b: jlong) -> jboolean {
     let a = a as *mut Float;
@@ -689,6 +963,28 @@ pub extern "system" fn Java_palaiologos_scijava_SciFloat_isNaN(
     a.is_nan() as jboolean
 }
 
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciFloat_fromSciFloat(
+        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong) {
+    let dest = unsafe { &mut *(dest as *mut Float) };
+    let a = unsafe { &*(a as *const Float) };
+    dest.set_prec(precision as u32);
+    dest.assign_round(a, xlat_rounding(rounding_mode));
+}
+
+// The exponent e with 2^(e-1) <= |a| < 2^e, or the extremes of jlong for
+// zero (MIN) and non-finite values (MAX).
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciFloat_exponent(
+        _env: JNIEnv, _class: JClass, a: jlong) -> jlong {
+    let a = unsafe { &*(a as *const Float) };
+    match a.get_exp() {
+        Some(e) => e as jlong,
+        None if a.is_zero() => jlong::MIN,
+        None => jlong::MAX,
+    }
+}
+
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciFloat_random(
         env: JNIEnv, _class: JClass, precision: jint, _rounding_mode: jint, randptr: jlong) -> jobject {
@@ -706,16 +1002,133 @@ pub extern "system" fn Java_palaiologos_scijava_SciFloat_random(
     }
 }
 
+// Indices of the constants in CONSTANTS.
+pub const PI: usize = 0;
+pub const EULER: usize = 1;
+pub const DEGREE: usize = 2;
+pub const E: usize = 3;
+pub const PHI: usize = 4;
+pub const CATALAN: usize = 5;
+pub const APERY: usize = 6;
+
+// Extra bits kept in the cached value. Rounding it to a lower precision
+// alone could round twice; see round_cached.
+const CONSTANT_GUARD_BITS: u32 = 64;
+
+// The highest-precision value computed so far for each constant, shared by
+// all threads. Constants requested above the limit are computed but not kept.
+static CONSTANTS: Mutex<[Option<Float>; 7]> = Mutex::new([None, None, None, None, None, None, None]);
+static CONSTANT_CACHE_LIMIT: AtomicU32 = AtomicU32::new(1 << 20);
+
+fn compute_constant(which: usize, prec: u32) -> Float {
+    match which {
+        PI => Float::with_val(prec, Constant::Pi),
+        EULER => Float::with_val(prec, Constant::Euler),
+        DEGREE => Float::with_val(prec, Constant::Pi) / 180,
+        E => Float::with_val(prec, 1).exp(),
+        PHI => (Float::with_val(prec, 5).sqrt() + 1) / 2,
+        CATALAN => Float::with_val(prec, Constant::Catalan),
+        APERY => Float::with_val(prec, 3).zeta(),
+        _ => unreachable!()
+    }
+}
+
+// Round a cached constant to prec bits. The cached value is within two of
+// its own ulps of the constant, so if both ends of that interval round to
+// the same value it is the correctly rounded constant. Otherwise the
+// constant lies too close to a half-way point and None is returned.
+fn round_cached(cached: &Float, prec: u32) -> Option<Float> {
+    let mut lo = cached.clone();
+    let mut hi = cached.clone();
+    for _ in 0..2 {
+        lo.next_down();
+        hi.next_up();
+    }
+    let lo = Float::with_val(prec, &lo);
+    let hi = Float::with_val(prec, &hi);
+    if lo == hi { Some(lo) } else { None }
+}
+
+// Return the given constant rounded to prec bits, computing it at a higher
+// precision than requested (growing geometrically) when the cache can't
+// serve it.
+pub fn cached_constant(which: usize, prec: u32) -> Float {
+    let limit = CONSTANT_CACHE_LIMIT.load(Ordering::Relaxed);
+    if prec > limit {
+        return compute_constant(which, prec);
+    }
+    let mut work = prec + CONSTANT_GUARD_BITS;
+    // Only round the cached value under the lock; computing a constant when
+    // the rounding is undecided must not block the other lookups.
+    let (rounded, cached_prec) = match &CONSTANTS.lock().unwrap()[which] {
+        Some(cached) if cached.prec() >= work => (Some(round_cached(cached, prec)), cached.prec()),
+        Some(cached) => (None, cached.prec()),
+        None => (None, 0),
+    };
+    if let Some(rounded) = rounded {
+        return rounded.unwrap_or_else(|| compute_constant(which, prec));
+    }
+    if cached_prec > 0 {
+        work = work.max(cached_prec / 2 * 3).min(limit + CONSTANT_GUARD_BITS);
+    }
+    // Compute without holding the lock; a concurrent caller may store a
+    // value of its own, in which case the more precise one wins.
+    let value = compute_constant(which, work);
+    let result = round_cached(&value, prec).unwrap_or_else(|| compute_constant(which, prec));
+    let mut cache = CONSTANTS.lock().unwrap();
+    if cache[which].as_ref().map_or(true, |c| c.prec() < value.prec()) {
+        cache[which] = Some(value);
+    }
+    result
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciFloat_clearConstantCache0(
+        _env: JNIEnv, _class: JClass) {
+    let mut cache = CONSTANTS.lock().unwrap();
+    for c in cache.iter_mut() {
+        *c = None;
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciFloat_setConstantCacheLimit0(
+        env: JNIEnv, _class: JClass, precision: jint) {
+    if precision < 0 {
+        let _ = env.throw(("java/lang/IllegalArgumentException", "Negative constant cache limit"));
+        return;
+    }
+    CONSTANT_CACHE_LIMIT.store(precision as u32, Ordering::Relaxed);
+    let mut cache = CONSTANTS.lock().unwrap();
+    for c in cache.iter_mut() {
+        if c.as_ref().map_or(false, |c| c.prec() > precision as u32 + CONSTANT_GUARD_BITS) {
+            *c = None;
+        }
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_MpfrCaches_freeLocal(
+        _env: JNIEnv, _class: JClass) {
+    rug::float::free_cache(FreeCache::Local);
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_MpfrCaches_freeShared(
+        _env: JNIEnv, _class: JClass) {
+    rug::float::free_cache(FreeCache::Global);
+}
+
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciFloat_drop_caches(
         _env: JNIEnv, _class: JClass) {
-    rug::float::free_cache(FreeCache::All)
+    rug::float::free_cache(FreeCache::All);
 }
 
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciFloat_pi(
         env: JNIEnv, _class: JClass, precision: jint) -> jobject {
-    let a = Float::with_val(precision as u32, Constant::Pi);
+    let a = cached_constant(PI, precision as u32);
     let ptr = Box::into_raw(Box::new(a)) as jlong;
     let class = env.new_object("palaiologos/scijava/SciFloat", "(J)V", &[JValue::Long(ptr)]);
     match class {
@@ -730,7 +1143,7 @@ pub extern "system" fn Java_palaiologos_scijava_SciFloat_pi(
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciFloat_euler_gamma(
         env: JNIEnv, _class: JClass, precision: jint) -> jobject {
-    let a = Float::with_val(precision as u32, Constant::Euler);
+    let a = cached_constant(EULER, precision as u32);
     let ptr = Box::into_raw(Box::new(a)) as jlong;
     let class = env.new_object("palaiologos/scijava/SciFloat", "(J)V", &[JValue::Long(ptr)]);
     match class {
@@ -745,7 +1158,7 @@ pub extern "system" fn Java_palaiologos_scijava_SciFloat_euler_gamma(
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciFloat_degree(
         env: JNIEnv, _class: JClass, precision: jint) -> jobject {
-    let a = Float::with_val(precision as u32, Constant::Pi) / 180;
+    let a = cached_constant(DEGREE, precision as u32);
     let ptr = Box::into_raw(Box::new(a)) as jlong;
     let class = env.new_object("palaiologos/scijava/SciFloat", "(J)V", &[JValue::Long(ptr)]);
     match class {
@@ -760,7 +1173,7 @@ pub extern "system" fn Java_palaiologos_scijava_SciFloat_degree(
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciFloat_e(
         env: JNIEnv, _class: JClass, precision: jint) -> jobject {
-    let a = Float::with_val(precision as u32, 1).exp();
+    let a = cached_constant(E, precision as u32);
     let ptr = Box::into_raw(Box::new(a)) as jlong;
     let class = env.new_object("palaiologos/scijava/SciFloat", "(J)V", &[JValue::Long(ptr)]);
     match class {
@@ -775,7 +1188,7 @@ pub extern "system" fn Java_palaiologos_scijava_SciFloat_e(
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciFloat_phi(
         env: JNIEnv, _class: JClass, precision: jint) -> jobject {
-    let a = (Float::with_val(precision as u32, 5).sqrt() + 1) / 2;
+    let a = cached_constant(PHI, precision as u32);
     let ptr = Box::into_raw(Box::new(a)) as jlong;
     let class = env.new_object("palaiologos/scijava/SciFloat", "(J)V", &[JValue::Long(ptr)]);
     match class {
@@ -790,7 +1203,7 @@ pub extern "system" fn Java_palaiologos_scijava_SciFloat_phi(
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciFloat_catalan(
         env: JNIEnv, _class: JClass, precision: jint) -> jobject {
-    let a = Float::with_val(precision as u32, Constant::Catalan);
+    let a = cached_constant(CATALAN, precision as u32);
     let ptr = Box::into_raw(Box::new(a)) as jlong;
     let class = env.new_object("palaiologos/scijava/SciFloat", "(J)V", &[JValue::Long(ptr)]);
     match class {
@@ -805,7 +1218,7 @@ pub extern "system" fn Java_palaiologos_scijava_SciFloat_catalan(
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciFloat_apery(
         env: JNIEnv, _class: JClass, precision: jint) -> jobject {
-    let a = Float::with_val(precision as u32, 3).zeta();
+    let a = cached_constant(APERY, precision as u32);
     let ptr = Box::into_raw(Box::new(a)) as jlong;
     let class = env.new_object("palaiologos/scijava/SciFloat", "(J)V", &[JValue::Long(ptr)]);
     match class {
@@ -868,7 +1281,7 @@ pub extern "system" fn Java_palaiologos_scijava_SciFloat_degrees(
     if a.prec() != precision as u32 {
         dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
     }
-    *dest *= 180 / Float::with_val(precision as u32, Constant::Pi);
+    *dest /= cached_constant(DEGREE, precision as u32);
 }
 
 #[no_mangle]
@@ -882,7 +1295,7 @@ pub extern "system" fn Java_palaiologos_scijava_SciFloat_radians(
     if a.prec() != precision as u32 {
         dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
     }
-    *dest *= Float::with_val(precision as u32, Constant::Pi) / 180;
+    *dest *= cached_constant(DEGREE, precision as u32);
 }
 
 #[no_mangle]
@@ -17,7 +17,7 @@
 */
 
 use std::cmp::max;
-use std::f64::consts;
+use std::sync::atomic::{AtomicU32, Ordering};
 
 // This is the interface to the JVM that we'll call the majority of our
 // methods on.
@@ -26,17 +26,138 @@ use jni::JNIEnv;
 // These objects are what you should use as arguments to your native
 // function. They carry extra lifetime information to prevent them escaping
 // this context and getting used after being GC'd.
-use jni::objects::{JClass, JObject, JValue};
+use jni::objects::{JClass, JObject};
 
 // This is just a pointer. We'll be returning it from our function. We
 // can't return one of the objects with lifetime information because the
 // lifetime checker won't let us.
-use jni::sys::{jlong, jint, jobject};
-use rug::Float;
-use rug::float::{Constant, Special};
-use rug::ops::Pow;
+use jni::sys::{jlong, jint, jlongArray, jobject};
+use rug::{Assign, Float, Rational};
+use rug::float::{Round, Special};
+
+use arb_sys::arb::{arb_add_ui, arb_gamma, arb_inv, arb_neg, arb_rising_ui, arb_set, arb_set_si, arb_struct, arb_sub_ui, arb_zeta};
+use arb_sys::arb_hypgeom::{arb_hypgeom_bessel_j, arb_hypgeom_dilog, arb_hypgeom_ei, arb_hypgeom_erf};
+
+use crate::scifloat_elementary::{xlat_rounding, cached_constant, PI, EULER, E};
+use crate::product_tree::{par_map, read_pointers, worker_count};
+use crate::sciball::{correctly_rounded, Ball};
+use crate::scirational::{bernoulli_table, harmonic};
+
+// Functions that are evaluated with Arb at high precision, in the order of
+// SciFloat.SpecialFunction.
+const ARB_GAMMA: usize = 0;
+const ARB_ZETA: usize = 1;
+const ARB_BESSEL_J: usize = 2;
+const ARB_EI: usize = 3;
+const ARB_LI2: usize = 4;
+const ARB_ERF: usize = 5;
+
+// The precision in bits from which each function is routed to Arb. No
+// crossover has been measured yet, so every function stays on MPFR until a
+// threshold is set; SpecialFunctionBenchmark finds the crossovers on a given
+// machine. jint::MAX is the largest threshold the Java side can read back.
+static ARB_THRESHOLDS: [AtomicU32; 6] = [
+    AtomicU32::new(jint::MAX as u32),
+    AtomicU32::new(jint::MAX as u32),
+    AtomicU32::new(jint::MAX as u32),
+    AtomicU32::new(jint::MAX as u32),
+    AtomicU32::new(jint::MAX as u32),
+    AtomicU32::new(jint::MAX as u32),
+];
+
+fn use_arb(function: usize, precision: jint) -> bool {
+    precision as u32 >= ARB_THRESHOLDS[function].load(Ordering::Relaxed)
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciFloat_setArbThreshold0(
+        _env: JNIEnv, _class: JClass, function: jint, precision: jint) {
+    ARB_THRESHOLDS[function as usize].store(precision as u32, Ordering::Relaxed);
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciFloat_getArbThreshold0(
+        _env: JNIEnv, _class: JClass, function: jint) -> jint {
+    ARB_THRESHOLDS[function as usize].load(Ordering::Relaxed) as jint
+}
+
+// Evaluate the Bessel function of the first kind of integer order with Arb.
+fn arb_bessel_j(a: &Float, n: jint, precision: jint, rounding_mode: jint) -> Option<Float> {
+    let mut nu = Ball::new();
+    unsafe { arb_set_si(nu.as_mut_ptr(), n as _); }
+    correctly_rounded(a, precision as u32, rounding_mode, |y, x, p| unsafe { arb_hypgeom_bessel_j(y, nu.as_ptr() as *mut arb_struct, x, p) })
+}
+
+// x (x + 1) ... (x + n - 1), or x (x - 1) ... (x - n + 1) if falling is set,
+// for an integer n. Both are computed with Arb's rising factorial, which uses
+// binary or rectangular splitting instead of two gamma evaluations. The
+// falling factorial is (-1)^n rising(-x, n). A negative n gives the reciprocal
+// 1 / rising(x + n, -n), resp. 1 / rising(x + 1, -n) for the falling factorial.
+fn arb_factorial_power(x: &Float, n: i64, falling: bool, precision: u32, rounding_mode: jint) -> Option<Float> {
+    let m = n.unsigned_abs();
+    correctly_rounded(x, precision, rounding_mode, |y, x, p| unsafe {
+        let mut base = Ball::new();
+        match (falling, n < 0) {
+            (false, false) => arb_set(base.as_mut_ptr(), x),
+            (false, true) => arb_sub_ui(base.as_mut_ptr(), x, m as _, p),
+            (true, false) => arb_neg(base.as_mut_ptr(), x),
+            (true, true) => arb_add_ui(base.as_mut_ptr(), x, 1, p),
+        }
+        arb_rising_ui(y, base.as_ptr(), m as _, p);
+        if falling && n > 0 && m % 2 == 1 {
+            arb_neg(y, y);
+        }
+        if n < 0 {
+            arb_inv(y, y, p);
+        }
+    })
+}
+
+// gamma(a + n) / gamma(a)
+fn rf_gamma(a: &Float, n: &Float, precision: jint, rounding_mode: jint) -> Float {
+    let mut dest = a.clone();
+    if a.prec() != precision as u32 {
+        dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
+    }
+    let ga = dest.clone().gamma();
+    dest += n;
+    dest.gamma_mut();
+    dest /= ga;
+    dest
+}
+
+// gamma(a + 1) / gamma(a - n + 1)
+fn ff_gamma(a: &Float, n: &Float, precision: jint, rounding_mode: jint) -> Float {
+    let mut dest = a.clone();
+    if a.prec() != precision as u32 {
+        dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
+    }
+    let mut den = dest.clone();
+    den -= n;
+    den += 1;
+    den.gamma_mut();
+    dest += 1;
+    dest.gamma_mut();
+    dest /= den;
+    dest
+}
+
+fn factorial_power(a: &Float, n: i64, falling: bool, precision: jint, rounding_mode: jint) -> Float {
+    match arb_factorial_power(a, n, falling, precision as u32, rounding_mode) {
+        Some(v) => v,
+        None if falling => ff_gamma(a, &Float::with_val(64, n), precision, rounding_mode),
+        None => rf_gamma(a, &Float::with_val(64, n), precision, rounding_mode),
+    }
+}
 
-use crate::scifloat_elementary::xlat_rounding;
+// The order as an i64 if it is an integer in range.
+fn integer_order(n: &Float) -> Option<i64> {
+    if n.is_integer() {
+        n.to_integer().and_then(|n| n.to_i64())
+    } else {
+        None
+    }
+}
 
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciFloat_rf(
@@ -47,15 +168,10 @@ pub extern "system" fn Java_palaiologos_scijava_SciFloat_rf(
     let a = unsafe { &*a };
     let n = unsafe { &*n };
     let dest = unsafe { &mut *dest };
-    *dest = a.clone();
-    if a.prec() != precision as u32 {
-        dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
-    }
-    // gamma(a + n) / gamma(a)
-    let ga = dest.clone().gamma();
-    *dest += n;
-    dest.gamma_mut();
-    *dest /= ga;
+    *dest = match integer_order(n) {
+        Some(n) => factorial_power(a, n, false, precision, rounding_mode),
+        None => rf_gamma(a, n, precision, rounding_mode),
+    };
 }
 
 #[no_mangle]
@@ -67,18 +183,26 @@ pub extern "system" fn Java_palaiologos_scijava_SciFloat_ff(
     let a = unsafe { &*a };
     let n = unsafe { &*n };
     let dest = unsafe { &mut *dest };
-    *dest = a.clone();
-    if a.prec() != precision as u32 {
-        dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
-    }
-    // gamma(a + 1) / gamma(a - n + 1)
-    let mut ga = dest.clone();
-    ga += 1;
-    ga.gamma_mut();
-    *dest -= n;
-    *dest += 1;
-    dest.gamma_mut();
-    *dest /= ga;
+    *dest = match integer_order(n) {
+        Some(n) => factorial_power(a, n, true, precision, rounding_mode),
+        None => ff_gamma(a, n, precision, rounding_mode),
+    };
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciFloat_rfLong(
+        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong, n: jlong) {
+    let a = unsafe { &*(a as *const Float) };
+    let dest = unsafe { &mut *(dest as *mut Float) };
+    *dest = factorial_power(a, n, false, precision, rounding_mode);
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciFloat_ffLong(
+        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong, n: jlong) {
+    let a = unsafe { &*(a as *const Float) };
+    let dest = unsafe { &mut *(dest as *mut Float) };
+    *dest = factorial_power(a, n, true, precision, rounding_mode);
 }
 
 #[no_mangle]
@@ -205,7 +329,7 @@ pub extern "system" fn Java_palaiologos_scijava_SciFloat_sinpi(
     if a.prec() != precision as u32 {
         dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
     }
-    *dest *= Float::with_val(precision as u32, Constant::Pi);
+    *dest *= cached_constant(PI, precision as u32);
     dest.sin_mut();
 }
 
@@ -220,7 +344,7 @@ pub extern "system" fn Java_palaiologos_scijava_SciFloat_cospi(
     if a.prec() != precision as u32 {
         dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
     }
-    *dest *= Float::with_val(precision as u32, Constant::Pi);
+    *dest *= cached_constant(PI, precision as u32);
     dest.cos_mut();
 }
 
@@ -239,203 +363,253 @@ pub extern "system" fn Java_palaiologos_scijava_SciFloat_sinc(
     *dest /= a;
 }
 
-fn lambertw_special(prec: u32, z: Float, k: f32) -> Float {
-    if z.is_zero() {
-        if k == 0.0 {
-            return z;
+// The branch point -1/e of the real branches of the Lambert W function.
+const LAMBERTW_BRANCH_POINT: f64 = -0.36787944117144233;
+
+// Scratch values of the Halley iteration. They are allocated once at the
+// largest working precision and resized in place, so that the iteration
+// does not allocate.
+struct LambertScratch {
+    ew: Float,
+    f: Float,
+    t: Float,
+    u: Float,
+    den: Float,
+}
+
+impl LambertScratch {
+    fn new(prec: u32) -> LambertScratch {
+        LambertScratch {
+            ew: Float::new(prec),
+            f: Float::new(prec),
+            t: Float::new(prec),
+            u: Float::new(prec),
+            den: Float::new(prec),
         }
-        return Float::with_val(prec, Special::NegInfinity);
-    }
-    if z.is_infinite() && k == 0.0 {
-        return z;
-    }
-    z.ln()
-}
-
-fn lambertw_approx_hybrid(prec: u32, z: Float, k: f32) -> Float {
-    if k == 0.0 {
-        if z < -4.0 && z < 4.0 && -1.0 < z && z < 2.5 {
-            // Taylor series near -1
-            if z < -0.5 {
-                return Float::with_val(prec, Special::Nan);
-            }
-            // return real type
-            let r = Float::with_val(prec, -0.367879441171442);
-            let mut z = z;
-            if z > r {
-                z = r.clone()
-            }
-            // Singularity near -1/e
-            if z < -0.2 {
-                let zmr = z - r;
-                let zmr_r = zmr.clone().sqrt();
-                return Float::with_val(prec, -1) + Float::with_val(prec, 2.33164398159712) * zmr_r - Float::with_val(prec, 1.81218788563936) * zmr;
-            }
-            // Taylor series near 0
-            if z < 0.5 {
-                return z;
-            }
-            // Simple linear approximation
-            return Float::with_val(prec, 0.2) + Float::with_val(prec, 0.3) * z;
+    }
+
+    fn set_prec(&mut self, prec: u32) {
+        self.ew.set_prec(prec);
+        self.f.set_prec(prec);
+        self.t.set_prec(prec);
+        self.u.set_prec(prec);
+        self.den.set_prec(prec);
+    }
+}
+
+// One Halley step on w e^w - x = 0 at the precision of w. Returns the
+// exponent of the correction, i32::MIN if it was zero, or None if the step
+// failed: w + 1 vanished at this precision or the correction is not finite.
+fn lambertw_halley(w: &mut Float, x: &Float, s: &mut LambertScratch) -> Option<i32> {
+    s.t.assign(&*w + 1);
+    if s.t.is_zero() {
+        return None;
+    }
+    s.ew.assign(w.exp_ref());
+    s.f.assign(&*w * &s.ew);
+    s.f -= x;
+    s.den.assign(&s.ew * &s.t);
+    // den = e^w (w + 1) - (w + 2) f / (2 (w + 1))
+    s.u.assign(&s.t + 1);
+    s.u *= &s.f;
+    s.u /= &s.t;
+    s.u /= 2;
+    s.den -= &s.u;
+    s.f /= &s.den;
+    *w -= &s.f;
+    if s.f.is_zero() {
+        Some(i32::MIN)
+    } else if s.f.is_finite() {
+        s.f.get_exp()
+    } else {
+        None
+    }
+}
+
+// W_k(x) in double precision for x within the range of doubles, away from
+// the branch point. k is either 0 or -1.
+fn lambertw_f64(x: f64, k: jint) -> f64 {
+    let mut w = if k == 0 {
+        // Winitzki's approximation.
+        let l = x.ln_1p();
+        l * (1.0 - (1.0 + l).ln() / (2.0 + l))
+    } else {
+        let l1 = (-x).ln();
+        let l2 = (-l1).ln();
+        l1 - l2 + l2 / l1
+    };
+    for _ in 0..8 {
+        let e = w.exp();
+        let f = w * e - x;
+        let t = w + 1.0;
+        let delta = f / (e * t - (t + 1.0) * f / (2.0 * t));
+        if !delta.is_finite() {
+            break;
+        }
+        w -= delta;
+        if delta.abs() <= 1e-15 * w.abs() {
+            break;
         }
-        
-        let l1 = z.ln();
-        let l2 = l1.clone().ln();
-        let a = l1.clone() - &l2;
-        let b = l2.clone() / &l1;
-        return a + b + l2.clone() * (l2 - 2) / (2 * l1.pow(2));
-    } else if k == -1.0 {
-        // return real type
-        let r = Float::with_val(prec, -0.367879441171442);
-        let mut z = z;
-        if r < z && z < 0.0 {
-            z = r.clone();
+    }
+    w
+}
+
+// A starting value for the iteration together with the number of bits lost
+// to the conditioning of W near the branch point. x is finite, non-zero and
+// in the domain of the branch k.
+fn lambertw_seed(x: &Float, k: jint, prec: u32) -> (Float, u32) {
+    let xd = x.to_f64();
+    if xd < 0.0 && xd - LAMBERTW_BRANCH_POINT < 0.2 {
+        // W = -1 + p - p^2/3 + 11/72 p^3 - 43/540 p^4 + ..., p = +-sqrt(2 (e x + 1)).
+        // e x + 1 cancels, so it is computed at a precision above that of x.
+        let dp = max(x.prec(), prec) + 64;
+        let mut p = cached_constant(E, dp) * x;
+        p += 1;
+        p *= 2;
+        let extra = match p.get_exp() {
+            Some(e) if e < 0 => (-e) as u32 / 2 + 1,
+            _ => 0,
+        };
+        let mut p = Float::with_val(64 + extra, p.sqrt_ref());
+        if k != 0 {
+            p = -p;
         }
-        if z < 0.1 && -0.6 < z && z < -0.2 {
-            let zmr = z - r;
-            let zmr_r = zmr.clone().sqrt();
-            return Float::with_val(prec, -1) - Float::with_val(prec, 2.33164398159712) * zmr_r - Float::with_val(prec, 1.81218788563936) * zmr;
-        } else if (-0.2..0.0).contains(&z) {
-            let l1 = (-z).ln();
-            let ml1 = -l1.clone();
-            return l1 - ml1.ln();
-        } else {
-            return Float::with_val(prec, Special::Nan);
+        let mut w = Float::with_val(64 + extra, -43.0 / 540.0);
+        w *= &p;
+        w += 11.0 / 72.0;
+        w *= &p;
+        w -= 1.0 / 3.0;
+        w *= &p;
+        w += 1;
+        w *= &p;
+        w -= 1;
+        return (w, extra);
+    }
+    if xd.abs() > 1e300 || xd.abs() < 1e-300 {
+        if k == 0 && xd.abs() < 1e-300 {
+            // W(x) = x - x^2 + ...
+            return (Float::with_val(64, x), 0);
         }
+        // Beyond the range of doubles only the logarithm is representable.
+        let l1 = Float::with_val(64, x.abs_ref()).ln().to_f64();
+        let l2 = if k == 0 { l1.ln() } else { (-l1).ln() };
+        let w = l1 - l2 + l2 / l1 + l2 * (l2 - 2.0) / (2.0 * l1 * l1);
+        return (Float::with_val(64, w), 0);
     }
-    Float::with_val(prec, Special::Nan)
+    let w = lambertw_f64(xd, k);
+    let extra = max(0.0, -(1.0 + w).abs().log2()).ceil() as u32;
+    (Float::with_val(64 + extra, w), extra)
 }
 
-// return the logarithmic magnitude of a number, i.e. m such that |x| <= 2^m. m can be zero or infinity.
-fn mag(x: &Float) -> f64 {
+// W_k(x) rounded to prec bits. Returns None if the iteration fails to
+// converge. Only the real branches 0 and -1 are supported, anything else
+// evaluates to NaN.
+fn lambertw(x: &Float, k: jint, prec: u32, round: Round, s: &mut LambertScratch) -> Option<Float> {
+    let nan = || Float::with_val(prec, Special::Nan);
+    if x.is_nan() || (k != 0 && k != -1) {
+        return Some(nan());
+    }
     if x.is_zero() {
-        return f64::NEG_INFINITY;
+        return Some(if k == 0 { Float::with_val(prec, x) } else { Float::with_val(prec, Special::NegInfinity) });
     }
     if x.is_infinite() {
-        return f64::INFINITY;
+        return Some(if k == 0 && x.is_sign_positive() { Float::with_val(prec, x) } else { nan() });
+    }
+    if k == -1 && x.is_sign_positive() {
+        return Some(nan());
     }
     if x.is_sign_negative() {
-        let x = -x.clone();
-        let mut m = x.log2();
-        m.floor_mut();
-        -m.to_f64()
-    } else {
-        let mut m = x.clone().log2();
-        m.floor_mut();
-        m.to_f64()
-    }
-}
-
-fn lambertw_series(prec: u32, z: Float, k: f32, tol: Float) -> (Float, bool) {
-    let magz = mag(&z);
-    if (-10.0..900.0).contains(&magz) && (-1000.0..1000.0).contains(&k) {
-        // Near the branch point at -1/e
-        if magz < 1.0 && (0.36787944117144..0.41787944117144).contains(&(z.clone() + 0.36787944117144)) {
-            if k == 0.0 || k == -1.0 {
-                let delta = Float::with_val(prec, -1).exp() + &z;
-                let cancellation = -mag(&delta);
-                let fc: Float = Float::with_val(prec, consts::E) * z + 1.0;
-                let mut p = Float::with_val(prec + cancellation as u32, 2.0) * fc.sqrt();
-                let mut u = vec![Float::with_val(prec, -1.0), Float::with_val(prec, 1.0)];
-                let mut a = vec![Float::with_val(prec, 2.0), Float::with_val(prec, -1.0)];
-                if k != 0.0 {
-                    p = -p;
-                }
-                let mut s = Float::with_val(prec + cancellation as u32 / 2, 0.0);
-                // The series converges, so we could use it directly, but unless
-                // *extremely* close, it is better to just use the first few
-                // terms to get a good approximation for the iteration
-                for l in 2..max(2, cancellation as usize) {
-                    if u.len() <= l {
-                        a.push(Float::with_val(prec, 0.0));
-                        for j in 0..l {
-                            a[l] += u[j].clone() * &u[l + 1 - j];
-                        }
-
-                        u.push(Float::with_val(prec, 0.0));
-                        u[l] = (l - 1) * (u[l - 2].clone() / 2.0 + a[l - 2].clone() / 4.0) / (l + 1) - a[l].clone() / 2.0 - u[l - 1].clone() / (l + 1);
-                    }
-                    let term = u[l].clone() * p.clone().pow(l as u32);
-                    s += &term;
-                    if mag(&term) < -tol.clone() {
-                        return (s, true);
-                    }
-                }
-                return (s, false);
-            }
-            if k == 0.0 || k == -1.0 {
-                return (lambertw_approx_hybrid(prec, z, k), false);
-            }
-        }
-        if k == 0.0 {
-            if magz < -1.0 {
-                return (z.clone() * (1.0 - z), false);
-            }
-            let l1 = z.ln();
-            let l2 = l1.clone().ln();
-            return (l1.clone() - &l2 + l2.clone() / &l1 + l2.clone() * (l2 - 2.0) / (2.0 * l1.pow(2)), false);
-        } else if k == -1.0 && (-0.36787944117144..0.0).contains(&z) {
-            let l1 = (-z).ln();
-            return (l1.clone() - (-l1).ln(), false);
+        // Outside of [-1/e, 0) there are no real values.
+        let mut d = cached_constant(E, max(x.prec(), prec) + 64) * x;
+        d += 1;
+        if d.is_sign_negative() {
+            return Some(nan());
         }
     }
-    (Float::with_val(prec, Special::Nan), false)
-}
-
-fn lambertw(env: JNIEnv, prec: u32, z: Float, k: f32) -> Option<Float> {
-    if !z.is_normal() {
-        return Some(lambertw_special(prec, z, k));
-    }
-    let wp = prec + 30;
-    let tol = prec - 5;
-    let (mut w, done) = lambertw_series(wp, z.clone(), k, Float::with_val(wp, 10.0).pow(tol).recip());
-    if !done {
-        // Use Halley iteration to solve w*exp(w) = z
-        let two = Float::with_val(wp, 2.0);
-        let mut converged = false;
-        for _ in 0..100 {
-            let ew = w.clone().exp();
-            let wew = w.clone() * &ew;
-            let wewz = wew.clone() - &z;
-            let wn = w.clone() - &wewz / (wew.clone() + &ew - (w.clone() + &two) * &wewz / (two.clone() * &w + &two));
-            if mag(&(wn.clone() - &w)) <= mag(&wn) - tol as f64 {
-                w = wn;
-                converged = true;
-                break;
-            } else {
-                w = wn;
-            }
-        }
-        if !converged {
-            // throw exception
-            let _ = env.throw(("java/lang/ArithmeticException", "Lambert W iteration failed to converge."));
+
+    let (seed, extra) = lambertw_seed(x, k, prec);
+    let wp = prec + 32 + extra;
+
+    // Halley's method converges cubically, so doubling the precision at every
+    // step only ever asks for two thirds of what the step delivers. Near the
+    // branch point w + 1 is only about 2^-extra, so every step carries extra
+    // bits on top of the ones it resolves, or w + 1 would round to zero.
+    let mut ladder = vec![wp];
+    while *ladder.last().unwrap() > extra + 112 {
+        let p = *ladder.last().unwrap() - extra;
+        ladder.push(p / 2 + 8 + extra);
+    }
+    let mut w = Float::with_val(wp, &seed);
+    s.set_prec(wp);
+    let mut correction = None;
+    for &p in ladder.iter().rev() {
+        w.set_prec(p);
+        s.set_prec(p);
+        correction = lambertw_halley(&mut w, x, s);
+    }
+
+    // The correction of the last step bounds the error of its input, so the
+    // result is accurate once the correction is below a third of wp.
+    for _ in 0..10 {
+        if !w.is_finite() {
             return None;
         }
+        let converged = match (correction, w.get_exp()) {
+            (None, _) => false,
+            (Some(c), Some(e)) => c <= e - (wp / 3) as i32 - 2,
+            (Some(_), None) => false,
+        };
+        if converged {
+            w.set_prec_round(prec, round);
+            return Some(w);
+        }
+        correction = lambertw_halley(&mut w, x, s);
     }
-    Some(w)
+    None
 }
 
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciFloat_lambertw(
-        env: JNIEnv, _class: JClass, prec: u32, z: jlong, k: jint) -> jobject {
-    let z = unsafe { &*(z as *const Float) };
-    let lw = lambertw(env, prec, z.clone(), k as f32);
-    let lw = match lw {
-        Some(lw) => lw,
-        None => return JObject::null().into_raw(),
-    };
-    let lw = Box::into_raw(Box::new(lw));
-    let lw = lw as jlong;
-    let class = env.new_object("palaiologos/scijava/SciFloat", "(J)V", &[JValue::Long(lw)]);
-    match class {
-        Ok(class) => class.into_raw(),
-        Err(_) => {
+        env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, x: jlong, k: jint) {
+    let dest = unsafe { &mut *(dest as *mut Float) };
+    let x = unsafe { &*(x as *const Float) };
+    let mut scratch = LambertScratch::new(precision as u32 + 64);
+    match lambertw(x, k, precision as u32, xlat_rounding(rounding_mode), &mut scratch) {
+        Some(w) => *dest = w,
+        None => {
             let _ = env.throw(("java/lang/ArithmeticException", "Lambert W iteration failed to converge."));
-            JObject::null().into_raw()
         }
     }
 }
 
+// Every thread evaluates a contiguous chunk of the arguments and reuses one
+// set of scratch values for the whole chunk.
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciFloat_lambertwMulti(
+        env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlongArray, xs: jlongArray, k: jint) {
+    let (dest, xs) = match (read_pointers(&env, dest), read_pointers(&env, xs)) {
+        (Some(d), Some(x)) => (d, x),
+        _ => return,
+    };
+    let n = xs.len();
+    let threads = if n < 16 { 1 } else { worker_count().min(n) };
+    let chunk = (n + threads - 1) / threads.max(1);
+    let round = xlat_rounding(rounding_mode);
+    let results: Vec<Option<Float>> = par_map(threads, threads, |c| {
+        let mut scratch = LambertScratch::new(precision as u32 + 64);
+        (c * chunk..n.min((c + 1) * chunk))
+            .map(|i| lambertw(unsafe { &*(xs[i] as *const Float) }, k, precision as u32, round, &mut scratch))
+            .collect::<Vec<_>>()
+    }).into_iter().flatten().collect();
+    if results.iter().any(|w| w.is_none()) {
+        let _ = env.throw(("java/lang/ArithmeticException", "Lambert W iteration failed to converge."));
+        return;
+    }
+    for (d, w) in dest.into_iter().zip(results) {
+        unsafe { *(d as *mut Float) = w.unwrap(); }
+    }
+}
+
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciFloat_j0(
         _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong) {
@@ -443,6 +617,12 @@ pub extern "system" fn Java_palaiologos_scijava_SciFloat_j0(
     let a = a as *mut Float;
     let a = unsafe { &*a };
     let dest = unsafe { &mut *dest };
+    if use_arb(ARB_BESSEL_J, precision) {
+        if let Some(v) = arb_bessel_j(a, 0, precision, rounding_mode) {
+            *dest = v;
+            return;
+        }
+    }
     if a.prec() == precision as u32 {
         *dest = a.clone();
         dest.j0_mut();
@@ -460,6 +640,12 @@ pub extern "system" fn Java_palaiologos_scijava_SciFloat_j1(
     let a = a as *mut Float;
     let a = unsafe { &*a };
     let dest = unsafe { &mut *dest };
+    if use_arb(ARB_BESSEL_J, precision) {
+        if let Some(v) = arb_bessel_j(a, 1, precision, rounding_mode) {
+            *dest = v;
+            return;
+        }
+    }
     if a.prec() == precision as u32 {
         *dest = a.clone();
         dest.j1_mut();
@@ -477,6 +663,12 @@ pub extern "system" fn Java_palaiologos_scijava_SciFloat_jn(
     let a = a as *mut Float;
     let a = unsafe { &*a };
     let dest = unsafe { &mut *dest };
+    if use_arb(ARB_BESSEL_J, precision) {
+        if let Some(v) = arb_bessel_j(a, n, precision, rounding_mode) {
+            *dest = v;
+            return;
+        }
+    }
     if a.prec() == precision as u32 {
         *dest = a.clone();
         dest.jn_mut(n);
@@ -545,6 +737,12 @@ pub extern "system" fn Java_palaiologos_scijava_SciFloat_li2(
     let a = a as *mut Float;
     let a = unsafe { &*a };
     let dest = unsafe { &mut *dest };
+    if use_arb(ARB_LI2, precision) && *a <= 1 {
+        if let Some(v) = correctly_rounded(a, precision as u32, rounding_mode, |y, x, p| unsafe { arb_hypgeom_dilog(y, x, p) }) {
+            *dest = v;
+            return;
+        }
+    }
     if a.prec() == precision as u32 {
         *dest = a.clone();
         dest.li2_mut();
@@ -562,6 +760,12 @@ pub extern "system" fn Java_palaiologos_scijava_SciFloat_gamma(
     let a = a as *mut Float;
     let a = unsafe { &*a };
     let dest = unsafe { &mut *dest };
+    if use_arb(ARB_GAMMA, precision) {
+        if let Some(v) = correctly_rounded(a, precision as u32, rounding_mode, |y, x, p| unsafe { arb_gamma(y, x, p) }) {
+            *dest = v;
+            return;
+        }
+    }
     if a.prec() == precision as u32 {
         *dest = a.clone();
         dest.gamma_mut();
@@ -598,6 +802,12 @@ pub extern "system" fn Java_palaiologos_scijava_SciFloat_erf(
     let a = a as *mut Float;
     let a = unsafe { &*a };
     let dest = unsafe { &mut *dest };
+    if use_arb(ARB_ERF, precision) {
+        if let Some(v) = correctly_rounded(a, precision as u32, rounding_mode, |y, x, p| unsafe { arb_hypgeom_erf(y, x, p) }) {
+            *dest = v;
+            return;
+        }
+    }
     if a.prec() == precision as u32 {
         *dest = a.clone();
         dest.erf_mut();
@@ -976,12 +1186,18 @@ pub extern "system" fn Java_palaiologos_scijava_SciFloat_digamma(
 }
 
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciFloat_ei(
+pub extern "system" fn Java_palaiologos_scijava_SciFloat_Ei(
         _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong) {
     let dest = dest as *mut Float;
     let a = a as *mut Float;
     let a = unsafe { &*a };
     let dest = unsafe { &mut *dest };
+    if use_arb(ARB_EI, precision) {
+        if let Some(v) = correctly_rounded(a, precision as u32, rounding_mode, |y, x, p| unsafe { arb_hypgeom_ei(y, x, p) }) {
+            *dest = v;
+            return;
+        }
+    }
     if a.prec() == precision as u32 {
         *dest = a.clone();
         dest.eint_mut();
@@ -992,6 +1208,59 @@ pub extern "system" fn Java_palaiologos_scijava_SciFloat_ei(
     }
 }
 
+// Most Bernoulli numbers the asymptotic expansion of H_n may use, so that
+// the shared table stays small whatever the precision.
+const HARMONIC_MAX_TERMS: usize = 32;
+
+// H_n for an integer n. Up to about 8 wp the exact sum by binary splitting,
+// rounded once, is faster than the alternatives (it takes milliseconds for
+// n around 25000), so it is used there. Beyond that, the asymptotic expansion
+// H_n = ln n + eulergamma + 1/(2n) - sum_k B_2k / (2k n^2k) is used if at most
+// HARMONIC_MAX_TERMS terms bring it below 2^-wp, and otherwise
+// H_n = digamma(n + 1) + eulergamma.
+fn harmonic_integer(n: u64, prec: u32, round: Round) -> Float {
+    let wp = prec + 32;
+    if n <= 8 * wp as u64 {
+        return Float::with_val_round(prec, &harmonic(n), round).0;
+    }
+    // The number of terms, from |B_2k| ~ 2 (2k)! / (2 pi)^2k.
+    let log_n = (2.0 * std::f64::consts::PI * n as f64).log2();
+    let mut log_term = 1.0;
+    let mut terms = 0;
+    while log_term > -(wp as f64) && terms <= HARMONIC_MAX_TERMS {
+        terms += 1;
+        let k = terms as f64;
+        log_term += ((2.0 * k - 1.0) * 2.0 * k).log2() - 2.0 * log_n;
+    }
+    if terms > HARMONIC_MAX_TERMS {
+        let mut sum = Float::with_val(wp.max(96), n);
+        sum += 1u32;
+        sum.digamma_mut();
+        sum += cached_constant(EULER, wp);
+        sum.set_prec_round(prec, round);
+        return sum;
+    }
+    let b: Vec<Rational> = {
+        let table = bernoulli_table(2 * terms);
+        (1..=terms).map(|k| table[2 * k].clone()).collect()
+    };
+    let nf = Float::with_val(wp, n);
+    let inv2 = Float::with_val(wp, nf.square_ref()).recip();
+    let mut sum = Float::with_val(wp, nf.ln_ref());
+    sum += cached_constant(EULER, wp);
+    sum += Float::with_val(wp, &nf * 2u32).recip();
+    let mut power = inv2.clone();
+    for (k, b) in b.iter().enumerate() {
+        let mut t = Float::with_val(wp, b);
+        t *= &power;
+        t /= 2 * (k as u32 + 1);
+        sum -= &t;
+        power *= &inv2;
+    }
+    sum.set_prec_round(prec, round);
+    sum
+}
+
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciFloat_harmonic(
         _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, a: jlong) {
@@ -999,6 +1268,12 @@ pub extern "system" fn Java_palaiologos_scijava_SciFloat_harmonic(
     let a = a as *mut Float;
     let a = unsafe { &*a };
     let dest = unsafe { &mut *dest };
+    if a.is_integer() && *a >= 0 {
+        if let Some(n) = a.to_integer().and_then(|n| n.to_u64()) {
+            *dest = harmonic_integer(n, precision as u32, xlat_rounding(rounding_mode));
+            return;
+        }
+    }
     *dest = a.clone();
     if a.prec() != precision as u32 {
         dest.set_prec_round(precision as u32, xlat_rounding(rounding_mode));
@@ -1006,7 +1281,29 @@ pub extern "system" fn Java_palaiologos_scijava_SciFloat_harmonic(
     // H_n = eulergamma + digamma(n + 1)
     *dest += 1;
     dest.digamma_mut();
-    *dest += Float::with_val(precision as u32, Constant::Euler);
+    *dest += cached_constant(EULER, precision as u32);
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciFloat_harmonicLong(
+        _env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlong, n: jlong) {
+    let dest = unsafe { &mut *(dest as *mut Float) };
+    *dest = harmonic_integer(n as u64, precision as u32, xlat_rounding(rounding_mode));
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciFloat_harmonicMulti(
+        env: JNIEnv, _class: JClass, precision: jint, rounding_mode: jint, dest: jlongArray, ns: jlongArray) {
+    let (dest, ns) = match (read_pointers(&env, dest), read_pointers(&env, ns)) {
+        (Some(d), Some(n)) => (d, n),
+        _ => return,
+    };
+    let threads = if ns.len() < 16 { 1 } else { worker_count() };
+    let round = xlat_rounding(rounding_mode);
+    let results = par_map(ns.len(), threads, |i| harmonic_integer(ns[i] as u64, precision as u32, round));
+    for (d, h) in dest.into_iter().zip(results) {
+        unsafe { *(d as *mut Float) = h; }
+    }
 }
 
 fn bernoulli(prec: u32, n: i32) -> Float {
@@ -1036,6 +1333,12 @@ pub extern "system" fn Java_palaiologos_scijava_SciFloat_zeta(
     let a = a as *mut Float;
     let a = unsafe { &*a };
     let dest = unsafe { &mut *dest };
+    if use_arb(ARB_ZETA, precision) {
+        if let Some(v) = correctly_rounded(a, precision as u32, rounding_mode, |y, x, p| unsafe { arb_zeta(y, x, p) }) {
+            *dest = v;
+            return;
+        }
+    }
     if a.prec() == precision as u32 {
         *dest = a.clone();
         dest.zeta_mut();
@@ -17,9 +17,9 @@
 */
 
 use std::collections::HashMap;
-use std::collections::hash_map::DefaultHasher;
-use std::hash::{Hash, Hasher};
 use std::ops::{BitAnd, BitOr, BitXor, Not, Shl, Shr};
+use std::sync::OnceLock;
+use std::thread;
 
 // This is the interface to the JVM that we'll call the majority of our
 // methods on.
@@ -33,12 +33,15 @@ use jni::objects::{JClass, JString, JObject, JValue, JMap};
 // This is just a pointer. We'll be returning it from our function. We
 // can't return one of the objects with lifetime information because the
 // lifetime checker won't let us.
-use jni::sys::{jstring, jlong, jint, jobject, jboolean};
+use jni::sys::{jstring, jlong, jint, jobject, jboolean, jobjectArray, jlongArray, jbyteArray, jsize};
 
-use rug::integer::IsPrime;
+use rug::integer::{IsPrime, Order};
 use rug::ops::Pow;
 use rug::rand::RandState;
 use rug::{Integer, Complete, Float};
+use gmp_mpfr_sys::gmp;
+
+use crate::product_tree::{read_integers, read_pointers, split_depth};
 
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciInteger_free(_env: JNIEnv, _class: JClass, ptr: jlong) {
@@ -61,6 +64,80 @@ pub extern "system" fn Java_palaiologos_scijava_SciInteger_fromInteger(env: JNIE
     }
 }
 
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciInteger_fromLong(_env: JNIEnv, _class: JClass, n: jlong) -> jlong {
+    Box::into_raw(Box::new(Integer::from(n))) as jlong
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciInteger_fromLongs(env: JNIEnv, _class: JClass, ns: jlongArray) -> jlongArray {
+    let result = (|| {
+        let ptrs: Vec<jlong> = read_pointers(&env, ns)?.into_iter()
+            .map(|n| Box::into_raw(Box::new(Integer::from(n))) as jlong)
+            .collect();
+        let array = env.new_long_array(ptrs.len() as jsize).ok()?;
+        env.set_long_array_region(array, 0, &ptrs).ok()?;
+        Some(array)
+    })();
+    result.unwrap_or(std::ptr::null_mut())
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciInteger_toLong(env: JNIEnv, _class: JClass, ptr: jlong) -> jlong {
+    let n = unsafe { &*(ptr as *const Integer) };
+    match n.to_i64() {
+        Some(n) => n,
+        None => {
+            let _ = env.throw(("java/lang/ArithmeticException", "Failed to convert the integer to a Java long (overflow/underflow?)."));
+            0
+        }
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciInteger_toLongs(env: JNIEnv, _class: JClass, ptrs: jlongArray) -> jlongArray {
+    let ns = match read_integers(&env, ptrs) {
+        Some(n) => n,
+        None => return std::ptr::null_mut(),
+    };
+    let values: Option<Vec<jlong>> = ns.iter().map(|n| n.to_i64()).collect();
+    let values = match values {
+        Some(v) => v,
+        None => {
+            let _ = env.throw(("java/lang/ArithmeticException", "Failed to convert the integer to a Java long (overflow/underflow?)."));
+            return std::ptr::null_mut();
+        }
+    };
+    let result = (|| {
+        let array = env.new_long_array(values.len() as jsize).ok()?;
+        env.set_long_array_region(array, 0, &values).ok()?;
+        Some(array)
+    })();
+    result.unwrap_or(std::ptr::null_mut())
+}
+
+// The magnitude is exchanged as big-endian bytes, the layout used by
+// java.math.BigInteger.
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciInteger_fromMagnitude(
+        env: JNIEnv, _class: JClass, signum: jint, magnitude: jbyteArray) -> jlong {
+    let bytes = match env.convert_byte_array(magnitude) {
+        Ok(b) => b,
+        Err(_) => return 0,
+    };
+    let mut n = Integer::from_digits(&bytes, Order::Msf);
+    if signum < 0 {
+        n = -n;
+    }
+    Box::into_raw(Box::new(n)) as jlong
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciInteger_toMagnitude(env: JNIEnv, _class: JClass, ptr: jlong) -> jbyteArray {
+    let n = unsafe { &*(ptr as *const Integer) };
+    env.byte_array_from_slice(&n.to_digits::<u8>(Order::Msf)).unwrap_or(std::ptr::null_mut())
+}
+
 // fromSciFloat
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciInteger_fromSciFloat(env: JNIEnv, _class: JClass, ptr: jlong) -> jobject {
@@ -197,13 +274,34 @@ pub extern "system" fn Java_palaiologos_scijava_SciInteger_toStringRadix(env: JN
     }
 }
 
+// The magnitude of a as a slice of limbs, least significant first.
+pub fn limbs(a: &Integer) -> &[gmp::limb_t] {
+    let raw = unsafe { &*a.as_raw() };
+    let size = raw.size.unsigned_abs() as usize;
+    if size == 0 {
+        return &[];
+    }
+    unsafe { std::slice::from_raw_parts(raw.d.as_ptr(), size) }
+}
+
+// A fast, non-cryptographic hash over the sign and the limbs of a.
+pub fn limb_hash(a: &Integer) -> u64 {
+    const K: u64 = 0x517c_c1b7_2722_0a95;
+    let mut h = (a.cmp0() as i64 as u64).wrapping_mul(K);
+    for &limb in limbs(a) {
+        h = (h.rotate_left(5) ^ limb as u64).wrapping_mul(K);
+    }
+    h ^ (h >> 32)
+}
+
+// Fill out with { hash, signed bit length, lowest limb }.
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciInteger_hash(env: JNIEnv, _class: JClass, ptr: jlong) -> jlong {
+pub extern "system" fn Java_palaiologos_scijava_SciInteger_fingerprint(env: JNIEnv, _class: JClass, ptr: jlong, out: jlongArray) {
     let ptr = ptr as *mut Integer;
     let n = unsafe { &*ptr };
-    let mut hasher = DefaultHasher::new();
-    n.hash(&mut hasher);
-    hasher.finish() as jlong
+    let bits = n.significant_bits() as i64 * n.cmp0() as i64;
+    let low = limbs(n).first().map_or(0, |&l| l as u64);
+    let _ = env.set_long_array_region(out, 0, &[limb_hash(n) as jlong, bits, low as jlong]);
 }
 
 #[no_mangle]
@@ -311,6 +409,25 @@ pub extern "system" fn Java_palaiologos_scijava_SciInteger_gcd(_env: JNIEnv, _cl
     *dest = a.gcd_ref(b).into();
 }
 
+// g = s * a + t * b with a single mpz_gcdext call. A zero destt skips computing t.
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciInteger_gcdext(_env: JNIEnv, _class: JClass, destg: jlong, dests: jlong, destt: jlong, a: jlong, b: jlong) {
+    let destg = destg as *mut Integer;
+    let dests = dests as *mut Integer;
+    let a = a as *mut Integer;
+    let b = b as *mut Integer;
+    let a = unsafe { &*a };
+    let b = unsafe { &*b };
+    let destg = unsafe { &mut *destg };
+    let dests = unsafe { &mut *dests };
+    let t = if destt == 0 {
+        std::ptr::null_mut()
+    } else {
+        unsafe { &mut *(destt as *mut Integer) }.as_raw_mut()
+    };
+    unsafe { gmp::mpz_gcdext(destg.as_raw_mut(), dests.as_raw_mut(), t, a.as_raw(), b.as_raw()); }
+}
+
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciInteger_lcm(_env: JNIEnv, _class: JClass, dest: jlong, a: jlong, b: jlong) {
     let dest = dest as *mut Integer;
@@ -564,6 +681,113 @@ pub extern "system" fn Java_palaiologos_scijava_SciInteger_nextPrime(_env: JNIEn
     *dest = a.next_prime_ref().into();
 }
 
+// Primes below this bound are used to sieve candidate windows before any
+// primality test is run on the survivors.
+const SIEVE_PRIME_BOUND: usize = 1 << 16;
+
+static SMALL_PRIMES: OnceLock<Vec<u32>> = OnceLock::new();
+
+// The primes below SIEVE_PRIME_BOUND, computed on first use.
+fn small_primes() -> &'static [u32] {
+    SMALL_PRIMES.get_or_init(|| primes_below(SIEVE_PRIME_BOUND))
+}
+
+fn primes_below(bound: usize) -> Vec<u32> {
+    let mut composite = vec![false; bound];
+    let mut primes = Vec::new();
+    for i in 2..bound {
+        if !composite[i] {
+            primes.push(i as u32);
+            let mut j = i * i;
+            while j < bound {
+                composite[j] = true;
+                j += i;
+            }
+        }
+    }
+    primes
+}
+
+// Find all probable primes in [start, start + width). Composites are struck out
+// with the small prime table, so only the survivors pay for a Miller-Rabin test.
+fn sieve_window(start: &Integer, width: usize, certainty: u32) -> Vec<Integer> {
+    let mut composite = vec![false; width];
+    let small_start = start.to_usize();
+    for &p in small_primes() {
+        let r = start.mod_u(p) as usize;
+        let mut off = if r == 0 { 0 } else { p as usize - r };
+        // Don't strike out the small prime itself if it lies in the window.
+        if small_start.map_or(false, |s| s + off == p as usize) {
+            off += p as usize;
+        }
+        while off < width {
+            composite[off] = true;
+            off += p as usize;
+        }
+    }
+    // 0 and 1 are not struck out by any prime.
+    if let Some(s) = small_start {
+        for i in 0..width.min(2usize.saturating_sub(s)) {
+            composite[i] = true;
+        }
+    }
+    let mut primes = Vec::new();
+    let mut candidate = start.clone();
+    let mut last = 0;
+    for i in 0..width {
+        if composite[i] {
+            continue;
+        }
+        candidate += (i - last) as u32;
+        last = i;
+        if candidate < SIEVE_PRIME_BOUND as u32 || candidate.is_probably_prime(certainty) != IsPrime::No {
+            primes.push(candidate.clone());
+        }
+    }
+    primes
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciInteger_sieveWindow(env: JNIEnv, _class: JClass, start: jlong, width: jint, certainty: jint) -> jobjectArray {
+    let start = start as *mut Integer;
+    let start = unsafe { &*start };
+    if *start < 0 {
+        let _ = env.throw_new("java/lang/ArithmeticException", "Call to sieveWindow with negative start");
+        return JObject::null().into_raw();
+    }
+    if width <= 0 {
+        let _ = env.throw_new("java/lang/IllegalArgumentException", "Call to sieveWindow with non-positive width");
+        return JObject::null().into_raw();
+    }
+    if certainty < 0 {
+        let _ = env.throw_new("java/lang/ArithmeticException", "Call to sieveWindow with negative certainty");
+        return JObject::null().into_raw();
+    }
+    let primes = sieve_window(start, width as usize, certainty as u32);
+    let array = match env.new_object_array(primes.len() as jint, "palaiologos/scijava/SciInteger", JObject::null()) {
+        Ok(array) => array,
+        Err(_) => {
+            let _ = env.throw(("java/lang/RuntimeException", "Failed to allocate object."));
+            return JObject::null().into_raw();
+        }
+    };
+    for (i, p) in primes.into_iter().enumerate() {
+        let ptr = Box::into_raw(Box::new(p)) as jlong;
+        match env.new_object("palaiologos/scijava/SciInteger", "(J)V", &[ptr.into()]) {
+            Ok(obj) => {
+                let _ = env.set_object_array_element(array, i as jint, obj);
+                let _ = env.delete_local_ref(obj);
+            }
+            Err(_) => {
+                unsafe { (ptr as *mut Integer).drop_in_place(); }
+                let _ = env.throw(("java/lang/RuntimeException", "Failed to allocate object."));
+                return JObject::null().into_raw();
+            }
+        }
+    }
+    array
+}
+
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciInteger_clamp(_env: JNIEnv, _class: JClass, dest: jlong, a: jlong, min: jlong, max: jlong) {
     let dest = dest as *mut Integer;
@@ -650,6 +874,101 @@ pub extern "system" fn Java_palaiologos_scijava_SciInteger_sqrt(_env: JNIEnv, _c
     *dest = a.sqrt_ref().into();
 }
 
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciInteger_isPerfectSquare(_env: JNIEnv, _class: JClass, a: jlong) -> jboolean {
+    let a = a as *mut Integer;
+    let a = unsafe { &*a };
+    a.is_perfect_square() as jboolean
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciInteger_isPerfectPower(_env: JNIEnv, _class: JClass, a: jlong) -> jboolean {
+    let a = a as *mut Integer;
+    let a = unsafe { &*a };
+    a.is_perfect_power() as jboolean
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciInteger_sqrtrem(_env: JNIEnv, _class: JClass, destroot: jlong, destrem: jlong, a: jlong) {
+    let destroot = destroot as *mut Integer;
+    let destrem = destrem as *mut Integer;
+    let a = a as *mut Integer;
+    let a = unsafe { &*a };
+    let destroot = unsafe { &mut *destroot };
+    let destrem = unsafe { &mut *destrem };
+    if a < &0 {
+        let _ = _env.throw_new("java/lang/ArithmeticException", "Call to sqrtRem with negative number");
+        return;
+    }
+    let (root, rem) = a.sqrt_rem_ref().complete();
+    *destroot = root;
+    *destrem = rem;
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciInteger_rootrem(_env: JNIEnv, _class: JClass, destroot: jlong, destrem: jlong, a: jlong, k: jint) {
+    let destroot = destroot as *mut Integer;
+    let destrem = destrem as *mut Integer;
+    let a = a as *mut Integer;
+    let a = unsafe { &*a };
+    let destroot = unsafe { &mut *destroot };
+    let destrem = unsafe { &mut *destrem };
+    if k <= 0 {
+        let _ = _env.throw_new("java/lang/ArithmeticException", "Call to rootRem with non-positive index");
+        return;
+    }
+    if a < &0 && k % 2 == 0 {
+        let _ = _env.throw_new("java/lang/ArithmeticException", "Call to rootRem with even index and negative number");
+        return;
+    }
+    let (root, rem) = a.root_rem_ref(k as u32).complete();
+    *destroot = root;
+    *destrem = rem;
+}
+
+// floor(log10(a)) for a > 0. mpz_sizeinbase is either exact or one too big,
+// so a single comparison against a power of ten settles it.
+fn log10_floor(a: &Integer) -> u32 {
+    let digits = unsafe { gmp::mpz_sizeinbase(a.as_raw(), 10) } as u32;
+    if digits > 1 && *a < Integer::u_pow_u(10, digits - 1).complete() {
+        digits - 2
+    } else {
+        digits - 1
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciInteger_log2(_env: JNIEnv, _class: JClass, a: jlong, ceil: jboolean) -> jint {
+    let a = a as *mut Integer;
+    let a = unsafe { &*a };
+    if a <= &0 {
+        let _ = _env.throw_new("java/lang/ArithmeticException", "Call to log2 with non-positive number");
+        return 0;
+    }
+    let floor = a.significant_bits() - 1;
+    if ceil != 0 && !a.is_power_of_two() {
+        (floor + 1) as jint
+    } else {
+        floor as jint
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciInteger_log10(_env: JNIEnv, _class: JClass, a: jlong, ceil: jboolean) -> jint {
+    let a = a as *mut Integer;
+    let a = unsafe { &*a };
+    if a <= &0 {
+        let _ = _env.throw_new("java/lang/ArithmeticException", "Call to log10 with non-positive number");
+        return 0;
+    }
+    let floor = log10_floor(a);
+    if ceil != 0 && *a != Integer::u_pow_u(10, floor).complete() {
+        (floor + 1) as jint
+    } else {
+        floor as jint
+    }
+}
+
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciInteger_square(_env: JNIEnv, _class: JClass, dest: jlong, a: jlong) {
     let dest = dest as *mut Integer;
@@ -691,6 +1010,49 @@ pub extern "system" fn Java_palaiologos_scijava_SciInteger_binomial(_env: JNIEnv
     *dest = a.binomial_ref(b as u32).into();
 }
 
+// Ranges shorter than this are multiplied out directly.
+const PRODUCT_LEAF: u64 = 16;
+// Ranges shorter than this are not split across threads.
+const PRODUCT_PARALLEL_THRESHOLD: u64 = 1 << 10;
+
+// The product of p + k step for k = a, ..., b - 1 by binary splitting, with
+// the halves of the top depth levels on separate threads.
+pub fn linear_product(p: &Integer, step: &Integer, a: u64, b: u64, depth: u32) -> Integer {
+    if b - a <= PRODUCT_LEAF {
+        let mut r = Integer::from(1);
+        for k in a..b {
+            let mut t = Integer::from(step * k);
+            t += p;
+            r *= &t;
+        }
+        return r;
+    }
+    let m = a + (b - a) / 2;
+    if depth > 0 && b - a >= PRODUCT_PARALLEL_THRESHOLD {
+        thread::scope(|s| {
+            let left = s.spawn(|| linear_product(p, step, a, m, depth - 1));
+            let right = linear_product(p, step, m, b, depth - 1);
+            left.join().unwrap() * right
+        })
+    } else {
+        linear_product(p, step, a, m, 0) * linear_product(p, step, m, b, 0)
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciInteger_risingFactorial(_env: JNIEnv, _class: JClass, dest: jlong, a: jlong, n: jlong) {
+    let a = unsafe { &*(a as *const Integer) };
+    let dest = unsafe { &mut *(dest as *mut Integer) };
+    *dest = linear_product(a, &Integer::from(1), 0, n as u64, split_depth());
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciInteger_fallingFactorial(_env: JNIEnv, _class: JClass, dest: jlong, a: jlong, n: jlong) {
+    let a = unsafe { &*(a as *const Integer) };
+    let dest = unsafe { &mut *(dest as *mut Integer) };
+    *dest = linear_product(a, &Integer::from(-1), 0, n as u64, split_depth());
+}
+
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciInteger_copy(_env: JNIEnv, _class: JClass, dest: jlong, a: jlong) {
     let dest = dest as *mut Integer;
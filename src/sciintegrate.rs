@@ -0,0 +1,177 @@
+/*
+    scijava
+    Copyright (C) 2022 Kamila Szewczyk
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+use std::ffi::c_void;
+use std::mem::MaybeUninit;
+use std::os::raw::c_int;
+
+// This is the interface to the JVM that we'll call the majority of our
+// methods on.
+use jni::JNIEnv;
+
+// These objects are what you should use as arguments to your native
+// function. They carry extra lifetime information to prevent them escaping
+// this context and getting used after being GC'd.
+use jni::objects::{JClass, JObject, JStaticMethodID, JValue};
+use jni::signature::{Primitive, ReturnType};
+
+// This is just a pointer. We'll be returning it from our function. We
+// can't return one of the objects with lifetime information because the
+// lifetime checker won't let us.
+use jni::sys::{jint, jlong, jlongArray};
+
+use arb_sys::acb::{acb_indeterminate, acb_ptr, acb_set_arb, acb_struct};
+use arb_sys::acb_calc::{acb_calc_integrate, acb_calc_integrate_opt_init, acb_calc_integrate_opt_struct};
+use arb_sys::arb_hypgeom::arb_hypgeom_legendre_p_ui_root;
+use arb_sys::mag::{mag_clear, mag_init, mag_set_ui_2exp_si, mag_struct};
+use flint_sys::deps::{mpfr_rnd_t_MPFR_RNDN, slong};
+use rug::Float;
+
+use crate::product_tree::{par_map, read_pointers, worker_count};
+use crate::sciball::Ball;
+use crate::scicomplexball::{set_analytic, ComplexBall};
+use crate::scifloat_elementary::{cached_constant, PI};
+
+// Guard bits of the computation of the nodes and weights.
+const NODE_GUARD_BITS: u32 = 16;
+
+fn write_floats(env: &JNIEnv, dest: jlongArray, values: Vec<Float>) {
+    if let Some(dest) = read_pointers(env, dest) {
+        for (d, v) in dest.into_iter().zip(values) {
+            unsafe { *(d as *mut Float) = v; }
+        }
+    }
+}
+
+// The roots of the Legendre polynomial P_n, from the one closest to 1
+// downwards, and the corresponding Gauss-Legendre weights.
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciIntegrate_legendreNodes(
+        env: JNIEnv, _class: JClass, precision: jint, degree: jint, nodes: jlongArray, weights: jlongArray) {
+    let n = degree as usize;
+    let work = precision as u32 + NODE_GUARD_BITS;
+    let pairs = par_map(n, worker_count(), |k| {
+        let mut x = Ball::new();
+        let mut w = Ball::new();
+        unsafe {
+            arb_hypgeom_legendre_p_ui_root(x.as_mut_ptr(), w.as_mut_ptr(), n as _, k as _, work as slong);
+        }
+        (x.mid_to_float(precision as u32, mpfr_rnd_t_MPFR_RNDN), w.mid_to_float(precision as u32, mpfr_rnd_t_MPFR_RNDN))
+    });
+    let (x, w): (Vec<Float>, Vec<Float>) = pairs.into_iter().unzip();
+    write_floats(&env, nodes, x);
+    write_floats(&env, weights, w);
+}
+
+// The nodes of the tanh-sinh rule with step 2^-level that are not nodes of
+// the rule with step 2^(1-level): t = jh for level zero and t = (2j + 1)h
+// otherwise. The node x = tanh(pi/2 sinh t) is returned as its distance
+// from one, 1 - x = 2 / (1 + exp(pi sinh t)), which does not suffer from
+// cancellation near the endpoints, and the weight is
+// pi/2 cosh t / cosh^2(pi/2 sinh t).
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciIntegrate_tanhSinhNodes(
+        env: JNIEnv, _class: JClass, precision: jint, level: jint, complements: jlongArray, weights: jlongArray) {
+    let n = match env.get_array_length(complements) {
+        Ok(n) => n as usize,
+        Err(_) => return,
+    };
+    let work = precision as u32 + NODE_GUARD_BITS;
+    let half_pi = cached_constant(PI, work) / 2u32;
+    let pairs = par_map(n, worker_count(), |j| {
+        let k = if level == 0 { j } else { 2 * j + 1 };
+        let t = Float::with_val(work, k as u32) >> (level as u32);
+        let u = Float::with_val(work, t.sinh_ref()) * &half_pi;
+        let mut c = Float::with_val(work, &u * 2u32);
+        c.exp_mut();
+        c += 1u32;
+        c.recip_mut();
+        c *= 2u32;
+        let mut w = Float::with_val(work, u.cosh_ref());
+        w.square_mut();
+        w.recip_mut();
+        w *= Float::with_val(work, t.cosh_ref());
+        w *= &half_pi;
+        (Float::with_val(precision as u32, &c), Float::with_val(precision as u32, &w))
+    });
+    let (c, w): (Vec<Float>, Vec<Float>) = pairs.into_iter().unzip();
+    write_floats(&env, complements, c);
+    write_floats(&env, weights, w);
+}
+
+// The integrand of a rigorous integration: a java.util.function.BiFunction
+// taking a MathContext and a SciComplexBall, evaluated at the working
+// precision requested by Arb through SciIntegrate.evaluate. The class and
+// method are resolved once per integration, so the callback neither looks
+// them up nor creates local references that would pile up until the
+// integration returns.
+struct Integrand<'a> {
+    env: JNIEnv<'a>,
+    class: JClass<'a>,
+    evaluate: JStaticMethodID,
+    f: JObject<'a>,
+    failed: bool,
+}
+
+unsafe extern "C" fn evaluate_integrand(out: acb_ptr, inp: *mut acb_struct, param: *mut c_void, order: slong, prec: slong) -> c_int {
+    let integrand = &mut *(param as *mut Integrand);
+    // Once the integrand has thrown, the exception is left pending and no
+    // more calls are made into the JVM.
+    if integrand.failed {
+        acb_indeterminate(out);
+        return 0;
+    }
+    set_analytic(order != 0);
+    let args = [JValue::Object(integrand.f), JValue::Long(out as jlong), JValue::Long(inp as jlong), JValue::Int(prec as jint)];
+    let result = integrand.env.call_static_method_unchecked(
+        integrand.class, integrand.evaluate, ReturnType::Primitive(Primitive::Void), &args.map(|a| a.to_jni()));
+    set_analytic(false);
+    if result.is_err() || integrand.env.exception_check().unwrap_or(true) {
+        integrand.failed = true;
+        acb_indeterminate(out);
+    }
+    0
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciIntegrate_rigorous(
+        env: JNIEnv, class: JClass, precision: jint, goal: jint, dest: jlong, a: jlong, b: jlong, f: JObject) {
+    let dest = unsafe { &mut *(dest as *mut ComplexBall) };
+    let evaluate = match env.get_static_method_id(class, "evaluate", "(Ljava/util/function/BiFunction;JJI)V") {
+        Ok(m) => m,
+        Err(_) => return,
+    };
+    let mut lo = ComplexBall::new();
+    let mut hi = ComplexBall::new();
+    let mut integrand = Integrand { env, class, evaluate, f, failed: false };
+    unsafe {
+        acb_set_arb(lo.as_mut_ptr(), (*(a as *mut Ball)).as_ptr());
+        acb_set_arb(hi.as_mut_ptr(), (*(b as *mut Ball)).as_ptr());
+        let mut options = MaybeUninit::<acb_calc_integrate_opt_struct>::uninit();
+        acb_calc_integrate_opt_init(options.as_mut_ptr());
+        let mut tol = MaybeUninit::<mag_struct>::uninit();
+        mag_init(tol.as_mut_ptr());
+        mag_set_ui_2exp_si(tol.as_mut_ptr(), 1, -(goal as slong));
+        // The result is a valid enclosure even if the evaluation limits are
+        // hit, only a wider one, so the status is not reported.
+        acb_calc_integrate(dest.as_mut_ptr(), Some(evaluate_integrand), &mut integrand as *mut Integrand as *mut c_void,
+                           lo.as_mut_ptr(), hi.as_mut_ptr(), goal as slong, tol.as_mut_ptr(), options.as_mut_ptr(),
+                           precision as slong);
+        mag_clear(tol.as_mut_ptr());
+    }
+}
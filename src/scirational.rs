@@ -16,9 +16,9 @@
     along with this program.  If not, see <http://www.gnu.org/licenses/>.
 */
 
-use std::collections::hash_map::DefaultHasher;
-use std::hash::{Hash, Hasher};
 use std::ops::{BitAnd, BitOr, BitXor, Not, Shl, Shr};
+use std::sync::{Arc, Mutex};
+use std::thread;
 
 // This is the interface to the JVM that we'll call the majority of our
 // methods on.
@@ -32,11 +32,20 @@ use jni::objects::{JClass, JString, JObject, JValue, JMap};
 // This is just a pointer. We'll be returning it from our function. We
 // can't return one of the objects with lifetime information because the
 // lifetime checker won't let us.
-use jni::sys::{jstring, jlong, jint, jobject, jboolean};
+use jni::sys::{jstring, jlong, jint, jobject, jboolean, jlongArray};
 
 use rug::ops::Pow;
 use rug::{Rational, Float, Integer, Assign};
 
+use arb_sys::bernoulli::bernoulli_fmpq_ui;
+use flint_sys::arith::arith_bernoulli_number_vec;
+use flint_sys::deps::__mpq_struct;
+use flint_sys::fmpq::{fmpq, fmpq_clear, fmpq_get_mpq, fmpq_init, _fmpq_vec_clear, _fmpq_vec_init};
+
+use crate::product_tree::{read_pointers, split_depth};
+use crate::sciinteger::linear_product;
+use crate::sciinteger::limb_hash;
+
 #[no_mangle]
 pub extern "system" fn Java_palaiologos_scijava_SciRational_free(_env: JNIEnv, _class: JClass, ptr: jlong) {
     let ptr = ptr as *mut Rational;
@@ -98,38 +107,21 @@ pub extern "system" fn Java_palaiologos_scijava_SciRational_fromSciInteger(env:
     }
 }
 
+// The numerator and denominator are handed out as pointers into the rational's
+// own storage; the Java side wraps them in views that keep the parent alive and
+// never free them.
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciRational_num(env: JNIEnv, _class: JClass, ptr: jlong) -> jobject {
+pub extern "system" fn Java_palaiologos_scijava_SciRational_num(_env: JNIEnv, _class: JClass, ptr: jlong) -> jlong {
     let ptr = ptr as *mut Rational;
     let n = unsafe { &*ptr };
-    let n = n.numer();
-    let ptr = Box::into_raw(Box::new(n));
-    let ptr = ptr as jlong;
-    let obj = env.new_object("palaiologos/scijava/SciInteger", "(J)V", &[ptr.into()]);
-    match obj {
-        Ok(obj) => obj.into_raw(),
-        Err(_) => {
-            let _ = env.throw(("java/lang/RuntimeException", "Failed to allocate object."));
-            JObject::null().into_raw()
-        }
-    }
+    n.numer() as *const Integer as jlong
 }
 
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciRational_den(env: JNIEnv, _class: JClass, ptr: jlong) -> jobject {
+pub extern "system" fn Java_palaiologos_scijava_SciRational_den(_env: JNIEnv, _class: JClass, ptr: jlong) -> jlong {
     let ptr = ptr as *mut Rational;
     let n = unsafe { &*ptr };
-    let n = n.denom();
-    let ptr = Box::into_raw(Box::new(n));
-    let ptr = ptr as jlong;
-    let obj = env.new_object("palaiologos/scijava/SciInteger", "(J)V", &[ptr.into()]);
-    match obj {
-        Ok(obj) => obj.into_raw(),
-        Err(_) => {
-            let _ = env.throw(("java/lang/RuntimeException", "Failed to allocate object."));
-            JObject::null().into_raw()
-        }
-    }
+    n.denom() as *const Integer as jlong
 }
 
 #[no_mangle]
@@ -254,12 +246,10 @@ pub extern "system" fn Java_palaiologos_scijava_SciRational_sub(_env: JNIEnv, _c
 }
 
 #[no_mangle]
-pub extern "system" fn Java_palaiologos_scijava_SciRational_hash(env: JNIEnv, _class: JClass, ptr: jlong) -> jlong {
+pub extern "system" fn Java_palaiologos_scijava_SciRational_hash(_env: JNIEnv, _class: JClass, ptr: jlong) -> jlong {
     let ptr = ptr as *mut Rational;
     let n = unsafe { &*ptr };
-    let mut hasher = DefaultHasher::new();
-    n.hash(&mut hasher);
-    hasher.finish() as jlong
+    (limb_hash(n.numer()) ^ limb_hash(n.denom()).rotate_left(32)) as jlong
 }
 
 #[no_mangle]
@@ -509,3 +499,161 @@ pub extern "system" fn Java_palaiologos_scijava_SciRational_pow(_env: JNIEnv, _c
     *dest = a.pow(exp).into();
 }
 
+
+// B_0, ..., B_{len - 1}, shared by all threads and extended on demand. The
+// lock only guards swapping the table; readers keep their own reference.
+static BERNOULLI: Mutex<Option<Arc<Vec<Rational>>>> = Mutex::new(None);
+
+fn fmpq_to_rational(q: *const fmpq) -> Rational {
+    let mut r = Rational::new();
+    unsafe { fmpq_get_mpq(r.as_raw_mut() as *mut __mpq_struct, q); }
+    r
+}
+
+// FLINT computes the whole vector at once (multi-modular for large lengths),
+// which is much cheaper than computing the entries one by one.
+fn bernoulli_vec(len: usize) -> Vec<Rational> {
+    unsafe {
+        let v = _fmpq_vec_init(len as _);
+        arith_bernoulli_number_vec(v, len as _);
+        let out = (0..len).map(|i| fmpq_to_rational(v.add(i))).collect();
+        _fmpq_vec_clear(v, len as _);
+        out
+    }
+}
+
+fn current_table() -> Arc<Vec<Rational>> {
+    BERNOULLI.lock().unwrap().get_or_insert_with(|| Arc::new(Vec::new())).clone()
+}
+
+// The table covering at least B_0, ..., B_n. FLINT cannot extend a vector, so
+// growing recomputes the whole table; it grows by at least half of its length
+// so that the total work over a sequence of slowly increasing requests is a
+// constant multiple of the largest one. The table is computed without holding
+// the lock, so lookups on other threads are not blocked; if two threads grow
+// it at once, the longer table is kept.
+pub fn bernoulli_table(n: usize) -> Arc<Vec<Rational>> {
+    let current = current_table();
+    if current.len() > n {
+        return current;
+    }
+    let len = (n + 1).max(current.len() + current.len() / 2);
+    let grown = Arc::new(bernoulli_vec(len));
+    let mut table = BERNOULLI.lock().unwrap();
+    if let Some(t) = table.as_ref() {
+        if t.len() >= grown.len() {
+            return t.clone();
+        }
+    }
+    *table = Some(grown.clone());
+    grown
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciRational_bernoulli(_env: JNIEnv, _class: JClass, dest: jlong, n: jint) {
+    let dest = unsafe { &mut *(dest as *mut Rational) };
+    if let Some(b) = current_table().get(n as usize) {
+        *dest = b.clone();
+        return;
+    }
+    unsafe {
+        let mut q = fmpq::default();
+        fmpq_init(&mut q);
+        bernoulli_fmpq_ui(&mut q, n as _);
+        *dest = fmpq_to_rational(&q);
+        fmpq_clear(&mut q);
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciRational_bernoulliTable(env: JNIEnv, _class: JClass, dest: jlongArray, up_to: jint) {
+    let dest = match read_pointers(&env, dest) {
+        Some(d) => d,
+        None => return,
+    };
+    let table = bernoulli_table(up_to as usize);
+    for (d, b) in dest.into_iter().zip(table.iter()) {
+        unsafe { *(d as *mut Rational) = b.clone(); }
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciRational_freeBernoulliTable(_env: JNIEnv, _class: JClass) {
+    *BERNOULLI.lock().unwrap() = None;
+}
+
+// Ranges shorter than this are not split across threads.
+const HARMONIC_PARALLEL_THRESHOLD: u64 = 1 << 12;
+
+// sum_{k=a}^{b-1} 1/k as an unreduced fraction p/q, merging halves with
+// p = p_l q_r + p_r q_l and q = q_l q_r. The top depth levels run the two
+// halves on separate threads.
+fn harmonic_split(a: u64, b: u64, depth: u32) -> (Integer, Integer) {
+    if b - a == 1 {
+        return (Integer::from(1), Integer::from(a));
+    }
+    let m = a + (b - a) / 2;
+    let ((pl, ql), (pr, qr)) = if depth > 0 && b - a >= HARMONIC_PARALLEL_THRESHOLD {
+        thread::scope(|s| {
+            let left = s.spawn(|| harmonic_split(a, m, depth - 1));
+            let right = harmonic_split(m, b, depth - 1);
+            (left.join().unwrap(), right)
+        })
+    } else {
+        (harmonic_split(a, m, 0), harmonic_split(m, b, 0))
+    };
+    (pl * &qr + pr * &ql, ql * qr)
+}
+
+// H_n = 1 + 1/2 + ... + 1/n, exactly.
+pub fn harmonic(n: u64) -> Rational {
+    if n == 0 {
+        return Rational::new();
+    }
+    Rational::from(harmonic_split(1, n + 1, split_depth()))
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciRational_harmonic(_env: JNIEnv, _class: JClass, dest: jlong, n: jlong) {
+    let dest = unsafe { &mut *(dest as *mut Rational) };
+    *dest = harmonic(n as u64);
+}
+
+// x (x + 1) ... (x + n - 1) for x = p / q, as the product of p + k q over q^n,
+// or x (x - 1) ... (x - n + 1) with the step negated if falling is set.
+// n is below 2^32, which the Java side checks.
+fn factorial_power(x: &Rational, n: u64, falling: bool) -> Rational {
+    let (p, q) = (x.numer(), x.denom());
+    let step = if falling { Integer::from(-q) } else { q.clone() };
+    let num = linear_product(p, &step, 0, n, split_depth());
+    Rational::from((num, q.clone().pow(n as u32)))
+}
+
+// A negative order gives 1 / rising(x + n, -n), resp. 1 / rising(x + 1, -n)
+// for the falling factorial.
+fn factorial_power_native(env: JNIEnv, dest: jlong, a: jlong, n: jlong, falling: bool) {
+    let a = unsafe { &*(a as *const Rational) };
+    let dest = unsafe { &mut *(dest as *mut Rational) };
+    if n >= 0 {
+        *dest = factorial_power(a, n as u64, falling);
+        return;
+    }
+    let m = n.unsigned_abs();
+    let base = if falling { Rational::from(a + Integer::from(1)) } else { Rational::from(a - Integer::from(m)) };
+    let r = factorial_power(&base, m, false);
+    if r == 0 {
+        let _ = env.throw(("java/lang/ArithmeticException", "Factorial power with a negative order has a pole at this argument."));
+        return;
+    }
+    *dest = r.recip();
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciRational_risingFactorial(env: JNIEnv, _class: JClass, dest: jlong, a: jlong, n: jlong) {
+    factorial_power_native(env, dest, a, n, false);
+}
+
+#[no_mangle]
+pub extern "system" fn Java_palaiologos_scijava_SciRational_fallingFactorial(env: JNIEnv, _class: JClass, dest: jlong, a: jlong, n: jlong) {
+    factorial_power_native(env, dest, a, n, true);
+}